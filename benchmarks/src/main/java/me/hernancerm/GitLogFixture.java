@@ -0,0 +1,156 @@
+package me.hernancerm;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Synthetic output of git-log with GitLogRecordParser.PRETTY_FORMAT. The same seed is used on
+// every run, so results can be compared between releases.
+public enum GitLogFixture {
+
+    // E.g.: git timeline
+    PLAIN,
+    // E.g.: git timeline --graph --all. Includes connector lines like `|\`.
+    GRAPH,
+    // Commits decorated with many branches and tags, e.g., on a busy integration branch.
+    MANY_REFS,
+    // Subjects full of Jira keys and `#123` references.
+    ISSUE_KEYS;
+
+    private static final String[] NAMES = {
+            "Hernán Cervera", "Jane Committer", "Bob", "李小龍", "Zoë Müller", "Ana", "Robert Tables",
+            "Sasha Ivanova", "Kim Min-jun", "Dependabot[bot]", "GitHub", "José Ñúñez"};
+
+    private static final String[] MONTHS = {
+            "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"};
+
+    private static final String[] SUBJECTS = {
+            "Fix NPE when the remote has no owner",
+            "Update dependency org.jline:jline to v3.30.6",
+            "Refactor the record parser",
+            "Add completions for zsh",
+            "Merge branch 'main' into feature/parser",
+            "Bump version to 2.2"};
+
+    public static final String REMOTE_NONE = "none";
+
+    // Remote by the name of a built-in hosting provider (see GitHostingProvider), or none, e.g.,
+    // for a JMH @Param.
+    public static GitRemote remote(String name) {
+        if (REMOTE_NONE.equals(name)) {
+            return null;
+        }
+        String url = switch (name) {
+            case "github" -> "git@github.com:hernancerm/git-timeline.git";
+            case "bitbucket" -> "git@bitbucket.org:hernancerm/git-timeline.git";
+            case "gitlab" -> "git@gitlab.com:hernancerm/git-timeline.git";
+            case "gitea" -> "git@codeberg.org:hernancerm/git-timeline.git";
+            default -> throw new IllegalArgumentException("Unknown hosting provider: " + name);
+        };
+        return GitRemote.parse(url, GitHostingProviders.BUILT_IN);
+    }
+
+    // The lines of the output, without line terminators.
+    public byte[][] lines(int commitCount) {
+        Random random = new Random(commitCount);
+        List<byte[]> lines = new ArrayList<>();
+        int graphColumn = 0;
+        for (int i = 0; i < commitCount; i++) {
+            boolean isMergeCommit = this == GRAPH ? i % 4 == 0 : i % 20 == 0;
+            String prefix = "";
+            if (this == GRAPH) {
+                prefix = "| ".repeat(graphColumn) + "* ";
+                if (isMergeCommit) {
+                    lines.add(record(random, i, prefix, true));
+                    lines.add(bytes("| ".repeat(graphColumn) + "|\\"));
+                    graphColumn = Math.min(graphColumn + 1, 3);
+                    continue;
+                } else if (graphColumn > 0 && i % 4 == 3) {
+                    lines.add(record(random, i, prefix, false));
+                    lines.add(bytes("| ".repeat(graphColumn - 1) + "|/"));
+                    graphColumn--;
+                    continue;
+                }
+            }
+            lines.add(record(random, i, prefix, isMergeCommit));
+        }
+        return lines.toArray(byte[][]::new);
+    }
+
+    // The lines of the output, each one terminated by `\n`.
+    public byte[] output(int commitCount) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        for (byte[] line : lines(commitCount)) {
+            output.writeBytes(line);
+            output.write('\n');
+        }
+        return output.toByteArray();
+    }
+
+    private byte[] record(Random random, int i, String prefix, boolean isMergeCommit) {
+        String fullHash = hash(random, 40);
+        String parents = isMergeCommit
+                ? hash(random, 7) + " " + hash(random, 7)
+                : hash(random, 7);
+        String author = NAMES[random.nextInt(NAMES.length)];
+        // Mostly the author, sometimes a maintainer applying the patch.
+        String committer = random.nextInt(5) == 0 ? NAMES[random.nextInt(NAMES.length)] : author;
+        String date = MONTHS[(i / 90) % 12] + "/" + String.format("%02d", 1 + (i / 3) % 28) + "/2025";
+        return bytes(prefix + "\u001e" + String.join("\u001f",
+                fullHash,
+                fullHash.substring(0, 7),
+                parents,
+                refNames(random, i),
+                committer,
+                author,
+                date,
+                subjectLine(random, i)) + "\u001e");
+    }
+
+    // As printed by `%C(auto)%d`.
+    private String refNames(Random random, int i) {
+        if (this == MANY_REFS) {
+            StringBuilder refNames = new StringBuilder(" (");
+            int refCount = 4 + random.nextInt(8);
+            for (int j = 0; j < refCount; j++) {
+                if (j > 0) {
+                    refNames.append(", ");
+                }
+                switch (j % 3) {
+                    case 0 -> refNames.append("\033[1;32mfeature/ABC-").append(i * 10 + j).append("\033[m");
+                    case 1 -> refNames.append("\033[1;31morigin/release/1.").append(j).append("\033[m");
+                    default -> refNames.append("\033[1;33mtag: v2.").append(i).append('.').append(j).append("\033[m");
+                }
+            }
+            return refNames.append(')').toString();
+        }
+        if (i == 0) {
+            return " (\033[1;36mHEAD -> \033[m\033[1;32mmain\033[m, \033[1;31morigin/main\033[m)";
+        }
+        return i % 50 == 0 ? " (\033[1;33mtag: v1." + i / 50 + "\033[m)" : "";
+    }
+
+    private String subjectLine(Random random, int i) {
+        if (this == ISSUE_KEYS) {
+            return "ABC-" + i + " DEF-" + random.nextInt(1000) + ": Fix the parser of v1.2 (#" + (i + 100)
+                    + "), see #" + random.nextInt(1000) + " and XYZ-" + random.nextInt(100)
+                    + ", follow-up of ABC-" + random.nextInt(i + 1) + " #" + random.nextInt(1000);
+        }
+        String subjectLine = SUBJECTS[random.nextInt(SUBJECTS.length)];
+        return i % 3 == 0 ? subjectLine + " (#" + (i + 100) + ")" : subjectLine;
+    }
+
+    private static String hash(Random random, int length) {
+        StringBuilder hash = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            hash.append(Character.forDigit(random.nextInt(16), 16));
+        }
+        return hash.toString();
+    }
+
+    private static byte[] bytes(String line) {
+        return line.getBytes(StandardCharsets.UTF_8);
+    }
+}
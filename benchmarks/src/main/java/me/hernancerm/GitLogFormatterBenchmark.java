@@ -0,0 +1,75 @@
+package me.hernancerm;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Formatting parsed commits, including their hyperlinks and SGR sequences. An operation is a
+// commit.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class GitLogFormatterBenchmark {
+
+    static final int COMMIT_COUNT = 1000;
+
+    @Param({"PLAIN", "GRAPH", "MANY_REFS", "ISSUE_KEYS"})
+    private GitLogFixture fixture;
+
+    @Param({"none", "github", "bitbucket"})
+    private String remote;
+
+    private GitCommit[] commits;
+    private final GitLogFormatter formatter = new GitLogFormatter();
+    private final StringBuilder line = new StringBuilder(256);
+
+    @Setup
+    public void setUp() {
+        AnsiUtils.setEnabled(true);
+        commits = parse(fixture.lines(COMMIT_COUNT), GitLogFixture.remote(remote));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMMIT_COUNT)
+    public void format(Blackhole blackhole) {
+        for (GitCommit commit : commits) {
+            line.setLength(0);
+            formatter.format(commit, line);
+            blackhole.consume(line.length());
+        }
+    }
+
+    static GitCommit[] parse(byte[][] lines, GitRemote remote) {
+        GitLogRecordParser parser = new GitLogRecordParser(StandardCharsets.UTF_8);
+        List<GitCommit> commits = new ArrayList<>();
+        for (byte[] line : lines) {
+            int recordStart = GitLogRecordParser.findRecordStart(ByteBuffer.wrap(line), 0, line.length);
+            if (recordStart >= 0) {
+                GitCommit commit = new GitCommit();
+                parser.parse(line, recordStart, GitLogRecordParser.findRecordEnd(line, recordStart, line.length), commit);
+                commit.setRemote(remote);
+                commits.add(commit);
+            }
+        }
+        return commits.toArray(GitCommit[]::new);
+    }
+}
@@ -0,0 +1,66 @@
+package me.hernancerm;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Splitting the lines of git-log into records and parsing them. An operation is a commit,
+// including its share of graph connector lines.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class GitLogRecordParserBenchmark {
+
+    static final int COMMIT_COUNT = 1000;
+
+    @Param({"PLAIN", "GRAPH", "MANY_REFS", "ISSUE_KEYS"})
+    private GitLogFixture fixture;
+
+    private byte[][] lines;
+    // Views of the lines, like the buffer of GitLogReader.
+    private ByteBuffer[] buffers;
+    private GitLogRecordParser parser;
+    private final GitCommit commit = new GitCommit();
+
+    @Setup
+    public void setUp() {
+        lines = fixture.lines(COMMIT_COUNT);
+        buffers = new ByteBuffer[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            buffers[i] = ByteBuffer.wrap(lines[i]);
+        }
+        parser = new GitLogRecordParser(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMMIT_COUNT)
+    public void parse(Blackhole blackhole) {
+        for (int i = 0; i < lines.length; i++) {
+            byte[] line = lines[i];
+            int recordStart = GitLogRecordParser.findRecordStart(buffers[i], 0, line.length);
+            if (recordStart >= 0) {
+                int recordEnd = GitLogRecordParser.findRecordEnd(line, recordStart, line.length);
+                parser.parse(line, recordStart, recordEnd, commit);
+                blackhole.consume(commit.getSubjectLine());
+                commit.reset();
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package me.hernancerm;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The whole render path of `git timeline --no-pager | cat`, as in GitLogProcessBuilder without
+// the pipeline: reading the bytes of git-log, copying the lines without records, parsing and
+// formatting the records and encoding them into the output. An operation is a commit.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class GitLogRenderBenchmark {
+
+    static final int COMMIT_COUNT = 10_000;
+
+    @Param({"PLAIN", "GRAPH", "MANY_REFS", "ISSUE_KEYS"})
+    private GitLogFixture fixture;
+
+    @Param({"none", "github", "bitbucket"})
+    private String remote;
+
+    private byte[] output;
+    private GitRemote gitRemote;
+
+    @Setup
+    public void setUp() {
+        AnsiUtils.setEnabled(true);
+        output = fixture.output(COMMIT_COUNT);
+        gitRemote = GitLogFixture.remote(remote);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMMIT_COUNT)
+    public void render() throws IOException {
+        GitLogReader reader = new GitLogReader(Channels.newChannel(new ByteArrayInputStream(output)));
+        OutputSink outputSink = new ChannelOutputSink(
+                Channels.newChannel(OutputStream.nullOutputStream()), StandardCharsets.UTF_8, () -> {});
+        GitLogRecordParser parser = new GitLogRecordParser(StandardCharsets.UTF_8);
+        GitLogFormatter formatter = new GitLogFormatter();
+        GitCommit commit = new GitCommit();
+        StringBuilder lineBuilder = new StringBuilder();
+        reader.read(new GitLogSource.Handler() {
+            @Override
+            public void passThrough(ByteBuffer bytes) throws IOException {
+                outputSink.write(bytes);
+            }
+
+            @Override
+            public void record(byte[] line, int recordStart, int length) throws IOException {
+                outputSink.write(ByteBuffer.wrap(line, 0, recordStart));
+                int recordEnd = GitLogRecordParser.findRecordEnd(line, recordStart, length);
+                parser.parse(line, recordStart, recordEnd, commit);
+                commit.setRemote(gitRemote);
+                lineBuilder.setLength(0);
+                formatter.format(commit, lineBuilder);
+                commit.reset();
+                outputSink.println(lineBuilder);
+            }
+        }, () -> false);
+        outputSink.close();
+    }
+}
@@ -0,0 +1,73 @@
+package me.hernancerm;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Hyperlinking the subject lines and the ref names of commits. An operation is a commit.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class LinkifierBenchmark {
+
+    static final int COMMIT_COUNT = 1000;
+
+    @Param({"PLAIN", "MANY_REFS", "ISSUE_KEYS"})
+    private GitLogFixture fixture;
+
+    @Param({"none", "github", "bitbucket"})
+    private String remote;
+
+    private String[] subjectLines;
+    private String[] refNames;
+    private Linkifier linkifier;
+    private final StringBuilder output = new StringBuilder(256);
+
+    @Setup
+    public void setUp() {
+        AnsiUtils.setEnabled(true);
+        GitCommit[] commits = GitLogFormatterBenchmark.parse(fixture.lines(COMMIT_COUNT), null);
+        subjectLines = new String[commits.length];
+        refNames = new String[commits.length];
+        for (int i = 0; i < commits.length; i++) {
+            subjectLines[i] = commits[i].getSubjectLine();
+            refNames[i] = commits[i].getRefNamesColored();
+        }
+        linkifier = Linkifier.of(GitLogFixture.remote(remote));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMMIT_COUNT)
+    public void appendSubjectLine(Blackhole blackhole) {
+        for (String subjectLine : subjectLines) {
+            output.setLength(0);
+            linkifier.appendSubjectLine(output, subjectLine);
+            blackhole.consume(output.length());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMMIT_COUNT)
+    public void appendRefNames(Blackhole blackhole) {
+        for (String refName : refNames) {
+            output.setLength(0);
+            linkifier.appendRefNames(output, refName);
+            blackhole.consume(output.length());
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package me.hernancerm;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// Regression check of the native binary against the uber JAR: startup (`--version`) and
+// throughput over a repo of 500k commits (`--no-pager`, plain and `--graph`). Each run is a new
+// process, as a user runs it. Fails when the binary starts slower than the JAR, or its throughput
+// is below the given ratio of the throughput of the JAR.
+//
+// Only needs the JDK, so it runs as a source file: `make bench-native`.
+//
+// Usage: NativeBenchmark <binary> <uber JAR> <dir of the fixture repo> [min throughput ratio]
+public class NativeBenchmark {
+
+    private static final int COMMIT_COUNT = 500_000;
+    private static final int STARTUP_RUNS = 10;
+    private static final int THROUGHPUT_RUNS = 3;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            throw new IllegalArgumentException(
+                    "Usage: NativeBenchmark <binary> <uber JAR> <dir of the fixture repo> [min throughput ratio]");
+        }
+        String binary = Path.of(args[0]).toAbsolutePath().toString();
+        String jar = Path.of(args[1]).toAbsolutePath().toString();
+        Path repo = Path.of(args[2]).toAbsolutePath();
+        double minThroughputRatio = args.length > 3 ? Double.parseDouble(args[3]) : 0.8;
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        if (!Files.isDirectory(repo.resolve(".git"))) {
+            createRepo(repo);
+        }
+
+        List<String> failures = new ArrayList<>();
+        System.out.printf(Locale.ROOT, "%-28s %14s %14s%n", "", "native", "uber JAR");
+
+        double nativeStartup = median(binary(binary, "--version"), repo, STARTUP_RUNS);
+        double jarStartup = median(jar(java, jar, "--version"), repo, STARTUP_RUNS);
+        System.out.printf(Locale.ROOT, "%-28s %11.1f ms %11.1f ms%n", "startup (--version)", nativeStartup, jarStartup);
+        if (nativeStartup >= jarStartup) {
+            failures.add("The binary starts slower than the JAR");
+        }
+
+        for (List<String> workload : List.of(List.of("--no-pager"), List.of("--no-pager", "--graph"))) {
+            String[] workloadArgs = workload.toArray(new String[0]);
+            double nativeThroughput = COMMIT_COUNT / median(binary(binary, workloadArgs), repo, THROUGHPUT_RUNS) * 1000;
+            double jarThroughput = COMMIT_COUNT / median(jar(java, jar, workloadArgs), repo, THROUGHPUT_RUNS) * 1000;
+            System.out.printf(Locale.ROOT, "%-28s %9.0f c/s %9.0f c/s%n",
+                    String.join(" ", workload), nativeThroughput, jarThroughput);
+            if (nativeThroughput < jarThroughput * minThroughputRatio) {
+                failures.add(String.format(Locale.ROOT,
+                        "The throughput of the binary (%s) is below %.2f of the JAR", String.join(" ", workload),
+                        minThroughputRatio));
+            }
+        }
+
+        if (!failures.isEmpty()) {
+            failures.forEach(failure -> System.out.println("FAIL: " + failure));
+            System.exit(1);
+        }
+    }
+
+    private static List<String> binary(String binary, String... args) {
+        List<String> command = new ArrayList<>(List.of(binary));
+        command.addAll(List.of(args));
+        return command;
+    }
+
+    private static List<String> jar(String java, String jar, String... args) {
+        List<String> command = new ArrayList<>(List.of(java, "-jar", jar));
+        command.addAll(List.of(args));
+        return command;
+    }
+
+    // Median wall time in ms, after a run to warm up the file system cache.
+    private static double median(List<String> command, Path repo, int runs) throws IOException, InterruptedException {
+        run(command, repo);
+        double[] millis = new double[runs];
+        for (int i = 0; i < runs; i++) {
+            millis[i] = run(command, repo);
+        }
+        Arrays.sort(millis);
+        return millis[runs / 2];
+    }
+
+    private static double run(List<String> command, Path repo) throws IOException, InterruptedException {
+        long startNanos = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .directory(repo.toFile())
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        int exitValue = process.waitFor();
+        double millis = (System.nanoTime() - startNanos) / 1e6;
+        if (exitValue != 0) {
+            throw new IllegalStateException("Exit value " + exitValue + " of: " + String.join(" ", command));
+        }
+        return millis;
+    }
+
+    // Linear history with a merge every 20 commits and a tag every 1000, written with
+    // git-fast-import. Commits have no files, as only the log is read.
+    private static void createRepo(Path repo) throws IOException, InterruptedException {
+        Files.createDirectories(repo);
+        git(repo, "init", "--quiet", "--initial-branch=main");
+        Process fastImport = new ProcessBuilder("git", "-C", repo.toString(), "fast-import", "--quiet")
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        try (OutputStream stream = fastImport.getOutputStream()) {
+            StringBuilder commit = new StringBuilder();
+            int mark = 0;
+            for (int i = 0; i < COMMIT_COUNT; i++) {
+                int parentMark = mark;
+                int branchMark = 0;
+                if (i % 20 == 19) {
+                    branchMark = ++mark;
+                    appendCommit(commit, "refs/heads/topic", branchMark, parentMark, 0, i, "ABC-" + i + " Fix the parser");
+                }
+                appendCommit(commit, "refs/heads/main", ++mark, parentMark, branchMark, i,
+                        branchMark > 0 ? "Merge branch 'topic' (#" + i + ")" : "Refactor the formatter, see #" + i);
+                if (i % 1000 == 0) {
+                    commit.append("reset refs/tags/v").append(i / 1000).append("\nfrom :").append(mark).append("\n\n");
+                }
+                stream.write(commit.toString().getBytes(StandardCharsets.UTF_8));
+                commit.setLength(0);
+            }
+        }
+        if (fastImport.waitFor() != 0) {
+            throw new IllegalStateException("Error running git fast-import in: " + repo);
+        }
+        git(repo, "checkout", "--quiet", "main");
+        git(repo, "remote", "add", "origin", "git@github.com:hernancerm/git-timeline.git");
+    }
+
+    private static void appendCommit(
+            StringBuilder stream, String ref, int mark, int fromMark, int mergeMark, int i, String subject) {
+        long time = 1_000_000_000L + i * 600L;
+        String author = i % 3 == 0 ? "Hernán Cervera" : "Jane Committer";
+        stream.append("commit ").append(ref).append('\n')
+                .append("mark :").append(mark).append('\n')
+                .append("author ").append(author).append(" <a@example.com> ").append(time).append(" +0000\n")
+                .append("committer ").append(author).append(" <a@example.com> ").append(time).append(" +0000\n")
+                .append("data ").append(subject.length()).append('\n')
+                .append(subject).append('\n');
+        if (fromMark > 0) {
+            stream.append("from :").append(fromMark).append('\n');
+        }
+        if (mergeMark > 0) {
+            stream.append("merge :").append(mergeMark).append('\n');
+        }
+        stream.append('\n');
+    }
+
+    private static void git(Path repo, String... args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(List.of("git", "-C", repo.toString()));
+        command.addAll(List.of(args));
+        Process process = new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("Error running: " + String.join(" ", command));
+        }
+    }
+}
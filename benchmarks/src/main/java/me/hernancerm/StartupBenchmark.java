@@ -0,0 +1,84 @@
+package me.hernancerm;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// Cold start of the uber JAR with and without its AOT cache: wall time of whole runs of
+// git-timeline, each one in a new JVM. Not a JMH benchmark, as JMH measures a warm JVM.
+//
+// Only needs the JDK, so it runs as a source file: `make bench-startup`.
+//
+// Usage: StartupBenchmark <dir created by the aot profile> <repo> [runs]
+public class StartupBenchmark {
+
+    private static final List<List<String>> WORKLOADS = List.of(
+            List.of("--version"),
+            List.of("--no-pager", "-n", "20"),
+            List.of("--no-pager", "--graph", "-n", "200"));
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Usage: StartupBenchmark <dir created by the aot profile> <repo> [runs]");
+        }
+        Path aotDirectory = Path.of(args[0]).toAbsolutePath();
+        Path repo = Path.of(args[1]).toAbsolutePath();
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        Path jar = aotDirectory.resolve("git-timeline.jar");
+        Path cache = aotDirectory.resolve("git-timeline.aot");
+        if (!Files.isRegularFile(jar) || !Files.isRegularFile(cache)) {
+            throw new IllegalStateException("JAR or AOT cache not found in: " + aotDirectory);
+        }
+        // The cache only works with the JDK which created it.
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+
+        System.out.printf(Locale.ROOT, "Cold start of git-timeline in ms, %d runs: median (min)%n", runs);
+        System.out.printf(Locale.ROOT, "%-36s %16s %16s%n", "args", "no cache", "AOT cache");
+        for (List<String> workload : WORKLOADS) {
+            List<String> withoutCache = new ArrayList<>(List.of(java, "-jar", jar.toString()));
+            withoutCache.addAll(workload);
+            List<String> withCache = new ArrayList<>(List.of(
+                    java, "-XX:AOTCache=" + cache, "-XX:AOTMode=on", "-jar", jar.toString()));
+            withCache.addAll(workload);
+            System.out.printf(Locale.ROOT, "%-36s %16s %16s%n",
+                    String.join(" ", workload),
+                    format(measure(withoutCache, repo, runs)),
+                    format(measure(withCache, repo, runs)));
+        }
+    }
+
+    private static double[] measure(List<String> command, Path repo, int runs)
+            throws IOException, InterruptedException {
+        // Warm-up of the file system cache, so the first run is not an outlier.
+        run(command, repo);
+        double[] millis = new double[runs];
+        for (int i = 0; i < runs; i++) {
+            millis[i] = run(command, repo);
+        }
+        Arrays.sort(millis);
+        return millis;
+    }
+
+    private static double run(List<String> command, Path repo) throws IOException, InterruptedException {
+        long startNanos = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .directory(repo.toFile())
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        int exitValue = process.waitFor();
+        double millis = (System.nanoTime() - startNanos) / 1e6;
+        if (exitValue != 0) {
+            throw new IllegalStateException("Exit value " + exitValue + " of: " + String.join(" ", command));
+        }
+        return millis;
+    }
+
+    private static String format(double[] sortedMillis) {
+        return String.format(Locale.ROOT, "%.1f (%.1f)", sortedMillis[sortedMillis.length / 2], sortedMillis[0]);
+    }
+}
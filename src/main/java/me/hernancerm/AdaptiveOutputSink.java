@@ -0,0 +1,212 @@
+package me.hernancerm;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.concurrent.TimeUnit;
+
+// Sink for interactive output (the pager or a terminal). The lines of the first screen are
+// flushed one by one so the first paint is instant. After that, the output is flushed in big
+// chunks, either when the buffer is full or when the oldest buffered line is a bit old.
+// Once the reader goes away (broken pipe), the output is discarded and the callback is run.
+public class AdaptiveOutputSink implements OutputSink {
+
+    // More than the height of any reasonable terminal.
+    private static final int FIRST_SCREEN_LINES = 200;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long FLUSH_INTERVAL_MILLIS = 50;
+    private static final long FLUSH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL_MILLIS);
+
+    private final OutputStream outputStream;
+    private final boolean isOutputStreamOwned;
+    private final Runnable onOutputClosed;
+    private final CharsetEncoder encoder;
+    private final CharBuffer lineSeparator;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    private long printedLines;
+    private long lastFlushNanos;
+    private Thread flusherThread;
+    private boolean closed;
+    private boolean outputClosed;
+
+    private AdaptiveOutputSink(
+            OutputStream outputStream,
+            boolean isOutputStreamOwned,
+            Charset charset,
+            Runnable onOutputClosed
+    ) {
+        this.outputStream = outputStream;
+        this.isOutputStreamOwned = isOutputStreamOwned;
+        this.onOutputClosed = onOutputClosed;
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.lineSeparator = CharBuffer.wrap(System.lineSeparator()).asReadOnlyBuffer();
+    }
+
+    // Closing the sink closes the stdin of the pager, which signals EOF to it.
+    public static AdaptiveOutputSink forPager(
+            Process pagerProcess,
+            Charset charset,
+            TimelineStats stats,
+            Runnable onOutputClosed
+    ) {
+        return new AdaptiveOutputSink(
+                stats.measureOutput(pagerProcess.getOutputStream()), true, charset, onOutputClosed);
+    }
+
+    // Closing the sink leaves stdout open.
+    public static AdaptiveOutputSink forStdout(
+            OutputStream stdout,
+            Charset charset,
+            TimelineStats stats,
+            Runnable onOutputClosed
+    ) {
+        return new AdaptiveOutputSink(
+                stats.measureOutput(stdout), false, charset, onOutputClosed);
+    }
+
+    @Override
+    public synchronized void println(CharSequence line) throws IOException {
+        if (closed) {
+            throw new IOException("The output sink is closed");
+        }
+        if (outputClosed) {
+            return;
+        }
+        encode(CharBuffer.wrap(line));
+        encode(lineSeparator.rewind());
+        afterPrinting(1);
+    }
+
+    @Override
+    public synchronized void write(ByteBuffer bytes) throws IOException {
+        if (closed) {
+            throw new IOException("The output sink is closed");
+        }
+        if (outputClosed) {
+            return;
+        }
+        // Lines are only counted while on the first screen.
+        int lines = 0;
+        if (printedLines < FIRST_SCREEN_LINES) {
+            for (int i = bytes.position(); i < bytes.limit(); i++) {
+                if (bytes.get(i) == '\n') {
+                    lines++;
+                }
+            }
+        }
+        while (!outputClosed && bytes.hasRemaining()) {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            int length = Math.min(bytes.remaining(), buffer.remaining());
+            buffer.put(buffer.position(), bytes, bytes.position(), length);
+            buffer.position(buffer.position() + length);
+            bytes.position(bytes.position() + length);
+        }
+        afterPrinting(lines);
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (outputClosed) {
+            return;
+        }
+        try {
+            if (buffer.position() > 0) {
+                outputStream.write(buffer.array(), 0, buffer.position());
+            }
+            outputStream.flush();
+        } catch (IOException e) {
+            handleOutputClosed();
+        }
+        buffer.clear();
+        lastFlushNanos = System.nanoTime();
+    }
+
+    @Override
+    public void close() {
+        Thread flusherThreadToStop;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            flusherThreadToStop = flusherThread;
+        }
+        if (flusherThreadToStop != null) {
+            flusherThreadToStop.interrupt();
+        }
+        synchronized (this) {
+            flush();
+            if (isOutputStreamOwned) {
+                try {
+                    outputStream.close();
+                } catch (IOException e) {
+                    handleOutputClosed();
+                }
+            }
+        }
+    }
+
+    private void afterPrinting(int lines) {
+        boolean isFirstScreen = printedLines < FIRST_SCREEN_LINES;
+        printedLines += lines;
+        if (isFirstScreen) {
+            flush();
+        } else if (flusherThread == null) {
+            flusherThread = Thread.ofPlatform().daemon().name("git-timeline-flusher")
+                    .start(this::flushPeriodically);
+        } else if (System.nanoTime() - lastFlushNanos >= FLUSH_INTERVAL_NANOS) {
+            flush();
+        }
+    }
+
+    private void encode(CharBuffer chars) throws IOException {
+        encoder.reset();
+        CoderResult result;
+        while ((result = encoder.encode(chars, buffer, true)).isOverflow()) {
+            flush();
+        }
+        if (result.isError()) {
+            result.throwException();
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            flush();
+        }
+    }
+
+    // Flushes the lines left in the buffer when git-log is slow to produce more of them.
+    private void flushPeriodically() {
+        try {
+            while (true) {
+                Thread.sleep(FLUSH_INTERVAL_MILLIS);
+                synchronized (this) {
+                    if (closed) {
+                        return;
+                    }
+                    if (buffer.position() > 0 && System.nanoTime() - lastFlushNanos >= FLUSH_INTERVAL_NANOS) {
+                        flush();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            // The sink was closed.
+        }
+    }
+
+    // The reader is gone (e.g., the user quit the pager), so the output left is discarded.
+    private void handleOutputClosed() {
+        if (!outputClosed) {
+            outputClosed = true;
+            onOutputClosed.run();
+        }
+    }
+}
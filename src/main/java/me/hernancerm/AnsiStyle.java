@@ -0,0 +1,33 @@
+package me.hernancerm;
+
+// SGR escape sequences of the fixed palette, emitted straight into the output line. Same
+// sequences Jansi renders for the markup `@|<style> text|@`.
+public enum AnsiStyle {
+
+    YELLOW("\033[33m"),
+    BOLD_YELLOW("\033[1;33m"),
+    GREEN("\033[32m"),
+    CYAN("\033[36m"),
+    BOLD_CYAN("\033[1;36m"),
+    MAGENTA("\033[35m");
+
+    private static final String RESET = "\033[m";
+
+    private final String sequence;
+
+    AnsiStyle(String sequence) {
+        this.sequence = sequence;
+    }
+
+    public void appendStart(StringBuilder output) {
+        if (AnsiUtils.isEnabled()) {
+            output.append(sequence);
+        }
+    }
+
+    public static void appendReset(StringBuilder output) {
+        if (AnsiUtils.isEnabled()) {
+            output.append(RESET);
+        }
+    }
+}
@@ -1,8 +1,5 @@
 package me.hernancerm;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 public class AnsiUtils {
 
     private static boolean enabled = true;
@@ -14,143 +11,71 @@ public class AnsiUtils {
         AnsiUtils.enabled = enabled;
     }
 
-    public static String buildHyperlink(String url, String title) {
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    // Appends the hyperlink to the URL with the value, with the title, without building
+    // intermediate strings. The value and the title are given as ranges of char sequences.
+    public static void appendHyperlink(
+            StringBuilder output,
+            GitHostingProvider.Url url,
+            CharSequence value,
+            int valueStart,
+            int valueEnd,
+            CharSequence title,
+            int titleStart,
+            int titleEnd
+    ) {
         if (enabled) {
             // https://unix.stackexchange.com/a/437585
             // To get the octal escape sequences for '\e', '\a', etc., do this:
             // 1. $ echo -n '\e' > _.txt
             // 2. $ nvim _.txt
             // 3. ga
-            return "\033]8;;" + url + "\007" + title + "\033]8;;\007";
+            output.append("\033]8;;");
+            url.append(output, value, valueStart, valueEnd);
+            output.append('\007')
+                    .append(title, titleStart, titleEnd)
+                    .append("\033]8;;\007");
         } else {
-            return title;
+            output.append(title, titleStart, titleEnd);
         }
     }
 
-    public static String hyperlinkJiraIssues(String bitbucketOwner, String line) {
-
-        //   Jira URL:               https://<owner>.atlassian.net/browse/<jira-key>
-        //   <jira-key>:             Regex: [A-Z]+-\d+    E.g.: ABC-123
-
-        if (!enabled) {
-            return line;
+    // Returns the index after the escape sequence starting at the index (at ESC), e.g., to
+    // skip it when measuring or linking text. Other escapes than CSI and OSC are two chars.
+    public static int skipEscapeSequence(CharSequence line, int start) {
+        int length = line.length();
+        if (start + 1 >= length) {
+            return length;
         }
-
-        String output = line;
-        String nonHyperlinkedJiraIssueKeyRegex = "([A-Z]+-\\d+)(?!.*\007|.*[.]\\d)";
-        Pattern pattern = Pattern.compile(nonHyperlinkedJiraIssueKeyRegex);
-        Matcher matcher = pattern.matcher(output);
-
-        while (matcher.find()) {
-            StringBuilder stringBuilder = new StringBuilder(output);
-            String hyperlink = AnsiUtils.buildHyperlink(String.format(
-                            "https://%s.atlassian.net/browse/%s",
-                            bitbucketOwner, matcher.group(1)),
-                    matcher.group(1));
-            stringBuilder.replace(matcher.start(), matcher.end(), hyperlink);
-            output = stringBuilder.toString();
-            matcher = pattern.matcher(output);
+        char type = line.charAt(start + 1);
+        if (type == '[') {
+            // CSI, e.g., colors like `ESC[33m`. Ends with a byte in the range `@` to `~`.
+            int i = start + 2;
+            while (i < length && (line.charAt(i) < '@' || line.charAt(i) > '~')) {
+                i++;
+            }
+            return Math.min(i + 1, length);
+        } else if (type == ']') {
+            return skipOscSequence(line, start);
         }
-
-        return output;
+        return start + 2;
     }
 
-    public static String hyperlinkBitbucketPrNumbers(
-            String bitbucketOwner,
-            String bitbucketRepository,
-            String line
-    ) {
-
-        // Bitbucket URL:  https://bitbucket.org/<owner>/<repo>/pull-requests/<pr-number>
-        // <pr-number>:    Regex: #\d+    E.g.: #123
-
-        if (!enabled) {
-            return line;
-        }
-
-        String output = line;
-        String nonHyperlinkedBitbucketPrNumberRegex = "#(\\d+)(?!.*\\007)";
-        Pattern pattern = Pattern.compile(nonHyperlinkedBitbucketPrNumberRegex);
-        Matcher matcher = pattern.matcher(output);
-
-        while (matcher.find()) {
-            StringBuilder stringBuilder = new StringBuilder(output);
-            String hyperlink = AnsiUtils.buildHyperlink(String.format(
-                            "https://bitbucket.org/%s/%s/pull-requests/%s",
-                            bitbucketOwner, bitbucketRepository, matcher.group(1)),
-                    "#" + matcher.group(1));
-            stringBuilder.replace(matcher.start(), matcher.end(), hyperlink);
-            output = stringBuilder.toString();
-            matcher = pattern.matcher(output);
+    // OSC, e.g., hyperlinks like `ESC]8;;<url>BEL`. Ends with BEL or `ESC\`.
+    public static int skipOscSequence(CharSequence line, int start) {
+        int length = line.length();
+        for (int i = start + 2; i < length; i++) {
+            char c = line.charAt(i);
+            if (c == '\007') {
+                return i + 1;
+            }
+            if (c == '\033' && i + 1 < length && line.charAt(i + 1) == '\\') {
+                return i + 2;
+            }
         }
-
-        return output;
-    }
-
-    public static String hyperlinkGitHubIssuesAndPrNumbers(
-            String gitHubOwner,
-            String gitHubRepository,
-            String line
-    ) {
-
-        // How this method links both issues and PR numbers?:
-        // A GitHub issue URL redirects to a PR if the id matches a PR instead of an issue.
-
-        // GitHub URL:      https://github.com/<owner>/<repo>/issues/<issue-number>
-        // <issue-number>:  Regex: #\d+    E.g.: #123
-
-        if (!enabled) {
-            return line;
-        }
-
-        String output = line;
-        String nonHyperlinkedGitHubIssueNumberRegex = "#(\\d+)(?!.*\\007)";
-        Pattern pattern = Pattern.compile(nonHyperlinkedGitHubIssueNumberRegex);
-        Matcher matcher = pattern.matcher(output);
-
-        while (matcher.find()) {
-            StringBuilder stringBuilder = new StringBuilder(output);
-            String hyperlink = AnsiUtils.buildHyperlink(String.format(
-                            "https://github.com/%s/%s/issues/%s",
-                            gitHubOwner, gitHubRepository, matcher.group(1)),
-                    "#" + matcher.group(1));
-            stringBuilder.replace(matcher.start(), matcher.end(), hyperlink);
-            output = stringBuilder.toString();
-            matcher = pattern.matcher(output);
-        }
-
-        return output;
-    }
-
-    public static String hyperlinkToGitHubCommit(
-            String gitHubOwner,
-            String gitHubRepository,
-            String fullHash,
-            String line) {
-
-        if (!enabled) {
-            return line;
-        }
-
-        return buildHyperlink(String.format(
-                "https://github.com/%s/%s/commit/%s",
-                        gitHubOwner, gitHubRepository, fullHash),
-                line);
-    }
-
-    public static String hyperlinkToBitbucketCommit(
-            String bitbucketOwner,
-            String bitbucketRepository,
-            String fullHash,
-            String line) {
-
-        if (!enabled) {
-            return line;
-        }
-
-        return buildHyperlink(String.format(
-                        "https://bitbucket.org/%s/%s/commits/%s",
-                        bitbucketOwner, bitbucketRepository, fullHash),
-                line);
+        return length;
     }
 }
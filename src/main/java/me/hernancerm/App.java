@@ -3,8 +3,15 @@ package me.hernancerm;
 public class App {
 
     public static void main(String[] args) throws Exception {
+        // When enabled, the run goes to the daemon unless it cannot take it.
+        if (TimelineClient.isEnabled(args, System.getenv())) {
+            Integer exitValue = TimelineClient.forLocal(System.getenv()).run(args);
+            if (exitValue != null) {
+                System.exit(exitValue);
+            }
+        }
         GitLogFormatter formatter = new GitLogFormatter();
         GitLogProcessBuilder processBuilder = new GitLogProcessBuilder();
-        System.exit(new GitTimeline(args, processBuilder, formatter).call());
+        System.exit(new GitTimeline(args, processBuilder, formatter, LocalCaller.INSTANCE).call());
     }
 }
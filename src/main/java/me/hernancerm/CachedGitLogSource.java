@@ -0,0 +1,220 @@
+package me.hernancerm;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+// Source which serves the fields of commits which never change from the GitCommitCache.
+//
+// When the cache is warm, git-log only prints the lean fields (LEAN_PRETTY_FORMAT) and the
+// cached fields are appended to each record, so the records look as if git-log printed all of
+// them. The commits missing from the cache are held, along with all the output after them, and
+// fetched from git in a single batch once enough records are held. Every batch is bigger than
+// the previous one, so a cache which is missing a lot takes few batches, while the first lines
+// are not held for long.
+//
+// When the cache is cold, git-log prints all the fields, which are added to the cache as they
+// go by.
+public class CachedGitLogSource implements GitLogSource {
+
+    private static final int MIN_BATCH_RECORDS = 64;
+    private static final int MAX_BATCH_RECORDS = 16 * 1024;
+
+    // A line held while the missing commits are fetched. Bytes to pass through have no record.
+    private record HeldLine(byte[] line, int recordStart) {}
+
+    private final GitLogSource source;
+    private final GitCommitCache cache;
+    private final boolean isLean;
+    private final Caller caller;
+
+    private final List<HeldLine> heldLines = new ArrayList<>();
+    private final List<String> missingHashes = new ArrayList<>();
+    private int heldRecords;
+    private int batchRecords = MIN_BATCH_RECORDS;
+    private byte[] fullLine = new byte[1024];
+
+    // `isLean` tells whether git-log prints the records in LEAN_PRETTY_FORMAT or PRETTY_FORMAT.
+    public CachedGitLogSource(GitLogSource source, GitCommitCache cache, boolean isLean, Caller caller) {
+        this.source = source;
+        this.cache = cache;
+        this.isLean = isLean;
+        this.caller = caller;
+    }
+
+    @Override
+    public void read(Handler handler, BooleanSupplier isCancelled) throws IOException {
+        source.read(new Handler() {
+            @Override
+            public void passThrough(ByteBuffer bytes) throws IOException {
+                if (heldLines.isEmpty()) {
+                    handler.passThrough(bytes);
+                } else {
+                    byte[] copy = new byte[bytes.remaining()];
+                    bytes.get(copy);
+                    heldLines.add(new HeldLine(copy, -1));
+                }
+            }
+
+            @Override
+            public void record(byte[] line, int recordStart, int length) throws IOException {
+                if (isLean) {
+                    handleLeanRecord(handler, line, recordStart, length);
+                } else {
+                    cacheRecord(line, recordStart, length);
+                    handler.record(line, recordStart, length);
+                }
+            }
+        }, isCancelled);
+
+        if (!isCancelled.getAsBoolean()) {
+            releaseHeldLines(handler);
+        }
+    }
+
+    private void handleLeanRecord(Handler handler, byte[] line, int recordStart, int length) throws IOException {
+        int hashEnd = findHashEnd(line, recordStart, length);
+        ByteBuffer fields = cache.get(line, recordStart + 1, hashEnd);
+        if (fields != null && heldLines.isEmpty()) {
+            handleFullRecord(handler, line, recordStart, length, fields);
+            return;
+        }
+        // Held until the missing commits before it are fetched, to keep the order of the output.
+        heldLines.add(new HeldLine(Arrays.copyOf(line, length), recordStart));
+        heldRecords++;
+        if (fields == null) {
+            missingHashes.add(hashOf(line, recordStart, hashEnd));
+        }
+        if (heldRecords >= batchRecords) {
+            releaseHeldLines(handler);
+        }
+    }
+
+    private void releaseHeldLines(Handler handler) throws IOException {
+        if (heldLines.isEmpty()) {
+            return;
+        }
+        Map<String, byte[]> fetchedFields = fetch(missingHashes);
+        for (HeldLine heldLine : heldLines) {
+            byte[] line = heldLine.line();
+            int recordStart = heldLine.recordStart();
+            if (recordStart < 0) {
+                handler.passThrough(ByteBuffer.wrap(line));
+                continue;
+            }
+            int hashEnd = findHashEnd(line, recordStart, line.length);
+            ByteBuffer fields = cache.get(line, recordStart + 1, hashEnd);
+            if (fields == null) {
+                byte[] fetched = fetchedFields.get(hashOf(line, recordStart, hashEnd));
+                if (fetched == null) {
+                    throw new IllegalStateException(
+                            "Error fetching commit from git: " + hashOf(line, recordStart, hashEnd));
+                }
+                fields = ByteBuffer.wrap(fetched);
+            }
+            handleFullRecord(handler, line, recordStart, line.length, fields);
+        }
+        heldLines.clear();
+        missingHashes.clear();
+        heldRecords = 0;
+        batchRecords = Math.min(batchRecords * 2, MAX_BATCH_RECORDS);
+    }
+
+    // Inserts the cached fields at the end of the lean record, which makes it a full record.
+    private void handleFullRecord(Handler handler, byte[] line, int recordStart, int length, ByteBuffer fields)
+            throws IOException {
+
+        int recordEnd = GitLogRecordParser.findRecordEnd(line, recordStart, length);
+        int fieldsLength = fields.remaining();
+        int fullLength = length + 1 + fieldsLength;
+        if (fullLine.length < fullLength) {
+            fullLine = new byte[Math.max(fullLine.length * 2, fullLength)];
+        }
+        System.arraycopy(line, 0, fullLine, 0, recordEnd);
+        fullLine[recordEnd] = GitLogRecordParser.FIELD_SEPARATOR;
+        fields.get(fields.position(), fullLine, recordEnd + 1, fieldsLength);
+        System.arraycopy(line, recordEnd, fullLine, recordEnd + 1 + fieldsLength, length - recordEnd);
+        handler.record(fullLine, recordStart, fullLength);
+    }
+
+    private void cacheRecord(byte[] line, int recordStart, int length) throws IOException {
+        int hashEnd = findHashEnd(line, recordStart, length);
+        int fieldsStart = GitLogRecordParser.findFieldStart(
+                line, recordStart, length, GitLogRecordParser.CACHEABLE_FIELDS_START);
+        if (fieldsStart >= 0 && cache.get(line, recordStart + 1, hashEnd) == null) {
+            int recordEnd = GitLogRecordParser.findRecordEnd(line, recordStart, length);
+            cache.put(line, recordStart + 1, hashEnd, line, fieldsStart, recordEnd);
+        }
+    }
+
+    // Asks git for the cached fields of the commits, and adds them to the cache.
+    private Map<String, byte[]> fetch(List<String> hashes) throws IOException {
+        Map<String, byte[]> fetchedFields = new HashMap<>();
+        if (hashes.isEmpty()) {
+            return fetchedFields;
+        }
+        ProcessBuilder processBuilder = new ProcessBuilder(
+                "git",
+                "log",
+                "--no-walk=unsorted",
+                "--stdin",
+                "--no-color",
+                GitLogRecordParser.DATE_OPTION,
+                "--pretty=format:%x1e%H%x1f" + GitLogRecordParser.CACHEABLE_FIELDS_FORMAT
+                        + GitLogRecordParser.RECORD_END_FORMAT);
+        processBuilder.redirectError(ProcessBuilder.Redirect.INHERIT);
+        Process process = caller.start(processBuilder);
+
+        // git-log reads all of stdin before printing anything.
+        try (OutputStream stdin = process.getOutputStream()) {
+            stdin.write(String.join("\n", hashes).getBytes(StandardCharsets.ISO_8859_1));
+        }
+        try (ReadableByteChannel stdout = Channels.newChannel(process.getInputStream())) {
+            new GitLogReader(stdout).read(new Handler() {
+                @Override
+                public void passThrough(ByteBuffer bytes) {
+                    // Nothing but records is expected.
+                }
+
+                @Override
+                public void record(byte[] line, int recordStart, int length) throws IOException {
+                    int hashEnd = findHashEnd(line, recordStart, length);
+                    int recordEnd = GitLogRecordParser.findRecordEnd(line, recordStart, length);
+                    cache.put(line, recordStart + 1, hashEnd, line, hashEnd + 1, recordEnd);
+                    fetchedFields.put(hashOf(line, recordStart, hashEnd), Arrays.copyOfRange(line, hashEnd + 1, recordEnd));
+                }
+            }, () -> false);
+        }
+
+        try {
+            int exitValue = process.waitFor();
+            if (exitValue != 0) {
+                throw new IllegalStateException("Error fetching commits from git, exit code: " + exitValue);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while fetching commits from git", e);
+        }
+        cache.flush();
+        return fetchedFields;
+    }
+
+    // The full hash is the first field, right after the record separator.
+    private static int findHashEnd(byte[] line, int recordStart, int length) {
+        int hashEnd = GitLogRecordParser.findFieldStart(line, recordStart, length, 1) - 1;
+        return hashEnd < 0 ? length : hashEnd;
+    }
+
+    private static String hashOf(byte[] line, int recordStart, int hashEnd) {
+        return new String(line, recordStart + 1, hashEnd - recordStart - 1, StandardCharsets.ISO_8859_1);
+    }
+}
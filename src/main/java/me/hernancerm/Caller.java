@@ -0,0 +1,47 @@
+package me.hernancerm;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import org.jline.terminal.Terminal;
+
+// The process which git-timeline runs for: where it runs, its environment and its standard
+// streams. That is either this process (LocalCaller), or a client of the daemon, which runs
+// in another directory, with another environment and another terminal (see TimelineDaemon).
+public interface Caller {
+
+    Path workingDirectory();
+
+    Map<String, String> environment();
+
+    boolean isStdoutTerminal();
+
+    // When the caller started, e.g., to measure the time to the first line.
+    Instant startInstant();
+
+    // Raw streams, so a broken pipe is not swallowed as by PrintStream. Left open.
+    OutputStream stdout();
+
+    OutputStream stderr();
+
+    // Starts the process in the working directory of the caller, unless the process builder
+    // has one, with the environment of the caller. Its stderr, when redirected to INHERIT, is
+    // printed to the stderr of the caller.
+    Process start(ProcessBuilder processBuilder) throws IOException;
+
+    // Starts the pager, which reads from the stdin of the returned process and prints to the
+    // terminal of the caller.
+    Process startPager(List<String> command) throws IOException;
+
+    // The terminal of the caller, to be driven by the built-in pager. Null when it cannot be
+    // driven from this process.
+    Terminal openTerminal() throws IOException;
+
+    // Width of the terminal of the caller, in columns, queried once per call. Zero when stdout
+    // is not a terminal, or its width is unknown.
+    int terminalWidth();
+}
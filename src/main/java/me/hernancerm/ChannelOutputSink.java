@@ -0,0 +1,167 @@
+package me.hernancerm;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.concurrent.TimeUnit;
+
+// Sink for non-interactive output, e.g., when stdout is piped into another program. Lines are
+// encoded (or copied, when already encoded) straight into a big direct buffer which is written
+// to the channel when full, or when the oldest buffered line is a bit old, so the lines still
+// show up promptly when the reader is interactive, e.g., `| grep`, even if git-log is slow to
+// produce more of them. Once the reader goes away (broken pipe), the output is discarded and the
+// callback is run.
+public class ChannelOutputSink implements OutputSink {
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final long FLUSH_INTERVAL_MILLIS = 200;
+    private static final long FLUSH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL_MILLIS);
+
+    private final WritableByteChannel channel;
+    private final CharsetEncoder encoder;
+    private final CharBuffer lineSeparator;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final Runnable onOutputClosed;
+
+    private long lastFlushNanos = System.nanoTime();
+    private Thread flusherThread;
+    private boolean closed;
+    private boolean outputClosed;
+
+    public ChannelOutputSink(WritableByteChannel channel, Charset charset, Runnable onOutputClosed) {
+        this.channel = channel;
+        this.onOutputClosed = onOutputClosed;
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.lineSeparator = CharBuffer.wrap(System.lineSeparator()).asReadOnlyBuffer();
+    }
+
+    // Closing the sink leaves stdout open. Written straight to the file (e.g., a pipe) when
+    // stdout is one.
+    public static ChannelOutputSink forStdout(
+            OutputStream stdout,
+            Charset charset,
+            TimelineStats stats,
+            Runnable onOutputClosed
+    ) {
+        WritableByteChannel channel = stdout instanceof FileOutputStream fileOutputStream
+                ? fileOutputStream.getChannel()
+                : Channels.newChannel(stdout);
+        return new ChannelOutputSink(
+                stats.measureOutput(channel),
+                charset,
+                onOutputClosed);
+    }
+
+    @Override
+    public synchronized void println(CharSequence line) throws IOException {
+        if (closed) {
+            throw new IOException("The output sink is closed");
+        }
+        if (outputClosed) {
+            return;
+        }
+        encode(CharBuffer.wrap(line));
+        encode(lineSeparator.rewind());
+        afterPrinting();
+    }
+
+    @Override
+    public synchronized void write(ByteBuffer bytes) throws IOException {
+        if (closed) {
+            throw new IOException("The output sink is closed");
+        }
+        while (!outputClosed && bytes.hasRemaining()) {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            int length = Math.min(bytes.remaining(), buffer.remaining());
+            buffer.put(buffer.position(), bytes, bytes.position(), length);
+            buffer.position(buffer.position() + length);
+            bytes.position(bytes.position() + length);
+        }
+        afterPrinting();
+    }
+
+    @Override
+    public synchronized void flush() {
+        buffer.flip();
+        try {
+            while (!outputClosed && buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            outputClosed = true;
+            onOutputClosed.run();
+        }
+        buffer.clear();
+        lastFlushNanos = System.nanoTime();
+    }
+
+    @Override
+    public void close() {
+        Thread flusherThreadToStop;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            flusherThreadToStop = flusherThread;
+        }
+        if (flusherThreadToStop != null) {
+            flusherThreadToStop.interrupt();
+        }
+        flush();
+    }
+
+    private void afterPrinting() {
+        if (flusherThread == null) {
+            flusherThread = Thread.ofPlatform().daemon().name("git-timeline-flusher")
+                    .start(this::flushPeriodically);
+        } else if (System.nanoTime() - lastFlushNanos >= FLUSH_INTERVAL_NANOS) {
+            flush();
+        }
+    }
+
+    private void encode(CharBuffer chars) throws IOException {
+        encoder.reset();
+        CoderResult result;
+        while ((result = encoder.encode(chars, buffer, true)).isOverflow()) {
+            flush();
+        }
+        if (result.isError()) {
+            result.throwException();
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            flush();
+        }
+    }
+
+    // Flushes the lines left in the buffer when git-log is slow to produce more of them.
+    private void flushPeriodically() {
+        try {
+            while (true) {
+                Thread.sleep(FLUSH_INTERVAL_MILLIS);
+                synchronized (this) {
+                    if (closed) {
+                        return;
+                    }
+                    if (buffer.position() > 0 && System.nanoTime() - lastFlushNanos >= FLUSH_INTERVAL_NANOS) {
+                        flush();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            // The sink was closed.
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package me.hernancerm;
+
+// Width of a column of the timeline (`--timeline-columns`): the widest of the last values, up
+// to a maximum. Being over a sliding window, the output streams without waiting for the whole
+// history: the column widens as soon as a wider value comes, and narrows back once the wider
+// values are out of the window. The values come in the order the commits are formatted, which
+// is about the order they are printed, even with the pipeline. Thread-safe.
+public class ColumnWidth {
+
+    private final int maxWidth;
+    // Widths of the last values, as a ring.
+    private final int[] window;
+    // How many values of the window have each width, up to the maximum.
+    private final int[] counts;
+    private int next;
+    private int size;
+    private int width;
+
+    public ColumnWidth(int windowSize, int maxWidth) {
+        this.maxWidth = maxWidth;
+        this.window = new int[windowSize];
+        this.counts = new int[maxWidth + 1];
+    }
+
+    // Adds the width of a value, and returns the width of the column for it. A value wider than
+    // the maximum is to be truncated to it.
+    public synchronized int add(int valueWidth) {
+        int clampedWidth = Math.min(valueWidth, maxWidth);
+        if (size == window.length) {
+            counts[window[next]]--;
+        } else {
+            size++;
+        }
+        window[next] = clampedWidth;
+        counts[clampedWidth]++;
+        next = (next + 1) % window.length;
+        if (clampedWidth >= width) {
+            width = clampedWidth;
+        } else {
+            // The widest value may have left the window.
+            while (counts[width] == 0) {
+                width--;
+            }
+        }
+        return width;
+    }
+}
@@ -0,0 +1,326 @@
+package me.hernancerm;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+// Reader of the commit-graph of git (`objects/info/commit-graph`, or the split chain of
+// `objects/info/commit-graphs`), which has the parents and the generation number of each commit,
+// so neither needs decompressing any object. The files are memory-mapped: only the pages looked
+// at are read, so opening it costs the same for any size of history.
+//
+// Commits are identified by their position in the file. In a split chain, the positions of each
+// layer follow the ones of the layers below it, as git numbers them.
+// Format: https://git-scm.com/docs/gitformat-commit-graph
+public class CommitGraph {
+
+    private static final int SIGNATURE = 0x43475048; // CGPH
+    private static final int CHUNK_OID_FANOUT = 0x4f494446; // OIDF
+    private static final int CHUNK_OID_LOOKUP = 0x4f49444c; // OIDL
+    private static final int CHUNK_COMMIT_DATA = 0x43444154; // CDAT
+    private static final int CHUNK_GENERATION_DATA = 0x47444132; // GDA2
+    private static final int CHUNK_GENERATION_DATA_OVERFLOW = 0x47444f32; // GDO2
+    private static final int CHUNK_EXTRA_EDGES = 0x45444745; // EDGE
+
+    private static final int PARENT_NONE = 0x70000000;
+    // On the second parent, the rest is an index into the extra edges (octopus merges). On an
+    // extra edge, it marks the last parent.
+    private static final int EXTRA_EDGE_FLAG = 0x80000000;
+    private static final int GENERATION_OVERFLOW_FLAG = 0x80000000;
+
+    // A single commit-graph file. The chunks which may be missing have an offset of -1.
+    private record Layer(
+            MappedByteBuffer buffer,
+            int firstPosition,
+            int commitCount,
+            int oidFanoutOffset,
+            int oidLookupOffset,
+            int commitDataOffset,
+            int generationDataOffset,
+            int generationOverflowOffset,
+            int extraEdgesOffset) {}
+
+    // From the base layer up.
+    private final List<Layer> layers;
+    private final int hashLength;
+    private final int commitCount;
+    // Generation numbers v2 (corrected commit dates) are only used when every layer has them.
+    private final boolean hasGenerationData;
+    private final byte[] hashScratch;
+
+    private CommitGraph(List<Layer> layers, int hashLength) {
+        this.layers = layers;
+        this.hashLength = hashLength;
+        Layer top = layers.getLast();
+        this.commitCount = top.firstPosition() + top.commitCount();
+        this.hasGenerationData = layers.stream().allMatch(layer -> layer.generationDataOffset() >= 0);
+        this.hashScratch = new byte[hashLength];
+    }
+
+    // Opens the commit-graph of the objects directory, or returns null when there is none. As
+    // git does, a single file is preferred over a split chain.
+    public static CommitGraph open(Path objectsDirectory) throws IOException {
+        Path infoDirectory = objectsDirectory.resolve("info");
+        Path file = infoDirectory.resolve("commit-graph");
+        if (Files.isRegularFile(file)) {
+            return open(List.of(file));
+        }
+        Path chainFile = infoDirectory.resolve("commit-graphs").resolve("commit-graph-chain");
+        if (!Files.isRegularFile(chainFile)) {
+            return null;
+        }
+        // The hashes of the layers, from the base one up.
+        List<Path> files = new ArrayList<>();
+        for (String line : Files.readAllLines(chainFile)) {
+            if (!line.isBlank()) {
+                files.add(chainFile.resolveSibling("graph-" + line.strip() + ".graph"));
+            }
+        }
+        return files.isEmpty() ? null : open(files);
+    }
+
+    private static CommitGraph open(List<Path> files) throws IOException {
+        List<Layer> layers = new ArrayList<>();
+        int hashLength = 0;
+        int firstPosition = 0;
+        for (Path file : files) {
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(file)) {
+                if (channel.size() > Integer.MAX_VALUE) {
+                    throw new IllegalStateException("Commit-graph file too big to map: " + file);
+                }
+                // The mapping outlives the channel.
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            int layerHashLength = readHeader(buffer, file);
+            if (hashLength != 0 && layerHashLength != hashLength) {
+                throw new IllegalStateException("Commit-graph chain with mixed hash versions: " + file);
+            }
+            hashLength = layerHashLength;
+            Layer layer = readChunks(buffer, firstPosition, hashLength, file);
+            layers.add(layer);
+            firstPosition += layer.commitCount();
+        }
+        return new CommitGraph(layers, hashLength);
+    }
+
+    // Returns the hash length of the file.
+    private static int readHeader(ByteBuffer buffer, Path file) {
+        if (buffer.limit() < 8 || buffer.getInt(0) != SIGNATURE) {
+            throw new IllegalStateException("Not a commit-graph file: " + file);
+        }
+        if (buffer.get(4) != 1) {
+            throw new IllegalStateException("Unsupported commit-graph version " + buffer.get(4) + ": " + file);
+        }
+        return switch (buffer.get(5)) {
+            case 1 -> 20; // SHA-1
+            case 2 -> 32; // SHA-256
+            default -> throw new IllegalStateException(
+                    "Unsupported commit-graph hash version " + buffer.get(5) + ": " + file);
+        };
+    }
+
+    private static Layer readChunks(MappedByteBuffer buffer, int firstPosition, int hashLength, Path file) {
+        int chunkCount = Byte.toUnsignedInt(buffer.get(6));
+        int oidFanoutOffset = -1;
+        int oidLookupOffset = -1;
+        int commitDataOffset = -1;
+        int generationDataOffset = -1;
+        int generationOverflowOffset = -1;
+        int extraEdgesOffset = -1;
+        // Table of contents after the header: the id and offset of each chunk, then a last
+        // entry for the end of the last chunk.
+        for (int i = 0; i < chunkCount; i++) {
+            int entry = 8 + i * 12;
+            int chunkId = buffer.getInt(entry);
+            int offset = Math.toIntExact(buffer.getLong(entry + 4));
+            switch (chunkId) {
+                case CHUNK_OID_FANOUT -> oidFanoutOffset = offset;
+                case CHUNK_OID_LOOKUP -> oidLookupOffset = offset;
+                case CHUNK_COMMIT_DATA -> commitDataOffset = offset;
+                case CHUNK_GENERATION_DATA -> generationDataOffset = offset;
+                case CHUNK_GENERATION_DATA_OVERFLOW -> generationOverflowOffset = offset;
+                case CHUNK_EXTRA_EDGES -> extraEdgesOffset = offset;
+                default -> {
+                    // Chunks not needed, e.g., the bloom filters of changed paths.
+                }
+            }
+        }
+        if (oidFanoutOffset < 0 || oidLookupOffset < 0 || commitDataOffset < 0) {
+            throw new IllegalStateException("Commit-graph file without required chunks: " + file);
+        }
+        int commitCount = buffer.getInt(oidFanoutOffset + 255 * 4);
+        if (commitDataOffset + (long) commitCount * (hashLength + 16) > buffer.limit()) {
+            throw new IllegalStateException("Commit-graph file truncated: " + file);
+        }
+        return new Layer(buffer, firstPosition, commitCount, oidFanoutOffset, oidLookupOffset,
+                commitDataOffset, generationDataOffset, generationOverflowOffset, extraEdgesOffset);
+    }
+
+    public int getCommitCount() {
+        return commitCount;
+    }
+
+    // Length in bytes of the hashes: 20 for SHA-1, 32 for SHA-256.
+    public int getHashLength() {
+        return hashLength;
+    }
+
+    // Position of the commit whose full hash is written in hex digits at `start`, or -1 when it
+    // is not in the commit-graph (e.g., a commit newer than the last time git wrote it). Not
+    // thread-safe.
+    public int findPosition(byte[] hexDigits, int start) {
+        for (int i = 0; i < hashLength; i++) {
+            int high = Character.digit(hexDigits[start + 2 * i], 16);
+            int low = Character.digit(hexDigits[start + 2 * i + 1], 16);
+            if (high < 0 || low < 0) {
+                return -1;
+            }
+            hashScratch[i] = (byte) (high << 4 | low);
+        }
+        for (int i = layers.size() - 1; i >= 0; i--) {
+            int position = findPosition(layers.get(i), hashScratch);
+            if (position >= 0) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    // Binary search within the commits of the layer which start with the first byte of the hash.
+    private int findPosition(Layer layer, byte[] hash) {
+        ByteBuffer buffer = layer.buffer();
+        int firstByte = Byte.toUnsignedInt(hash[0]);
+        int low = firstByte == 0 ? 0 : buffer.getInt(layer.oidFanoutOffset() + (firstByte - 1) * 4);
+        int high = buffer.getInt(layer.oidFanoutOffset() + firstByte * 4) - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compareHash(buffer, layer.oidLookupOffset() + middle * hashLength, hash);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return layer.firstPosition() + middle;
+            }
+        }
+        return -1;
+    }
+
+    private int compareHash(ByteBuffer buffer, int offset, byte[] hash) {
+        for (int i = 0; i < hashLength; i++) {
+            int comparison = Integer.compare(Byte.toUnsignedInt(buffer.get(offset + i)), Byte.toUnsignedInt(hash[i]));
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return 0;
+    }
+
+    // Full hash of the commit in hex digits.
+    public String getHash(int position) {
+        Layer layer = getLayer(position);
+        byte[] hash = new byte[hashLength];
+        layer.buffer().get(layer.oidLookupOffset() + (position - layer.firstPosition()) * hashLength, hash);
+        return HexFormat.of().formatHex(hash);
+    }
+
+    public int getParentCount(int position) {
+        Layer layer = getLayer(position);
+        int commitData = getCommitDataOffset(layer, position);
+        if (layer.buffer().getInt(commitData + hashLength) == PARENT_NONE) {
+            return 0;
+        }
+        int secondParent = layer.buffer().getInt(commitData + hashLength + 4);
+        if (secondParent == PARENT_NONE) {
+            return 1;
+        }
+        if ((secondParent & EXTRA_EDGE_FLAG) == 0) {
+            return 2;
+        }
+        // The first parent, then the extra edges up to the one flagged as the last.
+        Layer extraEdgesLayer = getExtraEdgesLayer(layer);
+        ByteBuffer buffer = extraEdgesLayer.buffer();
+        int edge = extraEdgesLayer.extraEdgesOffset() + (secondParent & ~EXTRA_EDGE_FLAG) * 4;
+        int parentCount = 2;
+        while ((buffer.getInt(edge) & EXTRA_EDGE_FLAG) == 0) {
+            edge += 4;
+            parentCount++;
+        }
+        return parentCount;
+    }
+
+    // Position of the parent at the index, in the order of the commit (the first parent first).
+    public int getParent(int position, int index) {
+        Layer layer = getLayer(position);
+        int commitData = getCommitDataOffset(layer, position);
+        if (index == 0) {
+            return layer.buffer().getInt(commitData + hashLength);
+        }
+        int secondParent = layer.buffer().getInt(commitData + hashLength + 4);
+        if ((secondParent & EXTRA_EDGE_FLAG) == 0) {
+            return secondParent;
+        }
+        Layer extraEdgesLayer = getExtraEdgesLayer(layer);
+        int edge = extraEdgesLayer.extraEdgesOffset() + ((secondParent & ~EXTRA_EDGE_FLAG) + index - 1) * 4;
+        return extraEdgesLayer.buffer().getInt(edge) & ~EXTRA_EDGE_FLAG;
+    }
+
+    // Generation number of the commit: never lower than the one of any parent plus one. It is
+    // the corrected commit date when every layer has it, or else the topological level.
+    public long getGeneration(int position) {
+        Layer layer = getLayer(position);
+        ByteBuffer buffer = layer.buffer();
+        int commitData = getCommitDataOffset(layer, position);
+        if (!hasGenerationData) {
+            return buffer.getInt(commitData + hashLength + 8) >>> 2;
+        }
+        // Offset from the commit date, or an index into the overflow when it does not fit.
+        long offset = Integer.toUnsignedLong(
+                buffer.getInt(layer.generationDataOffset() + (position - layer.firstPosition()) * 4));
+        if ((offset & GENERATION_OVERFLOW_FLAG) != 0) {
+            if (layer.generationOverflowOffset() < 0) {
+                throw new IllegalStateException("Commit-graph without the overflow of generation numbers");
+            }
+            offset = buffer.getLong(layer.generationOverflowOffset() + (int) (offset & ~GENERATION_OVERFLOW_FLAG) * 8);
+        }
+        return getCommitTime(position) + offset;
+    }
+
+    // Committer date in seconds since the epoch (34 bits).
+    public long getCommitTime(int position) {
+        Layer layer = getLayer(position);
+        int commitData = getCommitDataOffset(layer, position);
+        long high = layer.buffer().getInt(commitData + hashLength + 8) & 0x3;
+        return high << 32 | Integer.toUnsignedLong(layer.buffer().getInt(commitData + hashLength + 12));
+    }
+
+    private Layer getLayer(int position) {
+        if (position < 0 || position >= commitCount) {
+            throw new IllegalStateException("Commit position out of the commit-graph: " + position);
+        }
+        for (int i = layers.size() - 1; ; i--) {
+            Layer layer = layers.get(i);
+            if (position >= layer.firstPosition()) {
+                return layer;
+            }
+        }
+    }
+
+    private int getCommitDataOffset(Layer layer, int position) {
+        return layer.commitDataOffset() + (position - layer.firstPosition()) * (hashLength + 16);
+    }
+
+    private static Layer getExtraEdgesLayer(Layer layer) {
+        if (layer.extraEdgesOffset() < 0) {
+            throw new IllegalStateException("Commit-graph with an octopus merge but without extra edges");
+        }
+        return layer;
+    }
+}
@@ -0,0 +1,59 @@
+package me.hernancerm;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+
+// Sink which waits for its delegate (e.g., the pager to start) only when the first line is
+// printed, and records when that happens.
+public class DeferredOutputSink implements OutputSink {
+
+    private final CompletableFuture<OutputSink> pendingOutputSink;
+    private final GitLogStartup startup;
+
+    private OutputSink outputSink;
+
+    public DeferredOutputSink(CompletableFuture<OutputSink> pendingOutputSink, GitLogStartup startup) {
+        this.pendingOutputSink = pendingOutputSink;
+        this.startup = startup;
+    }
+
+    @Override
+    public void println(CharSequence line) throws IOException {
+        if (outputSink == null) {
+            outputSink = GitLogStartup.await(pendingOutputSink);
+            outputSink.println(line);
+            startup.recordFirstLine();
+        } else {
+            outputSink.println(line);
+        }
+    }
+
+    @Override
+    public void write(ByteBuffer bytes) throws IOException {
+        if (outputSink == null) {
+            outputSink = GitLogStartup.await(pendingOutputSink);
+            outputSink.write(bytes);
+            startup.recordFirstLine();
+        } else {
+            outputSink.write(bytes);
+        }
+    }
+
+    @Override
+    public void flush() {
+        if (outputSink != null) {
+            outputSink.flush();
+        }
+    }
+
+    // A delegate which failed to start has nothing to close. Its error is reported by the
+    // owner of the sink, which awaits the same piece of startup.
+    @Override
+    public void close() {
+        OutputSink outputSinkToClose = pendingOutputSink.exceptionally(e -> null).join();
+        if (outputSinkToClose != null) {
+            outputSinkToClose.close();
+        }
+    }
+}
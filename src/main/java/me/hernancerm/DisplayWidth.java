@@ -0,0 +1,146 @@
+package me.hernancerm;
+
+import org.jline.utils.WCWidth;
+
+// Width of text in the columns of a terminal, as opposed to its length in chars: East Asian
+// wide characters (e.g., CJK) take two columns, combining and control characters none, and so
+// do the escape sequences, like colors (SGR) and hyperlinks (OSC 8), as they are not printed.
+public class DisplayWidth {
+
+    private static final char ESC = '\033';
+    // Ends a truncated line, as `%<(N,trunc)` of git-log does.
+    private static final String ELLIPSIS = "..";
+    private static final int CACHE_CAPACITY = 1024;
+
+    private record Entry(String string, int width) {
+    }
+
+    // Widths of the strings measured, e.g., author names, which repeat across the history. A
+    // string takes the slot of the one it collides with, like FieldInterner. The entries are
+    // immutable, so all threads share the cache without locks.
+    private static final Entry[] CACHE = new Entry[CACHE_CAPACITY];
+
+    private DisplayWidth() {
+    }
+
+    public static int of(String string) {
+        int slot = string.hashCode() & (CACHE_CAPACITY - 1);
+        Entry entry = CACHE[slot];
+        if (entry != null && entry.string().equals(string)) {
+            return entry.width();
+        }
+        int width = of(string, 0, string.length());
+        CACHE[slot] = new Entry(string, width);
+        return width;
+    }
+
+    public static int of(CharSequence text, int start, int end) {
+        int width = 0;
+        int i = start;
+        while (i < end) {
+            char c = text.charAt(i);
+            if (c == ESC) {
+                i = AnsiUtils.skipEscapeSequence(text, i);
+            } else if (c < 0x7f) {
+                // ASCII, all of one column except the control characters.
+                if (c >= ' ') {
+                    width++;
+                }
+                i++;
+            } else {
+                int codePoint = Character.codePointAt(text, i);
+                width += ofCodePoint(codePoint);
+                i += Character.charCount(codePoint);
+            }
+        }
+        return width;
+    }
+
+    // Width of a line of git-log, e.g., the prefix of `--graph`, which is ASCII with colors.
+    // Beyond ASCII, each character is taken as one column, counting the leading bytes of UTF-8.
+    public static int of(byte[] line, int start, int end) {
+        int width = 0;
+        int i = start;
+        while (i < end) {
+            byte b = line[i];
+            if (b == ESC && i + 1 < end && line[i + 1] == '[') {
+                // CSI, e.g., colors like `ESC[33m`. Ends with a byte in the range `@` to `~`.
+                i += 2;
+                while (i < end && (line[i] < '@' || line[i] > '~')) {
+                    i++;
+                }
+            } else if ((b & 0xff) >= ' ' && b != 0x7f && (b & 0xc0) != 0x80) {
+                width++;
+            }
+            i++;
+        }
+        return width;
+    }
+
+    // Truncates the line, from the start, to the width, ending it with `..`. A hyperlink cut
+    // short is closed and the colors are reset, so they do not leak into the next lines. Returns
+    // the width of the line from the start, after truncating it.
+    public static int truncate(StringBuilder line, int start, int width) {
+        int lineWidth = of(line, start, line.length());
+        if (lineWidth <= width) {
+            return lineWidth;
+        }
+        int textWidth = Math.max(width - ELLIPSIS.length(), 0);
+        int columns = 0;
+        boolean hasEscapeSequences = false;
+        boolean isHyperlinkOpen = false;
+        int i = start;
+        while (i < line.length()) {
+            char c = line.charAt(i);
+            if (c == ESC) {
+                int end = AnsiUtils.skipEscapeSequence(line, i);
+                if (isHyperlink(line, i, end)) {
+                    isHyperlinkOpen = hasHyperlinkUrl(line, i, end);
+                }
+                hasEscapeSequences = true;
+                i = end;
+                continue;
+            }
+            int codePoint = Character.codePointAt(line, i);
+            int codePointWidth = ofCodePoint(codePoint);
+            if (columns + codePointWidth > textWidth) {
+                break;
+            }
+            columns += codePointWidth;
+            i += Character.charCount(codePoint);
+        }
+        line.setLength(i);
+        line.append(ELLIPSIS);
+        if (isHyperlinkOpen) {
+            line.append("\033]8;;\007");
+        }
+        if (hasEscapeSequences) {
+            AnsiStyle.appendReset(line);
+        }
+        return columns + ELLIPSIS.length();
+    }
+
+    private static int ofCodePoint(int codePoint) {
+        // -1 for control characters.
+        return Math.max(WCWidth.wcwidth(codePoint), 0);
+    }
+
+    // OSC 8, i.e., `ESC]8;<params>;<url>BEL`.
+    private static boolean isHyperlink(CharSequence line, int start, int end) {
+        return end - start > "\033]8;;".length()
+                && line.charAt(start + 1) == ']'
+                && line.charAt(start + 2) == '8'
+                && line.charAt(start + 3) == ';';
+    }
+
+    // Whether the hyperlink opens, as opposed to `ESC]8;;BEL`, which closes it.
+    private static boolean hasHyperlinkUrl(CharSequence line, int start, int end) {
+        int urlStart = start + "\033]8;".length();
+        while (urlStart < end && line.charAt(urlStart) != ';') {
+            urlStart++;
+        }
+        urlStart++;
+        int urlEnd = line.charAt(end - 1) == '\007' ? end - 1 : end - 2;
+        return urlEnd > urlStart;
+    }
+}
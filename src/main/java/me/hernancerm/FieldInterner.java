@@ -0,0 +1,62 @@
+package me.hernancerm;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+// Dedups the strings decoded from git-log output which repeat a lot across a history, e.g.,
+// author names and dates. Strings are looked up by a 64-bit hash of their bytes, so one already
+// seen is returned without decoding (allocating) it again.
+//
+// The table is bounded: each hash maps to a single slot, and a new string takes the slot of the
+// one it collides with. So a long `--all` run cannot grow it, and the strings which repeat the
+// most stay in it. Not thread-safe: each thread parsing records has its own.
+public class FieldInterner {
+
+    private static final int DEFAULT_CAPACITY = 4096;
+
+    private final long[] hashes;
+    private final byte[][] keys;
+    private final String[] strings;
+    private final int mask;
+
+    public FieldInterner() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public FieldInterner(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("The capacity must be a power of two: " + capacity);
+        }
+        this.hashes = new long[capacity];
+        this.keys = new byte[capacity][];
+        this.strings = new String[capacity];
+        this.mask = capacity - 1;
+    }
+
+    public String intern(byte[] bytes, int start, int end, Charset charset) {
+        if (start == end) {
+            return "";
+        }
+        long hash = hash(bytes, start, end);
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+        byte[] key = keys[slot];
+        if (key != null && hashes[slot] == hash && Arrays.equals(key, 0, key.length, bytes, start, end)) {
+            return strings[slot];
+        }
+        String string = new String(bytes, start, end - start, charset);
+        hashes[slot] = hash;
+        keys[slot] = Arrays.copyOfRange(bytes, start, end);
+        strings[slot] = string;
+        return string;
+    }
+
+    // FNV-1a.
+    private static long hash(byte[] bytes, int start, int end) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = start; i < end; i++) {
+            hash ^= bytes[i];
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
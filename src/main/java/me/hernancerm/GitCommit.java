@@ -1,13 +1,19 @@
 package me.hernancerm;
 
+import java.util.Arrays;
+
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 
 @Data
 public class GitCommit {
 
     private String fullHash;
     private String abbreviatedHash;
-    private String[] abbreviatedParentHashes;
+    // Separated by a single space, as printed by git-log. See getAbbreviatedParentHash.
+    private String abbreviatedParentHashes;
     private String authorName;
     private String authorDate;
     private String committerName;
@@ -15,11 +21,44 @@ public class GitCommit {
     private String refNamesColored;
     private GitRemote remote;
     private GitLogArgs args;
+    // Width of what goes before the commit in its line, e.g., the prefix of `--graph`.
+    private int prefixWidth;
+
+    @Setter(AccessLevel.NONE)
+    private int parentCount;
+    // Start of each parent hash in abbreviatedParentHashes. Reused across commits.
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private int[] parentOffsets = new int[2];
+
+    public void setAbbreviatedParentHashes(String abbreviatedParentHashes) {
+        this.abbreviatedParentHashes = abbreviatedParentHashes;
+        parentCount = 0;
+        if (abbreviatedParentHashes == null || abbreviatedParentHashes.isEmpty()) {
+            // A root commit.
+            return;
+        }
+        addParentOffset(0);
+        for (int i = 0; i < abbreviatedParentHashes.length(); i++) {
+            if (abbreviatedParentHashes.charAt(i) == ' ') {
+                addParentOffset(i + 1);
+            }
+        }
+    }
+
+    public String getAbbreviatedParentHash(int index) {
+        if (index < 0 || index >= parentCount) {
+            throw new IndexOutOfBoundsException("Parent " + index + " of " + parentCount);
+        }
+        int end = index + 1 < parentCount ? parentOffsets[index + 1] - 1 : abbreviatedParentHashes.length();
+        return abbreviatedParentHashes.substring(parentOffsets[index], end);
+    }
 
     public void reset() {
         fullHash = null;
         abbreviatedHash = null;
         abbreviatedParentHashes = null;
+        parentCount = 0;
         authorName = null;
         authorDate = null;
         committerName = null;
@@ -27,5 +66,14 @@ public class GitCommit {
         refNamesColored = null;
         remote = null;
         args = null;
+        prefixWidth = 0;
+    }
+
+    private void addParentOffset(int offset) {
+        if (parentCount == parentOffsets.length) {
+            // Octopus merges.
+            parentOffsets = Arrays.copyOf(parentOffsets, parentCount * 2);
+        }
+        parentOffsets[parentCount++] = offset;
     }
 }
@@ -0,0 +1,507 @@
+package me.hernancerm;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+
+// On-disk cache of the fields of commits which never change (see
+// GitLogRecordParser.CACHEABLE_FIELDS_FORMAT), keyed by full hash. It lives in the common git
+// directory, so the worktrees of a repository share it:
+//
+//   commits.dat    Append-only entries: length, CRC32, hash, and the cached fields exactly as
+//                  git-log printed them (so in the encoding of its output).
+//   commits.idx    Open-addressing hash table from the first 64 bits of a hash to the offset
+//                  of its entry in commits.dat.
+//   commits.lock   Held while loading, appending and compacting, so concurrent runs take turns.
+//
+// Both files are memory-mapped. Both have a header with a version, and the data file also has
+// the format of the cached fields (e.g., the date format and the encoding), so a cache written
+// differently is discarded instead of misread. Entries are checked against their CRC32 when
+// read: a corrupt cache is discarded when closed, and the following runs build it again.
+public class GitCommitCache implements AutoCloseable {
+
+    private static final long DATA_MAGIC = 0x47544c4344415441L; // "GTLCDATA"
+    private static final long INDEX_MAGIC = 0x47544c43494e4458L; // "GTLCINDX"
+    private static final int VERSION = 1;
+
+    // Magic, version, capacity, count, padding and the length of the data file indexed.
+    private static final int INDEX_HEADER_SIZE = 32;
+    // Key and offset of the entry plus one, so zero means an empty slot.
+    private static final int SLOT_SIZE = 16;
+    private static final int MIN_CAPACITY = 1 << 14;
+    // Length of the rest of the entry and its CRC32.
+    private static final int ENTRY_HEADER_SIZE = 8;
+    private static final int PENDING_ENTRIES_FLUSH_SIZE = 1024 * 1024;
+
+    private final Path dataPath;
+    private final Path indexPath;
+    private final Path lockPath;
+    private final byte[] format;
+
+    private FileChannel dataChannel;
+    private Object dataFileKey;
+    private int dataHeaderSize;
+    // Length of the valid entries, which may be more than what is mapped.
+    private long dataLength;
+    private MappedByteBuffer data;
+
+    private FileChannel indexChannel;
+    private Object indexFileKey;
+    private MappedByteBuffer index;
+    private int capacity;
+    private int count;
+
+    // Entries put but not yet appended to the data file.
+    private ByteBuffer pendingEntries = ByteBuffer.allocate(64 * 1024);
+    private final CRC32 crc = new CRC32();
+    private boolean isCorrupt;
+
+    private GitCommitCache(Path directory, String format) {
+        this.dataPath = directory.resolve("commits.dat");
+        this.indexPath = directory.resolve("commits.idx");
+        this.lockPath = directory.resolve("commits.lock");
+        this.format = format.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // The format identifies how the cached fields were printed. A cache in another format is
+    // discarded.
+    public static GitCommitCache open(Path directory, String format) throws IOException {
+        Files.createDirectories(directory);
+        GitCommitCache cache = new GitCommitCache(directory, format);
+        try (FileChannel lockChannel = cache.lock(); FileLock ignored = lockChannel.lock()) {
+            cache.load();
+        } catch (IOException | RuntimeException e) {
+            cache.closeChannels();
+            throw e;
+        }
+        return cache;
+    }
+
+    public static void clear(Path directory) throws IOException {
+        Files.deleteIfExists(directory.resolve("commits.dat"));
+        Files.deleteIfExists(directory.resolve("commits.idx"));
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public long sizeInBytes() {
+        return dataLength + INDEX_HEADER_SIZE + (long) capacity * SLOT_SIZE;
+    }
+
+    // Returns the cached fields of the commit whose full hash is in the line, or null when it
+    // is not cached. The buffer is only valid until the cache is changed.
+    public ByteBuffer get(byte[] line, int hashStart, int hashEnd) {
+        long key = keyOf(line, hashStart);
+        for (int slot = firstSlot(key); ; slot = (slot + 1) & (capacity - 1)) {
+            long slotOffset = slotOffset(slot);
+            long entryOffset = index.getLong((int) slotOffset + 8) - 1;
+            if (entryOffset < 0) {
+                return null;
+            }
+            if (index.getLong((int) slotOffset) == key
+                    && isHashOf(entryOffset, ByteBuffer.wrap(line, hashStart, hashEnd - hashStart))) {
+                return getFields(entryOffset);
+            }
+        }
+    }
+
+    // Queues the cached fields of the commit to be appended. The hash is ASCII.
+    public void put(byte[] line, int hashStart, int hashEnd, byte[] fields, int fieldsStart, int fieldsEnd)
+            throws IOException {
+
+        int hashLength = hashEnd - hashStart;
+        int length = 1 + hashLength + fieldsEnd - fieldsStart;
+        if (pendingEntries.remaining() < ENTRY_HEADER_SIZE + length) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(
+                    pendingEntries.capacity() * 2, pendingEntries.position() + ENTRY_HEADER_SIZE + length));
+            pendingEntries = grown.put(pendingEntries.flip());
+        }
+        int entryStart = pendingEntries.position();
+        pendingEntries.putInt(length);
+        pendingEntries.putInt(0);
+        pendingEntries.put((byte) hashLength);
+        pendingEntries.put(line, hashStart, hashLength);
+        pendingEntries.put(fields, fieldsStart, fieldsEnd - fieldsStart);
+        crc.reset();
+        crc.update(pendingEntries.array(), entryStart + ENTRY_HEADER_SIZE, length);
+        pendingEntries.putInt(entryStart + 4, (int) crc.getValue());
+
+        if (pendingEntries.position() >= PENDING_ENTRIES_FLUSH_SIZE) {
+            flush();
+        }
+    }
+
+    // Appends the queued entries and indexes them.
+    public void flush() throws IOException {
+        if (pendingEntries.position() == 0) {
+            return;
+        }
+        try (FileChannel lockChannel = lock(); FileLock ignored = lockChannel.lock()) {
+            // Catch up with the other runs, which may have appended or compacted meanwhile.
+            refresh();
+            long appendOffset = dataLength;
+            ByteBuffer entries = pendingEntries.flip();
+            while (entries.hasRemaining()) {
+                dataChannel.write(entries, appendOffset + entries.position());
+            }
+            dataLength = appendOffset + entries.limit();
+            remapData();
+            indexEntries(appendOffset);
+        } finally {
+            pendingEntries.clear();
+        }
+    }
+
+    // Rewrites the cache with only the commits kept, e.g., the ones still reachable. Returns
+    // the number of commits evicted.
+    public int compact(Predicate<String> isKept) throws IOException {
+        flush();
+        try (FileChannel lockChannel = lock(); FileLock ignored = lockChannel.lock()) {
+            refresh();
+            Path compactedDataPath = dataPath.resolveSibling(dataPath.getFileName() + ".tmp");
+            Set<String> keptHashes = new HashSet<>();
+            int evicted = 0;
+            try (FileChannel compactedData = FileChannel.open(compactedDataPath,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                writeDataHeader(compactedData);
+                compactedData.position(dataHeaderSize);
+                long offset = dataHeaderSize;
+                while (offset < dataLength) {
+                    int entryLength = ENTRY_HEADER_SIZE + data.getInt((int) offset);
+                    String hash = StandardCharsets.ISO_8859_1.decode(hashOf(offset)).toString();
+                    if (isKept.test(hash) && keptHashes.add(hash)) {
+                        ByteBuffer entry = data.slice((int) offset, entryLength);
+                        while (entry.hasRemaining()) {
+                            compactedData.write(entry);
+                        }
+                    } else {
+                        evicted++;
+                    }
+                    offset += entryLength;
+                }
+                compactedData.force(true);
+            }
+            Files.move(compactedDataPath, dataPath,
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            closeChannels();
+            load();
+            return evicted;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (!isCorrupt) {
+                flush();
+            }
+        } finally {
+            closeChannels();
+        }
+        if (isCorrupt) {
+            try (FileChannel lockChannel = lock(); FileLock ignored = lockChannel.lock()) {
+                clear(dataPath.getParent());
+            }
+        }
+    }
+
+    private FileChannel lock() throws IOException {
+        return FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
+
+    // Opens and validates both files, resetting or rebuilding what is not valid. Holds the lock.
+    private void load() throws IOException {
+        dataChannel = FileChannel.open(dataPath,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        dataFileKey = fileKey(dataPath);
+        dataHeaderSize = 16 + format.length;
+        if (dataChannel.size() > Integer.MAX_VALUE || !isDataHeaderValid()) {
+            // Empty, another version or format, or too big to map: start over.
+            dataChannel.truncate(0);
+            writeDataHeader(dataChannel);
+            Files.deleteIfExists(indexPath);
+        }
+        dataLength = dataChannel.size();
+        remapData();
+
+        indexChannel = FileChannel.open(indexPath,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        indexFileKey = fileKey(indexPath);
+        long indexedDataLength = mapIndex();
+        if (indexedDataLength < 0 || indexedDataLength > dataLength) {
+            rebuildIndex(MIN_CAPACITY);
+            indexedDataLength = dataHeaderSize;
+        }
+        indexEntries(indexedDataLength);
+    }
+
+    // Reloads when another run replaced a file, or indexes what it appended. Holds the lock.
+    private void refresh() throws IOException {
+        if (!Objects.equals(dataFileKey, fileKey(dataPath)) || !Objects.equals(indexFileKey, fileKey(indexPath))) {
+            closeChannels();
+            load();
+            return;
+        }
+        long indexedDataLength = index.getLong(24);
+        dataLength = dataChannel.size();
+        remapData();
+        if (indexedDataLength > dataLength) {
+            rebuildIndex(capacity);
+            indexedDataLength = dataHeaderSize;
+        }
+        indexEntries(indexedDataLength);
+    }
+
+    private boolean isDataHeaderValid() throws IOException {
+        if (dataChannel.size() < dataHeaderSize) {
+            return false;
+        }
+        ByteBuffer header = ByteBuffer.allocate(dataHeaderSize);
+        while (header.hasRemaining() && dataChannel.read(header, header.position()) >= 0) {
+            // Read the whole header.
+        }
+        header.flip();
+        return header.getLong() == DATA_MAGIC
+                && header.getInt() == VERSION
+                && header.getInt() == format.length
+                && header.equals(ByteBuffer.wrap(format));
+    }
+
+    private void writeDataHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(dataHeaderSize)
+                .putLong(DATA_MAGIC)
+                .putInt(VERSION)
+                .putInt(format.length)
+                .put(format)
+                .flip();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+
+    private void remapData() throws IOException {
+        if (dataLength > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Error mapping git-timeline cache, too big: " + dataPath);
+        }
+        data = dataChannel.map(FileChannel.MapMode.READ_ONLY, 0, dataLength);
+    }
+
+    // Returns the length of the data file already indexed, or -1 when the index is not valid.
+    private long mapIndex() throws IOException {
+        long size = indexChannel.size();
+        if (size < INDEX_HEADER_SIZE) {
+            return -1;
+        }
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        capacity = index.getInt(12);
+        count = index.getInt(16);
+        boolean isValid = index.getLong(0) == INDEX_MAGIC
+                && index.getInt(8) == VERSION
+                && Integer.bitCount(capacity) == 1
+                && size == INDEX_HEADER_SIZE + (long) capacity * SLOT_SIZE;
+        if (!isValid) {
+            index = null;
+            return -1;
+        }
+        return index.getLong(24);
+    }
+
+    // Indexes the entries from the offset to the end of the data file. A truncated or corrupt
+    // entry (e.g., a run killed while appending) is dropped along with everything after it.
+    private void indexEntries(long fromOffset) throws IOException {
+        long offset = fromOffset;
+        while (offset < dataLength) {
+            long entryEnd = validateEntry(offset);
+            if (entryEnd < 0) {
+                dataChannel.truncate(offset);
+                dataLength = offset;
+                remapData();
+                break;
+            }
+            insert(keyOf(data, (int) offset + ENTRY_HEADER_SIZE + 1), offset);
+            offset = entryEnd;
+        }
+        index.putLong(24, dataLength);
+    }
+
+    // Returns the end of the entry, or -1 when it is not valid.
+    private long validateEntry(long offset) {
+        if (offset + ENTRY_HEADER_SIZE > dataLength) {
+            return -1;
+        }
+        int length = data.getInt((int) offset);
+        long entryEnd = offset + ENTRY_HEADER_SIZE + length;
+        if (length <= 0 || entryEnd > dataLength) {
+            return -1;
+        }
+        int hashLength = data.get((int) offset + ENTRY_HEADER_SIZE);
+        if ((hashLength != 40 && hashLength != 64) || hashLength >= length) {
+            return -1;
+        }
+        return isChecksumValid(offset, length) ? entryEnd : -1;
+    }
+
+    private boolean isChecksumValid(long offset, int length) {
+        crc.reset();
+        crc.update(data.slice((int) offset + ENTRY_HEADER_SIZE, length));
+        return (int) crc.getValue() == data.getInt((int) offset + 4);
+    }
+
+    // Whether the entry is the one of the hash. Another commit may have the same first 64 bits.
+    private boolean isHashOf(long entryOffset, ByteBuffer hash) {
+        if (!isMapped(entryOffset, ENTRY_HEADER_SIZE + 1)) {
+            return false;
+        }
+        int hashLength = data.get((int) entryOffset + ENTRY_HEADER_SIZE);
+        if (!isMapped(entryOffset, ENTRY_HEADER_SIZE + 1 + hashLength)) {
+            return false;
+        }
+        return data.slice((int) entryOffset + ENTRY_HEADER_SIZE + 1, hashLength).equals(hash);
+    }
+
+    // Only an entry which fails its CRC32 makes the cache corrupt.
+    private ByteBuffer getFields(long entryOffset) {
+        int length = data.getInt((int) entryOffset);
+        int hashLength = data.get((int) entryOffset + ENTRY_HEADER_SIZE);
+        if (!isMapped(entryOffset, ENTRY_HEADER_SIZE + (long) Math.max(length, 0))) {
+            return null;
+        }
+        if (length <= hashLength || !isChecksumValid(entryOffset, length)) {
+            isCorrupt = true;
+            return null;
+        }
+        return data.slice((int) entryOffset + ENTRY_HEADER_SIZE + 1 + hashLength, length - 1 - hashLength);
+    }
+
+    // Whether the bytes are in the data this run mapped. The index is mapped shared, so it has
+    // the entries which other runs append meanwhile, past the mapping: those are misses, and
+    // are mapped on the next flush, which catches up under the lock.
+    private boolean isMapped(long offset, long length) {
+        return offset >= 0 && offset + length <= data.limit();
+    }
+
+    private void insert(long key, long entryOffset) throws IOException {
+        if ((long) (count + 1) * 4 > (long) capacity * 3) {
+            rebuildIndex(capacity * 2);
+        }
+        for (int slot = firstSlot(key); ; slot = (slot + 1) & (capacity - 1)) {
+            int slotOffset = (int) slotOffset(slot);
+            if (index.getLong(slotOffset + 8) == 0) {
+                index.putLong(slotOffset, key);
+                index.putLong(slotOffset + 8, entryOffset + 1);
+                index.putInt(16, ++count);
+                return;
+            }
+            if (index.getLong(slotOffset) == key
+                    && isHashOf(index.getLong(slotOffset + 8) - 1, hashOf(entryOffset))) {
+                // Appended twice (e.g., by concurrent runs). The latest entry wins.
+                index.putLong(slotOffset + 8, entryOffset + 1);
+                return;
+            }
+        }
+    }
+
+    // Writes a new index with the entries of the current one, if any, and replaces it.
+    private void rebuildIndex(int newCapacity) throws IOException {
+        MappedByteBuffer oldIndex = index;
+        int oldCapacity = index == null ? 0 : capacity;
+        boolean isOldIndexValid = oldIndex != null && oldIndex.getLong(24) <= dataLength;
+
+        Path rebuiltIndexPath = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+        FileChannel rebuiltIndexChannel = FileChannel.open(rebuiltIndexPath,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index = rebuiltIndexChannel.map(FileChannel.MapMode.READ_WRITE,
+                0, INDEX_HEADER_SIZE + (long) newCapacity * SLOT_SIZE);
+        index.putLong(0, INDEX_MAGIC);
+        index.putInt(8, VERSION);
+        index.putInt(12, newCapacity);
+        capacity = newCapacity;
+        count = 0;
+        if (isOldIndexValid) {
+            for (int slot = 0; slot < oldCapacity; slot++) {
+                int slotOffset = INDEX_HEADER_SIZE + slot * SLOT_SIZE;
+                long entryOffset = oldIndex.getLong(slotOffset + 8) - 1;
+                if (entryOffset >= 0) {
+                    insert(oldIndex.getLong(slotOffset), entryOffset);
+                }
+            }
+            index.putLong(24, oldIndex.getLong(24));
+        } else {
+            index.putLong(24, dataHeaderSize);
+        }
+        index.force();
+
+        Files.move(rebuiltIndexPath, indexPath,
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if (indexChannel != null) {
+            indexChannel.close();
+        }
+        indexChannel = rebuiltIndexChannel;
+        indexFileKey = fileKey(indexPath);
+    }
+
+    private ByteBuffer hashOf(long entryOffset) {
+        return data.slice((int) entryOffset + ENTRY_HEADER_SIZE + 1, data.get((int) entryOffset + ENTRY_HEADER_SIZE));
+    }
+
+    private void closeChannels() throws IOException {
+        try (FileChannel ignoredData = dataChannel; FileChannel ignoredIndex = indexChannel) {
+            dataChannel = null;
+            indexChannel = null;
+            data = null;
+            index = null;
+        }
+    }
+
+    private int firstSlot(long key) {
+        // Fibonacci hashing: hashes are already uniform, but this spreads any prefix they share.
+        return (int) ((key * 0x9e3779b97f4a7c15L) >>> (64 - Integer.numberOfTrailingZeros(capacity)));
+    }
+
+    private static long slotOffset(int slot) {
+        return INDEX_HEADER_SIZE + (long) slot * SLOT_SIZE;
+    }
+
+    private static long keyOf(byte[] line, int hashStart) {
+        return keyOf(ByteBuffer.wrap(line), hashStart);
+    }
+
+    // The first 16 hex digits of the hash.
+    private static long keyOf(ByteBuffer bytes, int hashStart) {
+        long key = 0;
+        for (int i = hashStart; i < hashStart + 16; i++) {
+            byte b = bytes.get(i);
+            key = (key << 4) | (b <= '9' ? b - '0' : b - 'a' + 10);
+        }
+        return key;
+    }
+
+    private static Object fileKey(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        // Without file keys (e.g., on Windows), fall back to the creation time.
+        return attributes.fileKey() != null ? attributes.fileKey() : attributes.creationTime();
+    }
+}
@@ -0,0 +1,612 @@
+package me.hernancerm;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+// Reader of the gitconfig files which apply to a repository, so config values are resolved
+// without spawning git. Supported: system, global (XDG and ~/.gitconfig) and local files,
+// `include.path` and `includeIf.<condition>.path` with the conditions `gitdir:`, `gitdir/i:`
+// and `onbranch:`. Anything else throws, so the caller can fall back to asking git.
+//
+// Only the values git-timeline reads are kept (see READ_KEYS), and the URLs of the remotes are
+// kept already rewritten by `url.<base>.insteadOf`, without credentials. So the cache, which
+// lives in the git directory, holds no other values of the files outside the repository, like
+// the tokens of `http.<url>.extraHeader` or `sendemail.smtpPass`.
+//
+// Documentation: https://git-scm.com/docs/git-config#_configuration_file
+public class GitConfig {
+
+    private static final int MAX_INCLUDE_DEPTH = 10;
+
+    private static final String CACHE_FILE_HEADER = "git-timeline-config-cache 2";
+
+    // Keys read, normalized (see normalizeKey), and prefixes of the keys looked for. Besides
+    // these, the URLs of the remotes are read: `remote.<name>.url`.
+    private static final List<String> READ_KEYS = List.of(
+            "core.pager", "core.abbrev", "i18n.logoutputencoding", "i18n.commitencoding");
+    private static final List<String> READ_KEY_PREFIXES = Stream.concat(
+            Stream.of(GitHostingProviders.CONFIG_PREFIX),
+            GitObjectLogSource.UNSUPPORTED_CONFIG_PREFIXES.stream()).toList();
+
+    // Key: `section.name` or `section.subsection.name`, section and name in lowercase.
+    // Value: all the values of the key, in the order they were read. Null is an implicit
+    // boolean: a key with no `=`.
+    private final Map<String, List<String>> values;
+
+    private GitConfig(Map<String, List<String>> values) {
+        this.values = values;
+    }
+
+    public static GitConfig load(Path workingDirectory, Map<String, String> environment)
+            throws IOException {
+
+        // Values set by `git -c` or by env vars. Rare, so don't bother parsing them.
+        if (environment.containsKey("GIT_CONFIG_PARAMETERS") || environment.containsKey("GIT_CONFIG_COUNT")) {
+            throw new IllegalStateException("Config values from the environment are not supported");
+        }
+
+        GitDirectory gitDirectory = GitDirectory.find(workingDirectory, environment);
+        List<Path> configFiles = getConfigFiles(gitDirectory, environment);
+        Path cacheFile = gitDirectory.gitDir().resolve("timeline-cache").resolve("config");
+
+        GitConfig cachedGitConfig = readCache(cacheFile, configFiles);
+        if (cachedGitConfig != null) {
+            return cachedGitConfig;
+        }
+
+        Reader reader = new Reader(gitDirectory, getHome(environment));
+        for (Path configFile : configFiles) {
+            reader.readFile(configFile, 0);
+        }
+        GitConfig gitConfig = new GitConfig(getReadValues(reader.values));
+        writeCache(cacheFile, configFiles, reader.dependencies, gitConfig);
+        return gitConfig;
+    }
+
+    // Returns the last value of the key, like `git config get`. The key is one of the keys read
+    // (see READ_KEYS).
+    public String get(String key) {
+        String normalizedKey = normalizeKey(key);
+        if (!isRead(normalizedKey)) {
+            throw new IllegalArgumentException("Config key not read by git-timeline: " + key);
+        }
+        List<String> keyValues = values.get(normalizedKey);
+        return keyValues == null ? null : keyValues.getLast();
+    }
+
+    // Whether any key starts with the prefix, e.g., `color.decorate.` for all the keys of that
+    // section. The prefix is one of READ_KEY_PREFIXES, matched as normalized: section and name
+    // in lowercase.
+    public boolean hasKeysStartingWith(String prefix) {
+        checkReadKeyPrefix(prefix);
+        return values.keySet().stream().anyMatch(key -> key.startsWith(prefix));
+    }
+
+    // The keys which start with the prefix, as hasKeysStartingWith, with all their values.
+    public Map<String, List<String>> getAllStartingWith(String prefix) {
+        checkReadKeyPrefix(prefix);
+        Map<String, List<String>> matching = new LinkedHashMap<>();
+        values.forEach((key, keyValues) -> {
+            if (key.startsWith(prefix)) {
+                matching.put(key, keyValues);
+            }
+        });
+        return matching;
+    }
+
+    // Returns the URL of a remote, rewritten by the longest matching `url.<base>.insteadOf`,
+    // like `git remote get-url`, but without credentials (see getReadValues).
+    public String getRemoteUrl(String remoteName) {
+        return get("remote." + remoteName + ".url");
+    }
+
+    private static void checkReadKeyPrefix(String prefix) {
+        if (!READ_KEY_PREFIXES.contains(prefix)) {
+            throw new IllegalArgumentException("Config keys not read by git-timeline: " + prefix + "*");
+        }
+    }
+
+    private static boolean isRead(String key) {
+        return READ_KEYS.contains(key)
+                || isRemoteUrlKey(key)
+                || READ_KEY_PREFIXES.stream().anyMatch(key::startsWith);
+    }
+
+    private static boolean isRemoteUrlKey(String key) {
+        return key.startsWith("remote.") && key.endsWith(".url")
+                && key.length() > "remote.".length() + ".url".length();
+    }
+
+    // The values read, out of all the values of the files. The URLs of the remotes are rewritten
+    // by `url.<base>.insteadOf`, whose bases may have credentials, and the credentials are then
+    // dropped, as the URLs are only read to link to the web pages of the remote.
+    private static Map<String, List<String>> getReadValues(Map<String, List<String>> allValues) {
+        Map<String, List<String>> readValues = new LinkedHashMap<>();
+        allValues.forEach((key, keyValues) -> {
+            if (isRemoteUrlKey(key)) {
+                readValues.put(key, keyValues.stream()
+                        .map(url -> url == null ? null : withoutCredentials(rewriteUrl(url, allValues)))
+                        .toList());
+            } else if (isRead(key)) {
+                readValues.put(key, keyValues);
+            }
+        });
+        return readValues;
+    }
+
+    private static String rewriteUrl(String url, Map<String, List<String>> allValues) {
+        String longestPrefix = "";
+        String replacement = null;
+        for (Map.Entry<String, List<String>> entry : allValues.entrySet()) {
+            String key = entry.getKey();
+            if (!key.startsWith("url.") || !key.endsWith(".insteadof")) {
+                continue;
+            }
+            for (String prefix : entry.getValue()) {
+                if (prefix != null && url.startsWith(prefix) && prefix.length() > longestPrefix.length()) {
+                    longestPrefix = prefix;
+                    replacement = key.substring("url.".length(), key.length() - ".insteadof".length());
+                }
+            }
+        }
+        return replacement == null ? url : replacement + url.substring(longestPrefix.length());
+    }
+
+    // Drops the user info of a URL with a scheme, e.g., `https://<user>:<token>@<host>/...`. The
+    // user of a scp-like URL (e.g., `git@<host>:...`) is kept, as it is never a secret.
+    private static String withoutCredentials(String url) {
+        int authorityStart = url.indexOf("://");
+        if (authorityStart < 0) {
+            return url;
+        }
+        authorityStart += "://".length();
+        int authorityEnd = url.indexOf('/', authorityStart);
+        if (authorityEnd < 0) {
+            authorityEnd = url.length();
+        }
+        int userInfoEnd = url.lastIndexOf('@', authorityEnd - 1);
+        if (userInfoEnd < authorityStart) {
+            return url;
+        }
+        return url.substring(0, authorityStart) + url.substring(userInfoEnd + 1);
+    }
+
+    // Subsection names are case-sensitive, section and key names are not.
+    private static String normalizeKey(String key) {
+        int firstDot = key.indexOf('.');
+        int lastDot = key.lastIndexOf('.');
+        if (firstDot < 0) {
+            throw new IllegalArgumentException("Config key has no section: " + key);
+        }
+        return key.substring(0, firstDot).toLowerCase(Locale.ROOT)
+                + key.substring(firstDot, lastDot)
+                + key.substring(lastDot).toLowerCase(Locale.ROOT);
+    }
+
+    // Documentation for the files read and their precedence:
+    // https://git-scm.com/docs/git-config#FILES
+    private static List<Path> getConfigFiles(GitDirectory gitDirectory, Map<String, String> environment) {
+        List<Path> configFiles = new ArrayList<>();
+
+        if (!environment.containsKey("GIT_CONFIG_NOSYSTEM")) {
+            String systemConfig = environment.get("GIT_CONFIG_SYSTEM");
+            configFiles.add(Path.of(systemConfig != null ? systemConfig : "/etc/gitconfig"));
+        }
+
+        String globalConfig = environment.get("GIT_CONFIG_GLOBAL");
+        if (globalConfig != null) {
+            configFiles.add(Path.of(globalConfig));
+        } else {
+            Path home = getHome(environment);
+            String xdgConfigHome = environment.get("XDG_CONFIG_HOME");
+            configFiles.add(xdgConfigHome != null && !xdgConfigHome.isEmpty()
+                    ? Path.of(xdgConfigHome, "git", "config")
+                    : home.resolve(".config").resolve("git").resolve("config"));
+            configFiles.add(home.resolve(".gitconfig"));
+        }
+
+        configFiles.add(gitDirectory.commonDir().resolve("config"));
+        return configFiles;
+    }
+
+    private static Path getHome(Map<String, String> environment) {
+        String home = environment.get("HOME");
+        return Path.of(home != null ? home : System.getProperty("user.home"));
+    }
+
+    // Cache.
+    // Format: a header line, then one line per file read (`F <stamp> <path>`), then one line
+    // per value (`V <key> <value>`). The cache is valid while the stamps of all the files read
+    // (including the missing ones and the included ones) stay the same.
+
+    private static GitConfig readCache(Path cacheFile, List<Path> configFiles) {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(cacheFile, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return null;
+        }
+        if (lines.isEmpty() || !CACHE_FILE_HEADER.equals(lines.getFirst())) {
+            return null;
+        }
+
+        Map<String, List<String>> values = new LinkedHashMap<>();
+        List<Path> cachedFiles = new ArrayList<>();
+        for (String line : lines.subList(1, lines.size())) {
+            String[] fields = line.split("\t", 3);
+            if (fields.length != 3) {
+                return null;
+            }
+            switch (fields[0]) {
+                case "F" -> {
+                    Path file = Path.of(fields[2]);
+                    if (!fields[1].equals(getStamp(file))) {
+                        return null;
+                    }
+                    cachedFiles.add(file);
+                }
+                case "V" -> values.computeIfAbsent(fields[1], k -> new ArrayList<>())
+                        .add("\0".equals(fields[2]) ? null : unescapeCacheValue(fields[2]));
+                default -> {
+                    return null;
+                }
+            }
+        }
+
+        // The top-level files change with the environment, e.g., `GIT_CONFIG_GLOBAL`.
+        if (cachedFiles.size() < configFiles.size()
+                || !cachedFiles.subList(0, configFiles.size()).equals(configFiles)) {
+            return null;
+        }
+        return new GitConfig(values);
+    }
+
+    private static void writeCache(
+            Path cacheFile,
+            List<Path> configFiles,
+            List<Path> dependencies,
+            GitConfig gitConfig
+    ) {
+        StringBuilder content = new StringBuilder(CACHE_FILE_HEADER).append('\n');
+        for (Path file : configFiles) {
+            content.append("F\t").append(getStamp(file)).append('\t').append(file).append('\n');
+        }
+        for (Path file : dependencies) {
+            content.append("F\t").append(getStamp(file)).append('\t').append(file).append('\n');
+        }
+        for (Map.Entry<String, List<String>> entry : gitConfig.values.entrySet()) {
+            for (String value : entry.getValue()) {
+                content.append("V\t").append(entry.getKey()).append('\t')
+                        .append(value == null ? "\0" : escapeCacheValue(value)).append('\n');
+            }
+        }
+        try {
+            // Write and rename, so a concurrent run never reads a partial file.
+            Files.createDirectories(cacheFile.getParent());
+            Path temporaryFile = Files.createTempFile(cacheFile.getParent(), "config", ".tmp");
+            Files.writeString(temporaryFile, content, StandardCharsets.UTF_8);
+            Files.move(temporaryFile, cacheFile,
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // The cache is an optimization, e.g., the git dir might be read-only.
+        }
+    }
+
+    private static String getStamp(Path file) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return attributes.lastModifiedTime().toMillis() + ":" + attributes.size();
+        } catch (IOException e) {
+            return "missing";
+        }
+    }
+
+    private static String escapeCacheValue(String value) {
+        return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n");
+    }
+
+    private static String unescapeCacheValue(String value) {
+        StringBuilder unescaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                unescaped.append(next == 't' ? '\t' : next == 'n' ? '\n' : next);
+            } else {
+                unescaped.append(c);
+            }
+        }
+        return unescaped.toString();
+    }
+
+    private static class Reader {
+
+        private final GitDirectory gitDirectory;
+        private final Path home;
+        private final Map<String, List<String>> values = new LinkedHashMap<>();
+        // Files other than the top-level ones which the values depend on.
+        private final List<Path> dependencies = new ArrayList<>();
+
+        private String text;
+        private int position;
+        private Path file;
+
+        private Reader(GitDirectory gitDirectory, Path home) {
+            this.gitDirectory = gitDirectory;
+            this.home = home;
+        }
+
+        private void readFile(Path configFile, int depth) throws IOException {
+            if (depth > MAX_INCLUDE_DEPTH) {
+                throw new IllegalStateException("Exceeded maximum include depth while reading: " + configFile);
+            }
+            if (!Files.isRegularFile(configFile)) {
+                return;
+            }
+
+            // Save the state of the including file.
+            String includingText = text;
+            int includingPosition = position;
+            Path includingFile = file;
+
+            text = Files.readString(configFile, StandardCharsets.UTF_8);
+            position = 0;
+            file = configFile;
+            try {
+                parse(depth);
+            } finally {
+                text = includingText;
+                position = includingPosition;
+                file = includingFile;
+            }
+        }
+
+        private void parse(int depth) throws IOException {
+            String section = null;
+            while (position < text.length()) {
+                char c = text.charAt(position);
+                if (c == '\n' || Character.isWhitespace(c)) {
+                    position++;
+                } else if (c == '#' || c == ';') {
+                    skipLine();
+                } else if (c == '[') {
+                    section = parseSectionHeader();
+                } else if (Character.isLetter(c)) {
+                    if (section == null) {
+                        throw error("Key outside of a section");
+                    }
+                    String name = parseName();
+                    String value = parseValue();
+                    String key = section + "." + name;
+                    values.computeIfAbsent(key, k -> new ArrayList<>()).add(value);
+                    handleInclude(section, name, value, depth);
+                } else {
+                    throw error("Unexpected character '" + c + "'");
+                }
+            }
+        }
+
+        // `[section]`, `[section "subsection"]` or the deprecated `[section.subsection]`.
+        private String parseSectionHeader() {
+            position++;
+            StringBuilder section = new StringBuilder();
+            while (position < text.length()) {
+                char c = text.charAt(position);
+                if (c == ']') {
+                    position++;
+                    return section.toString().toLowerCase(Locale.ROOT);
+                } else if (Character.isLetterOrDigit(c) || c == '-' || c == '.') {
+                    section.append(c);
+                    position++;
+                } else if (c == ' ' || c == '\t') {
+                    position++;
+                    return section.toString().toLowerCase(Locale.ROOT) + "." + parseSubsection();
+                } else {
+                    throw error("Bad section header");
+                }
+            }
+            throw error("Unterminated section header");
+        }
+
+        private String parseSubsection() {
+            while (position < text.length() && (text.charAt(position) == ' ' || text.charAt(position) == '\t')) {
+                position++;
+            }
+            if (position >= text.length() || text.charAt(position) != '"') {
+                throw error("Bad subsection in section header");
+            }
+            position++;
+            StringBuilder subsection = new StringBuilder();
+            while (position < text.length()) {
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    if (position >= text.length() || text.charAt(position) != ']') {
+                        throw error("Bad subsection in section header");
+                    }
+                    position++;
+                    return subsection.toString();
+                } else if (c == '\\' && position < text.length()) {
+                    subsection.append(text.charAt(position++));
+                } else if (c == '\n') {
+                    break;
+                } else {
+                    subsection.append(c);
+                }
+            }
+            throw error("Unterminated subsection in section header");
+        }
+
+        private String parseName() {
+            int start = position;
+            while (position < text.length()
+                    && (Character.isLetterOrDigit(text.charAt(position)) || text.charAt(position) == '-')) {
+                position++;
+            }
+            return text.substring(start, position).toLowerCase(Locale.ROOT);
+        }
+
+        // Returns null for an implicit boolean, i.e., a key with no `=`.
+        private String parseValue() {
+            while (position < text.length() && (text.charAt(position) == ' ' || text.charAt(position) == '\t')) {
+                position++;
+            }
+            if (position >= text.length() || text.charAt(position) == '\n') {
+                return null;
+            }
+            char c = text.charAt(position);
+            if (c == '#' || c == ';') {
+                skipLine();
+                return null;
+            }
+            if (c != '=') {
+                throw error("Expected '=' after key");
+            }
+            position++;
+
+            StringBuilder value = new StringBuilder();
+            // Length of the value without its trailing unquoted whitespace.
+            int trimmedLength = 0;
+            boolean inQuotes = false;
+            while (position < text.length()) {
+                c = text.charAt(position++);
+                if (c == '\n') {
+                    if (inQuotes) {
+                        throw error("Unterminated quote in value");
+                    }
+                    break;
+                } else if (c == '\r' && position < text.length() && text.charAt(position) == '\n') {
+                    continue;
+                } else if (!inQuotes && (c == '#' || c == ';')) {
+                    skipLine();
+                    break;
+                } else if (c == '"') {
+                    inQuotes = !inQuotes;
+                    trimmedLength = value.length();
+                } else if (c == '\\') {
+                    if (position >= text.length()) {
+                        throw error("Bad escape in value");
+                    }
+                    char escaped = text.charAt(position++);
+                    switch (escaped) {
+                        case '\n' -> { }
+                        case 'n' -> value.append('\n');
+                        case 't' -> value.append('\t');
+                        case 'b' -> value.append('\b');
+                        case '\\', '"' -> value.append(escaped);
+                        default -> throw error("Bad escape '\\" + escaped + "' in value");
+                    }
+                    trimmedLength = value.length();
+                } else if (!inQuotes && (c == ' ' || c == '\t')) {
+                    // Leading whitespace is dropped, inner whitespace is kept.
+                    if (!value.isEmpty()) {
+                        value.append(c);
+                    }
+                } else {
+                    value.append(c);
+                    trimmedLength = value.length();
+                }
+            }
+            value.setLength(trimmedLength);
+            return value.toString();
+        }
+
+        private void skipLine() {
+            int end = text.indexOf('\n', position);
+            position = end < 0 ? text.length() : end + 1;
+        }
+
+        private void handleInclude(String section, String name, String value, int depth) throws IOException {
+            if (!"path".equals(name) || value == null) {
+                return;
+            }
+            if ("include".equals(section)) {
+                includeFile(value, depth);
+            } else if (section.startsWith("includeif.")) {
+                if (isConditionMet(section.substring("includeif.".length()))) {
+                    includeFile(value, depth);
+                }
+            }
+        }
+
+        private void includeFile(String path, int depth) throws IOException {
+            Path includedFile = file.getParent().resolve(expandHome(path)).normalize();
+            dependencies.add(includedFile);
+            readFile(includedFile, depth + 1);
+        }
+
+        // Documentation: https://git-scm.com/docs/git-config#_conditional_includes
+        private boolean isConditionMet(String condition) throws IOException {
+            if (condition.startsWith("gitdir:")) {
+                return matchesGitDir(condition.substring("gitdir:".length()), false);
+            } else if (condition.startsWith("gitdir/i:")) {
+                return matchesGitDir(condition.substring("gitdir/i:".length()), true);
+            } else if (condition.startsWith("onbranch:")) {
+                return matchesBranch(condition.substring("onbranch:".length()));
+            }
+            throw error("Unsupported includeIf condition: " + condition);
+        }
+
+        private boolean matchesGitDir(String pattern, boolean ignoreCase) {
+            String expandedPattern;
+            if (pattern.startsWith("./")) {
+                expandedPattern = file.getParent().resolve(pattern.substring(2)).toString();
+            } else {
+                expandedPattern = expandHome(pattern);
+                if (!expandedPattern.startsWith("/")) {
+                    expandedPattern = "**/" + expandedPattern;
+                }
+            }
+            if (expandedPattern.endsWith("/")) {
+                expandedPattern += "**";
+            }
+            String gitDir = gitDirectory.gitDir().toAbsolutePath().toString();
+            if (ignoreCase) {
+                expandedPattern = expandedPattern.toLowerCase(Locale.ROOT);
+                gitDir = gitDir.toLowerCase(Locale.ROOT);
+            }
+            return FileSystems.getDefault().getPathMatcher("glob:" + expandedPattern).matches(Path.of(gitDir));
+        }
+
+        private boolean matchesBranch(String pattern) throws IOException {
+            Path headFile = gitDirectory.gitDir().resolve("HEAD");
+            dependencies.add(headFile);
+            String head = Files.readString(headFile).strip();
+            if (!head.startsWith("ref: refs/heads/")) {
+                // Detached HEAD.
+                return false;
+            }
+            String expandedPattern = pattern.endsWith("/") ? pattern + "**" : pattern;
+            return FileSystems.getDefault().getPathMatcher("glob:" + expandedPattern)
+                    .matches(Path.of(head.substring("ref: refs/heads/".length())));
+        }
+
+        private String expandHome(String path) {
+            if (path.startsWith("~/")) {
+                return home + path.substring(1);
+            }
+            return path;
+        }
+
+        private IllegalStateException error(String message) {
+            int line = 1;
+            for (int i = 0; i < Math.min(position, text.length()); i++) {
+                if (text.charAt(i) == '\n') {
+                    line++;
+                }
+            }
+            return new IllegalStateException(
+                    "Error parsing git config file " + file + " at line " + line + ": " + message);
+        }
+    }
+}
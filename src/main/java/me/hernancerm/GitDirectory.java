@@ -0,0 +1,65 @@
+package me.hernancerm;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+// The `.git` directory of a repository, as found by git itself from the working directory.
+// For linked worktrees, `gitDir` is the private directory of the worktree and `commonDir` is
+// the directory shared by all the worktrees (objects, refs, config). Otherwise, both are equal.
+public record GitDirectory(
+        Path gitDir,
+        Path commonDir) {
+
+    public static GitDirectory find(Path workingDirectory, Map<String, String> environment)
+            throws IOException {
+
+        String gitDirVariable = environment.get("GIT_DIR");
+        if (gitDirVariable != null && !gitDirVariable.isEmpty()) {
+            return of(workingDirectory.resolve(gitDirVariable).normalize());
+        }
+
+        for (Path directory = workingDirectory; directory != null; directory = directory.getParent()) {
+            Path dotGit = directory.resolve(".git");
+            if (Files.isDirectory(dotGit)) {
+                return of(dotGit);
+            }
+            if (Files.isRegularFile(dotGit)) {
+                // Linked worktrees and submodules: the file contains `gitdir: <path>`.
+                String content = Files.readString(dotGit).strip();
+                if (!content.startsWith("gitdir: ")) {
+                    throw new IllegalStateException("Error reading git dir from file: " + dotGit);
+                }
+                return of(directory.resolve(content.substring("gitdir: ".length())).normalize());
+            }
+            if (isBareRepository(directory)) {
+                return of(directory);
+            }
+        }
+
+        throw new IllegalStateException("Not a git repository: " + workingDirectory);
+    }
+
+    // Whether the directory is the top of a repository: a working tree (with a `.git` directory
+    // or file) or a bare repository. Unlike find, parent directories are not looked at.
+    public static boolean isRepository(Path directory) {
+        return Files.exists(directory.resolve(".git")) || isBareRepository(directory);
+    }
+
+    private static GitDirectory of(Path gitDir) throws IOException {
+        Path commonDirFile = gitDir.resolve("commondir");
+        if (Files.isRegularFile(commonDirFile)) {
+            return new GitDirectory(
+                    gitDir,
+                    gitDir.resolve(Files.readString(commonDirFile).strip()).normalize());
+        }
+        return new GitDirectory(gitDir, gitDir);
+    }
+
+    private static boolean isBareRepository(Path directory) {
+        return Files.isRegularFile(directory.resolve("HEAD"))
+                && Files.isDirectory(directory.resolve("objects"))
+                && Files.isDirectory(directory.resolve("refs"));
+    }
+}
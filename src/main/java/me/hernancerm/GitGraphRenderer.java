@@ -0,0 +1,284 @@
+package me.hernancerm;
+
+import java.util.Arrays;
+
+// Draws the graph of git-log `--graph` one commit at a time, in the same characters as git:
+//
+//   *   <merge>
+//   |\
+//   | * <commit>
+//   * | <commit>
+//   |/
+//   * <commit>
+//
+// Each lane (column) awaits a commit: the next parent of the line of history drawn in it. A
+// commit goes in the lane which awaits it, or a new one on the right (e.g., the tip of a branch
+// with `--all`). After it, its lane awaits its first parent, and a new lane is opened on its
+// right for each other parent. Octopus merges are drawn as git does: `*-.` on the line of the
+// commit, then `|\ \`. A lane which awaits the same commit as one on its left joins it right away,
+// so no two lanes await the same commit. The lanes move at most one column per row, so every
+// move is drawn with `/` and `\`.
+//
+// Only the lanes are kept, so the memory is bounded by the width of the graph, not by the length
+// of the history. Commits are identified by ints, e.g., their position in the CommitGraph.
+public class GitGraphRenderer {
+
+    // Palette of git for the lanes (color.diff.graph defaults), cycled as lanes are opened.
+    private static final String[] LANE_COLORS = {
+            "\033[31m", "\033[32m", "\033[33m", "\033[34m", "\033[35m", "\033[36m",
+            "\033[1;31m", "\033[1;32m", "\033[1;33m", "\033[1;34m", "\033[1;35m", "\033[1;36m"};
+    private static final String RESET = "\033[m";
+
+    // Commit awaited by each lane, and its color (index into LANE_COLORS).
+    private int[] lanes = new int[8];
+    private int[] laneColors = new int[8];
+    private int laneCount;
+    private int nextColor;
+
+    // The lanes after the commit, before the ones which await the same commit are joined.
+    private int[] nextLanes = new int[8];
+    private int[] nextLaneColors = new int[8];
+    private int[] nextLaneColumns = new int[8];
+
+    // Moves of the lanes not yet drawn: the column each lane goes from and to, and its color.
+    private int[] moveFrom = new int[8];
+    private int[] moveTo = new int[8];
+    private int[] moveColors = new int[8];
+    private int moveCount;
+
+    // Columns of the lanes while drawing the rows of the moves.
+    private int[] columns = new int[8];
+    private char[] rowChars = new char[16];
+    private int[] rowColors = new int[16];
+    private boolean[] isJoining = new boolean[8];
+
+    // Appends to `rows` the connector rows which lead to the commit, each one with its newline,
+    // and to `prefix` the prefix of the line of the commit, e.g., `| * `.
+    public void render(int commit, int[] parents, int parentCount, StringBuilder rows, StringBuilder prefix) {
+        // The lanes opened, joined or closed after the previous commit.
+        appendMoveRows(rows);
+
+        int column = indexOfLane(commit);
+        if (column < 0) {
+            column = laneCount;
+            ensureLaneCapacity(laneCount + 1);
+            lanes[laneCount] = commit;
+            laneColors[laneCount] = takeColor();
+            laneCount++;
+        }
+        // Lanes on the right of an octopus merge make room for its dashes first.
+        int octopusWidth = Math.max(0, parentCount - 2);
+        if (octopusWidth > 0 && column + 1 < laneCount) {
+            for (int i = 0; i < laneCount; i++) {
+                addMove(i, i > column ? i + octopusWidth : i, laneColors[i]);
+            }
+            appendMoveRows(rows);
+        }
+
+        // New lanes take their colors now, so the dashes of an octopus merge match them.
+        int firstParentColor = nextColor;
+        for (int i = 0; i < column; i++) {
+            appendColored(prefix, '|', laneColors[i]);
+            prefix.append(' ');
+        }
+        prefix.append('*');
+        for (int i = 0; i < 2 * octopusWidth; i++) {
+            // The dashes lead to the lanes of the third parent on, e.g., `*---.` for 5 parents.
+            int parentColor = (firstParentColor + Math.min(i / 2 + 1, octopusWidth)) % LANE_COLORS.length;
+            appendColored(prefix, i + 1 < 2 * octopusWidth ? '-' : '.', parentColor);
+        }
+        prefix.append(' ');
+        for (int i = column + 1; i < laneCount; i++) {
+            appendColored(prefix, '|', laneColors[i]);
+            prefix.append(' ');
+        }
+
+        int rowWidth = 2 * (laneCount + octopusWidth);
+        moveLanesToParents(column, parents, parentCount, octopusWidth);
+        // As git, so the commits line up with the lanes opened after them, e.g., `*   <merge>`.
+        prefix.repeat(' ', Math.max(0, 2 * laneCount - rowWidth));
+    }
+
+    // The lane of the commit awaits its first parent, and the other parents get new lanes on its
+    // right, which pushes the lanes on the right further right. Without parents, the lane ends.
+    // Then, the lanes which await the same commit as one on their left join it.
+    private void moveLanesToParents(int column, int[] parents, int parentCount, int octopusWidth) {
+        int nextLaneCount = 0;
+        ensureNextLaneCapacity(laneCount + parentCount);
+        for (int i = 0; i < laneCount; i++) {
+            if (i != column) {
+                // On the right of an octopus merge, they already moved to make room.
+                nextLaneColumns[nextLaneCount] = i > column ? i + octopusWidth : i;
+                nextLanes[nextLaneCount] = lanes[i];
+                nextLaneColors[nextLaneCount] = laneColors[i];
+                nextLaneCount++;
+                continue;
+            }
+            for (int parent = 0; parent < parentCount; parent++) {
+                // The first two from the commit, the next ones from the dashes, e.g., `|\ \`.
+                nextLaneColumns[nextLaneCount] = column + Math.max(0, parent - 1);
+                nextLanes[nextLaneCount] = parents[parent];
+                nextLaneColors[nextLaneCount] = parent == 0 ? laneColors[i] : takeColor();
+                nextLaneCount++;
+            }
+        }
+
+        laneCount = 0;
+        for (int i = 0; i < nextLaneCount; i++) {
+            int joined = indexOfLane(nextLanes[i]);
+            if (joined >= 0) {
+                addMove(nextLaneColumns[i], joined, nextLaneColors[i]);
+                continue;
+            }
+            addMove(nextLaneColumns[i], laneCount, nextLaneColors[i]);
+            lanes[laneCount] = nextLanes[i];
+            laneColors[laneCount] = nextLaneColors[i];
+            laneCount++;
+        }
+    }
+
+    private int takeColor() {
+        int color = nextColor;
+        nextColor = (nextColor + 1) % LANE_COLORS.length;
+        return color;
+    }
+
+    private int indexOfLane(int commit) {
+        for (int i = 0; i < laneCount; i++) {
+            if (lanes[i] == commit) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void ensureLaneCapacity(int capacity) {
+        if (lanes.length < capacity) {
+            lanes = Arrays.copyOf(lanes, capacity * 2);
+            laneColors = Arrays.copyOf(laneColors, capacity * 2);
+        }
+    }
+
+    // The lanes after the commit are never more than the lanes before plus its parents.
+    private void ensureNextLaneCapacity(int capacity) {
+        if (nextLanes.length < capacity) {
+            nextLanes = new int[capacity * 2];
+            nextLaneColors = new int[capacity * 2];
+            nextLaneColumns = new int[capacity * 2];
+        }
+        ensureLaneCapacity(capacity);
+    }
+
+    private void addMove(int from, int to, int color) {
+        if (moveCount == moveFrom.length) {
+            moveFrom = Arrays.copyOf(moveFrom, moveCount * 2);
+            moveTo = Arrays.copyOf(moveTo, moveCount * 2);
+            moveColors = Arrays.copyOf(moveColors, moveCount * 2);
+        }
+        moveFrom[moveCount] = from;
+        moveTo[moveCount] = to;
+        moveColors[moveCount] = color;
+        moveCount++;
+    }
+
+    // Draws the pending moves, one row per column moved: a lane which stays is `|`, one which
+    // moves right is `\` and one which moves left is `/`, between the two columns. Nothing is
+    // drawn when no lane moves.
+    private void appendMoveRows(StringBuilder rows) {
+        if (columns.length < moveCount) {
+            columns = new int[moveFrom.length];
+        }
+        System.arraycopy(moveFrom, 0, columns, 0, moveCount);
+        while (true) {
+            int width = 0;
+            boolean isMoving = false;
+            for (int i = 0; i < moveCount; i++) {
+                isMoving |= columns[i] != moveTo[i];
+                width = Math.max(width, Math.max(columns[i], moveTo[i]) * 2 + 2);
+            }
+            if (!isMoving) {
+                break;
+            }
+            if (rowChars.length < width) {
+                rowChars = new char[width * 2];
+                rowColors = new int[width * 2];
+            }
+            Arrays.fill(rowChars, 0, width, ' ');
+            if (isJoining.length < moveCount) {
+                isJoining = new boolean[moveFrom.length];
+            }
+            for (int i = 0; i < moveCount; i++) {
+                isJoining[i] = isJoiningAcross(i);
+            }
+            for (int i = 0; i < moveCount; i++) {
+                if (isJoining[i]) {
+                    // As git: `| |_|_|/`, in a single row.
+                    setRowChar(columns[i] * 2 - 1, '/', moveColors[i]);
+                    for (int column = moveTo[i]; column < columns[i] - 1; column++) {
+                        setRowChar(column * 2 + 1, '_', moveColors[i]);
+                    }
+                    columns[i] = moveTo[i];
+                } else if (moveTo[i] > columns[i]) {
+                    setRowChar(columns[i] * 2 + 1, '\\', moveColors[i]);
+                    columns[i]++;
+                } else if (moveTo[i] < columns[i]) {
+                    setRowChar(columns[i] * 2 - 1, '/', moveColors[i]);
+                    columns[i]--;
+                } else {
+                    setRowChar(columns[i] * 2, '|', moveColors[i]);
+                }
+            }
+            int end = width;
+            while (end > 0 && rowChars[end - 1] == ' ') {
+                end--;
+            }
+            for (int i = 0; i < end; i++) {
+                if (rowChars[i] == ' ') {
+                    rows.append(' ');
+                } else {
+                    appendColored(rows, rowChars[i], rowColors[i]);
+                }
+            }
+            rows.append('\n');
+        }
+        moveCount = 0;
+    }
+
+    // Whether the move joins a lane which stays, more than one column left, with no lane moving
+    // in between. It is then drawn across the lanes in between, rather than crossing them.
+    private boolean isJoiningAcross(int move) {
+        int from = columns[move];
+        int to = moveTo[move];
+        if (to >= from - 1) {
+            return false;
+        }
+        boolean isTargetStaying = false;
+        for (int i = 0; i < moveCount; i++) {
+            if (i == move) {
+                continue;
+            }
+            if (columns[i] == moveTo[i]) {
+                isTargetStaying |= columns[i] == to;
+            } else if (Math.min(columns[i], moveTo[i]) < from && Math.max(columns[i], moveTo[i]) > to) {
+                return false;
+            }
+        }
+        return isTargetStaying;
+    }
+
+    private void setRowChar(int index, char c, int color) {
+        // Where lanes cross, the one moving wins over the one which stays.
+        if (rowChars[index] == ' ' || c != '|') {
+            rowChars[index] = c;
+            rowColors[index] = color;
+        }
+    }
+
+    private static void appendColored(StringBuilder output, char c, int color) {
+        if (AnsiUtils.isEnabled()) {
+            output.append(LANE_COLORS[color]).append(c).append(RESET);
+        } else {
+            output.append(c);
+        }
+    }
+}
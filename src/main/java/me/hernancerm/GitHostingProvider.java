@@ -0,0 +1,135 @@
+package me.hernancerm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// A hosting provider of remotes, e.g., GitHub or a self-hosted GitLab, with the templates of the
+// URLs it links to. Placeholders: `{host}`, `{owner}` and `{repo}` of the remote, and the value of
+// the link, which is `{hash}` of a commit, `{number}` of an issue or a PR, or `{key}` of an issue
+// tracker, like `ABC-123` of Jira. The text linked (see Linkifier):
+//
+//   <key>:     [A-Z]+-\d+, to the tracker key URL.
+//   #<number>: to the issue URL, or to the PR URL when there is no issue URL.
+//   !<number>: to the PR URL when there is an issue URL too, like merge requests in GitLab.
+//
+// The built-in providers are below. Others are configured in gitconfig, see GitHostingProviders.
+public record GitHostingProvider(
+        String name,
+        // Null when the provider has no URLs of the kind.
+        UrlTemplate commitUrl,
+        UrlTemplate issueUrl,
+        UrlTemplate pullRequestUrl,
+        UrlTemplate trackerKeyUrl) {
+
+    public static final GitHostingProvider GITHUB = new GitHostingProvider(
+            "github",
+            UrlTemplate.compile("https://{host}/{owner}/{repo}/commit/{hash}"),
+            // Redirects to the PR when the number belongs to a PR.
+            UrlTemplate.compile("https://{host}/{owner}/{repo}/issues/{number}"),
+            null,
+            null);
+
+    public static final GitHostingProvider BITBUCKET = new GitHostingProvider(
+            "bitbucket",
+            UrlTemplate.compile("https://{host}/{owner}/{repo}/commits/{hash}"),
+            null,
+            UrlTemplate.compile("https://{host}/{owner}/{repo}/pull-requests/{number}"),
+            UrlTemplate.compile("https://{owner}.atlassian.net/browse/{key}"));
+
+    public static final GitHostingProvider GITLAB = new GitHostingProvider(
+            "gitlab",
+            UrlTemplate.compile("https://{host}/{owner}/{repo}/-/commit/{hash}"),
+            UrlTemplate.compile("https://{host}/{owner}/{repo}/-/issues/{number}"),
+            UrlTemplate.compile("https://{host}/{owner}/{repo}/-/merge_requests/{number}"),
+            null);
+
+    // Also Forgejo, e.g., codeberg.org.
+    public static final GitHostingProvider GITEA = new GitHostingProvider(
+            "gitea",
+            UrlTemplate.compile("https://{host}/{owner}/{repo}/commit/{hash}"),
+            // Redirects to the PR when the number belongs to a PR.
+            UrlTemplate.compile("https://{host}/{owner}/{repo}/issues/{number}"),
+            null,
+            null);
+
+    public static final List<GitHostingProvider> BUILT_IN = List.of(GITHUB, BITBUCKET, GITLAB, GITEA);
+
+    // Returns the built-in provider of the name, or null.
+    public static GitHostingProvider getBuiltIn(String name) {
+        for (GitHostingProvider provider : BUILT_IN) {
+            if (provider.name().equals(name)) {
+                return provider;
+            }
+        }
+        return null;
+    }
+
+    // A URL template split into its parts: text as is, and placeholders like `{host}`. Compiled
+    // once, when the provider is loaded. The placeholders of the remote are replaced once per
+    // remote (see resolve), which leaves the text around the value of the link.
+    public record UrlTemplate(String template, List<String> parts) {
+
+        private static final List<String> REMOTE_PLACEHOLDERS = List.of("{host}", "{owner}", "{repo}");
+        private static final List<String> VALUE_PLACEHOLDERS = List.of("{hash}", "{number}", "{key}");
+
+        // Null for an empty template, which means no URLs of the kind.
+        public static UrlTemplate compile(String template) {
+            if (template == null || template.isEmpty()) {
+                return null;
+            }
+            List<String> parts = new ArrayList<>();
+            int valuePlaceholderCount = 0;
+            int textStart = 0;
+            int placeholderStart;
+            while ((placeholderStart = template.indexOf('{', textStart)) >= 0) {
+                int placeholderEnd = template.indexOf('}', placeholderStart) + 1;
+                if (placeholderEnd == 0) {
+                    throw new IllegalStateException("Unclosed placeholder in URL template: " + template);
+                }
+                String placeholder = template.substring(placeholderStart, placeholderEnd);
+                if (VALUE_PLACEHOLDERS.contains(placeholder)) {
+                    valuePlaceholderCount++;
+                } else if (!REMOTE_PLACEHOLDERS.contains(placeholder)) {
+                    throw new IllegalStateException("Unknown placeholder " + placeholder + " in URL template: " + template);
+                }
+                if (textStart < placeholderStart) {
+                    parts.add(template.substring(textStart, placeholderStart));
+                }
+                parts.add(placeholder);
+                textStart = placeholderEnd;
+            }
+            if (textStart < template.length()) {
+                parts.add(template.substring(textStart));
+            }
+            if (valuePlaceholderCount != 1) {
+                throw new IllegalStateException(
+                        "A URL template needs one of {hash}, {number} or {key}: " + template);
+            }
+            return new UrlTemplate(template, List.copyOf(parts));
+        }
+
+        public Url resolve(GitRemote remote) {
+            StringBuilder prefix = new StringBuilder();
+            StringBuilder suffix = new StringBuilder();
+            StringBuilder text = prefix;
+            for (String part : parts) {
+                switch (part) {
+                    case "{host}" -> text.append(remote.host());
+                    case "{owner}" -> text.append(remote.ownerName());
+                    case "{repo}" -> text.append(remote.repositoryName());
+                    case "{hash}", "{number}", "{key}" -> text = suffix;
+                    default -> text.append(part);
+                }
+            }
+            return new Url(prefix.toString(), suffix.toString());
+        }
+    }
+
+    // The URL of the links of a remote: the prefix, the value of the link, then the suffix.
+    public record Url(String prefix, String suffix) {
+
+        public void append(StringBuilder output, CharSequence value, int valueStart, int valueEnd) {
+            output.append(prefix).append(value, valueStart, valueEnd).append(suffix);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package me.hernancerm;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// The hosting providers of remotes, by host: the built-in ones, and the ones of gitconfig. E.g.,
+// a self-hosted GitLab whose issues are tracked in Jira:
+//
+//   [timeline "provider.corp"]
+//       type = gitlab
+//       host = gitlab.corp.example.com
+//       trackerKeyUrl = https://jira.corp.example.com/browse/{key}
+//
+// Keys of `timeline.provider.<name>`:
+//   host:     Host of its remotes. Can be repeated. Defaults to the one of the built-in provider
+//             of the same name, e.g., `timeline.provider.github.trackerKeyUrl` for github.com.
+//   type:     github, bitbucket, gitlab or gitea: the built-in provider whose URL templates it
+//             starts from. Defaults to the name, when it is one of those.
+//   commitUrl, issueUrl, pullRequestUrl, trackerKeyUrl:
+//             URL templates (see GitHostingProvider), over the ones of the type. Empty for none.
+//
+// The templates are compiled and the table of hosts is built once, when loaded, so finding the
+// provider of a remote is a lookup. A provider with a bad entry (e.g., an unknown type) is
+// skipped with a warning, as git does with bad config, so it does not fail every run.
+public class GitHostingProviders {
+
+    static final String CONFIG_PREFIX = "timeline.provider.";
+
+    public static final GitHostingProviders BUILT_IN = new GitHostingProviders(Map.of(
+            "github.com", GitHostingProvider.GITHUB,
+            "bitbucket.org", GitHostingProvider.BITBUCKET,
+            "gitlab.com", GitHostingProvider.GITLAB,
+            "codeberg.org", GitHostingProvider.GITEA));
+
+    // Key: host, in lowercase.
+    private final Map<String, GitHostingProvider> providersByHost;
+
+    private GitHostingProviders(Map<String, GitHostingProvider> providersByHost) {
+        this.providersByHost = providersByHost;
+    }
+
+    // Loads the providers of the keys `timeline.provider.*`, with their values (see GitConfig),
+    // over the built-in ones. The warnings are of the providers skipped.
+    public static GitHostingProviders load(Map<String, List<String>> config, Consumer<String> onWarning) {
+        // Key: name of the provider. Value: its keys, like `host`, in lowercase.
+        Map<String, Map<String, List<String>>> configByName = new LinkedHashMap<>();
+        config.forEach((key, values) -> {
+            int nameEnd = key.lastIndexOf('.');
+            if (!key.startsWith(CONFIG_PREFIX) || nameEnd < CONFIG_PREFIX.length()) {
+                return;
+            }
+            configByName.computeIfAbsent(key.substring(CONFIG_PREFIX.length(), nameEnd), name -> new HashMap<>())
+                    .put(key.substring(nameEnd + 1).toLowerCase(Locale.ROOT), values);
+        });
+        if (configByName.isEmpty()) {
+            return BUILT_IN;
+        }
+
+        Map<String, GitHostingProvider> providersByHost = new HashMap<>(BUILT_IN.providersByHost);
+        configByName.forEach((name, keys) -> {
+            try {
+                putProvider(providersByHost, name, keys);
+            } catch (IllegalStateException e) {
+                onWarning.accept("ignoring " + CONFIG_PREFIX + name + ": " + e.getMessage());
+            }
+        });
+        return new GitHostingProviders(providersByHost);
+    }
+
+    // Null when the host is not of a known provider.
+    public GitHostingProvider find(String host) {
+        return providersByHost.get(host.toLowerCase(Locale.ROOT));
+    }
+
+    // Puts the provider of the name under its hosts. Nothing is put when its keys are bad.
+    private static void putProvider(
+            Map<String, GitHostingProvider> providersByHost,
+            String name,
+            Map<String, List<String>> keys
+    ) {
+        String type = getLast(keys, "type");
+        GitHostingProvider base = GitHostingProvider.getBuiltIn(type != null ? type : name);
+        if (type != null && base == null) {
+            throw new IllegalStateException(
+                    "Unknown type of " + CONFIG_PREFIX + name + ".type: " + type
+                            + " (expected github, bitbucket, gitlab or gitea)");
+        }
+        GitHostingProvider provider = new GitHostingProvider(
+                name,
+                getUrlTemplate(keys, "commiturl", base == null ? null : base.commitUrl()),
+                getUrlTemplate(keys, "issueurl", base == null ? null : base.issueUrl()),
+                getUrlTemplate(keys, "pullrequesturl", base == null ? null : base.pullRequestUrl()),
+                getUrlTemplate(keys, "trackerkeyurl", base == null ? null : base.trackerKeyUrl()));
+
+        List<String> hosts = keys.get("host");
+        if (hosts == null && base != null && base.name().equals(name)) {
+            // Hosts of the built-in provider of the same name.
+            BUILT_IN.providersByHost.forEach((host, builtIn) -> {
+                if (builtIn == base) {
+                    providersByHost.put(host, provider);
+                }
+            });
+        } else if (hosts == null) {
+            throw new IllegalStateException("No host for the provider: " + CONFIG_PREFIX + name + ".host");
+        } else {
+            for (String host : hosts) {
+                if (host != null && !host.isEmpty()) {
+                    providersByHost.put(host.toLowerCase(Locale.ROOT), provider);
+                }
+            }
+        }
+    }
+
+    private static String getLast(Map<String, List<String>> keys, String key) {
+        List<String> values = keys.get(key);
+        return values == null || values.isEmpty() ? null : values.getLast();
+    }
+
+    private static GitHostingProvider.UrlTemplate getUrlTemplate(
+            Map<String, List<String>> keys,
+            String key,
+            GitHostingProvider.UrlTemplate defaultUrlTemplate
+    ) {
+        if (!keys.containsKey(key)) {
+            return defaultUrlTemplate;
+        }
+        return GitHostingProvider.UrlTemplate.compile(getLast(keys, key));
+    }
+}
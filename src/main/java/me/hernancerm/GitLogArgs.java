@@ -1,6 +1,55 @@
 package me.hernancerm;
 
+import java.nio.file.Path;
+import java.util.List;
+
 public record GitLogArgs(
         String[] unparsedArgs,
         boolean isPagerEnabled,
-        boolean isGraphEnabled) {}
+        // The built-in pager (TimelinePager) instead of the external one.
+        boolean isBuiltinPagerEnabled,
+        boolean isGraphEnabled,
+        boolean isPipelineEnabled,
+        // Several git-log processes, each printing a shard of the history (GitLogShards).
+        boolean isShardingEnabled,
+        // Walk and print the history without git-log (GitObjectLogSource).
+        boolean isInProcessEnabled,
+        // Draw the lanes of `--graph` in-process from the commit-graph (GraphGitLogSource).
+        boolean isGraphRendererEnabled,
+        boolean isCacheEnabled,
+        boolean isStatsEnabled,
+        // Print the new commits as the refs change (TimelineFollower).
+        boolean isFollowRefsEnabled,
+        // NDJSON instead of the text, for machine consumers (GitLogJsonWriter).
+        boolean isJsonOutputEnabled,
+        // Columns aligned over a sliding window of commits (`--timeline-columns`).
+        boolean isColumnsEnabled,
+        // Width of the terminal to truncate the lines to (`--timeline-truncate`), or 0 not to.
+        int terminalWidth,
+        // Null to print the stats to stderr.
+        Path statsFile,
+        // Repositories whose histories are merged (`--timeline-repos`), or null for the one of
+        // the working directory.
+        List<Path> repositories) {
+
+    // Same args, with other args for git-log.
+    public GitLogArgs withUnparsedArgs(String[] unparsedArgs) {
+        return new GitLogArgs(
+                unparsedArgs,
+                isPagerEnabled,
+                isBuiltinPagerEnabled,
+                isGraphEnabled,
+                isPipelineEnabled,
+                isShardingEnabled,
+                isInProcessEnabled,
+                isGraphRendererEnabled,
+                isCacheEnabled,
+                isStatsEnabled,
+                isFollowRefsEnabled,
+                isJsonOutputEnabled,
+                isColumnsEnabled,
+                terminalWidth,
+                statsFile,
+                repositories);
+    }
+}
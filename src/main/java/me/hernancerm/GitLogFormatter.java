@@ -1,74 +1,96 @@
 package me.hernancerm;
 
-import static me.hernancerm.GitRemote.Platform.BITBUCKET_ORG;
-import static me.hernancerm.GitRemote.Platform.GITHUB_COM;
-import static org.jline.jansi.Ansi.ansi;
+import static me.hernancerm.AnsiStyle.BOLD_CYAN;
+import static me.hernancerm.AnsiStyle.BOLD_YELLOW;
+import static me.hernancerm.AnsiStyle.CYAN;
+import static me.hernancerm.AnsiStyle.GREEN;
+import static me.hernancerm.AnsiStyle.YELLOW;
 
-import java.util.Objects;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class GitLogFormatter {
 
+    // Reused by each thread formatting commits.
+    private static final ThreadLocal<StringBuilder> LINE_BUILDER =
+            ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    // Columns of `--timeline-columns`: the widest of this many commits, up to a maximum, over
+    // which the values are truncated. Dates vary in width with formats like `--date=relative`.
+    private static final int COLUMN_WINDOW_SIZE = 256;
+    private static final int MAX_DATE_WIDTH = 32;
+    private static final int MAX_AUTHOR_NAME_WIDTH = 24;
+
+    // Linkifier of each remote. All commits share the same remote, except when the histories of
+    // several repositories are merged (`--timeline-repos`).
+    private final Map<GitRemote, Linkifier> linkifiers = new ConcurrentHashMap<>();
+    private final ColumnWidth dateColumn = new ColumnWidth(COLUMN_WINDOW_SIZE, MAX_DATE_WIDTH);
+    private final ColumnWidth authorNameColumn = new ColumnWidth(COLUMN_WINDOW_SIZE, MAX_AUTHOR_NAME_WIDTH);
+
     public String format(GitCommit c) {
-        boolean isMergeCommit = c.getAbbreviatedParentHashes().length > 1;
-        boolean authorDiffersFromCommitter = !c.getAuthorName().equals(c.getCommitterName());
-        return ansi().render(
-                        (isMergeCommit ? "@|bold,yellow " : "@|yellow ")
-                                + (c.getRemote() != null
-                                        ? hyperlinkToCommit(c.getRemote(), c.getFullHash(), c.getAbbreviatedHash())
-                                        : c.getAbbreviatedHash())
-                                + (isMergeCommit ? "*" : " ")
-                                + "|@ "
-                        + "@|green "
-                                + c.getAuthorDate()
-                                + "|@  "
-                        + (authorDiffersFromCommitter ? "@|bold,cyan " : "@|cyan ")
-                                + c.getAuthorName()
-                                + (authorDiffersFromCommitter ? "*" : " ")
-                                + "|@"
-                        + ((c.getRemote() != null && BITBUCKET_ORG.equals(c.getRemote().platform())
-                                ? AnsiUtils.hyperlinkJiraIssues(c.getRemote().ownerName(), c.getRefNamesColored())
-                                : c.getRefNamesColored()))
-                        + " "
-                        + (c.getRemote() != null
-                                ? hyperlinkSubjectLine(c.getRemote(), c.getSubjectLine())
-                                : c.getSubjectLine()
-                        )).toString();
+        StringBuilder line = LINE_BUILDER.get();
+        line.setLength(0);
+        format(c, line);
+        return line.toString();
     }
 
-    private String hyperlinkToCommit(GitRemote r, String fullHash, String line) {
-        Objects.requireNonNull(r, "Cannot hyperlink line when the remote is null");
-        Objects.requireNonNull(fullHash, "Cannot hyperlink line when the full hash is null");
-        Objects.requireNonNull(line, "Cannot hyperlink line when the line is null");
+    // Appends the formatted commit to the line, e.g., after the prefix of `--graph`.
+    public void format(GitCommit c, StringBuilder line) {
+        int lineStart = line.length();
+        boolean isColumnsEnabled = c.getArgs() != null && c.getArgs().isColumnsEnabled();
+        boolean isMergeCommit = c.getParentCount() > 1;
+        boolean authorDiffersFromCommitter = !c.getAuthorName().equals(c.getCommitterName());
+        Linkifier commitLinkifier = getLinkifier(c.getRemote());
 
-        String output = line;
+        (isMergeCommit ? BOLD_YELLOW : YELLOW).appendStart(line);
+        commitLinkifier.appendCommit(line, c.getFullHash(), c.getAbbreviatedHash());
+        line.append(isMergeCommit ? '*' : ' ');
+        AnsiStyle.appendReset(line);
+        line.append(' ');
 
-        if (BITBUCKET_ORG.equals(r.platform())) {
-            output = AnsiUtils.hyperlinkToBitbucketCommit(
-                    r.ownerName(), r.repositoryName(), fullHash, line);
-        } else if (GITHUB_COM.equals(r.platform())) {
-            output = AnsiUtils.hyperlinkToGitHubCommit(
-                    r.ownerName(), r.repositoryName(), fullHash, line);
-        }
+        GREEN.appendStart(line);
+        int datePadding = appendColumnValue(line, c.getAuthorDate(), isColumnsEnabled ? dateColumn : null);
+        AnsiStyle.appendReset(line);
+        line.repeat(' ', datePadding + 2);
 
-        return output;
-    }
+        (authorDiffersFromCommitter ? BOLD_CYAN : CYAN).appendStart(line);
+        int authorNamePadding = appendColumnValue(
+                line, c.getAuthorName(), isColumnsEnabled ? authorNameColumn : null);
+        line.append(authorDiffersFromCommitter ? '*' : ' ');
+        AnsiStyle.appendReset(line);
+        line.repeat(' ', authorNamePadding);
 
-    private String hyperlinkSubjectLine(GitRemote r, String subjectLine) {
-        Objects.requireNonNull(r, "Cannot hyperlink subject line when the remote is null");
-        Objects.requireNonNull(r, "Cannot hyperlink subject line when the subject line is null");
+        commitLinkifier.appendRefNames(line, c.getRefNamesColored());
+        line.append(' ');
+        commitLinkifier.appendSubjectLine(line, c.getSubjectLine());
 
-        String output = subjectLine;
+        int terminalWidth = c.getArgs() == null ? 0 : c.getArgs().terminalWidth();
+        if (terminalWidth > 0) {
+            // Cuts the subject line short, or the ref names, so the line is not wrapped.
+            DisplayWidth.truncate(line, lineStart, Math.max(terminalWidth - c.getPrefixWidth(), 0));
+        }
+    }
 
-        if (BITBUCKET_ORG.equals(r.platform())) {
-            output = AnsiUtils.hyperlinkJiraIssues(
-                    r.ownerName(), output);
-            output = AnsiUtils.hyperlinkBitbucketPrNumbers(
-                    r.ownerName(), r.repositoryName(), output);
-        } else if (GITHUB_COM.equals(r.platform())) {
-            output = AnsiUtils.hyperlinkGitHubIssuesAndPrNumbers(
-                    r.ownerName(), r.repositoryName(), output);
+    // Appends the value, truncated to the width of the column, if any. Returns how many spaces
+    // pad it to that width.
+    private static int appendColumnValue(StringBuilder line, String value, ColumnWidth column) {
+        int valueStart = line.length();
+        line.append(value);
+        if (column == null) {
+            return 0;
         }
+        int valueWidth = DisplayWidth.of(value);
+        int width = column.add(valueWidth);
+        if (valueWidth > width) {
+            valueWidth = DisplayWidth.truncate(line, valueStart, width);
+        }
+        return width - valueWidth;
+    }
 
-        return output;
+    private Linkifier getLinkifier(GitRemote remote) {
+        if (remote == null) {
+            return Linkifier.NONE;
+        }
+        return linkifiers.computeIfAbsent(remote, Linkifier::of);
     }
 }
@@ -0,0 +1,247 @@
+package me.hernancerm;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+// Writes the history as NDJSON (`--timeline-output=ndjson`), for tools which would otherwise
+// strip the colors and the hyperlinks from the text output. Each line is a JSON object of a type:
+//
+//   commit:    {"type":"commit","graph":"* ","fullHash":"...","abbreviatedHash":"1a2b3c4",
+//               "abbreviatedParentHashes":["5d6e7f8"],"authorName":"...","committerName":"...",
+//               "authorDate":"Oct/18/2026","subjectLine":"Fix #12","refNames":["HEAD -> main"],
+//               "url":"https://github.com/<owner>/<repo>/commit/...",
+//               "links":[{"text":"#12","url":"https://github.com/<owner>/<repo>/issues/12"}]}
+//   graph:     {"type":"graph","graph":"|\\"}, a line of `--graph` with only connectors.
+//   text:      {"type":"text","text":"..."}, any other line of git-log, e.g., of `--stat`.
+//   rewritten: {"type":"rewritten","count":2}, see TimelineFollower.
+//
+// The key graph is only there with `--graph`, and the key repository (its label) only with
+// `--timeline-repos`. The url is null without a known remote. Beyond ASCII, characters are
+// escaped unless the output is UTF-8, so the JSON is valid whatever the charset of the output.
+//
+// The JSON is appended to the line builder of the caller, escaping the fields as they go, so a
+// commit costs about as many allocations as its text rendering. Not thread-safe: one per reader.
+public class GitLogJsonWriter {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final Charset charset;
+    private final boolean isAsciiOnly;
+    private final boolean isGraphEnabled;
+    private final Linkifier.LinkHandler linkAppender = this::appendLink;
+
+    private Linkifier linkifier = Linkifier.NONE;
+    // Target of the links found by the linkifier, and how many it has so far.
+    private StringBuilder linksJson;
+    private int linkCount;
+
+    // Bytes of the pass-through line not yet ended, which git-log may hand over in pieces.
+    private byte[] pendingLine = new byte[256];
+    private int pendingLineLength;
+    private final StringBuilder passThroughJson = new StringBuilder();
+
+    public GitLogJsonWriter(Charset charset, boolean isGraphEnabled) {
+        this.charset = charset;
+        this.isAsciiOnly = !charset.equals(StandardCharsets.UTF_8);
+        this.isGraphEnabled = isGraphEnabled;
+    }
+
+    // Appends the commit, without a newline. The graph is the prefix of `--graph`, and the
+    // repository is the label of `--timeline-repos`, or null.
+    public void appendCommit(StringBuilder json, GitCommit c, String graph, String repository) {
+        if (!Objects.equals(linkifier.remote(), c.getRemote())) {
+            linkifier = Linkifier.of(c.getRemote());
+        }
+        json.append("{\"type\":\"commit\"");
+        if (isGraphEnabled) {
+            appendField(json, "graph", graph);
+        }
+        if (repository != null) {
+            appendField(json, "repository", repository);
+        }
+        appendField(json, "fullHash", c.getFullHash());
+        appendField(json, "abbreviatedHash", c.getAbbreviatedHash());
+        json.append(",\"abbreviatedParentHashes\":[");
+        for (int i = 0; i < c.getParentCount(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            appendString(json, c.getAbbreviatedParentHash(i));
+        }
+        json.append(']');
+        appendField(json, "authorName", c.getAuthorName());
+        appendField(json, "committerName", c.getCommitterName());
+        appendField(json, "authorDate", c.getAuthorDate());
+        appendField(json, "subjectLine", c.getSubjectLine());
+        appendRefNames(json, c.getRefNamesColored());
+
+        json.append(",\"url\":");
+        GitHostingProvider.Url commitUrl = linkifier.commitUrl();
+        if (commitUrl == null || c.getFullHash() == null) {
+            json.append("null");
+        } else {
+            appendUrl(json, commitUrl, c.getFullHash(), 0, c.getFullHash().length());
+        }
+
+        // In the order they are printed: the ref names go before the subject line.
+        json.append(",\"links\":[");
+        linksJson = json;
+        linkCount = 0;
+        if (c.getRefNamesColored() != null) {
+            linkifier.findRefNamesLinks(c.getRefNamesColored(), linkAppender);
+        }
+        if (c.getSubjectLine() != null) {
+            linkifier.findSubjectLineLinks(c.getSubjectLine(), linkAppender);
+        }
+        linksJson = null;
+        json.append("]}");
+    }
+
+    // Appends how many of the commits printed are no longer in the history, without a newline.
+    public static void appendRewritten(StringBuilder json, long count) {
+        json.append("{\"type\":\"rewritten\",\"count\":").append(count).append('}');
+    }
+
+    // Returns the encoded lines of JSON of the lines ended in the bytes, each with its newline.
+    // The rest of the bytes wait for the end of their line.
+    public ByteBuffer passThrough(ByteBuffer bytes) {
+        passThroughJson.setLength(0);
+        while (bytes.hasRemaining()) {
+            byte b = bytes.get();
+            if (b == '\n') {
+                appendPassThroughLine(passThroughJson);
+                passThroughJson.append(LINE_SEPARATOR);
+                pendingLineLength = 0;
+            } else {
+                if (pendingLineLength == pendingLine.length) {
+                    pendingLine = Arrays.copyOf(pendingLine, pendingLineLength * 2);
+                }
+                pendingLine[pendingLineLength++] = b;
+            }
+        }
+        return charset.encode(CharBuffer.wrap(passThroughJson));
+    }
+
+    private void appendPassThroughLine(StringBuilder json) {
+        int length = pendingLineLength;
+        if (length > 0 && pendingLine[length - 1] == '\r') {
+            length--;
+        }
+        String type = isGraphEnabled && isGraphConnectors(pendingLine, length) ? "graph" : "text";
+        json.append("{\"type\":\"").append(type).append('"');
+        appendField(json, type, new String(pendingLine, 0, length, charset));
+        json.append('}');
+    }
+
+    // Whether the line has only connectors of `--graph`, e.g., `|\`, `| |/` or `|/|\_`.
+    private static boolean isGraphConnectors(byte[] line, int length) {
+        if (length == 0) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            switch (line[i]) {
+                case ' ', '|', '/', '\\', '_', '-', '.', '*' -> {
+                }
+                default -> {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    // The ref names as git-log prints them with `%d`, e.g., ` (HEAD -> main, tag: v1.0)`.
+    private void appendRefNames(StringBuilder json, String refNames) {
+        json.append(",\"refNames\":[");
+        if (refNames != null) {
+            int start = refNames.indexOf('(');
+            int end = refNames.lastIndexOf(')');
+            int refNameStart = start + 1;
+            while (start >= 0 && refNameStart < end) {
+                int refNameEnd = refNames.indexOf(", ", refNameStart);
+                if (refNameEnd < 0 || refNameEnd > end) {
+                    refNameEnd = end;
+                }
+                if (refNameStart > start + 1) {
+                    json.append(',');
+                }
+                json.append('"');
+                appendEscaped(json, refNames, refNameStart, refNameEnd);
+                json.append('"');
+                refNameStart = refNameEnd + 2;
+            }
+        }
+        json.append(']');
+    }
+
+    private void appendLink(
+            GitHostingProvider.Url url,
+            CharSequence line,
+            int valueStart,
+            int valueEnd,
+            int textStart,
+            int textEnd
+    ) {
+        if (linkCount++ > 0) {
+            linksJson.append(',');
+        }
+        linksJson.append("{\"text\":\"");
+        appendEscaped(linksJson, line, textStart, textEnd);
+        linksJson.append("\",\"url\":");
+        appendUrl(linksJson, url, line, valueStart, valueEnd);
+        linksJson.append('}');
+    }
+
+    private void appendUrl(StringBuilder json, GitHostingProvider.Url url, CharSequence value, int valueStart, int valueEnd) {
+        json.append('"');
+        appendEscaped(json, url.prefix(), 0, url.prefix().length());
+        appendEscaped(json, value, valueStart, valueEnd);
+        appendEscaped(json, url.suffix(), 0, url.suffix().length());
+        json.append('"');
+    }
+
+    private void appendField(StringBuilder json, String name, String value) {
+        json.append(",\"").append(name).append("\":");
+        appendString(json, value);
+    }
+
+    private void appendString(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        appendEscaped(json, value, 0, value.length());
+        json.append('"');
+    }
+
+    // https://www.rfc-editor.org/rfc/rfc8259#section-7
+    private void appendEscaped(StringBuilder json, CharSequence value, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20 || (isAsciiOnly && c > 0x7e)) {
+                        json.append("\\u")
+                                .append(HEX_DIGITS[(c >> 12) & 0xf])
+                                .append(HEX_DIGITS[(c >> 8) & 0xf])
+                                .append(HEX_DIGITS[(c >> 4) & 0xf])
+                                .append(HEX_DIGITS[c & 0xf]);
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+    }
+}
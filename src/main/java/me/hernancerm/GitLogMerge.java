@@ -0,0 +1,185 @@
+package me.hernancerm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+// K-way merge of the output of git-log in several repositories (`--timeline-repos`), newest
+// commit first:
+// 1. Producers: a virtual thread per repository, which reads its git-log and renders each commit
+//    into an entry, queued in the order git-log prints them.
+// 2. Merger: the calling thread, which repeatedly writes the newest entry among the heads of
+//    the queues.
+// Rendering scales with the cores, while the merger only compares timestamps and copies bytes.
+// The queues are bounded and share a fixed budget, so the entries held in memory do not grow
+// with the number of repositories, nor with their histories.
+public class GitLogMerge {
+
+    private static final int BUFFERED_ENTRIES = 8192;
+    private static final int MIN_BUFFERED_ENTRIES_PER_QUEUE = 16;
+
+    // A commit, rendered and encoded, with everything git-log printed after it (e.g., the lines
+    // of `--stat`). Ordered by `timestamp`, the committer date in seconds since the epoch.
+    public record Entry(long timestamp, byte[] bytes) {}
+
+    // Marks the end of the output of a producer in its queue.
+    private static final Entry END_OF_OUTPUT = new Entry(Long.MIN_VALUE, new byte[0]);
+
+    public interface Producer {
+
+        // Hands over the entries of a repository, newest first.
+        void produce(EntryHandler handler) throws IOException;
+    }
+
+    public interface EntryHandler {
+
+        // Blocks while the queue of the producer is full.
+        void accept(Entry entry) throws IOException;
+    }
+
+    // Groups the output of git-log into entries: each record with what follows it, up to the
+    // next record. The committer date is the `--graph` prefix of the record, i.e., git-log
+    // prints `%ct` right before it (see GitLogProcessBuilder).
+    public static class EntryCollector implements GitLogSource.Handler {
+
+        private final GitLogPipeline.RecordRenderer recordRenderer;
+        private final EntryHandler entryHandler;
+        private final ByteArrayOutputStream entryBytes = new ByteArrayOutputStream();
+        // Output before the first record, if any, goes first.
+        private long entryTimestamp = Long.MAX_VALUE;
+
+        public EntryCollector(GitLogPipeline.RecordRenderer recordRenderer, EntryHandler entryHandler) {
+            this.recordRenderer = recordRenderer;
+            this.entryHandler = entryHandler;
+        }
+
+        @Override
+        public void passThrough(ByteBuffer bytes) {
+            if (bytes.hasArray()) {
+                entryBytes.write(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+            } else {
+                byte[] copy = new byte[bytes.remaining()];
+                bytes.get(copy);
+                entryBytes.writeBytes(copy);
+            }
+        }
+
+        @Override
+        public void record(byte[] line, int recordStart, int length) throws IOException {
+            finish();
+            entryTimestamp = parseTimestamp(line, recordStart);
+            entryBytes.writeBytes(recordRenderer.render(line, recordStart, length));
+        }
+
+        // Hands over the last entry, once git-log is read.
+        public void finish() throws IOException {
+            if (entryBytes.size() > 0) {
+                entryHandler.accept(new Entry(entryTimestamp, entryBytes.toByteArray()));
+                entryBytes.reset();
+            }
+        }
+
+        private static long parseTimestamp(byte[] line, int end) {
+            long timestamp = 0;
+            for (int i = 0; i < end; i++) {
+                if (line[i] < '0' || line[i] > '9') {
+                    throw new IllegalStateException(
+                            "Error parsing committer date of git-log record: " + new String(line, 0, end));
+                }
+                timestamp = timestamp * 10 + (line[i] - '0');
+            }
+            return timestamp;
+        }
+    }
+
+    // Head of the queue of a producer, waiting to be merged.
+    private record Head(Entry entry, int producer) {}
+
+    public void run(
+            List<Producer> producers,
+            OutputSink outputSink,
+            BooleanSupplier isCancelled
+    ) throws IOException, InterruptedException {
+
+        int queueCapacity = Math.max(MIN_BUFFERED_ENTRIES_PER_QUEUE, BUFFERED_ENTRIES / Math.max(1, producers.size()));
+        List<BlockingQueue<Entry>> queues = new ArrayList<>(producers.size());
+        List<Thread> producerThreads = new ArrayList<>(producers.size());
+        // First error of any producer. The merge goes on with the others, as git-log does not
+        // stop on an error in another repository either.
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        for (int i = 0; i < producers.size(); i++) {
+            BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(queueCapacity);
+            Producer producer = producers.get(i);
+            queues.add(queue);
+            producerThreads.add(Thread.ofVirtual().name("git-timeline-merge-", i).start(() -> {
+                try {
+                    producer.produce(entry -> put(queue, entry));
+                } catch (InterruptedIOException e) {
+                    // The merger has stopped, there is nobody left to take the entries.
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (IOException | RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                }
+                putQuietly(queue, END_OF_OUTPUT);
+            }));
+        }
+
+        // Newest first. Ties go to the repository given first, for a stable output.
+        PriorityQueue<Head> heads = new PriorityQueue<>(Math.max(1, producers.size()), (a, b) ->
+                a.entry().timestamp() != b.entry().timestamp()
+                        ? Long.compare(b.entry().timestamp(), a.entry().timestamp())
+                        : Integer.compare(a.producer(), b.producer()));
+        try {
+            for (int i = 0; i < queues.size(); i++) {
+                Entry entry = queues.get(i).take();
+                if (entry != END_OF_OUTPUT) {
+                    heads.add(new Head(entry, i));
+                }
+            }
+            while (!heads.isEmpty() && !isCancelled.getAsBoolean()) {
+                Head head = heads.poll();
+                outputSink.write(ByteBuffer.wrap(head.entry().bytes()));
+                Entry entry = queues.get(head.producer()).take();
+                if (entry != END_OF_OUTPUT) {
+                    heads.add(new Head(entry, head.producer()));
+                }
+            }
+        } finally {
+            producerThreads.forEach(Thread::interrupt);
+        }
+
+        Exception e = failure.get();
+        if (e != null && !isCancelled.getAsBoolean()) {
+            if (e instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new RuntimeException("Error merging git-log output", e);
+        }
+    }
+
+    private static void put(BlockingQueue<Entry> queue, Entry entry) throws InterruptedIOException {
+        try {
+            queue.put(entry);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while queueing git-log output");
+        }
+    }
+
+    private static void putQuietly(BlockingQueue<Entry> queue, Entry entry) {
+        try {
+            queue.put(entry);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package me.hernancerm;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+// Reader, formatter and writer stages connected by bounded queues:
+// 1. Reader: a thread which reads git-log and submits each record to the formatters. The bytes
+//    in between records are queued as they are.
+// 2. Formatters: a pool of workers which turn a record into its encoded output line.
+// 3. Writer: the calling thread, which writes the output in the order it was read.
+public class GitLogPipeline {
+
+    private static final int QUEUE_CAPACITY = 1024;
+
+    // Marks the end of the git-log output in the queue of pending lines.
+    private static final Future<byte[]> END_OF_OUTPUT = CompletableFuture.completedFuture(null);
+
+    public interface RecordRenderer {
+
+        // Returns the encoded output line, including its newline. The array is owned by the
+        // renderer.
+        byte[] render(byte[] line, int recordStart, int length);
+    }
+
+    private final int workerCount;
+
+    public GitLogPipeline() {
+        // Leave a core for the reader and the writer, which are mostly blocked on I/O.
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    public GitLogPipeline(int workerCount) {
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("The pipeline needs at least one worker: " + workerCount);
+        }
+        this.workerCount = workerCount;
+    }
+
+    public void run(
+            GitLogSource source,
+            RecordRenderer recordRenderer,
+            OutputSink outputSink,
+            BooleanSupplier isCancelled
+    ) throws IOException, InterruptedException {
+
+        // The futures are queued in the order the lines were read, so taking them one by one
+        // reassembles the output in order. As this queue is bounded, the reader blocks when the
+        // writer falls behind, which also bounds the number of tasks submitted to the workers.
+        BlockingQueue<Future<byte[]>> pendingLines = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+        // At most QUEUE_CAPACITY + 2 tasks are unfinished at any time: the queued ones, the one the
+        // writer is waiting on, and the one the reader is trying to queue.
+        ExecutorService formatters = new ThreadPoolExecutor(
+                workerCount, workerCount,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY + 2),
+                Thread.ofPlatform().daemon().name("git-timeline-formatter-", 0).factory());
+
+        Thread readerThread = Thread.ofPlatform().daemon().name("git-timeline-reader").start(() -> {
+            try {
+                source.read(new GitLogSource.Handler() {
+                    @Override
+                    public void passThrough(ByteBuffer bytes) throws IOException {
+                        byte[] copy = new byte[bytes.remaining()];
+                        bytes.get(copy);
+                        put(pendingLines, CompletableFuture.completedFuture(copy));
+                    }
+
+                    @Override
+                    public void record(byte[] line, int recordStart, int length) throws IOException {
+                        byte[] copy = Arrays.copyOf(line, length);
+                        put(pendingLines, formatters.submit(() -> recordRenderer.render(copy, recordStart, length)));
+                    }
+                }, isCancelled);
+            } catch (InterruptedIOException e) {
+                // The writer has stopped, there is nobody left to read the pending lines.
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException e) {
+                // E.g., a corrupt cache or a missing object. The writer fails with it once it
+                // has written the lines read before.
+                putQuietly(pendingLines, CompletableFuture.failedFuture(e));
+                return;
+            }
+            putQuietly(pendingLines, END_OF_OUTPUT);
+        });
+
+        try {
+            Future<byte[]> pendingLine;
+            while ((pendingLine = pendingLines.take()) != END_OF_OUTPUT) {
+                if (isCancelled.getAsBoolean()) {
+                    break;
+                }
+                outputSink.write(ByteBuffer.wrap(pendingLine.get()));
+            }
+        } catch (ExecutionException e) {
+            // Thrown as they would be when reading and formatting on the calling thread.
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException("Error formatting git-log output", e.getCause());
+        } finally {
+            readerThread.interrupt();
+            formatters.shutdownNow();
+        }
+    }
+
+    private static void put(BlockingQueue<Future<byte[]>> queue, Future<byte[]> future)
+            throws InterruptedIOException {
+        try {
+            queue.put(future);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while queueing git-log output");
+        }
+    }
+
+    private static void putQuietly(BlockingQueue<Future<byte[]>> queue, Future<byte[]> future) {
+        try {
+            queue.put(future);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
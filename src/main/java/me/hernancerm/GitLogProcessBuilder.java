@@ -1,148 +1,817 @@
 package me.hernancerm;
 
-import static org.jline.jansi.Ansi.ansi;
-
-import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
-import java.util.function.Function;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
 import java.util.stream.Stream;
 
+import jdk.jfr.Event;
+
+import org.jline.terminal.Terminal;
+
 public class GitLogProcessBuilder {
 
-    // Items.
-    private static final String FULL_HASH_ITEM = "full-hash";
-    private static final String ABBREVIATED_HASH_ITEM = "abbreviated-hash";
-    private static final String ABBREVIATED_PARENT_HASHES_ITEM = "abbreviated-parent-hashes";
-    private static final String REF_NAMES_COLORED_ITEM = "ref-names-colored";
-    private static final String COMMITTER_NAME_ITEM = "committer-name";
-    private static final String AUTHOR_NAME_ITEM = "author-name";
-    private static final String AUTHOR_DATE_ITEM = "author-date";
-    private static final String SUBJECT_LINE_ITEM = "subject-line";
-
-    // Capture groups: 1:Item, 2:Value.
-    private static final String TAG_REGEX =
-            "<hernancerm[.]git-timeline[.]([a-z-]+)>(.*?)</hernancerm[.]git-timeline[.]\\1>";
-
-    public int start(GitLogArgs args, Function<GitCommit, String> commitFormatter)
+    private final Caller caller;
+
+    private Duration timeToFirstLine;
+    private boolean isCancelled;
+    private TimelineStats stats;
+
+    public GitLogProcessBuilder() {
+        this(LocalCaller.INSTANCE);
+    }
+
+    public GitLogProcessBuilder(Caller caller) {
+        this.caller = caller;
+    }
+
+    public int start(GitLogArgs args, BiConsumer<GitCommit, StringBuilder> commitFormatter)
             throws IOException, InterruptedException {
 
-        ProcessBuilder processBuilder = new ProcessBuilder(getGitLogCommand(args.unparsedArgs()));
-        // Print stderr to the tty.
-        processBuilder.redirectError(ProcessBuilder.Redirect.INHERIT);
-        Process process = processBuilder.start();
-
-        Process pagerProcess;
-        PrintWriter pagerWriter;
-        if (args.isPagerEnabled()) {
-            ProcessBuilder pagerProcessBuilder = new ProcessBuilder(getPagerCommand());
-            pagerProcessBuilder.redirectOutput(ProcessBuilder.Redirect.INHERIT);
-            pagerProcessBuilder.redirectError(ProcessBuilder.Redirect.INHERIT);
-
-            pagerProcess = pagerProcessBuilder.start();
-            pagerWriter = new PrintWriter(new BufferedOutputStream(
-                            pagerProcess.getOutputStream()), false);
-        } else {
+        stats = new TimelineStats(args.isStatsEnabled());
+        try (GitLogStartup startup = new GitLogStartup(caller.startInstant())) {
+            return start(args, commitFormatter, startup);
+        } finally {
+            stats.finish(timeToFirstLine);
+        }
+    }
+
+    // Time to the first line printed by the last run, or null when nothing was printed.
+    public Duration getTimeToFirstLine() {
+        return timeToFirstLine;
+    }
+
+    // Whether the reader of the output of the last run went away before its end, e.g., quitting
+    // the pager, or a broken pipe.
+    public boolean isCancelled() {
+        return isCancelled;
+    }
+
+    // Stats of the last run, only measured when enabled (see TimelineStats).
+    public TimelineStats getStats() {
+        return stats;
+    }
+
+    private int start(GitLogArgs args, BiConsumer<GitCommit, StringBuilder> commitFormatter, GitLogStartup startup)
+            throws IOException, InterruptedException {
+
+        if (args.repositories() != null) {
+            return startMerged(args, commitFormatter, startup);
+        }
+
+        CompletableFuture<GitConfig> gitConfig = loadGitConfig(startup);
+        CompletableFuture<GitRemote> gitRemote = startup.submit(() -> getGitRemote(gitConfig));
+        CompletableFuture<Charset> logOutputCharset = gitConfig.thenApply(this::getLogOutputCharset);
+        // Null when git-log prints the history: when not asked for, or for what the in-process
+        // walk does not support.
+        CompletableFuture<GitObjectLogSource> objectLogSource = args.isInProcessEnabled()
+                ? startup.submit(() -> openObjectLogSource(args.unparsedArgs(), gitConfig, logOutputCharset))
+                : CompletableFuture.completedFuture(null);
+        // Null when disabled, or when it cannot be opened, in which case git-log prints all the
+        // fields as usual. Not needed without git-log.
+        CompletableFuture<GitCommitCache> commitCache = isCommitCacheUsable(args)
+                ? startup.submit(() -> {
+                    if (GitLogStartup.await(objectLogSource) != null) {
+                        return null;
+                    }
+                    try {
+                        return openCommitCache(GitLogStartup.await(logOutputCharset));
+                    } catch (IOException | RuntimeException e) {
+                        return null;
+                    }
+                })
+                : CompletableFuture.completedFuture(null);
+
+        // Null when git-log draws the graph of `--graph`, or when it is not asked for.
+        CompletableFuture<CommitGraph> commitGraph = args.isGraphEnabled() && args.isGraphRendererEnabled()
+                ? startup.submit(() -> openCommitGraph(args.unparsedArgs()))
+                : CompletableFuture.completedFuture(null);
+
+        // Null when a single git-log prints the history, or none.
+        CompletableFuture<GitLogShards> gitLogShards = args.isShardingEnabled()
+                ? startup.submit(() -> GitLogStartup.await(objectLogSource) == null
+                        ? startGitLogShards(args, GitLogStartup.await(commitCache))
+                        : null)
+                : CompletableFuture.completedFuture(null);
+        // Null when the history is printed in shards, or in-process.
+        CompletableFuture<Process> gitLogProcess = startup.submit(() -> {
+            if (GitLogStartup.await(objectLogSource) != null || GitLogStartup.await(gitLogShards) != null) {
+                return null;
+            }
+            // With a cache, git-log is only started once it is known which fields to print.
+            String prettyFormat = getPrettyFormat(GitLogStartup.await(commitCache));
+            String[] gitLogArgs = GitLogStartup.await(commitGraph) != null
+                    ? GraphGitLogSource.getFlatArgs(args.unparsedArgs())
+                    : args.unparsedArgs();
+            ProcessBuilder processBuilder = new ProcessBuilder(getGitLogCommand(gitLogArgs, prettyFormat));
+            // Print stderr to the tty.
+            processBuilder.redirectError(ProcessBuilder.Redirect.INHERIT);
+            return caller.start(processBuilder);
+        });
+
+        // Completed once all the output of git-log is read. Cancelled instead when the reader of
+        // the output goes away first (e.g., press 'q' in less), which kills git-log right away.
+        CompletableFuture<Void> reading = new CompletableFuture<>();
+        Runnable cancelReading = () -> {
+            if (cancelReading(reading, List.of(gitLogProcess))) {
+                gitLogShards.thenAccept(shards -> {
+                    if (shards != null) {
+                        shards.destroy();
+                    }
+                });
+            }
+        };
+
+        // The built-in pager needs a terminal. Without one, the output goes as if not asked for.
+        Terminal terminal = args.isPagerEnabled() && args.isBuiltinPagerEnabled() && caller.isStdoutTerminal()
+                ? GitLogStartup.await(startup.submit(caller::openTerminal))
+                : null;
+
+        CompletableFuture<Process> pagerProcess;
+        OutputSink outputSink;
+        if (terminal != null) {
             pagerProcess = null;
-            pagerWriter = null;
+            outputSink = null;
+        } else {
+            pagerProcess = startPager(args, gitConfig, startup);
+            outputSink = openOutputSink(pagerProcess, logOutputCharset, cancelReading, startup);
         }
 
-        // Stdout.
-        try (
-                var inputStreamReader = new InputStreamReader(process.getInputStream());
-                var bufferedReader = new BufferedReader(inputStreamReader)
-        ) {
-            String line;
-            GitCommit commit = new GitCommit();
-            GitRemote gitRemote = getGitRemote();
-            Pattern pattern = Pattern.compile(TAG_REGEX);
-            while ((line = bufferedReader.readLine()) != null) {
+        GitObjectLogSource objectSource = GitLogStartup.await(objectLogSource);
+        Process process = GitLogStartup.await(gitLogProcess);
+        GitLogShards shards = GitLogStartup.await(gitLogShards);
+
+        GitCommitCache cache = GitLogStartup.await(commitCache);
+        CommitGraph graph = GitLogStartup.await(commitGraph);
+
+        // Stdout. Read as bytes: only the fields of the records are decoded, the rest is copied.
+        // None when the history is printed in-process.
+        try (ReadableByteChannel channel = objectSource != null ? null : stats.measureInput(
+                shards != null ? shards : Channels.newChannel(process.getInputStream()))) {
+            GitLogSource gitLogReader;
+            if (objectSource != null) {
+                gitLogReader = objectSource;
+            } else if (cache == null) {
+                gitLogReader = new GitLogReader(channel);
+            } else {
+                gitLogReader = new CachedGitLogSource(new GitLogReader(channel), cache, isLeanRecordFormat(cache), caller);
+            }
+            if (graph != null) {
+                gitLogReader = new GraphGitLogSource(
+                        gitLogReader, graph, GraphGitLogSource.isFirstParent(args.unparsedArgs()));
+            }
+            Charset charset = GitLogStartup.await(logOutputCharset);
+            if (terminal != null) {
+                page(terminal, gitLogReader, charset, gitRemote, args, commitFormatter, reading, cancelReading, startup);
+            } else if (args.isJsonOutputEnabled()) {
+                writeJson(gitLogReader, charset, gitRemote, args, outputSink, reading);
+            } else if (args.isPipelineEnabled()) {
+                // Each formatter worker reuses its own parser, commit and line builder.
+                ThreadLocal<GitLogRecordParser> parsers = ThreadLocal.withInitial(() -> new GitLogRecordParser(charset));
+                ThreadLocal<GitCommit> commits = ThreadLocal.withInitial(GitCommit::new);
+                ThreadLocal<StringBuilder> lineBuilders = ThreadLocal.withInitial(StringBuilder::new);
+                byte[] lineSeparator = System.lineSeparator().getBytes(charset);
+                new GitLogPipeline().run(
+                        gitLogReader,
+                        (line, recordStart, length) -> {
+                            StringBuilder lineBuilder = lineBuilders.get();
+                            renderRecord(line, recordStart, length, charset, parsers.get(),
+                                    commits.get(), lineBuilder, gitRemote, args, commitFormatter, 0);
+                            byte[] formattedRecord = lineBuilder.toString().getBytes(charset);
+                            byte[] outputLine = new byte[recordStart + formattedRecord.length + lineSeparator.length];
+                            System.arraycopy(line, 0, outputLine, 0, recordStart);
+                            System.arraycopy(formattedRecord, 0, outputLine, recordStart, formattedRecord.length);
+                            System.arraycopy(lineSeparator, 0, outputLine,
+                                    recordStart + formattedRecord.length, lineSeparator.length);
+                            return outputLine;
+                        },
+                        outputSink,
+                        reading::isCancelled);
+            } else {
+                GitLogRecordParser parser = new GitLogRecordParser(charset);
+                GitCommit commit = new GitCommit();
+                StringBuilder lineBuilder = new StringBuilder();
+                gitLogReader.read(new GitLogSource.Handler() {
+                    @Override
+                    public void passThrough(ByteBuffer bytes) throws IOException {
+                        outputSink.write(bytes);
+                    }
 
-                // Fixes delay after user quits pager (e.g., press 'q' in less) on big repos.
-                if (args.isPagerEnabled()) {
-                    if (pagerProcess == null) {
-                        throw new IllegalStateException(
-                                "The pager process must not be null when the pager is enabled");
+                    @Override
+                    public void record(byte[] line, int recordStart, int length) throws IOException {
+                        // The prefixes of the git-log option `--graph` are kept as they are.
+                        // Example prefixes in this case: `* <commit>`, `| * <commit>`.
+                        outputSink.write(ByteBuffer.wrap(line, 0, recordStart));
+                        renderRecord(line, recordStart, length, charset, parser,
+                                commit, lineBuilder, gitRemote, args, commitFormatter, 0);
+                        outputSink.println(lineBuilder);
                     }
-                    if (!pagerProcess.isAlive()) {
-                        // Pager has terminated, kill the git-log process.
-                        process.destroy();
-                        break;
+                }, reading::isCancelled);
+            }
+        } catch (IOException e) {
+            // Reading fails when git-log is killed, which is expected after cancelling.
+            if (!reading.isCancelled()) {
+                throw e;
+            }
+        } finally {
+            reading.complete(null);
+            if (cache != null) {
+                cache.close();
+            }
+            // With the pager, closing the sink signals EOF to it (less). Starts interactive mode.
+            if (outputSink != null) {
+                outputSink.close();
+            }
+        }
+
+        if (pagerProcess != null) {
+            // Wait for the pager (less) to finish (interactive mode).
+            GitLogStartup.await(pagerProcess).waitFor();
+        }
+
+        timeToFirstLine = startup.getTimeToFirstLine();
+        isCancelled = reading.isCancelled();
+
+        int exitValue;
+        if (shards != null) {
+            exitValue = shards.waitFor();
+        } else if (process != null) {
+            exitValue = process.waitFor();
+        } else {
+            exitValue = 0;
+        }
+        // Quitting early is not an error, even though git-log was killed.
+        return reading.isCancelled() ? 0 : exitValue;
+    }
+
+    // Starts git-log in shards, or returns null to fall back to a single git-log: when sharding
+    // does not pay off (a single core, or no commit-graph, without which walking the history
+    // costs about as much as printing it), or when the options cannot be sharded.
+    private GitLogShards startGitLogShards(GitLogArgs args, GitCommitCache cache) throws IOException {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        if (args.isGraphEnabled() || parallelism < 2 || !hasCommitGraph()) {
+            return null;
+        }
+        GitLogShards.Split split = GitLogShards.split(args.unparsedArgs());
+        if (split == null) {
+            return null;
+        }
+        List<String> gitLogCommand = getGitLogCommand(new String[0], getPrettyFormat(cache));
+        return GitLogShards.start(caller, gitLogCommand, split, parallelism);
+    }
+
+    private boolean hasCommitGraph() {
+        try {
+            Path infoDirectory = GitDirectory.find(caller.workingDirectory(), caller.environment())
+                    .commonDir().resolve("objects").resolve("info");
+            return Files.isRegularFile(infoDirectory.resolve("commit-graph"))
+                    || Files.isDirectory(infoDirectory.resolve("commit-graphs"));
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    // Opens the source which prints the history without git-log, or returns null to leave it to
+    // git-log (see GitObjectLogSource), including on errors, which git-log then tells as usual.
+    private GitObjectLogSource openObjectLogSource(
+            String[] args,
+            CompletableFuture<GitConfig> gitConfig,
+            CompletableFuture<Charset> logOutputCharset
+    ) {
+        try {
+            return GitObjectLogSource.open(
+                    args, caller, GitLogStartup.await(gitConfig), GitLogStartup.await(logOutputCharset));
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    // Opens the commit-graph to draw the graph of `--graph` in-process, or returns null to leave
+    // it to git: without a commit-graph, when the options make git rewrite the parents (see
+    // GraphGitLogSource), or when the tips of the history are not in the commit-graph (e.g., new
+    // commits, until git writes it again). Every parent of a commit in the commit-graph is in it.
+    private CommitGraph openCommitGraph(String[] args) throws InterruptedException {
+        List<String> revisionArgs = GraphGitLogSource.getRevisionArgs(args);
+        if (revisionArgs == null) {
+            return null;
+        }
+        try {
+            CommitGraph commitGraph = CommitGraph.open(GitDirectory.find(caller.workingDirectory(), caller.environment())
+                    .commonDir().resolve("objects"));
+            if (commitGraph == null) {
+                return null;
+            }
+            List<String> command = new ArrayList<>(List.of("git", "rev-parse", "--no-flags", "--default", "HEAD"));
+            command.addAll(revisionArgs);
+            Process process = caller.start(new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD));
+            boolean isInCommitGraph = true;
+            try (
+                    var inputStreamReader = new InputStreamReader(process.getInputStream());
+                    var bufferedReader = new BufferedReader(inputStreamReader)
+            ) {
+                String line;
+                while ((line = bufferedReader.readLine()) != null) {
+                    // Exclusions (e.g., `^main`) and paths are printed as they are, not found.
+                    byte[] tip = line.getBytes(StandardCharsets.ISO_8859_1);
+                    isInCommitGraph &= tip.length == commitGraph.getHashLength() * 2
+                            && commitGraph.findPosition(tip, 0) >= 0;
+                }
+            }
+            // On errors, e.g., an unknown revision, git-log tells as usual.
+            return process.waitFor() == 0 && isInCommitGraph ? commitGraph : null;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private String getPrettyFormat(GitCommitCache cache) {
+        return isLeanRecordFormat(cache)
+                ? GitLogRecordParser.LEAN_PRETTY_FORMAT
+                : GitLogRecordParser.PRETTY_FORMAT;
+    }
+
+    // Merges the histories of several repositories (`--timeline-repos`), newest commit first,
+    // with a column naming the repository of each commit. Each repository has its own git-log,
+    // gitconfig and remote, so the links of a commit point to its own project. The pager and the
+    // charset of the output are the ones of the working directory, as with a single repository.
+    private int startMerged(GitLogArgs args, BiConsumer<GitCommit, StringBuilder> commitFormatter, GitLogStartup startup)
+            throws IOException, InterruptedException {
+
+        if (args.isGraphEnabled()) {
+            throw new IllegalStateException("The option --graph is not supported with --timeline-repos");
+        }
+
+        CompletableFuture<GitConfig> gitConfig = loadGitConfig(startup);
+        CompletableFuture<Charset> outputCharset = gitConfig.thenApply(this::getLogOutputCharset);
+
+        // As with a single repository, quitting early kills git-log, here in every repository.
+        List<CompletableFuture<Process>> gitLogProcesses = new ArrayList<>();
+        CompletableFuture<Void> reading = new CompletableFuture<>();
+        Runnable cancelReading = () -> cancelReading(reading, gitLogProcesses);
+
+        // The committer date goes right before the record, where the prefix of `--graph` would.
+        List<String> gitLogCommand = getGitLogCommand(args.unparsedArgs(), "%ct" + GitLogRecordParser.PRETTY_FORMAT);
+        int labelWidth = args.repositories().stream()
+                .mapToInt(repository -> getRepositoryLabel(repository).length())
+                .max()
+                .orElse(0);
+        List<GitLogMerge.Producer> producers = new ArrayList<>();
+        for (Path repository : args.repositories()) {
+            GitLogProcessBuilder repositoryBuilder = new GitLogProcessBuilder(new RepositoryCaller(caller, repository));
+            CompletableFuture<GitConfig> repositoryGitConfig = repositoryBuilder.loadGitConfig(startup);
+            CompletableFuture<GitRemote> gitRemote = startup.submit(() -> repositoryBuilder.getGitRemote(repositoryGitConfig));
+            CompletableFuture<Process> gitLogProcess = startup.submit(() -> repositoryBuilder.caller.start(
+                    new ProcessBuilder(gitLogCommand).redirectError(ProcessBuilder.Redirect.INHERIT)));
+            gitLogProcesses.add(gitLogProcess);
+            producers.add(handler -> {
+                Charset charset = GitLogStartup.await(repositoryGitConfig.thenApply(this::getLogOutputCharset));
+                Charset sinkCharset = GitLogStartup.await(outputCharset);
+                String labelColumn = getLabelColumn(repository, labelWidth);
+                GitLogRecordParser parser = new GitLogRecordParser(charset);
+                GitCommit commit = new GitCommit();
+                StringBuilder lineBuilder = new StringBuilder();
+                // The repository is a field of the JSON instead of a column.
+                GitLogJsonWriter jsonWriter = args.isJsonOutputEnabled() ? new GitLogJsonWriter(charset, false) : null;
+                GitLogMerge.EntryCollector entryCollector = new GitLogMerge.EntryCollector(
+                        (line, recordStart, length) -> {
+                            if (jsonWriter != null) {
+                                renderJsonRecord(line, recordStart, length, parser, commit, lineBuilder,
+                                        gitRemote, args, jsonWriter, null, getRepositoryLabel(repository));
+                                return (lineBuilder + System.lineSeparator()).getBytes(sinkCharset);
+                            }
+                            renderRecord(line, recordStart, length, charset, parser,
+                                    commit, lineBuilder, gitRemote, args, commitFormatter, labelWidth + 1);
+                            return (labelColumn + lineBuilder + System.lineSeparator()).getBytes(sinkCharset);
+                        },
+                        handler);
+                GitLogSource.Handler entryHandler = jsonWriter == null ? entryCollector : new GitLogSource.Handler() {
+                    @Override
+                    public void passThrough(ByteBuffer bytes) {
+                        entryCollector.passThrough(jsonWriter.passThrough(bytes));
                     }
+
+                    @Override
+                    public void record(byte[] line, int recordStart, int length) throws IOException {
+                        entryCollector.record(line, recordStart, length);
+                    }
+                };
+                Process process = GitLogStartup.await(gitLogProcess);
+                try (ReadableByteChannel channel = stats.measureInput(Channels.newChannel(process.getInputStream()))) {
+                    new GitLogReader(channel).read(entryHandler, reading::isCancelled);
                 }
+                entryCollector.finish();
+            });
+        }
+
+        CompletableFuture<Process> pagerProcess = startPager(args, gitConfig, startup);
+        OutputSink outputSink = openOutputSink(pagerProcess, outputCharset, cancelReading, startup);
+        boolean isMerged = false;
+        try {
+            new GitLogMerge().run(producers, outputSink, reading::isCancelled);
+            isMerged = true;
+        } catch (IOException e) {
+            // Reading fails when git-log is killed, which is expected after cancelling.
+            if (!reading.isCancelled()) {
+                throw e;
+            }
+        } finally {
+            // After an error, git-log may still be running in the other repositories.
+            if (!isMerged) {
+                cancelReading.run();
+            }
+            reading.complete(null);
+            outputSink.close();
+        }
+
+        if (pagerProcess != null) {
+            GitLogStartup.await(pagerProcess).waitFor();
+        }
+
+        timeToFirstLine = startup.getTimeToFirstLine();
+        isCancelled = reading.isCancelled();
+
+        // The first error, as git-log would exit with.
+        int exitValue = 0;
+        for (CompletableFuture<Process> gitLogProcess : gitLogProcesses) {
+            int processExitValue = GitLogStartup.await(gitLogProcess).waitFor();
+            if (exitValue == 0) {
+                exitValue = processExitValue;
+            }
+        }
+        return reading.isCancelled() ? 0 : exitValue;
+    }
+
+    private static String getRepositoryLabel(Path repository) {
+        return repository.getFileName() != null ? repository.getFileName().toString() : repository.toString();
+    }
+
+    // The name of the repository, padded to the longest one so the commits line up.
+    private static String getLabelColumn(Path repository, int labelWidth) {
+        String label = getRepositoryLabel(repository);
+        StringBuilder labelColumn = new StringBuilder();
+        AnsiStyle.MAGENTA.appendStart(labelColumn);
+        labelColumn.append(label);
+        AnsiStyle.appendReset(labelColumn);
+        labelColumn.repeat(' ', labelWidth - label.length() + 1);
+        return labelColumn.toString();
+    }
+
+    // Returns null when the gitconfig files cannot be read in-process, so the pieces which need
+    // config values fall back to asking git.
+    private CompletableFuture<GitConfig> loadGitConfig(GitLogStartup startup) {
+        return startup.submit(() -> {
+            try {
+                return GitConfig.load(caller.workingDirectory(), caller.environment());
+            } catch (IOException | RuntimeException e) {
+                return null;
+            }
+        });
+    }
+
+    // Null when paging is disabled.
+    private CompletableFuture<Process> startPager(
+            GitLogArgs args,
+            CompletableFuture<GitConfig> gitConfig,
+            GitLogStartup startup
+    ) {
+        if (!args.isPagerEnabled()) {
+            return null;
+        }
+        return startup.submit(() -> caller.startPager(getPagerCommand(gitConfig)));
+    }
+
+    // The stdin of the pager, or stdout when there is no pager. Quitting the pager early cancels
+    // the reading of git-log.
+    private OutputSink openOutputSink(
+            CompletableFuture<Process> pagerProcess,
+            CompletableFuture<Charset> logOutputCharset,
+            Runnable cancelReading,
+            GitLogStartup startup
+    ) {
+        if (pagerProcess != null) {
+            return new DeferredOutputSink(pagerProcess.thenCombine(logOutputCharset, (process, charset) -> {
+                process.onExit().thenRun(cancelReading);
+                return AdaptiveOutputSink.forPager(process, charset, stats, cancelReading);
+            }), startup);
+        }
+        return new DeferredOutputSink(logOutputCharset.thenApply(charset -> caller.isStdoutTerminal()
+                ? AdaptiveOutputSink.forStdout(caller.stdout(), charset, stats, cancelReading)
+                : ChannelOutputSink.forStdout(caller.stdout(), charset, stats, cancelReading)), startup);
+    }
+
+    // Pages with the built-in pager: git-log is read in the background, only as far as the pager
+    // asks for, and the records are rendered by the pager as they show on screen.
+    private void page(
+            Terminal terminal,
+            GitLogSource gitLogReader,
+            Charset charset,
+            CompletableFuture<GitRemote> gitRemote,
+            GitLogArgs args,
+            BiConsumer<GitCommit, StringBuilder> commitFormatter,
+            CompletableFuture<Void> reading,
+            Runnable cancelReading,
+            GitLogStartup startup
+    ) throws IOException, InterruptedException {
+        PagerBuffer buffer = new PagerBuffer();
+        CompletableFuture<Void> filling = startup.submit(() -> {
+            try {
+                gitLogReader.read(new GitLogSource.Handler() {
+                    @Override
+                    public void passThrough(ByteBuffer bytes) throws IOException {
+                        buffer.appendPassThrough(bytes);
+                    }
 
-                int startIndex;
-                Matcher matcher = pattern.matcher(line);
-                if (matcher.find()) {
-                    startIndex = matcher.start();
-                    do {
-                        populateCommitAttribute(matcher.group(1), matcher.group(2), commit);
-                    } while (matcher.find());
-                    commit.setRemote(gitRemote);
-                    commit.setArgs(args);
-                    // Substring is needed to account for the prefixes of the git-log option `--graph`.
-                    // Example prefixes in this case: `* <commit>`, `| * <commit>`.
-                    println(args, pagerWriter, ansi().render(
-                            line.substring(0, startIndex) + commitFormatter.apply(commit)).toString());
-                    commit.reset();
-                } else {
-                    // "Intermediate" line (no commit data) in git-log `--graph`. These are lines with
-                    // just connectors, like `|\` or `|\|`.
-                    println(args, pagerWriter, ansi().render(line).toString());
+                    @Override
+                    public void record(byte[] line, int recordStart, int length) throws IOException {
+                        buffer.appendRecord(line, recordStart, length);
+                    }
+                }, () -> reading.isCancelled() || buffer.isClosed());
+            } finally {
+                buffer.finish();
+            }
+            return null;
+        });
+
+        GitLogRecordParser parser = new GitLogRecordParser(charset);
+        GitCommit commit = new GitCommit();
+        StringBuilder lineBuilder = new StringBuilder();
+        try (terminal) {
+            new TimelinePager(terminal, buffer, line -> {
+                if (line.recordStart() < 0) {
+                    return new String(line.bytes(), charset);
                 }
+                renderRecord(line.bytes(), line.recordStart(), line.bytes().length, charset, parser,
+                        commit, lineBuilder, gitRemote, args, commitFormatter, 0);
+                return new String(line.bytes(), 0, line.recordStart(), charset) + lineBuilder;
+            }).run(startup::recordFirstLine);
+        } finally {
+            buffer.close();
+            // Quitting before the end stops git-log, which is blocked on the full pipe.
+            if (!buffer.isComplete()) {
+                cancelReading.run();
             }
         }
+        // Rethrows the error of reading, unless cancelled.
+        if (!reading.isCancelled()) {
+            GitLogStartup.await(filling);
+        }
+    }
 
-        if (args.isPagerEnabled()) {
-            if (pagerWriter == null) {
-                throw new IllegalStateException(
-                        "The pager writer must not be null when the pager is enabled");
+    // Writes the history as NDJSON (see GitLogJsonWriter) on the calling thread, as serializing
+    // a commit costs little next to parsing it. The prefix of `--graph` is a field of the JSON.
+    private void writeJson(
+            GitLogSource gitLogReader,
+            Charset charset,
+            CompletableFuture<GitRemote> gitRemote,
+            GitLogArgs args,
+            OutputSink outputSink,
+            CompletableFuture<Void> reading
+    ) throws IOException {
+        GitLogJsonWriter jsonWriter = new GitLogJsonWriter(charset, args.isGraphEnabled());
+        GitLogRecordParser parser = new GitLogRecordParser(charset);
+        GitCommit commit = new GitCommit();
+        StringBuilder lineBuilder = new StringBuilder();
+        gitLogReader.read(new GitLogSource.Handler() {
+            @Override
+            public void passThrough(ByteBuffer bytes) throws IOException {
+                outputSink.write(jsonWriter.passThrough(bytes));
             }
-            // Close the writer to signal EOF to the pager (less). Starts interactive mode.
-            pagerWriter.close();
-            // Wait for the pager (less) to finish (interactive mode).
-            pagerProcess.waitFor();
+
+            @Override
+            public void record(byte[] line, int recordStart, int length) throws IOException {
+                renderJsonRecord(line, recordStart, length, parser, commit, lineBuilder,
+                        gitRemote, args, jsonWriter, new String(line, 0, recordStart, charset), null);
+                outputSink.println(lineBuilder);
+            }
+        }, reading::isCancelled);
+    }
+
+    // Cancels the reading of the output of the processes (git-log), and kills them as soon as they
+    // are started, so a read blocked on their output sees EOF right away instead of waiting for
+    // the next line. Returns false when the reading was already over.
+    static boolean cancelReading(CompletableFuture<Void> reading, List<CompletableFuture<Process>> processes) {
+        if (!reading.cancel(false)) {
+            return false;
+        }
+        processes.forEach(process -> process.thenAccept(startedProcess -> {
+            if (startedProcess != null) {
+                destroyProcessTree(startedProcess);
+            }
+        }));
+        return true;
+    }
+
+    private static void destroyProcessTree(Process process) {
+        process.descendants().forEach(ProcessHandle::destroy);
+        process.destroy();
+    }
+
+    // Renders the record into the line builder. The lines without records are never decoded,
+    // e.g., "intermediate" lines in git-log `--graph` with just connectors, like `|\` or `|\|`,
+    // and the lines of options like `--stat`. The label width is the one of the column of
+    // `--timeline-repos` before the line, or 0.
+    private void renderRecord(
+            byte[] line,
+            int recordStart,
+            int length,
+            Charset charset,
+            GitLogRecordParser parser,
+            GitCommit commit,
+            StringBuilder lineBuilder,
+            CompletableFuture<GitRemote> gitRemote,
+            GitLogArgs args,
+            BiConsumer<GitCommit, StringBuilder> commitFormatter,
+            int labelWidth
+    ) {
+        int recordEnd = parseRecord(line, recordStart, length, parser, commit, gitRemote, args);
+        if (args.terminalWidth() > 0) {
+            // To truncate the line to the terminal, along with the prefix of `--graph`.
+            commit.setPrefixWidth(labelWidth + DisplayWidth.of(line, 0, recordStart));
         }
+        lineBuilder.setLength(0);
+        long formatBeginNanos = stats.begin();
+        Event formatEvent = stats.beginEvent(TimelineStats.Stage.FORMAT);
+        commitFormatter.accept(commit, lineBuilder);
+        stats.end(TimelineStats.Stage.FORMAT, formatBeginNanos, formatEvent);
+        commit.reset();
+        if (recordEnd + 1 < length) {
+            // What git printed after the record, e.g., the `--graph` padding before `--stat`.
+            lineBuilder.append(new String(line, recordEnd + 1, length - recordEnd - 1, charset));
+        }
+    }
 
-        process.waitFor(500, TimeUnit.MILLISECONDS);
-        return process.exitValue();
+    // Renders the record into the line builder as JSON, without what git printed after it.
+    private void renderJsonRecord(
+            byte[] line,
+            int recordStart,
+            int length,
+            GitLogRecordParser parser,
+            GitCommit commit,
+            StringBuilder lineBuilder,
+            CompletableFuture<GitRemote> gitRemote,
+            GitLogArgs args,
+            GitLogJsonWriter jsonWriter,
+            String graph,
+            String repository
+    ) {
+        parseRecord(line, recordStart, length, parser, commit, gitRemote, args);
+        lineBuilder.setLength(0);
+        long formatBeginNanos = stats.begin();
+        Event formatEvent = stats.beginEvent(TimelineStats.Stage.FORMAT);
+        jsonWriter.appendCommit(lineBuilder, commit, graph, repository);
+        stats.end(TimelineStats.Stage.FORMAT, formatBeginNanos, formatEvent);
+        commit.reset();
+    }
+
+    // Parses the record into the commit, and returns the end of the record.
+    private int parseRecord(
+            byte[] line,
+            int recordStart,
+            int length,
+            GitLogRecordParser parser,
+            GitCommit commit,
+            CompletableFuture<GitRemote> gitRemote,
+            GitLogArgs args
+    ) {
+        long parseBeginNanos = stats.begin();
+        Event parseEvent = stats.beginEvent(TimelineStats.Stage.PARSE);
+        int recordEnd = GitLogRecordParser.findRecordEnd(line, recordStart, length);
+        parser.parse(line, recordStart, recordEnd, commit);
+        stats.end(TimelineStats.Stage.PARSE, parseBeginNanos, parseEvent);
+        // The remote is awaited by the first commit, not by graph connector lines.
+        commit.setRemote(gitRemote.join());
+        commit.setArgs(args);
+        return recordEnd;
     }
 
-    private void println(GitLogArgs args, PrintWriter pagerWriter, String line) {
-        if (args.isPagerEnabled()) {
-            if (pagerWriter == null) {
-                throw new IllegalStateException(
-                        "The pager writer must not be null when the pager is enabled");
+    // Evicts the commits no longer reachable from any ref (e.g., after a rebase) from the cache.
+    public int compactCommitCache() throws IOException, InterruptedException {
+        Set<String> reachableHashes = new HashSet<>();
+        Process process = caller.start(new ProcessBuilder("git", "rev-list", "--all")
+                .redirectError(ProcessBuilder.Redirect.INHERIT));
+        try (
+                var inputStreamReader = new InputStreamReader(process.getInputStream());
+                var bufferedReader = new BufferedReader(inputStreamReader)
+        ) {
+            String line;
+            while ((line = bufferedReader.readLine()) != null) {
+                reachableHashes.add(line);
             }
-            pagerWriter.println(line);
-            pagerWriter.flush();
-        } else {
-            System.out.println(line);
+        }
+        int exitValue = process.waitFor();
+        if (exitValue != 0) {
+            return exitValue;
+        }
+
+        GitConfig gitConfig;
+        try {
+            gitConfig = GitConfig.load(caller.workingDirectory(), caller.environment());
+        } catch (IOException | RuntimeException e) {
+            gitConfig = null;
+        }
+        try (GitCommitCache cache = openCommitCache(getLogOutputCharset(gitConfig))) {
+            int cachedCount = cache.size();
+            int evictedCount = cache.compact(reachableHashes::contains);
+            String summary = "Evicted " + evictedCount + " of " + cachedCount
+                    + " cached commits, " + cache.sizeInBytes() / 1024 + " KiB left";
+            caller.stdout().write((summary + System.lineSeparator()).getBytes());
+        }
+        return 0;
+    }
+
+    public int clearCommitCache() throws IOException {
+        GitCommitCache.clear(getCommitCacheDirectory());
+        return 0;
+    }
+
+    // The options which change how the cached fields are printed bypass the cache.
+    private boolean isCommitCacheUsable(GitLogArgs args) {
+        return args.isCacheEnabled() && Arrays.stream(args.unparsedArgs())
+                .noneMatch(arg -> arg.startsWith("--date") || arg.startsWith("--encoding"));
+    }
+
+    // Whether git-log prints only the fields which are not cached. A cache which is empty
+    // is rather filled from the output of git-log, so it prints all of them.
+    private boolean isLeanRecordFormat(GitCommitCache cache) {
+        return cache != null && !cache.isEmpty();
+    }
+
+    private GitCommitCache openCommitCache(Charset charset) throws IOException {
+        // The cached fields are kept as printed by git-log.
+        String format = String.join("\n",
+                charset.name(),
+                GitLogRecordParser.DATE_OPTION,
+                GitLogRecordParser.CACHEABLE_FIELDS_FORMAT);
+        return GitCommitCache.open(getCommitCacheDirectory(), format);
+    }
+
+    private Path getCommitCacheDirectory() throws IOException {
+        GitDirectory gitDirectory = GitDirectory.find(caller.workingDirectory(), caller.environment());
+        return gitDirectory.commonDir().resolve("timeline-cache");
+    }
+
+    // Encoding in which git-log prints the commit messages, which is the one of the output.
+    // Documentation: https://git-scm.com/docs/git-log#_discussion
+    private Charset getLogOutputCharset(GitConfig gitConfig) {
+        if (gitConfig == null) {
+            return StandardCharsets.UTF_8;
+        }
+        String encoding = gitConfig.get("i18n.logOutputEncoding");
+        if (encoding == null) {
+            encoding = gitConfig.get("i18n.commitEncoding");
+        }
+        if (encoding == null || encoding.isEmpty()) {
+            return StandardCharsets.UTF_8;
+        }
+        try {
+            Charset charset = Charset.forName(encoding);
+            // The records are split at the byte level, which needs an ASCII-compatible charset.
+            // Git itself does not support others for its output (e.g., UTF-16).
+            return Arrays.equals("\n\u001e\u001f".getBytes(charset), new byte[]{'\n', 0x1e, 0x1f})
+                    ? charset
+                    : StandardCharsets.UTF_8;
+        } catch (IllegalArgumentException e) {
+            // Unknown to Java (e.g., a typo). Git leaves the messages as they are, mostly UTF-8.
+            return StandardCharsets.UTF_8;
         }
     }
 
     // Documentation for precedence of pager command source:
     // https://git-scm.com/docs/git-var#Documentation/git-var.txt-GITPAGER
-    private List<String> getPagerCommand() {
+    private List<String> getPagerCommand(CompletableFuture<GitConfig> gitConfig) throws IOException {
 
-        String gitPagerCommand = System.getenv("GIT_PAGER");
+        String gitPagerCommand = caller.environment().get("GIT_PAGER");
         if (gitPagerCommand != null && !gitPagerCommand.isEmpty()) {
             return ShellCommandParser.parse(gitPagerCommand);
         }
 
-        String gitCorePagerCommand = getGitCorePagerCommand();
+        // Only read when there is no GIT_PAGER.
+        String gitCorePagerCommand = getGitCorePagerCommand(GitLogStartup.await(gitConfig));
         if (gitCorePagerCommand != null && !gitCorePagerCommand.isEmpty()) {
             return ShellCommandParser.parse(gitCorePagerCommand);
         }
 
-        String pagerCommand = System.getenv("PAGER");
+        String pagerCommand = caller.environment().get("PAGER");
         if (pagerCommand != null && !pagerCommand.isEmpty()) {
             return ShellCommandParser.parse(pagerCommand);
         }
@@ -150,15 +819,19 @@ public class GitLogProcessBuilder {
         return List.of("less", "-RXFM");
     }
 
-    private String getGitCorePagerCommand() {
-        Process process;
+    private String getGitCorePagerCommand(GitConfig gitConfig) {
 
         // In the case of 'delta', the pager configuration is retrieved from the
         // file `.gitconfig` at user root from the section `[delta]`. No need to
         // read default 'delta' opts here.
 
+        if (gitConfig != null) {
+            return gitConfig.get("core.pager");
+        }
+
+        Process process;
         try {
-            process = new ProcessBuilder("git", "config", "get", "core.pager").start();
+            process = caller.start(new ProcessBuilder("git", "config", "get", "core.pager"));
         } catch (IOException e) {
             throw new RuntimeException(
                     "Error starting git process to get value 'core.pager'",
@@ -177,136 +850,151 @@ public class GitLogProcessBuilder {
         }
     }
 
-    private GitRemote getGitRemote() {
-        GitRemote gitRemote;
-        Process process;
+    // Null when there is no remote, or when it is not of a known hosting provider.
+    private GitRemote getGitRemote(CompletableFuture<GitConfig> gitConfig) throws IOException {
+        GitConfig config = GitLogStartup.await(gitConfig);
+        String originUrl = getGitRemoteUrl(config);
 
+        if (originUrl == null || originUrl.isEmpty()) {
+            // No Git remote url.
+            return null;
+        }
+
+        return GitRemote.parse(originUrl, getHostingProviders(config));
+    }
+
+    // The built-in providers and the ones of `timeline.provider.*` (see GitHostingProviders).
+    private GitHostingProviders getHostingProviders(GitConfig gitConfig) {
+        if (gitConfig != null) {
+            return GitHostingProviders.load(
+                    gitConfig.getAllStartingWith(GitHostingProviders.CONFIG_PREFIX), this::printWarning);
+        }
+
+        Process process;
         try {
-            process = new ProcessBuilder("git", "remote", "get-url", "origin").start();
+            process = caller.start(new ProcessBuilder(
+                    "git", "config", "--get-regexp", "^" + GitHostingProviders.CONFIG_PREFIX.replace(".", "\\.")));
         } catch (IOException e) {
-            throw new RuntimeException(
-                    "Error starting git process to get remote url for: origin",
-                    e);
+            throw new RuntimeException("Error starting git process to get the hosting providers", e);
         }
 
+        // Each line is a key, then its value after a space, if any.
+        Map<String, List<String>> config = new LinkedHashMap<>();
         try (
                 var inputStreamReader = new InputStreamReader(process.getInputStream());
                 var bufferedReader = new BufferedReader(inputStreamReader)
         ) {
-            Matcher matcher;
-            String originUrl = bufferedReader.readLine();
-
-            if (originUrl == null || originUrl.isEmpty()) {
-                // No Git remote url.
-                return null;
+            String line;
+            while ((line = bufferedReader.readLine()) != null) {
+                int valueStart = line.indexOf(' ');
+                String key = valueStart < 0 ? line : line.substring(0, valueStart);
+                config.computeIfAbsent(key, k -> new ArrayList<>())
+                        .add(valueStart < 0 ? null : line.substring(valueStart + 1));
             }
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading the hosting providers", e);
+        }
+        return GitHostingProviders.load(config, this::printWarning);
+    }
 
-            if (originUrl.matches("^https.*$")) {
-                // HTTPS.
-                // The regex syntax `(?:X)` where `X` is a pattern defines a non-capturing
-                // regex group: https://www.baeldung.com/java-regex-non-capturing-groups
-                Pattern pattern = Pattern.compile("https://(?:.*?@)?(.*?)/(.*?)/(.*?)[.]git");
-                matcher = pattern.matcher(originUrl);
-                if (!matcher.find()) {
-                    throw new IllegalStateException(
-                            "Error matching the remote HTTPS url to extract its parts: "
-                                    + originUrl);
-                }
-            } else if (originUrl.matches("^git@.*$")) {
-                // SSH.
-                Pattern pattern = Pattern.compile("git@(.*?):(.*?)/(.*?)[.]git");
-                matcher = pattern.matcher(originUrl);
-                if (!matcher.find()) {
-                    throw new IllegalStateException(
-                            "Error matching the remote SSH url to extract its parts: "
-                                    + originUrl);
-                }
-            } else {
-                // Unsupported Git remote protocol.
-                return null;
-            }
+    // One line on stderr, like the warnings of git about bad config.
+    private void printWarning(String message) {
+        PrintStream stderr = new PrintStream(caller.stderr(), false);
+        stderr.println("warning: " + message);
+        stderr.flush();
+    }
 
-            gitRemote = new GitRemote(
-                    GitRemote.Platform.from(matcher.group(1)),
-                    matcher.group(3),
-                    matcher.group(2));
+    private String getGitRemoteUrl(GitConfig gitConfig) {
+        if (gitConfig != null) {
+            return gitConfig.getRemoteUrl("origin");
+        }
 
+        Process process;
+        try {
+            process = caller.start(new ProcessBuilder("git", "remote", "get-url", "origin"));
         } catch (IOException e) {
             throw new RuntimeException(
-                    "Error reading remote url for: origin",
+                    "Error starting git process to get remote url for: origin",
                     e);
         }
 
-        return gitRemote;
+        try (
+                var inputStreamReader = new InputStreamReader(process.getInputStream());
+                var bufferedReader = new BufferedReader(inputStreamReader)
+        ) {
+            return bufferedReader.readLine();
+        } catch (IOException e) {
+            throw new RuntimeException(
+                    "Error reading remote url for: origin",
+                    e);
+        }
     }
 
-    private void populateCommitAttribute(
-            String serializedAttributeName,
-            String attributeValue,
-            GitCommit commit
-    ) {
-        switch (serializedAttributeName) {
-            case FULL_HASH_ITEM:
-                commit.setFullHash(attributeValue);
-                break;
-            case ABBREVIATED_HASH_ITEM:
-                commit.setAbbreviatedHash(attributeValue);
-                break;
-            case ABBREVIATED_PARENT_HASHES_ITEM:
-                commit.setAbbreviatedParentHashes(attributeValue.split("\\s"));
-                break;
-            case AUTHOR_NAME_ITEM:
-                commit.setAuthorName(attributeValue);
-                break;
-            case AUTHOR_DATE_ITEM:
-                commit.setAuthorDate(attributeValue);
-                break;
-            case COMMITTER_NAME_ITEM:
-                commit.setCommitterName(attributeValue);
-                break;
-            case SUBJECT_LINE_ITEM:
-                commit.setSubjectLine(attributeValue);
-                break;
-            case REF_NAMES_COLORED_ITEM:
-                commit.setRefNamesColored(attributeValue);
-                break;
-        }
-    }
-
-    private List<String> getGitLogCommand(String[] args) {
-
-        final String prettyFormat = String.join("",
-                "<hernancerm.git-timeline.full-hash>",
-                    "%H",
-                "</hernancerm.git-timeline.full-hash>",
-                "<hernancerm.git-timeline.abbreviated-hash>",
-                    "%h",
-                "</hernancerm.git-timeline.abbreviated-hash>",
-                "<hernancerm.git-timeline.abbreviated-parent-hashes>",
-                    "%p",
-                "</hernancerm.git-timeline.abbreviated-parent-hashes>",
-                "<hernancerm.git-timeline.ref-names-colored>",
-                    "%C(auto)%d",
-                "</hernancerm.git-timeline.ref-names-colored>",
-                "<hernancerm.git-timeline.committer-name>",
-                    "%cn",
-                "</hernancerm.git-timeline.committer-name>",
-                "<hernancerm.git-timeline.author-name>",
-                    "%an",
-                "</hernancerm.git-timeline.author-name>",
-                "<hernancerm.git-timeline.author-date>",
-                    "%ad",
-                "</hernancerm.git-timeline.author-date>",
-                "<hernancerm.git-timeline.subject-line>",
-                    "%s",
-                "</hernancerm.git-timeline.subject-line>");
+    private List<String> getGitLogCommand(String[] args, String prettyFormat) {
 
         return Stream.concat(Stream.of(
                         "git",
                         "log",
                         "--color=always",
-                        "--date=format:%b/%d/%Y",
+                        GitLogRecordParser.DATE_OPTION,
                         "--pretty=format:" + prettyFormat),
                 Arrays.stream(args)).toList();
     }
+
+    // The caller, as if it ran in one of the repositories of `--timeline-repos`.
+    private record RepositoryCaller(Caller caller, Path repository) implements Caller {
+
+        @Override
+        public Path workingDirectory() {
+            return repository;
+        }
+
+        @Override
+        public Map<String, String> environment() {
+            return caller.environment();
+        }
+
+        @Override
+        public boolean isStdoutTerminal() {
+            return caller.isStdoutTerminal();
+        }
+
+        @Override
+        public Instant startInstant() {
+            return caller.startInstant();
+        }
+
+        @Override
+        public OutputStream stdout() {
+            return caller.stdout();
+        }
+
+        @Override
+        public OutputStream stderr() {
+            return caller.stderr();
+        }
+
+        @Override
+        public Process start(ProcessBuilder processBuilder) throws IOException {
+            if (processBuilder.directory() == null) {
+                processBuilder.directory(repository.toFile());
+            }
+            return caller.start(processBuilder);
+        }
+
+        @Override
+        public Process startPager(List<String> command) throws IOException {
+            return caller.startPager(command);
+        }
+
+        @Override
+        public Terminal openTerminal() throws IOException {
+            return caller.openTerminal();
+        }
+
+        @Override
+        public int terminalWidth() {
+            return caller.terminalWidth();
+        }
+    }
 }
@@ -0,0 +1,150 @@
+package me.hernancerm;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+
+// Byte-level reader of the output of git-log. Splits it into records (the lines with commit
+// data) and everything else (graph connectors, `--stat` lines, patches, etc.). Nothing else is
+// decoded: it is handed over as raw bytes, in regions as big as possible.
+public class GitLogReader implements GitLogSource {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    // Line which started in a previous read of the channel.
+    private byte[] carriedLine = new byte[1024];
+    private int carriedLineLength;
+    // The line being read is a long one already known not to be a record.
+    private boolean isInPassThroughLine;
+    private boolean endsWithNewline = true;
+
+    public GitLogReader(ReadableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public void read(Handler handler, BooleanSupplier isCancelled) throws IOException {
+        while (!isCancelled.getAsBoolean() && channel.read(buffer) >= 0) {
+            buffer.flip();
+            readBuffer(handler);
+            buffer.clear();
+        }
+        if (isCancelled.getAsBoolean()) {
+            return;
+        }
+        // The last line has no newline, e.g., with `--pretty=format:` which separates records.
+        if (carriedLineLength > 0) {
+            handleCarriedLine(handler);
+        }
+        if (!endsWithNewline) {
+            handler.passThrough(ByteBuffer.wrap(new byte[]{'\n'}));
+        }
+    }
+
+    private void readBuffer(Handler handler) throws IOException {
+        int limit = buffer.limit();
+        int position = 0;
+        // Start of the pass-through region not yet handed over.
+        int passThroughStart = 0;
+
+        while (position < limit) {
+            int newline = indexOf(buffer, (byte) '\n', position, limit);
+
+            if (newline < 0) {
+                // The line continues in the next read of the channel.
+                if (isInPassThroughLine) {
+                    position = limit;
+                } else {
+                    handPassThrough(handler, passThroughStart, position);
+                    carry(position, limit);
+                    passThroughStart = limit;
+                    position = limit;
+                    if (carriedLineLength > BUFFER_SIZE
+                            && GitLogRecordParser.findRecordStart(ByteBuffer.wrap(carriedLine), 0, carriedLineLength) < 0) {
+                        // A very long line which is not a record (e.g., minified code in a patch).
+                        // Hand it over already instead of holding all of it in memory.
+                        handler.passThrough(ByteBuffer.wrap(carriedLine, 0, carriedLineLength));
+                        endsWithNewline = false;
+                        carriedLineLength = 0;
+                        isInPassThroughLine = true;
+                    }
+                }
+                break;
+            }
+
+            if (isInPassThroughLine) {
+                isInPassThroughLine = false;
+            } else if (carriedLineLength > 0) {
+                handPassThrough(handler, passThroughStart, position);
+                carry(position, newline);
+                handleCarriedLine(handler);
+                passThroughStart = newline + 1;
+            } else {
+                int recordStart = GitLogRecordParser.findRecordStart(buffer, position, newline);
+                if (recordStart >= 0) {
+                    handPassThrough(handler, passThroughStart, position);
+                    carry(position, newline);
+                    handler.record(carriedLine, recordStart - position, carriedLineLength);
+                    carriedLineLength = 0;
+                    endsWithNewline = true;
+                    passThroughStart = newline + 1;
+                }
+            }
+            position = newline + 1;
+        }
+
+        handPassThrough(handler, passThroughStart, position);
+    }
+
+    private void handleCarriedLine(Handler handler) throws IOException {
+        int recordStart = GitLogRecordParser.findRecordStart(ByteBuffer.wrap(carriedLine), 0, carriedLineLength);
+        if (recordStart >= 0) {
+            handler.record(carriedLine, recordStart, carriedLineLength);
+            endsWithNewline = true;
+        } else {
+            carry((byte) '\n');
+            handler.passThrough(ByteBuffer.wrap(carriedLine, 0, carriedLineLength));
+            endsWithNewline = true;
+        }
+        carriedLineLength = 0;
+    }
+
+    private void handPassThrough(Handler handler, int start, int end) throws IOException {
+        if (start < end) {
+            handler.passThrough(buffer.duplicate().limit(end).position(start));
+            endsWithNewline = buffer.get(end - 1) == '\n';
+        }
+    }
+
+    private void carry(int start, int end) {
+        ensureCarriedLineCapacity(end - start);
+        buffer.get(start, carriedLine, carriedLineLength, end - start);
+        carriedLineLength += end - start;
+    }
+
+    private void carry(byte b) {
+        ensureCarriedLineCapacity(1);
+        carriedLine[carriedLineLength++] = b;
+    }
+
+    private void ensureCarriedLineCapacity(int extraLength) {
+        if (carriedLineLength + extraLength > carriedLine.length) {
+            carriedLine = Arrays.copyOf(carriedLine,
+                    Math.max(carriedLine.length * 2, carriedLineLength + extraLength));
+        }
+    }
+
+    private static int indexOf(ByteBuffer bytes, byte b, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (bytes.get(i) == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,169 @@
+package me.hernancerm;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+// Parses the records of git-log into commits. Each thread parsing records has its own parser,
+// which holds the strings seen so far that repeat a lot (see FieldInterner).
+public class GitLogRecordParser {
+
+    // Control characters which git-log emits through the placeholder `%xNN`. These never
+    // show up in graph prefixes and, in practice, neither in names, dates nor ref names.
+    // Both are ASCII, so they are single bytes in any ASCII-compatible encoding.
+    public static final byte RECORD_SEPARATOR = 0x1e;
+    public static final byte FIELD_SEPARATOR = 0x1f;
+
+    public static final String DATE_OPTION = "--date=format:%b/%d/%Y";
+
+    // Ends the record, as git may print more on its line (e.g., the `--graph` padding before
+    // the output of `--stat`), which is kept as is.
+    public static final String RECORD_END_FORMAT = "%x1e";
+
+    // Fields which change over the life of a commit (e.g., its ref names), or which git gets
+    // without reading the commit object (e.g., its abbreviated hash).
+    private static final String LEAN_FIELDS_FORMAT = String.join("%x1f",
+            "%x1e%H",
+            "%h",
+            "%p",
+            "%C(auto)%d");
+
+    // Fields which never change for a commit, so they can be cached by full hash.
+    public static final String CACHEABLE_FIELDS_FORMAT = String.join("%x1f",
+            "%cn",
+            "%an",
+            "%ad",
+            "%s");
+
+    // Field order of the record. The subject line is the last field, taken verbatim up to
+    // the end of the record, even when it contains separators.
+    public static final String PRETTY_FORMAT = LEAN_FIELDS_FORMAT + "%x1f" + CACHEABLE_FIELDS_FORMAT + RECORD_END_FORMAT;
+
+    // Record without the cacheable fields, see GitCommitCache.
+    public static final String LEAN_PRETTY_FORMAT = LEAN_FIELDS_FORMAT + RECORD_END_FORMAT;
+
+    public static final int FULL_HASH_FIELD = 0;
+    private static final int ABBREVIATED_HASH_FIELD = 1;
+    private static final int ABBREVIATED_PARENT_HASHES_FIELD = 2;
+    private static final int REF_NAMES_COLORED_FIELD = 3;
+    private static final int COMMITTER_NAME_FIELD = 4;
+    // First field of CACHEABLE_FIELDS_FORMAT.
+    public static final int CACHEABLE_FIELDS_START = COMMITTER_NAME_FIELD;
+    private static final int AUTHOR_NAME_FIELD = 5;
+    private static final int AUTHOR_DATE_FIELD = 6;
+    private static final int SUBJECT_LINE_FIELD = 7;
+
+    private final Charset charset;
+    private final FieldInterner fieldInterner = new FieldInterner();
+
+    public GitLogRecordParser(Charset charset) {
+        this.charset = charset;
+    }
+
+    // Returns the index of the record separator in the line, which is the length of the
+    // `--graph` prefix, or -1 when the line has no record (e.g., a graph connector line like
+    // `|\`, or a line of `--stat`). The separator must be followed by a full hash, so a
+    // patch line which happens to contain the separator is not taken for a record.
+    public static int findRecordStart(ByteBuffer line, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (line.get(i) == RECORD_SEPARATOR && isFullHashField(line, i + 1, end)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Returns the index of the separator which ends the record, or the length of the line
+    // when there is none. It is the last one in the line, as the subject may contain others.
+    public static int findRecordEnd(byte[] line, int recordStart, int length) {
+        for (int i = length - 1; i > recordStart; i--) {
+            if (line[i] == RECORD_SEPARATOR) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    // Returns the index where the field starts in the record, or -1 when the record has fewer
+    // fields.
+    public static int findFieldStart(byte[] line, int recordStart, int end, int field) {
+        int fieldStart = recordStart + 1;
+        for (int i = 0; i < field; i++) {
+            int fieldEnd = indexOf(line, FIELD_SEPARATOR, fieldStart, end);
+            if (fieldEnd < 0) {
+                return -1;
+            }
+            fieldStart = fieldEnd + 1;
+        }
+        return fieldStart;
+    }
+
+    // Populates the commit from the record between the index of its separator and its end
+    // (see findRecordEnd). Only the fields are decoded, each one straight from the bytes of the
+    // line. Hashes are ASCII. Names, dates and ref names repeat a lot, so they are interned.
+    public void parse(byte[] line, int recordStart, int end, GitCommit commit) {
+        int field = FULL_HASH_FIELD;
+        int fieldStart = recordStart + 1;
+        for (int i = fieldStart; i < end && field < SUBJECT_LINE_FIELD; i++) {
+            if (line[i] == FIELD_SEPARATOR) {
+                populateField(field++, line, fieldStart, i, commit);
+                fieldStart = i + 1;
+            }
+        }
+
+        if (field != SUBJECT_LINE_FIELD) {
+            throw new IllegalStateException(
+                    "Error parsing git-log record, expected " + (SUBJECT_LINE_FIELD + 1)
+                            + " fields but found " + (field + 1) + ": "
+                            + new String(line, recordStart, end - recordStart, charset));
+        }
+        populateField(SUBJECT_LINE_FIELD, line, fieldStart, end, commit);
+    }
+
+    private void populateField(int field, byte[] line, int start, int end, GitCommit commit) {
+        switch (field) {
+            case FULL_HASH_FIELD -> commit.setFullHash(ascii(line, start, end));
+            case ABBREVIATED_HASH_FIELD -> commit.setAbbreviatedHash(ascii(line, start, end));
+            // Parent hashes are separated by a single space. A root commit has no parents.
+            case ABBREVIATED_PARENT_HASHES_FIELD -> commit.setAbbreviatedParentHashes(ascii(line, start, end));
+            case REF_NAMES_COLORED_FIELD -> commit.setRefNamesColored(intern(line, start, end));
+            case COMMITTER_NAME_FIELD -> commit.setCommitterName(intern(line, start, end));
+            case AUTHOR_NAME_FIELD -> commit.setAuthorName(intern(line, start, end));
+            case AUTHOR_DATE_FIELD -> commit.setAuthorDate(intern(line, start, end));
+            case SUBJECT_LINE_FIELD -> commit.setSubjectLine(new String(line, start, end - start, charset));
+            default -> throw new IllegalStateException("Unknown git-log record field: " + field);
+        }
+    }
+
+    private String intern(byte[] line, int start, int end) {
+        return fieldInterner.intern(line, start, end, charset);
+    }
+
+    // SHA-1 (40) or SHA-256 (64) hex digits followed by the field separator.
+    private static boolean isFullHashField(ByteBuffer line, int start, int end) {
+        int i = start;
+        while (i < end && isHexDigit(line.get(i))) {
+            i++;
+        }
+        int length = i - start;
+        return (length == 40 || length == 64) && i < end && line.get(i) == FIELD_SEPARATOR;
+    }
+
+    private static int indexOf(byte[] line, byte b, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (line[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isHexDigit(byte b) {
+        return (b >= '0' && b <= '9') || (b >= 'a' && b <= 'f');
+    }
+
+    // Latin-1 decoding is a plain copy of the bytes, and ASCII is a subset of it.
+    private static String ascii(byte[] line, int start, int end) {
+        return new String(line, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+}
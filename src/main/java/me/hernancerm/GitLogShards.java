@@ -0,0 +1,315 @@
+package me.hernancerm;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Pattern;
+
+// Output of git-log extracted by several processes in parallel (`--timeline-shards`), read as
+// if printed by a single one:
+// 1. git-rev-list walks the history, with the options which select and order the commits. With
+//    a commit-graph the walk is cheap, as no commit is decompressed.
+// 2. Its commits are split into shards of consecutive commits, each one printed by its own
+//    `git log --no-walk=unsorted --stdin`, which prints the commits in the order given. That is
+//    where the time goes: decompressing and formatting each commit.
+// 3. The shards are read in order: the first one as it is printed, the next ones from what was
+//    buffered meanwhile.
+// Only as many shards as cores run ahead of the one being read, which bounds what is buffered.
+public class GitLogShards implements ReadableByteChannel {
+
+    private static final int SHARD_COMMITS = 10_000;
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    // Options which only select or order the commits, passed to git-rev-list.
+    private static final Set<String> WALK_OPTIONS = Set.of(
+            "--all", "--branches", "--tags", "--remotes", "--not",
+            "--merges", "--no-merges", "--no-min-parents", "--no-max-parents", "--first-parent",
+            "--reverse", "--date-order", "--author-date-order", "--topo-order",
+            "-i", "--regexp-ignore-case", "-E", "--extended-regexp", "-F", "--fixed-strings",
+            "-P", "--perl-regexp", "--all-match", "--invert-grep");
+    // Same, with a value either after `=` or as the next argument.
+    private static final Set<String> WALK_OPTIONS_WITH_VALUE = Set.of(
+            "-n", "--max-count", "--skip", "--since", "--after", "--until", "--before",
+            "--author", "--committer", "--grep", "--min-parents", "--max-parents");
+    // Same, only with a value after `=`.
+    private static final Set<String> WALK_OPTIONS_WITH_OPTIONAL_VALUE = Set.of(
+            "--branches", "--tags", "--remotes", "--glob", "--exclude");
+    // Options which only change how each commit is printed, passed to the git-log of each shard.
+    private static final Set<String> DISPLAY_OPTIONS = Set.of(
+            "--color", "--no-color", "--decorate", "--no-decorate", "--clear-decorations",
+            "--abbrev-commit", "--no-abbrev-commit", "--no-abbrev");
+    private static final Set<String> DISPLAY_OPTIONS_WITH_VALUE = Set.of(
+            "--color", "--date", "--decorate", "--decorate-refs", "--decorate-refs-exclude", "--abbrev");
+    // E.g., `-10` or `-n10`.
+    private static final Pattern MAX_COUNT_OPTION = Pattern.compile("-n?\\d+");
+
+    // The options of git-log, split into those of git-rev-list and those of each shard.
+    public record Split(List<String> walkArgs, List<String> displayArgs) {}
+
+    private static final class Shard {
+
+        private final Process process;
+        // Chunks of the output, up to END_OF_SHARD.
+        private final BlockingQueue<ByteBuffer> chunks = new LinkedBlockingQueue<>();
+
+        private Shard(Process process) {
+            this.process = process;
+        }
+    }
+
+    private static final Shard END_OF_SHARDS = new Shard(null);
+    private static final ByteBuffer END_OF_SHARD = ByteBuffer.allocate(0);
+
+    private final Caller caller;
+    private final List<String> shardCommand;
+    private final Process revListProcess;
+    private final Semaphore shardsAhead;
+    // Shards in order, up to END_OF_SHARDS.
+    private final BlockingQueue<Shard> shards = new LinkedBlockingQueue<>();
+    private final List<Process> processes = new CopyOnWriteArrayList<>();
+    private final Thread splitterThread;
+    private volatile IOException failure;
+    private volatile boolean isDestroyed;
+
+    // Read by a single thread.
+    private Shard shard;
+    private ByteBuffer chunk;
+    private boolean isSeparatorPending;
+    private boolean hasOutput;
+    private byte lastByte;
+    private boolean isEnded;
+    private boolean closed;
+
+    private GitLogShards(Caller caller, List<String> revListCommand, List<String> shardCommand, int parallelism)
+            throws IOException {
+        this.caller = caller;
+        this.shardCommand = shardCommand;
+        this.shardsAhead = new Semaphore(parallelism);
+        this.revListProcess = caller.start(new ProcessBuilder(revListCommand)
+                .redirectError(ProcessBuilder.Redirect.INHERIT));
+        processes.add(revListProcess);
+        this.splitterThread = Thread.ofVirtual().name("git-timeline-shards").start(this::split);
+    }
+
+    // Starts git-rev-list and the git-log of the shards. The pretty format and the display
+    // options go in the git-log command, which gets the commits to print on its stdin.
+    public static GitLogShards start(Caller caller, List<String> gitLogCommand, Split split, int parallelism)
+            throws IOException {
+        List<String> revListCommand = new ArrayList<>(List.of("git", "rev-list", "--default", "HEAD"));
+        revListCommand.addAll(split.walkArgs());
+        List<String> shardCommand = new ArrayList<>(gitLogCommand);
+        shardCommand.addAll(split.displayArgs());
+        shardCommand.addAll(List.of("--no-walk=unsorted", "--stdin"));
+        return new GitLogShards(caller, revListCommand, shardCommand, parallelism);
+    }
+
+    // Splits the options of git-log, or returns null when any of them cannot be split safely,
+    // e.g., `--graph`, `--follow` or the ones which print diffs. Arguments which are not options
+    // are revisions or paths, which both go to git-rev-list.
+    public static Split split(String[] args) {
+        List<String> walkArgs = new ArrayList<>();
+        List<String> displayArgs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            int equals = arg.indexOf('=');
+            String name = equals < 0 ? arg : arg.substring(0, equals);
+            if (arg.equals("--")) {
+                walkArgs.addAll(Arrays.asList(args).subList(i, args.length));
+                break;
+            } else if (!arg.startsWith("-") || MAX_COUNT_OPTION.matcher(arg).matches()) {
+                walkArgs.add(arg);
+            } else if (equals < 0 && WALK_OPTIONS.contains(arg)) {
+                walkArgs.add(arg);
+            } else if (WALK_OPTIONS_WITH_VALUE.contains(name)) {
+                walkArgs.add(arg);
+                if (equals < 0) {
+                    if (i + 1 == args.length) {
+                        return null;
+                    }
+                    walkArgs.add(args[++i]);
+                }
+            } else if (equals >= 0 && WALK_OPTIONS_WITH_OPTIONAL_VALUE.contains(name)) {
+                walkArgs.add(arg);
+            } else if (isDisplayOption(arg)) {
+                displayArgs.add(arg);
+            } else {
+                return null;
+            }
+        }
+        return new Split(walkArgs, displayArgs);
+    }
+
+    // Whether the option only changes how each commit is printed, e.g., `--date=relative`.
+    public static boolean isDisplayOption(String arg) {
+        int equals = arg.indexOf('=');
+        return equals < 0
+                ? DISPLAY_OPTIONS.contains(arg)
+                : DISPLAY_OPTIONS_WITH_VALUE.contains(arg.substring(0, equals));
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        try {
+            while (!isEnded) {
+                if (chunk != null && chunk.hasRemaining()) {
+                    if (isSeparatorPending) {
+                        isSeparatorPending = false;
+                        lastByte = '\n';
+                        dst.put(lastByte);
+                        return 1;
+                    }
+                    int length = Math.min(dst.remaining(), chunk.remaining());
+                    dst.put(dst.position(), chunk, chunk.position(), length);
+                    dst.position(dst.position() + length);
+                    chunk.position(chunk.position() + length);
+                    lastByte = dst.get(dst.position() - 1);
+                    hasOutput = true;
+                    return length;
+                }
+                if (shard == null) {
+                    shard = shards.take();
+                    if (shard == END_OF_SHARDS) {
+                        isEnded = true;
+                        break;
+                    }
+                }
+                chunk = shard.chunks.take();
+                if (chunk == END_OF_SHARD) {
+                    chunk = null;
+                    shard = null;
+                    shardsAhead.release();
+                    // With `--pretty=format:`, git-log separates its commits with newlines, but
+                    // nothing separates the last commit of a shard from the first of the next one.
+                    isSeparatorPending = hasOutput && lastByte != '\n';
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading the shards of git-log");
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return -1;
+    }
+
+    // Exit value of git-rev-list, or else of the first shard which failed, as git-log would
+    // exit with.
+    public int waitFor() throws InterruptedException {
+        int exitValue = 0;
+        for (Process process : processes) {
+            int processExitValue = process.waitFor();
+            if (exitValue == 0) {
+                exitValue = processExitValue;
+            }
+        }
+        return exitValue;
+    }
+
+    // Kills git-rev-list and every shard, e.g., after quitting the pager.
+    public void destroy() {
+        isDestroyed = true;
+        splitterThread.interrupt();
+        for (Process process : processes) {
+            process.descendants().forEach(ProcessHandle::destroy);
+            process.destroy();
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    // Whatever is still running once the output is no longer read is killed.
+    @Override
+    public void close() {
+        closed = true;
+        if (!isEnded) {
+            destroy();
+        }
+    }
+
+    // Reads the commits printed by git-rev-list, and starts a shard every SHARD_COMMITS.
+    private void split() {
+        try (
+                InputStream inputStream = revListProcess.getInputStream();
+                var inputStreamReader = new InputStreamReader(inputStream, StandardCharsets.ISO_8859_1);
+                var bufferedReader = new BufferedReader(inputStreamReader)
+        ) {
+            ByteArrayOutputStream commits = new ByteArrayOutputStream();
+            int commitCount = 0;
+            String line;
+            while ((line = bufferedReader.readLine()) != null) {
+                commits.writeBytes((line + "\n").getBytes(StandardCharsets.ISO_8859_1));
+                if (++commitCount == SHARD_COMMITS) {
+                    startShard(commits.toByteArray());
+                    commits.reset();
+                    commitCount = 0;
+                }
+            }
+            if (commitCount > 0) {
+                startShard(commits.toByteArray());
+            }
+        } catch (InterruptedIOException | InterruptedException e) {
+            // Destroyed: the output is no longer read.
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            failure = e;
+        } finally {
+            shards.add(END_OF_SHARDS);
+        }
+    }
+
+    private void startShard(byte[] commits) throws IOException, InterruptedException {
+        // Waits for the shard being read to move on, when enough shards are ahead of it.
+        shardsAhead.acquire();
+        Process process = caller.start(new ProcessBuilder(shardCommand).redirectError(ProcessBuilder.Redirect.INHERIT));
+        processes.add(process);
+        if (isDestroyed) {
+            process.destroy();
+            throw new InterruptedIOException("The shards of git-log were destroyed");
+        }
+        Shard shard = new Shard(process);
+        // Drained from the start, so the shard is printed as fast as it can, and writing the
+        // commits to its stdin never waits on it.
+        Thread.ofVirtual().name("git-timeline-shard").start(() -> drain(shard));
+        try (OutputStream outputStream = process.getOutputStream()) {
+            outputStream.write(commits);
+        }
+        shards.add(shard);
+    }
+
+    private void drain(Shard shard) {
+        try (InputStream inputStream = shard.process.getInputStream()) {
+            while (true) {
+                byte[] bytes = new byte[CHUNK_SIZE];
+                int length = inputStream.read(bytes);
+                if (length < 0) {
+                    break;
+                }
+                // Not to hold a whole chunk for a few bytes, e.g., while the shard is buffered.
+                shard.chunks.add(ByteBuffer.wrap(length < CHUNK_SIZE / 2 ? Arrays.copyOf(bytes, length) : bytes, 0, length));
+            }
+        } catch (IOException e) {
+            // Destroyed, or else the exit value of the shard tells it failed.
+        } finally {
+            shard.chunks.add(END_OF_SHARD);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package me.hernancerm;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.function.BooleanSupplier;
+
+// Output of git-log split into records (the lines with commit data) and everything else.
+public interface GitLogSource {
+
+    void read(Handler handler, BooleanSupplier isCancelled) throws IOException;
+
+    interface Handler {
+
+        // Raw bytes, including newlines, to be copied as they are. The buffer is only valid
+        // during the call.
+        void passThrough(ByteBuffer bytes) throws IOException;
+
+        // A line with a record, without its newline. The record starts at `recordStart`, after
+        // the prefix of `--graph`. The array is only valid during the call.
+        void record(byte[] line, int recordStart, int length) throws IOException;
+    }
+}
@@ -0,0 +1,74 @@
+package me.hernancerm;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Runs the independent pieces of startup concurrently (e.g., git-log, the pager, reading the
+// gitconfig files, resolving the remote), so each piece is awaited only where it is needed.
+// Also measures the time to the first line printed.
+public class GitLogStartup implements AutoCloseable {
+
+    private final Instant callerStartInstant;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private volatile Instant firstLineInstant;
+
+    public GitLogStartup(Instant callerStartInstant) {
+        this.callerStartInstant = callerStartInstant;
+    }
+
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                future.complete(task.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    // Waits for a piece of startup, rethrowing its exception as is.
+    public static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    public void recordFirstLine() {
+        if (firstLineInstant == null) {
+            firstLineInstant = Instant.now();
+        }
+    }
+
+    // Time from the start of the caller (so JVM startup is included) to the first line
+    // printed, which is comparable to the time plain git-log takes to print its first line.
+    // Null when nothing was printed.
+    public Duration getTimeToFirstLine() {
+        if (firstLineInstant == null) {
+            return null;
+        }
+        return Duration.between(callerStartInstant, firstLineInstant);
+    }
+
+    // Pieces of startup still running (e.g., warming up) are not waited for.
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
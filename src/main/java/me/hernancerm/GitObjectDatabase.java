@@ -0,0 +1,524 @@
+package me.hernancerm;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+// Reader of the objects of a repository without spawning git: the packfiles in `objects/pack`,
+// looked up through their `.idx` files, and the loose objects. Only what git-log needs: reading
+// commits and tags by their hash, and the unique abbreviation of a hash as git prints it.
+//
+// Packfiles are memory-mapped. Deltas are resolved against their bases, and the bases are kept
+// inflated in a cache bounded in bytes, as the bases of a delta chain are shared by many objects.
+// Not thread-safe: the Inflater and the cache are reused across reads.
+//
+// Documentation: https://git-scm.com/docs/gitformat-pack
+public class GitObjectDatabase implements AutoCloseable {
+
+    public static final int TYPE_COMMIT = 1;
+    public static final int TYPE_TREE = 2;
+    public static final int TYPE_BLOB = 3;
+    public static final int TYPE_TAG = 4;
+    private static final int TYPE_OFS_DELTA = 6;
+    private static final int TYPE_REF_DELTA = 7;
+
+    private static final int HASH_LENGTH = 20;
+    private static final int IDX_SIGNATURE = 0xff744f63;
+    private static final int IDX_FANOUT_OFFSET = 8;
+    private static final int IDX_NAMES_OFFSET = IDX_FANOUT_OFFSET + 256 * 4;
+    // A MappedByteBuffer is at most 2 GiB, so bigger packfiles are mapped in windows.
+    private static final int WINDOW_BITS = 30;
+    private static final int INFLATER_INPUT_LENGTH = 64 * 1024;
+    // Smaller than core.deltaBaseCacheLimit (96 MiB), as only commits and tags are read.
+    private static final long DELTA_BASE_CACHE_LIMIT = 32L * 1024 * 1024;
+    // As git: the shortest abbreviation of `%h`, when there are few objects.
+    private static final int FALLBACK_DEFAULT_ABBREV = 7;
+
+    public record GitObject(int type, byte[] content) {
+    }
+
+    private record DeltaBaseKey(Pack pack, long offset) {
+    }
+
+    private final Path objectsDirectory;
+    private final List<Pack> packs;
+    private final long approximateObjectCount;
+
+    private final Inflater inflater = new Inflater();
+    // In access order, so the least recently used base is evicted first.
+    private final LinkedHashMap<DeltaBaseKey, GitObject> deltaBaseCache = new LinkedHashMap<>(16, 0.75f, true);
+    private long deltaBaseCacheSize;
+    // Names of the loose objects by the first byte of their hash (their directory).
+    private final Map<Integer, List<byte[]>> looseObjects = new HashMap<>();
+
+    private GitObjectDatabase(Path objectsDirectory, List<Pack> packs, long approximateObjectCount) {
+        this.objectsDirectory = objectsDirectory;
+        this.packs = packs;
+        this.approximateObjectCount = approximateObjectCount;
+    }
+
+    // Throws for what is not supported (e.g., a multi-pack-index chain, or an idx v1), so the
+    // caller can fall back to asking git.
+    public static GitObjectDatabase open(Path objectsDirectory) throws IOException {
+        Path packDirectory = objectsDirectory.resolve("pack");
+        if (Files.isDirectory(packDirectory.resolve("multi-pack-index.d"))) {
+            throw new IllegalStateException("Multi-pack-index chains are not supported: " + packDirectory);
+        }
+        List<Pack> packs = new ArrayList<>();
+        if (Files.isDirectory(packDirectory)) {
+            try (Stream<Path> files = Files.list(packDirectory)) {
+                for (Path idxFile : files.filter(file -> file.toString().endsWith(".idx")).sorted().toList()) {
+                    String name = idxFile.getFileName().toString();
+                    Path packFile = packDirectory.resolve(name.substring(0, name.length() - ".idx".length()) + ".pack");
+                    if (Files.isRegularFile(packFile)) {
+                        packs.add(Pack.open(idxFile, packFile));
+                    }
+                }
+            }
+        }
+        return new GitObjectDatabase(objectsDirectory, packs, countObjects(packDirectory, packs));
+    }
+
+    // The count from which git picks the length of `%h`: the objects of the packfiles. With a
+    // multi-pack-index, its objects, plus the ones of the packfiles it does not cover.
+    private static long countObjects(Path packDirectory, List<Pack> packs) throws IOException {
+        Path midxFile = packDirectory.resolve("multi-pack-index");
+        Set<String> midxPackNames = new HashSet<>();
+        long count = 0;
+        if (Files.isRegularFile(midxFile)) {
+            ByteBuffer midx = map(midxFile, 0, Files.size(midxFile));
+            if (midx.getInt(0) != 0x4d494458) {
+                throw new IllegalStateException("Bad multi-pack-index signature: " + midxFile);
+            }
+            int chunkCount = midx.get(6) & 0xff;
+            for (int i = 0; i < chunkCount; i++) {
+                int entry = 12 + i * 12;
+                int chunkId = midx.getInt(entry);
+                int chunkStart = (int) midx.getLong(entry + 4);
+                int chunkEnd = (int) midx.getLong(entry + 16);
+                if (chunkId == 0x504e414d) {
+                    // PNAM: the names of the idx files, each one ending in a null byte.
+                    int nameStart = chunkStart;
+                    for (int j = chunkStart; j < chunkEnd; j++) {
+                        if (midx.get(j) == 0) {
+                            if (j > nameStart) {
+                                byte[] name = new byte[j - nameStart];
+                                midx.get(nameStart, name);
+                                midxPackNames.add(new String(name, StandardCharsets.UTF_8));
+                            }
+                            nameStart = j + 1;
+                        }
+                    }
+                } else if (chunkId == 0x4f494446) {
+                    // OIDF: the fanout table, whose last entry is the count of objects.
+                    count += Integer.toUnsignedLong(midx.getInt(chunkStart + 255 * 4));
+                }
+            }
+        }
+        for (Pack pack : packs) {
+            if (!midxPackNames.contains(pack.idxName)) {
+                count += pack.objectCount;
+            }
+        }
+        return count;
+    }
+
+    // Returns null when the object does not exist.
+    public GitObject read(String hexHash) throws IOException {
+        return read(HexFormat.of().parseHex(hexHash));
+    }
+
+    public GitObject read(byte[] hash) throws IOException {
+        for (Pack pack : packs) {
+            int position = pack.findPosition(hash);
+            if (position >= 0) {
+                return readPacked(pack, pack.getOffset(position));
+            }
+        }
+        return readLoose(hash);
+    }
+
+    // Length of `%h` for the hash: the shortest prefix no other object starts with, and at least
+    // `minLength` hex digits. A negative `minLength` is the default of git, which grows with
+    // the count of objects (see core.abbrev).
+    public int getAbbreviationLength(byte[] hash, int minLength) throws IOException {
+        int length = minLength >= 0 ? minLength : getDefaultAbbreviationLength();
+        for (Pack pack : packs) {
+            int position = pack.findInsertionPosition(hash);
+            if (position < pack.objectCount && pack.compareName(position, hash) == 0) {
+                position++;
+            }
+            // The neighbors share the longest prefixes with the hash.
+            if (position < pack.objectCount) {
+                length = Math.max(length, pack.getCommonHexPrefixLength(position, hash) + 1);
+            }
+            int previous = position - 1;
+            if (previous >= 0 && pack.compareName(previous, hash) == 0) {
+                previous--;
+            }
+            if (previous >= 0) {
+                length = Math.max(length, pack.getCommonHexPrefixLength(previous, hash) + 1);
+            }
+        }
+        for (byte[] looseHash : getLooseObjects(hash[0] & 0xff)) {
+            int commonLength = getCommonHexPrefixLength(looseHash, hash);
+            if (commonLength < HASH_LENGTH * 2) {
+                length = Math.max(length, commonLength + 1);
+            }
+        }
+        return Math.min(length, HASH_LENGTH * 2);
+    }
+
+    // As git: about 2^(bits / 2) objects are needed for two of them to share a prefix of that
+    // many bits, rounded up to hex digits.
+    private int getDefaultAbbreviationLength() {
+        int bitCount = 64 - Long.numberOfLeadingZeros(approximateObjectCount);
+        return Math.max(FALLBACK_DEFAULT_ABBREV, (Math.max(1, bitCount) + 1) / 2);
+    }
+
+    private List<byte[]> getLooseObjects(int firstByte) throws IOException {
+        List<byte[]> hashes = looseObjects.get(firstByte);
+        if (hashes != null) {
+            return hashes;
+        }
+        hashes = new ArrayList<>();
+        String directoryName = String.format("%02x", firstByte);
+        Path directory = objectsDirectory.resolve(directoryName);
+        if (Files.isDirectory(directory)) {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Iterator<Path> iterator = files.iterator(); iterator.hasNext(); ) {
+                    String hexHash = directoryName + iterator.next().getFileName();
+                    if (hexHash.length() == HASH_LENGTH * 2 && HexFormat.isHexDigit(hexHash.charAt(2))) {
+                        hashes.add(HexFormat.of().parseHex(hexHash));
+                    }
+                }
+            }
+        }
+        looseObjects.put(firstByte, hashes);
+        return hashes;
+    }
+
+    private GitObject readLoose(byte[] hash) throws IOException {
+        String hexHash = HexFormat.of().formatHex(hash);
+        byte[] compressed;
+        try {
+            compressed = Files.readAllBytes(objectsDirectory.resolve(hexHash.substring(0, 2)).resolve(hexHash.substring(2)));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        byte[] object;
+        try (InflaterInputStream inflaterInputStream = new InflaterInputStream(new ByteArrayInputStream(compressed))) {
+            object = inflaterInputStream.readAllBytes();
+        }
+        // Header: `<type> <size>\0`.
+        int space = indexOf(object, (byte) ' ', 0);
+        int headerEnd = indexOf(object, (byte) 0, 0);
+        if (space < 0 || headerEnd < space) {
+            throw new IllegalStateException("Bad header of loose object: " + hexHash);
+        }
+        int type = switch (new String(object, 0, space, StandardCharsets.US_ASCII)) {
+            case "commit" -> TYPE_COMMIT;
+            case "tree" -> TYPE_TREE;
+            case "blob" -> TYPE_BLOB;
+            case "tag" -> TYPE_TAG;
+            default -> throw new IllegalStateException("Unknown type of loose object: " + hexHash);
+        };
+        byte[] content = new byte[object.length - headerEnd - 1];
+        System.arraycopy(object, headerEnd + 1, content, 0, content.length);
+        return new GitObject(type, content);
+    }
+
+    private GitObject readPacked(Pack pack, long offset) throws IOException {
+        long position = offset;
+        int b = pack.get(position++);
+        int type = (b >> 4) & 7;
+        long size = b & 0x0f;
+        for (int shift = 4; (b & 0x80) != 0; shift += 7) {
+            b = pack.get(position++);
+            size |= (long) (b & 0x7f) << shift;
+        }
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Object too big at offset " + offset + " of: " + pack.idxName);
+        }
+        GitObject base;
+        switch (type) {
+            case TYPE_OFS_DELTA -> {
+                // Distance back to the base, in a varint where each continuation adds one.
+                b = pack.get(position++);
+                long distance = b & 0x7f;
+                while ((b & 0x80) != 0) {
+                    b = pack.get(position++);
+                    distance = ((distance + 1) << 7) | (b & 0x7f);
+                }
+                base = readDeltaBase(pack, offset - distance);
+            }
+            case TYPE_REF_DELTA -> {
+                byte[] baseHash = new byte[HASH_LENGTH];
+                for (int i = 0; i < HASH_LENGTH; i++) {
+                    baseHash[i] = (byte) pack.get(position++);
+                }
+                int basePosition = pack.findPosition(baseHash);
+                base = basePosition >= 0 ? readDeltaBase(pack, pack.getOffset(basePosition)) : read(baseHash);
+                if (base == null) {
+                    throw new IllegalStateException("Missing delta base at offset " + offset + " of: " + pack.idxName);
+                }
+            }
+            default -> {
+                return new GitObject(type, inflate(pack, position, (int) size));
+            }
+        }
+        byte[] delta = inflate(pack, position, (int) size);
+        return new GitObject(base.type(), applyDelta(base.content(), delta));
+    }
+
+    private GitObject readDeltaBase(Pack pack, long offset) throws IOException {
+        DeltaBaseKey key = new DeltaBaseKey(pack, offset);
+        GitObject base = deltaBaseCache.get(key);
+        if (base != null) {
+            return base;
+        }
+        base = readPacked(pack, offset);
+        deltaBaseCache.put(key, base);
+        deltaBaseCacheSize += base.content().length;
+        Iterator<GitObject> leastRecentlyUsed = deltaBaseCache.values().iterator();
+        while (deltaBaseCacheSize > DELTA_BASE_CACHE_LIMIT && leastRecentlyUsed.hasNext()) {
+            deltaBaseCacheSize -= leastRecentlyUsed.next().content().length;
+            leastRecentlyUsed.remove();
+        }
+        return base;
+    }
+
+    // Inflates the zlib stream at the position, fed to the Inflater window by window.
+    private byte[] inflate(Pack pack, long position, int size) throws IOException {
+        byte[] content = new byte[size];
+        inflater.reset();
+        int length = 0;
+        try {
+            while (length < size) {
+                if (inflater.needsInput()) {
+                    ByteBuffer input = pack.slice(position, INFLATER_INPUT_LENGTH);
+                    position += input.remaining();
+                    inflater.setInput(input);
+                }
+                int inflatedLength = inflater.inflate(content, length, size - length);
+                if (inflatedLength == 0 && (inflater.finished() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated object in: " + pack.idxName);
+                }
+                length += inflatedLength;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt object in: " + pack.idxName, e);
+        }
+        return content;
+    }
+
+    // Documentation: https://git-scm.com/docs/gitformat-pack#_deltified_representation
+    static byte[] applyDelta(byte[] base, byte[] delta) {
+        int[] position = {0};
+        long baseSize = readDeltaSize(delta, position);
+        long resultSize = readDeltaSize(delta, position);
+        if (baseSize != base.length || resultSize > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Delta does not apply to its base");
+        }
+        byte[] result = new byte[(int) resultSize];
+        int resultLength = 0;
+        int i = position[0];
+        while (i < delta.length) {
+            int instruction = delta[i++] & 0xff;
+            if ((instruction & 0x80) != 0) {
+                // Copy from the base: the bits tell which bytes of the offset and size follow.
+                int copyOffset = 0;
+                int copySize = 0;
+                for (int bit = 0; bit < 4; bit++) {
+                    if ((instruction & (1 << bit)) != 0) {
+                        copyOffset |= (delta[i++] & 0xff) << (bit * 8);
+                    }
+                }
+                for (int bit = 0; bit < 3; bit++) {
+                    if ((instruction & (0x10 << bit)) != 0) {
+                        copySize |= (delta[i++] & 0xff) << (bit * 8);
+                    }
+                }
+                if (copySize == 0) {
+                    copySize = 0x10000;
+                }
+                System.arraycopy(base, copyOffset, result, resultLength, copySize);
+                resultLength += copySize;
+            } else if (instruction != 0) {
+                // Insert the next bytes of the delta.
+                System.arraycopy(delta, i, result, resultLength, instruction);
+                i += instruction;
+                resultLength += instruction;
+            } else {
+                throw new IllegalStateException("Bad delta instruction");
+            }
+        }
+        if (resultLength != result.length) {
+            throw new IllegalStateException("Delta result has the wrong size");
+        }
+        return result;
+    }
+
+    private static long readDeltaSize(byte[] delta, int[] position) {
+        long size = 0;
+        int b;
+        int shift = 0;
+        do {
+            b = delta[position[0]++] & 0xff;
+            size |= (long) (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return size;
+    }
+
+    private static int getCommonHexPrefixLength(byte[] a, byte[] b) {
+        for (int i = 0; i < HASH_LENGTH; i++) {
+            if (a[i] != b[i]) {
+                return i * 2 + ((a[i] & 0xf0) == (b[i] & 0xf0) ? 1 : 0);
+            }
+        }
+        return HASH_LENGTH * 2;
+    }
+
+    private static int indexOf(byte[] bytes, byte b, int start) {
+        for (int i = start; i < bytes.length; i++) {
+            if (bytes[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static ByteBuffer map(Path file, long position, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        }
+    }
+
+    @Override
+    public void close() {
+        inflater.end();
+    }
+
+    // A packfile and its idx (v2): the fanout table, the sorted hashes, their CRCs, the 32-bit
+    // offsets in the packfile, and the 64-bit offsets of packfiles over 2 GiB.
+    private static final class Pack {
+
+        private final String idxName;
+        private final ByteBuffer idx;
+        private final int objectCount;
+        private final int offsetsOffset;
+        private final int largeOffsetsOffset;
+        private final ByteBuffer[] windows;
+
+        private Pack(String idxName, ByteBuffer idx, int objectCount, ByteBuffer[] windows) {
+            this.idxName = idxName;
+            this.idx = idx;
+            this.objectCount = objectCount;
+            this.offsetsOffset = IDX_NAMES_OFFSET + objectCount * (HASH_LENGTH + 4);
+            this.largeOffsetsOffset = offsetsOffset + objectCount * 4;
+            this.windows = windows;
+        }
+
+        static Pack open(Path idxFile, Path packFile) throws IOException {
+            ByteBuffer idx = map(idxFile, 0, Files.size(idxFile));
+            if (idx.getInt(0) != IDX_SIGNATURE || idx.getInt(4) != 2) {
+                throw new IllegalStateException("Only idx v2 is supported: " + idxFile);
+            }
+            int objectCount = idx.getInt(IDX_FANOUT_OFFSET + 255 * 4);
+            long packSize = Files.size(packFile);
+            long windowSize = 1L << WINDOW_BITS;
+            ByteBuffer[] windows = new ByteBuffer[(int) ((packSize + windowSize - 1) / windowSize)];
+            for (int i = 0; i < windows.length; i++) {
+                long start = i * windowSize;
+                windows[i] = map(packFile, start, Math.min(windowSize, packSize - start));
+            }
+            return new Pack(idxFile.getFileName().toString(), idx, objectCount, windows);
+        }
+
+        int get(long position) {
+            return windows[(int) (position >>> WINDOW_BITS)].get((int) (position & ((1L << WINDOW_BITS) - 1))) & 0xff;
+        }
+
+        // Up to `maxLength` bytes from the position, without crossing the end of its window.
+        ByteBuffer slice(long position, int maxLength) {
+            ByteBuffer window = windows[(int) (position >>> WINDOW_BITS)];
+            int index = (int) (position & ((1L << WINDOW_BITS) - 1));
+            if (index >= window.limit()) {
+                throw new IllegalStateException("Read past the end of: " + idxName);
+            }
+            return window.slice(index, Math.min(maxLength, window.limit() - index));
+        }
+
+        // Position of the hash in the idx, or -1.
+        int findPosition(byte[] hash) {
+            int position = findInsertionPosition(hash);
+            return position < objectCount && compareName(position, hash) == 0 ? position : -1;
+        }
+
+        // Position of the first hash not lower than the given one, within the range of the
+        // fanout table for its first byte.
+        int findInsertionPosition(byte[] hash) {
+            int firstByte = hash[0] & 0xff;
+            int low = firstByte == 0 ? 0 : idx.getInt(IDX_FANOUT_OFFSET + (firstByte - 1) * 4);
+            int high = idx.getInt(IDX_FANOUT_OFFSET + firstByte * 4);
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (compareName(middle, hash) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        // Compared 4 bytes at a time, as unsigned big-endian ints, which sort as the bytes do.
+        int compareName(int position, byte[] hash) {
+            int nameOffset = IDX_NAMES_OFFSET + position * HASH_LENGTH;
+            for (int i = 0; i < HASH_LENGTH; i += 4) {
+                int hashInt = (hash[i] & 0xff) << 24 | (hash[i + 1] & 0xff) << 16
+                        | (hash[i + 2] & 0xff) << 8 | (hash[i + 3] & 0xff);
+                int difference = Integer.compareUnsigned(idx.getInt(nameOffset + i), hashInt);
+                if (difference != 0) {
+                    return difference;
+                }
+            }
+            return 0;
+        }
+
+        int getCommonHexPrefixLength(int position, byte[] hash) {
+            byte[] name = new byte[HASH_LENGTH];
+            idx.get(IDX_NAMES_OFFSET + position * HASH_LENGTH, name);
+            return GitObjectDatabase.getCommonHexPrefixLength(name, hash);
+        }
+
+        long getOffset(int position) {
+            int offset = idx.getInt(offsetsOffset + position * 4);
+            if (offset >= 0) {
+                return offset;
+            }
+            // The most significant bit tells the offset is in the table of 64-bit offsets.
+            return idx.getLong(largeOffsetsOffset + (offset & 0x7fffffff) * 8);
+        }
+    }
+}
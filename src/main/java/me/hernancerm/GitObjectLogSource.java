@@ -0,0 +1,762 @@
+package me.hernancerm;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Source which prints the history without git-log (`--timeline-in-process`): the refs and the
+// objects are read in-process (GitRefs, GitObjectDatabase), the history is walked in the order of
+// git-log (GitRevisionWalk), and each commit is printed as git-log prints it in PRETTY_FORMAT,
+// down to the colors of the ref names. It saves starting git and piping the history through it.
+//
+// Only for the options which select commits the usual way: revisions (names, hashes, `~`, `^`,
+// `^<excluded>` and `a..b`), `--all`, `--first-parent`, `-n`, `--skip`, and `--since`/`--until`
+// with the common forms of dates (see parseDate). Anything else, and anything which changes
+// which commits git sees or how it prints them, is left to git-log (see open).
+public class GitObjectLogSource implements GitLogSource {
+
+    private static final String[] MONTHS = {
+            "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"};
+
+    // Colors of git for the ref names of `%C(auto)%d` (color.decorate.<slot> defaults).
+    private static final String COMMIT_COLOR = "\033[33m";
+    private static final String RESET = "\033[m";
+    private static final String HEAD_COLOR = "\033[1;36m";
+    private static final String BRANCH_COLOR = "\033[1;32m";
+    private static final String REMOTE_BRANCH_COLOR = "\033[1;31m";
+    private static final String TAG_COLOR = "\033[1;33m";
+    private static final String STASH_COLOR = "\033[1;35m";
+
+    // The refs git-log decorates commits with by default, by the prefix of their names.
+    private static final String BRANCH_PREFIX = "refs/heads/";
+    private static final String REMOTE_BRANCH_PREFIX = "refs/remotes/";
+    private static final String TAG_PREFIX = "refs/tags/";
+    private static final String STASH_REF = "refs/stash";
+
+    // Gitconfig keys which change the output or the commits seen by git-log. GitConfig keeps
+    // them, as it only keeps the values read.
+    static final List<String> UNSUPPORTED_CONFIG_PREFIXES = List.of(
+            "color.decorate.", "log.decorate", "log.excludedecoration", "log.initialdecorationset",
+            "log.showsignature", "core.usereplacerefs", "extensions.");
+    private static final List<String> UNSUPPORTED_ENVIRONMENT_VARIABLES = List.of(
+            "GIT_OBJECT_DIRECTORY", "GIT_ALTERNATE_OBJECT_DIRECTORIES", "GIT_REPLACE_REF_BASE",
+            "GIT_SHALLOW_FILE", "GIT_GRAFT_FILE");
+
+    // The order of the names git tries for a revision, e.g., `main` is `refs/heads/main` unless
+    // there is a tag `main`.
+    private static final List<String> REVISION_RULES = List.of(
+            "%s", "refs/%s", "refs/tags/%s", "refs/heads/%s", "refs/remotes/%s", "refs/remotes/%s/HEAD");
+    // E.g., `main~2`, `HEAD^2` or `v1.0^^`.
+    private static final Pattern REVISION_SUFFIX = Pattern.compile("([~^])(\\d*)");
+    private static final Pattern TIMESTAMP_DATE = Pattern.compile("@(\\d+)");
+    private static final Pattern RELATIVE_DATE = Pattern.compile(
+            "(\\d+)[. ](second|minute|hour|day|week)s?[. ]ago", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ISO_DATE = Pattern.compile(
+            "(\\d{4})-(\\d{2})-(\\d{2})(?:[T ](\\d{2}):(\\d{2})(?::(\\d{2}))?(Z|[+-]\\d{2}:?\\d{2})?)?");
+
+    // The args of git-log which are supported, parsed.
+    private record Options(
+            // Revisions and `--all`, in order, as they are added to the walk in that order. Empty
+            // for HEAD.
+            List<String> revisions,
+            boolean isFirstParent,
+            int maxCount,
+            int skipCount,
+            String since,
+            String until,
+            boolean isColor) {
+    }
+
+    // A ref name which decorates a commit, e.g., `tag: v1.0`.
+    private record Decoration(String name, String color) {
+    }
+
+    private final GitObjectDatabase database;
+    private final GitRevisionWalk walk;
+    private final Options options;
+    private final Charset charset;
+    private final int minAbbreviationLength;
+    // Ref names of commits by hash, in the order git prints them.
+    private final Map<String, List<Decoration>> decorations;
+    private final List<TipCommit> tips;
+
+    private byte[] record = new byte[1024];
+    private int recordLength;
+
+    private record TipCommit(GitRevisionWalk.Commit commit, boolean isExcluded) {
+    }
+
+    private GitObjectLogSource(
+            GitObjectDatabase database,
+            GitRevisionWalk walk,
+            Options options,
+            Charset charset,
+            int minAbbreviationLength,
+            Map<String, List<Decoration>> decorations,
+            List<TipCommit> tips
+    ) {
+        this.database = database;
+        this.walk = walk;
+        this.options = options;
+        this.charset = charset;
+        this.minAbbreviationLength = minAbbreviationLength;
+        this.decorations = decorations;
+        this.tips = tips;
+    }
+
+    // Returns null when git-log is needed to print the history as asked (see the class comment),
+    // including when a revision is not found, so git-log tells as usual.
+    public static GitObjectLogSource open(String[] args, Caller caller, GitConfig gitConfig, Charset charset)
+            throws IOException {
+
+        Options options = parseOptions(args);
+        if (options == null || gitConfig == null || !isSupportedEnvironment(caller.environment())) {
+            return null;
+        }
+        for (String prefix : UNSUPPORTED_CONFIG_PREFIXES) {
+            if (gitConfig.hasKeysStartingWith(prefix)) {
+                return null;
+            }
+        }
+        Integer minAbbreviationLength = parseAbbreviationLength(gitConfig.get("core.abbrev"));
+        if (minAbbreviationLength == null) {
+            return null;
+        }
+
+        GitDirectory gitDirectory = GitDirectory.find(caller.workingDirectory(), caller.environment());
+        Path commonDir = gitDirectory.commonDir();
+        Path objectsDirectory = commonDir.resolve("objects");
+        // Worktrees, as `--all` includes the HEAD of each one, shallow clones and grafts, which
+        // change the parents, and alternates, which hold more objects.
+        if (!gitDirectory.gitDir().equals(commonDir)
+                || Files.isDirectory(commonDir.resolve("worktrees"))
+                || Files.exists(commonDir.resolve("shallow"))
+                || Files.exists(commonDir.resolve("info").resolve("grafts"))
+                || Files.exists(objectsDirectory.resolve("info").resolve("alternates"))
+                || Files.exists(objectsDirectory.resolve("info").resolve("http-alternates"))) {
+            return null;
+        }
+
+        long now = Instant.now().getEpochSecond();
+        ZoneId zone = options.since() != null || options.until() != null ? getZone(caller.environment()) : null;
+        Long maxAge = options.since() == null ? Long.valueOf(-1) : parseDate(options.since(), now, zone);
+        Long minAge = options.until() == null ? Long.valueOf(-1) : parseDate(options.until(), now, zone);
+        if (maxAge == null || minAge == null) {
+            return null;
+        }
+
+        GitRefs refs = GitRefs.read(gitDirectory);
+        // Replace refs swap commits for others.
+        if (refs.refs().keySet().stream().anyMatch(name -> name.startsWith("refs/replace/"))) {
+            return null;
+        }
+
+        GitObjectDatabase database = GitObjectDatabase.open(objectsDirectory);
+        boolean isOpened = false;
+        try {
+            GitRevisionWalk walk = new GitRevisionWalk(database, options.isFirstParent(), maxAge, minAge);
+            List<TipCommit> tips = new ArrayList<>();
+            if (options.revisions().isEmpty()) {
+                if (refs.headHash() == null) {
+                    return null;
+                }
+                tips.add(new TipCommit(walk.lookup(peel(refs.headHash(), database)), false));
+            }
+            // Git refuses revisions which are also files in the work tree, unless after `--`.
+            Path workTree = gitDirectory.gitDir().getFileName().toString().equals(".git")
+                    && !caller.workingDirectory().startsWith(gitDirectory.gitDir())
+                    ? caller.workingDirectory()
+                    : null;
+            for (String revision : options.revisions()) {
+                if (!addTips(revision, refs, database, walk, workTree, tips)) {
+                    return null;
+                }
+            }
+            GitObjectLogSource source = new GitObjectLogSource(database, walk, options, charset,
+                    minAbbreviationLength, getDecorations(refs, database, options.isColor()), tips);
+            isOpened = true;
+            return source;
+        } finally {
+            if (!isOpened) {
+                database.close();
+            }
+        }
+    }
+
+    @Override
+    public void read(Handler handler, BooleanSupplier isCancelled) throws IOException {
+        try {
+            for (TipCommit tip : tips) {
+                walk.add(tip.commit(), tip.isExcluded());
+            }
+            int skipCount = options.skipCount();
+            int printedCount = 0;
+            GitRevisionWalk.Commit commit;
+            while ((options.maxCount() < 0 || printedCount < options.maxCount())
+                    && !isCancelled.getAsBoolean()
+                    && (commit = walk.next()) != null) {
+                if (skipCount > 0) {
+                    skipCount--;
+                    continue;
+                }
+                writeRecord(commit);
+                handler.record(record, 0, recordLength);
+                printedCount++;
+            }
+        } finally {
+            database.close();
+        }
+    }
+
+    private static Options parseOptions(String[] args) {
+        List<String> revisions = new ArrayList<>();
+        boolean isFirstParent = false;
+        int maxCount = -1;
+        int skipCount = 0;
+        String since = null;
+        String until = null;
+        // Git-log is started with `--color=always`, which the args may override.
+        boolean isColor = true;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                int equals = arg.indexOf('=');
+                String name = arg.startsWith("--") && equals > 0 ? arg.substring(0, equals) : arg;
+                String value = equals > 0 ? arg.substring(equals + 1) : null;
+                if (!arg.startsWith("-")) {
+                    revisions.add(arg);
+                    continue;
+                }
+                switch (name) {
+                    case "--all" -> revisions.add(arg);
+                    case "--first-parent" -> isFirstParent = true;
+                    case "--color" -> isColor = value == null || value.equals("always");
+                    case "--no-color" -> isColor = false;
+                    case "-n", "--max-count" -> maxCount = Integer.parseInt(value != null ? value : args[++i]);
+                    case "--skip" -> skipCount = Integer.parseInt(value != null ? value : args[++i]);
+                    case "--since", "--after" -> since = value != null ? value : args[++i];
+                    case "--until", "--before" -> until = value != null ? value : args[++i];
+                    default -> {
+                        if (arg.matches("-n?\\d+")) {
+                            maxCount = Integer.parseInt(arg.substring(arg.startsWith("-n") ? 2 : 1));
+                        } else {
+                            return null;
+                        }
+                    }
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            return null;
+        }
+        return new Options(revisions, isFirstParent, maxCount, skipCount, since, until, isColor);
+    }
+
+    // The locale of the month names of `%b` in the date. Git prints them in the locale of LC_TIME.
+    private static boolean isSupportedEnvironment(Map<String, String> environment) {
+        for (String variable : UNSUPPORTED_ENVIRONMENT_VARIABLES) {
+            if (environment.containsKey(variable)) {
+                return false;
+            }
+        }
+        String locale = null;
+        for (String variable : List.of("LC_ALL", "LC_TIME", "LANG")) {
+            String value = environment.get(variable);
+            if (value != null && !value.isEmpty()) {
+                locale = value;
+                break;
+            }
+        }
+        return locale == null || locale.equals("C") || locale.startsWith("C.")
+                || locale.equals("POSIX") || locale.startsWith("en");
+    }
+
+    // The shortest `%h` from core.abbrev: -1 for the default of git, or null when unsupported.
+    private static Integer parseAbbreviationLength(String value) {
+        if (value == null || value.equalsIgnoreCase("auto")) {
+            return -1;
+        }
+        if (value.equalsIgnoreCase("no") || value.equalsIgnoreCase("false") || value.equalsIgnoreCase("off")) {
+            return 40;
+        }
+        try {
+            // Git refuses lengths under 4.
+            int length = Integer.parseInt(value);
+            return length < 4 ? null : Math.min(length, 40);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // The zone of dates without an offset, as git: from TZ, or the one of the system.
+    private static ZoneId getZone(Map<String, String> environment) {
+        String tz = environment.get("TZ");
+        if (tz == null || tz.isEmpty()) {
+            return ZoneId.systemDefault();
+        }
+        try {
+            return ZoneId.of(tz.startsWith(":") ? tz.substring(1) : tz);
+        } catch (DateTimeException e) {
+            // E.g., POSIX rules like `EST5EDT,M3.2.0,M11.1.0`.
+            return null;
+        }
+    }
+
+    // The timestamp of a date of `--since` or `--until`, or null when it is not one of the forms
+    // supported: `@<timestamp>`, `<n>.<unit>.ago` (seconds up to weeks, with dots or spaces) and
+    // ISO 8601 dates, with a time and an offset or not. As git, a date without a time keeps the
+    // time of the day of now.
+    static Long parseDate(String date, long now, ZoneId zone) {
+        String trimmed = date.strip();
+        Matcher matcher = TIMESTAMP_DATE.matcher(trimmed);
+        if (matcher.matches()) {
+            return Long.parseLong(matcher.group(1));
+        }
+        matcher = RELATIVE_DATE.matcher(trimmed);
+        if (matcher.matches()) {
+            long unit = switch (matcher.group(2).toLowerCase(Locale.ROOT)) {
+                case "second" -> 1;
+                case "minute" -> 60;
+                case "hour" -> 60 * 60;
+                case "day" -> 24 * 60 * 60;
+                default -> 7 * 24 * 60 * 60;
+            };
+            return now - Long.parseLong(matcher.group(1)) * unit;
+        }
+        matcher = ISO_DATE.matcher(trimmed);
+        if (!matcher.matches()) {
+            return null;
+        }
+        try {
+            LocalDate localDate = LocalDate.of(
+                    Integer.parseInt(matcher.group(1)),
+                    Integer.parseInt(matcher.group(2)),
+                    Integer.parseInt(matcher.group(3)));
+            String offset = matcher.group(7);
+            if (offset != null) {
+                LocalTime localTime = parseTime(matcher);
+                return OffsetDateTime.of(localDate, localTime, ZoneOffset.of(offset.length() == 5
+                        ? offset.substring(0, 3) + ":" + offset.substring(3)
+                        : offset)).toEpochSecond();
+            }
+            if (zone == null) {
+                return null;
+            }
+            LocalTime localTime = matcher.group(4) != null
+                    ? parseTime(matcher)
+                    : Instant.ofEpochSecond(now).atZone(zone).toLocalTime();
+            return ZonedDateTime.of(LocalDateTime.of(localDate, localTime), zone).toEpochSecond();
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    private static LocalTime parseTime(Matcher matcher) {
+        return LocalTime.of(
+                Integer.parseInt(matcher.group(4)),
+                Integer.parseInt(matcher.group(5)),
+                matcher.group(6) != null ? Integer.parseInt(matcher.group(6)) : 0);
+    }
+
+    // Adds the commits of a revision to the walk, or returns false when it is not supported, or
+    // not found. `--all` is all the refs, then HEAD. The work tree is null outside of one.
+    private static boolean addTips(
+            String revision,
+            GitRefs refs,
+            GitObjectDatabase database,
+            GitRevisionWalk walk,
+            Path workTree,
+            List<TipCommit> tips
+    ) throws IOException {
+        if (revision.equals("--all")) {
+            List<String> hashes = new ArrayList<>(refs.refs().values());
+            if (refs.headHash() != null) {
+                hashes.add(refs.headHash());
+            }
+            for (String hash : hashes) {
+                // Refs to other objects (e.g., a tag of a tree) have no history.
+                String commitHash = peel(hash, database);
+                if (commitHash != null) {
+                    tips.add(new TipCommit(walk.lookup(commitHash), false));
+                }
+            }
+            return true;
+        }
+        String[] sides = revision.split("\\.\\.", -1);
+        if (revision.contains("...") || sides.length > 2 || (workTree != null && Files.exists(workTree.resolve(revision)))) {
+            return false;
+        }
+        if (sides.length == 2) {
+            String excluded = resolve(sides[0].isEmpty() ? "HEAD" : sides[0], refs, database, walk);
+            String included = resolve(sides[1].isEmpty() ? "HEAD" : sides[1], refs, database, walk);
+            if (excluded == null || included == null) {
+                return false;
+            }
+            tips.add(new TipCommit(walk.lookup(excluded), true));
+            tips.add(new TipCommit(walk.lookup(included), false));
+            return true;
+        }
+        boolean isExcluded = revision.startsWith("^");
+        String hash = resolve(isExcluded ? revision.substring(1) : revision, refs, database, walk);
+        if (hash == null) {
+            return false;
+        }
+        tips.add(new TipCommit(walk.lookup(hash), isExcluded));
+        return true;
+    }
+
+    // The hash of the commit of a revision, e.g., `main~2`, or null.
+    private static String resolve(String revision, GitRefs refs, GitObjectDatabase database, GitRevisionWalk walk)
+            throws IOException {
+        int suffixStart = revision.length();
+        for (int i = 0; i < revision.length(); i++) {
+            char c = revision.charAt(i);
+            if (c == '~' || c == '^') {
+                suffixStart = i;
+                break;
+            }
+        }
+        String hash = resolveName(revision.substring(0, suffixStart), refs, database);
+        if (hash == null) {
+            return null;
+        }
+        hash = peel(hash, database);
+        Matcher matcher = REVISION_SUFFIX.matcher(revision);
+        for (int i = suffixStart; hash != null && i < revision.length(); i = matcher.end()) {
+            if (!matcher.find(i) || matcher.start() != i) {
+                // E.g., `v1.0^{commit}` or `main@{1}`.
+                return null;
+            }
+            int number = matcher.group(2).isEmpty() ? 1 : Integer.parseInt(matcher.group(2));
+            GitRevisionWalk.Commit commit = walk.lookup(hash);
+            if (matcher.group(1).equals("~")) {
+                for (int generation = 0; commit != null && generation < number; generation++) {
+                    commit = commit.getParents().length > 0 ? walk.lookup(commit.getParents()[0].getHash()) : null;
+                }
+            } else if (number > 0) {
+                commit = number <= commit.getParents().length ? commit.getParents()[number - 1] : null;
+            }
+            hash = commit != null ? commit.getHash() : null;
+        }
+        return hash;
+    }
+
+    // A full hash, HEAD, or the name of a ref. Null when not found, or when several refs match,
+    // for which git warns.
+    private static String resolveName(String name, GitRefs refs, GitObjectDatabase database) throws IOException {
+        if (name.equals("HEAD") || name.equals("@")) {
+            return refs.headHash();
+        }
+        if (name.length() == 40 && name.chars().allMatch(c -> (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+            return database.read(name) != null ? name : null;
+        }
+        if (name.isEmpty()) {
+            return null;
+        }
+        String hash = null;
+        for (String rule : REVISION_RULES) {
+            String refHash = refs.refs().get(rule.formatted(name));
+            if (refHash != null) {
+                if (hash != null) {
+                    return null;
+                }
+                hash = refHash;
+            }
+        }
+        return hash;
+    }
+
+    // The commit an annotated tag points to, through tags of tags. Null for other objects.
+    private static String peel(String hash, GitObjectDatabase database) throws IOException {
+        for (int depth = 0; depth < 10; depth++) {
+            GitObjectDatabase.GitObject object = database.read(hash);
+            if (object == null) {
+                return null;
+            }
+            if (object.type() == GitObjectDatabase.TYPE_COMMIT) {
+                return hash;
+            }
+            byte[] content = object.content();
+            if (object.type() != GitObjectDatabase.TYPE_TAG || !GitRevisionWalk.startsWith(content, 0, "object ")) {
+                return null;
+            }
+            hash = new String(content, 7, 40, StandardCharsets.ISO_8859_1);
+        }
+        return null;
+    }
+
+    // The ref names of `%d`, as git orders them: HEAD first, then the refs in reverse order of
+    // their names. When HEAD points to a branch, the two are printed as `HEAD -> main`.
+    private static Map<String, List<Decoration>> getDecorations(GitRefs refs, GitObjectDatabase database, boolean isColor)
+            throws IOException {
+        Map<String, List<Decoration>> decorations = new HashMap<>();
+        for (Map.Entry<String, String> ref : refs.refs().reversed().entrySet()) {
+            String name = ref.getKey();
+            Decoration decoration;
+            if (name.startsWith(BRANCH_PREFIX)) {
+                decoration = new Decoration(name.substring(BRANCH_PREFIX.length()), BRANCH_COLOR);
+            } else if (name.startsWith(REMOTE_BRANCH_PREFIX)) {
+                decoration = new Decoration(name.substring(REMOTE_BRANCH_PREFIX.length()), REMOTE_BRANCH_COLOR);
+            } else if (name.startsWith(TAG_PREFIX)) {
+                decoration = new Decoration("tag: " + name.substring(TAG_PREFIX.length()), TAG_COLOR);
+            } else if (name.equals(STASH_REF)) {
+                decoration = new Decoration(name, STASH_COLOR);
+            } else {
+                continue;
+            }
+            String hash = name.startsWith(TAG_PREFIX) ? peel(ref.getValue(), database) : ref.getValue();
+            if (hash != null) {
+                decorations.computeIfAbsent(hash, key -> new ArrayList<>()).add(decoration);
+            }
+        }
+        if (refs.headHash() != null) {
+            List<Decoration> headDecorations = decorations.computeIfAbsent(refs.headHash(), key -> new ArrayList<>());
+            String branch = refs.headRef() != null && refs.headRef().startsWith(BRANCH_PREFIX)
+                    ? refs.headRef().substring(BRANCH_PREFIX.length())
+                    : null;
+            Decoration head = new Decoration("HEAD", HEAD_COLOR);
+            if (branch != null && headDecorations.remove(new Decoration(branch, BRANCH_COLOR))) {
+                head = new Decoration("HEAD -> " + (isColor ? RESET + BRANCH_COLOR : "") + branch, HEAD_COLOR);
+            }
+            headDecorations.addFirst(head);
+        }
+        return decorations;
+    }
+
+    // The record as git-log prints it, without its newline.
+    private void writeRecord(GitRevisionWalk.Commit commit) throws IOException {
+        byte[] content = commit.getContent();
+        recordLength = 0;
+        appendAscii("\u001e");
+        appendAscii(commit.getHash());
+        appendAscii("\u001f");
+        appendAbbreviation(commit);
+        appendAscii("\u001f");
+        GitRevisionWalk.Commit[] parents = commit.getParents();
+        for (int i = 0; i < parents.length; i++) {
+            if (i > 0) {
+                appendAscii(" ");
+            }
+            appendAbbreviation(parents[i]);
+        }
+        appendAscii("\u001f");
+        // `%C(auto)` resets the color of what is before it.
+        if (options.isColor()) {
+            appendAscii(RESET);
+        }
+        appendDecorations(decorations.get(commit.getHash()));
+        appendAscii("\u001f");
+
+        int authorStart = -1;
+        int authorEnd = -1;
+        int committerStart = -1;
+        int committerEnd = -1;
+        Charset encoding = StandardCharsets.UTF_8;
+        int lineStart = 0;
+        while (lineStart < content.length && content[lineStart] != '\n') {
+            int lineEnd = GitRevisionWalk.indexOf(content, (byte) '\n', lineStart);
+            if (GitRevisionWalk.startsWith(content, lineStart, "author ")) {
+                authorStart = lineStart + "author ".length();
+                authorEnd = lineEnd;
+            } else if (GitRevisionWalk.startsWith(content, lineStart, "committer ")) {
+                committerStart = lineStart + "committer ".length();
+                committerEnd = lineEnd;
+            } else if (GitRevisionWalk.startsWith(content, lineStart, "encoding ")) {
+                encoding = getCharset(new String(content, lineStart + 9, lineEnd - lineStart - 9, StandardCharsets.US_ASCII));
+            }
+            lineStart = lineEnd + 1;
+        }
+        // The message is printed in the charset of the output.
+        boolean isReencoded = encoding != null && !encoding.equals(charset);
+        appendText(content, committerStart, getIdentNameEnd(content, committerStart, committerEnd), encoding, isReencoded);
+        appendAscii("\u001f");
+        appendText(content, authorStart, getIdentNameEnd(content, authorStart, authorEnd), encoding, isReencoded);
+        appendAscii("\u001f");
+        appendAscii(formatDate(content, authorStart, authorEnd));
+        appendAscii("\u001f");
+        appendSubject(content, lineStart + 1, encoding, isReencoded);
+        appendAscii("\u001e");
+    }
+
+    private void appendAbbreviation(GitRevisionWalk.Commit commit) throws IOException {
+        if (commit.getAbbreviationLength() == 0) {
+            commit.setAbbreviationLength(database.getAbbreviationLength(
+                    HexFormat.of().parseHex(commit.getHash()), minAbbreviationLength));
+        }
+        appendAscii(commit.getHash().substring(0, commit.getAbbreviationLength()));
+    }
+
+    private void appendDecorations(List<Decoration> commitDecorations) {
+        if (commitDecorations == null || commitDecorations.isEmpty()) {
+            return;
+        }
+        String prefix = " (";
+        for (Decoration decoration : commitDecorations) {
+            appendColored(prefix, COMMIT_COLOR);
+            appendColored(decoration.name(), decoration.color());
+            prefix = ", ";
+        }
+        appendColored(")", COMMIT_COLOR);
+    }
+
+    private void appendColored(String text, String color) {
+        if (options.isColor()) {
+            appendAscii(color);
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        appendBytes(bytes, 0, bytes.length);
+        if (options.isColor()) {
+            appendAscii(RESET);
+        }
+    }
+
+    // `%s`: the lines of the first paragraph of the message, joined by spaces.
+    private void appendSubject(byte[] content, int messageStart, Charset encoding, boolean isReencoded) {
+        int lineStart = messageStart;
+        // Leading blank lines are skipped.
+        while (lineStart < content.length) {
+            int lineEnd = GitRevisionWalk.indexOf(content, (byte) '\n', lineStart);
+            if (trimEnd(content, lineStart, lineEnd) > lineStart) {
+                break;
+            }
+            lineStart = lineEnd + 1;
+        }
+        int subjectStart = lineStart;
+        int subjectEnd = lineStart;
+        List<int[]> lines = new ArrayList<>();
+        while (lineStart < content.length) {
+            int lineEnd = GitRevisionWalk.indexOf(content, (byte) '\n', lineStart);
+            int trimmedEnd = trimEnd(content, lineStart, lineEnd);
+            if (trimmedEnd == lineStart) {
+                break;
+            }
+            lines.add(new int[]{lineStart, trimmedEnd});
+            subjectEnd = lineEnd;
+            lineStart = lineEnd + 1;
+        }
+        if (lines.size() == 1) {
+            appendText(content, subjectStart, lines.getFirst()[1], encoding, isReencoded);
+            return;
+        }
+        byte[] subject = new byte[Math.max(0, subjectEnd - subjectStart)];
+        int subjectLength = 0;
+        for (int[] line : lines) {
+            if (subjectLength > 0) {
+                subject[subjectLength++] = ' ';
+            }
+            System.arraycopy(content, line[0], subject, subjectLength, line[1] - line[0]);
+            subjectLength += line[1] - line[0];
+        }
+        appendText(subject, 0, subjectLength, encoding, isReencoded);
+    }
+
+    // Git trims spaces, tabs, and line feeds and carriage returns.
+    private static int trimEnd(byte[] content, int start, int end) {
+        while (end > start && (content[end - 1] == ' ' || content[end - 1] == '\t'
+                || content[end - 1] == '\n' || content[end - 1] == '\r')) {
+            end--;
+        }
+        return end;
+    }
+
+    // End of the name of an ident (e.g., `Name <email> 1700000000 +0100`), before the email.
+    private static int getIdentNameEnd(byte[] content, int start, int end) {
+        if (start < 0) {
+            return start;
+        }
+        int emailStart = start;
+        while (emailStart < end && content[emailStart] != '<') {
+            emailStart++;
+        }
+        if (emailStart == end) {
+            return start;
+        }
+        return trimEnd(content, start, emailStart);
+    }
+
+    // `%ad` in the format of GitLogRecordParser.DATE_OPTION, in the time zone of the author.
+    private static String formatDate(byte[] content, int start, int end) {
+        if (start < 0) {
+            return "";
+        }
+        long timestamp = GitRevisionWalk.parseIdentDate(content, start, end);
+        int offsetSeconds = 0;
+        int i = end - 1;
+        while (i > start && content[i] != ' ') {
+            i--;
+        }
+        if (end - i == 6 && (content[i + 1] == '+' || content[i + 1] == '-')) {
+            int hours = (content[i + 2] - '0') * 10 + content[i + 3] - '0';
+            int minutes = (content[i + 4] - '0') * 10 + content[i + 5] - '0';
+            offsetSeconds = (content[i + 1] == '-' ? -1 : 1) * (hours * 3600 + minutes * 60);
+        }
+        OffsetDateTime date;
+        try {
+            date = Instant.ofEpochSecond(timestamp).atOffset(ZoneOffset.ofTotalSeconds(offsetSeconds));
+        } catch (DateTimeException e) {
+            date = Instant.ofEpochSecond(timestamp).atOffset(ZoneOffset.UTC);
+        }
+        int day = date.getDayOfMonth();
+        return MONTHS[date.getMonthValue() - 1] + (day < 10 ? "/0" : "/") + day + "/" + date.getYear();
+    }
+
+    // Null when unknown to Java, in which case git leaves the message as it is, too.
+    private static Charset getCharset(String name) {
+        try {
+            return Charset.forName(name.strip());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private void appendText(byte[] bytes, int start, int end, Charset encoding, boolean isReencoded) {
+        if (start < 0 || end <= start) {
+            return;
+        }
+        if (isReencoded) {
+            byte[] reencoded = new String(bytes, start, end - start, encoding).getBytes(charset);
+            appendBytes(reencoded, 0, reencoded.length);
+        } else {
+            appendBytes(bytes, start, end - start);
+        }
+    }
+
+    private void appendAscii(String text) {
+        ensureRecordCapacity(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            record[recordLength++] = (byte) text.charAt(i);
+        }
+    }
+
+    private void appendBytes(byte[] bytes, int start, int length) {
+        ensureRecordCapacity(length);
+        System.arraycopy(bytes, start, record, recordLength, length);
+        recordLength += length;
+    }
+
+    private void ensureRecordCapacity(int extraLength) {
+        if (recordLength + extraLength > record.length) {
+            record = Arrays.copyOf(record, Math.max(record.length * 2, recordLength + extraLength));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package me.hernancerm;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+// The refs of a repository read without spawning git: HEAD, `packed-refs` and the loose refs
+// under `refs/`, which win over the packed ones. Symbolic refs (e.g., `refs/remotes/origin/HEAD`)
+// are resolved to the hash of their target, and dropped when it does not exist. Throws for the
+// reftable format, so the caller can fall back to asking git.
+//
+// Documentation: https://git-scm.com/docs/gitrepository-layout
+public record GitRefs(
+        // The branch HEAD points to (e.g., `refs/heads/main`), or null when detached.
+        String headRef,
+        // Null when HEAD points to a branch with no commits yet.
+        String headHash,
+        // Full name (e.g., `refs/heads/main`) to hash, sorted by name as git iterates them.
+        SortedMap<String, String> refs) {
+
+    private static final int MAX_SYMBOLIC_REF_DEPTH = 5;
+    private static final String SYMBOLIC_REF_PREFIX = "ref: ";
+
+    public static GitRefs read(GitDirectory gitDirectory) throws IOException {
+        Path commonDir = gitDirectory.commonDir();
+        if (Files.exists(commonDir.resolve("reftable"))) {
+            throw new IllegalStateException("The reftable format is not supported: " + commonDir);
+        }
+
+        // Hash, or `ref: <target>` for symbolic refs.
+        Map<String, String> values = new HashMap<>();
+        Path packedRefsFile = commonDir.resolve("packed-refs");
+        if (Files.isRegularFile(packedRefsFile)) {
+            for (String line : Files.readAllLines(packedRefsFile, StandardCharsets.UTF_8)) {
+                // Skip the header (`# pack-refs with: ...`) and the peeled tags (`^<hash>`).
+                if (line.startsWith("#") || line.startsWith("^") || line.length() < 42) {
+                    continue;
+                }
+                values.put(line.substring(41), line.substring(0, 40));
+            }
+        }
+        Path refsDirectory = commonDir.resolve("refs");
+        if (Files.isDirectory(refsDirectory)) {
+            try (Stream<Path> files = Files.walk(refsDirectory)) {
+                for (Path file : files.filter(Files::isRegularFile).toList()) {
+                    String name = commonDir.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+                    if (name.endsWith(".lock")) {
+                        continue;
+                    }
+                    String value = Files.readString(file, StandardCharsets.UTF_8).strip();
+                    if (value.startsWith(SYMBOLIC_REF_PREFIX) || isHash(value)) {
+                        values.put(name, value);
+                    }
+                }
+            }
+        }
+
+        SortedMap<String, String> refs = new TreeMap<>();
+        for (String name : values.keySet()) {
+            String hash = resolve(values, name);
+            if (hash != null) {
+                refs.put(name, hash);
+            }
+        }
+
+        String head = Files.readString(gitDirectory.gitDir().resolve("HEAD"), StandardCharsets.UTF_8).strip();
+        if (head.startsWith(SYMBOLIC_REF_PREFIX)) {
+            String headRef = head.substring(SYMBOLIC_REF_PREFIX.length());
+            return new GitRefs(headRef, refs.get(headRef), refs);
+        }
+        if (!isHash(head)) {
+            throw new IllegalStateException("Bad HEAD: " + head);
+        }
+        return new GitRefs(null, head, refs);
+    }
+
+    private static String resolve(Map<String, String> values, String name) {
+        String value = values.get(name);
+        for (int depth = 0; value != null && value.startsWith(SYMBOLIC_REF_PREFIX); depth++) {
+            if (depth == MAX_SYMBOLIC_REF_DEPTH) {
+                return null;
+            }
+            value = values.get(value.substring(SYMBOLIC_REF_PREFIX.length()));
+        }
+        return value;
+    }
+
+    private static boolean isHash(String value) {
+        if (value.length() != 40) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
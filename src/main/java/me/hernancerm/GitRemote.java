@@ -1,20 +1,81 @@
 package me.hernancerm;
 
+import java.util.Locale;
+
 public record GitRemote(
-        Platform platform,
+        GitHostingProvider provider,
+        // Host of the web URLs: with the port for an HTTP(S) remote, as SSH ports are not the
+        // ones of the web.
+        String host,
         String repositoryName,
+        // Path before the repository, e.g., `group/subgroup` in GitLab.
         String ownerName) {
 
-    public enum Platform {
-        BITBUCKET_ORG,
-        GITHUB_COM;
+    // Parses the URL of a remote, any of:
+    //   https://[<user>@]<host>[:<port>]/<owner>/<repo>[.git], also http://
+    //   ssh://[<user>@]<host>[:<port>]/<owner>/<repo>[.git], also git://
+    //   [<user>@]<host>:<owner>/<repo>[.git]
+    // Returns null for other URLs (e.g., a local path), or when the host is of no known provider.
+    public static GitRemote parse(String url, GitHostingProviders providers) {
+        String host;
+        String hostWithoutPort;
+        String path;
+        int schemeEnd = url.indexOf("://");
+        if (schemeEnd >= 0) {
+            String scheme = url.substring(0, schemeEnd).toLowerCase(Locale.ROOT);
+            boolean isWeb = scheme.equals("https") || scheme.equals("http");
+            if (!isWeb && !scheme.equals("ssh") && !scheme.equals("git+ssh") && !scheme.equals("git")) {
+                return null;
+            }
+            int authorityStart = schemeEnd + "://".length();
+            int pathStart = url.indexOf('/', authorityStart);
+            if (pathStart < 0) {
+                return null;
+            }
+            String authority = url.substring(authorityStart, pathStart);
+            // Without the user, e.g., `git@`.
+            authority = authority.substring(authority.lastIndexOf('@') + 1);
+            int portStart = authority.lastIndexOf(':');
+            hostWithoutPort = portStart < 0 ? authority : authority.substring(0, portStart);
+            host = isWeb ? authority : hostWithoutPort;
+            path = url.substring(pathStart + 1);
+        } else {
+            // Scp-like. As in git, a colon after a slash means a local path instead.
+            int colon = url.indexOf(':');
+            int slash = url.indexOf('/');
+            if (colon <= 0 || (slash >= 0 && slash < colon)) {
+                return null;
+            }
+            host = url.substring(url.lastIndexOf('@', colon) + 1, colon);
+            hostWithoutPort = host;
+            path = url.substring(colon + 1);
+        }
+
+        int pathStart = 0;
+        int pathEnd = path.length();
+        while (pathStart < pathEnd && path.charAt(pathStart) == '/') {
+            pathStart++;
+        }
+        while (pathEnd > pathStart && path.charAt(pathEnd - 1) == '/') {
+            pathEnd--;
+        }
+        if (path.startsWith(".git", pathEnd - ".git".length()) && pathEnd - ".git".length() > pathStart) {
+            pathEnd -= ".git".length();
+        }
+        int repositoryStart = path.lastIndexOf('/', pathEnd - 1) + 1;
+        if (repositoryStart <= pathStart + 1 || repositoryStart == pathEnd || hostWithoutPort.isEmpty()) {
+            // No owner or no repository.
+            return null;
+        }
 
-        public static Platform from(String host) {
-            return switch (host) {
-                case "bitbucket.org" -> BITBUCKET_ORG;
-                case "github.com" -> GITHUB_COM;
-                default -> null;
-            };
+        GitHostingProvider provider = providers.find(hostWithoutPort);
+        if (provider == null) {
+            return null;
         }
+        return new GitRemote(
+                provider,
+                host,
+                path.substring(repositoryStart, pathEnd),
+                path.substring(pathStart, repositoryStart - 1));
     }
 }
@@ -0,0 +1,330 @@
+package me.hernancerm;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+// Walk of the history in the order of git-log without ordering options: newest commit first by
+// committer date, and in the order they were reached for equal dates. The commits are read from
+// the GitObjectDatabase as they are reached, so the first ones are returned right away.
+//
+// It follows the walk of git (revision.c) for the options supported: exclusions (e.g., `^main`,
+// or the left side of `main..topic`), which make the walk go through all of the history which is
+// not excluded before returning any commit (see limit), `--first-parent`, `--since` (max age),
+// which stops walking past older commits, and `--until` (min age), which only hides the newer
+// commits.
+public class GitRevisionWalk {
+
+    private static final int SEEN = 1;
+    private static final int UNINTERESTING = 1 << 1;
+    // As git: how many commits are walked on after the last interesting one, in case a commit
+    // with a skewed date is still to come.
+    private static final int SLOP = 5;
+
+    // A commit reached by the walk, only read once it is queued. The content is dropped once
+    // the next commit is returned, or once it is known to be excluded.
+    public static final class Commit {
+
+        private final String hash;
+        private int flags;
+        // Null until read.
+        private Commit[] parents;
+        private long date;
+        private long order;
+        private byte[] content;
+        // Of `%h`, or 0 until computed.
+        private int abbreviationLength;
+
+        private Commit(String hash) {
+            this.hash = hash;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+
+        public Commit[] getParents() {
+            return parents;
+        }
+
+        public byte[] getContent() {
+            return content;
+        }
+
+        public int getAbbreviationLength() {
+            return abbreviationLength;
+        }
+
+        public void setAbbreviationLength(int abbreviationLength) {
+            this.abbreviationLength = abbreviationLength;
+        }
+    }
+
+    private final GitObjectDatabase database;
+    private final boolean isFirstParent;
+    // Seconds since the epoch, or -1 for none.
+    private final long maxAge;
+    private final long minAge;
+
+    private final Map<String, Commit> commits = new HashMap<>();
+    private final List<Commit> pending = new ArrayList<>();
+    private final PriorityQueue<Commit> queue = new PriorityQueue<>(
+            Comparator.comparingLong((Commit commit) -> -commit.date).thenComparingLong(commit -> commit.order));
+    private long nextOrder;
+    // Commits left after limit, when there are exclusions. Null otherwise.
+    private ArrayDeque<Commit> limited;
+    private Commit interestingCache;
+    private Commit returned;
+
+    public GitRevisionWalk(GitObjectDatabase database, boolean isFirstParent, long maxAge, long minAge) {
+        this.database = database;
+        this.isFirstParent = isFirstParent;
+        this.maxAge = maxAge;
+        this.minAge = minAge;
+    }
+
+    // The commit with the hash, read. Throws when it is not a commit.
+    public Commit lookup(String hash) throws IOException {
+        Commit commit = commits.computeIfAbsent(hash, Commit::new);
+        parse(commit);
+        return commit;
+    }
+
+    // Adds a tip of the history, or an exclusion, in the order of the args of git-log.
+    public void add(Commit commit, boolean isExcluded) {
+        if (isExcluded) {
+            commit.flags |= UNINTERESTING;
+            markParentsUninteresting(commit);
+            limited = new ArrayDeque<>();
+        }
+        pending.add(commit);
+    }
+
+    // Returns null after the last commit.
+    public Commit next() throws IOException {
+        if (returned != null) {
+            returned.content = null;
+        }
+        returned = nextCommit();
+        return returned;
+    }
+
+    private Commit nextCommit() throws IOException {
+        if (!pending.isEmpty()) {
+            for (Commit commit : pending) {
+                if ((commit.flags & SEEN) == 0) {
+                    commit.flags |= SEEN;
+                    enqueue(commit);
+                }
+            }
+            pending.clear();
+            if (limited != null) {
+                limit();
+            }
+        }
+        if (limited != null) {
+            Commit commit;
+            while ((commit = limited.poll()) != null) {
+                if ((commit.flags & UNINTERESTING) == 0) {
+                    return commit;
+                }
+                commit.content = null;
+            }
+            return null;
+        }
+        Commit commit;
+        while ((commit = queue.poll()) != null) {
+            if (maxAge != -1 && commit.date < maxAge) {
+                commit.content = null;
+                continue;
+            }
+            processParents(commit);
+            if (minAge != -1 && commit.date > minAge) {
+                commit.content = null;
+                continue;
+            }
+            return commit;
+        }
+        return null;
+    }
+
+    // Walks the history until only excluded commits are left (git: limit_list), as a commit is
+    // only known to be excluded once all of its children have been walked.
+    private void limit() throws IOException {
+        long date = Long.MAX_VALUE;
+        int slop = SLOP;
+        Commit commit;
+        while ((commit = queue.poll()) != null) {
+            if (commit == interestingCache) {
+                interestingCache = null;
+            }
+            if (maxAge != -1 && commit.date < maxAge) {
+                commit.flags |= UNINTERESTING;
+            }
+            processParents(commit);
+            if ((commit.flags & UNINTERESTING) != 0) {
+                commit.content = null;
+                markParentsUninteresting(commit);
+                slop = stillInteresting(date, slop);
+                if (slop > 0) {
+                    continue;
+                }
+                break;
+            }
+            if (minAge != -1 && commit.date > minAge) {
+                commit.content = null;
+                continue;
+            }
+            date = commit.date;
+            limited.add(commit);
+        }
+    }
+
+    private int stillInteresting(long date, int slop) {
+        Commit newest = queue.peek();
+        if (newest == null) {
+            return 0;
+        }
+        if (date <= newest.date || !isEverybodyUninteresting()) {
+            return SLOP;
+        }
+        return slop - 1;
+    }
+
+    private boolean isEverybodyUninteresting() {
+        if (interestingCache != null && (interestingCache.flags & UNINTERESTING) == 0) {
+            return false;
+        }
+        for (Commit commit : queue) {
+            if ((commit.flags & UNINTERESTING) == 0) {
+                interestingCache = commit;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void processParents(Commit commit) throws IOException {
+        if ((commit.flags & UNINTERESTING) != 0) {
+            // All the parents are excluded, even with `--first-parent`.
+            for (Commit parent : commit.parents) {
+                parent.flags |= UNINTERESTING;
+                parse(parent);
+                markParentsUninteresting(parent);
+                if ((parent.flags & SEEN) == 0) {
+                    parent.flags |= SEEN;
+                    enqueue(parent);
+                }
+            }
+            return;
+        }
+        for (Commit parent : commit.parents) {
+            parse(parent);
+            if ((parent.flags & SEEN) == 0) {
+                parent.flags |= SEEN;
+                enqueue(parent);
+            }
+            if (isFirstParent) {
+                break;
+            }
+        }
+    }
+
+    // Marks the ancestors already read as excluded. The others are marked as they are read.
+    private void markParentsUninteresting(Commit commit) {
+        if (commit.parents == null) {
+            return;
+        }
+        ArrayDeque<Commit> stack = new ArrayDeque<>();
+        for (Commit parent : commit.parents) {
+            stack.push(parent);
+        }
+        while (!stack.isEmpty()) {
+            Commit parent = stack.pop();
+            if ((parent.flags & UNINTERESTING) != 0) {
+                continue;
+            }
+            parent.flags |= UNINTERESTING;
+            if (parent.parents != null) {
+                for (Commit grandparent : parent.parents) {
+                    stack.push(grandparent);
+                }
+            }
+        }
+    }
+
+    private void enqueue(Commit commit) {
+        commit.order = nextOrder++;
+        queue.add(commit);
+    }
+
+    // Reads the parents and the committer date from the headers of the commit.
+    private void parse(Commit commit) throws IOException {
+        if (commit.parents != null) {
+            return;
+        }
+        GitObjectDatabase.GitObject object = database.read(commit.hash);
+        if (object == null || object.type() != GitObjectDatabase.TYPE_COMMIT) {
+            throw new IllegalStateException("Not a commit: " + commit.hash);
+        }
+        byte[] content = object.content();
+        List<Commit> parents = new ArrayList<>(2);
+        int lineStart = 0;
+        while (lineStart < content.length && content[lineStart] != '\n') {
+            int lineEnd = indexOf(content, (byte) '\n', lineStart);
+            if (startsWith(content, lineStart, "parent ")) {
+                String parentHash = new String(content, lineStart + 7, 40, StandardCharsets.ISO_8859_1);
+                parents.add(commits.computeIfAbsent(parentHash, Commit::new));
+            } else if (startsWith(content, lineStart, "committer ")) {
+                commit.date = parseIdentDate(content, lineStart, lineEnd);
+            }
+            lineStart = lineEnd + 1;
+        }
+        commit.parents = parents.toArray(new Commit[0]);
+        commit.content = content;
+    }
+
+    // The timestamp of an ident line, e.g., `committer Name <email> 1700000000 +0100`.
+    static long parseIdentDate(byte[] content, int lineStart, int lineEnd) {
+        int i = lineEnd - 1;
+        while (i > lineStart && content[i] != '>') {
+            i--;
+        }
+        i++;
+        while (i < lineEnd && content[i] == ' ') {
+            i++;
+        }
+        long date = 0;
+        while (i < lineEnd && content[i] >= '0' && content[i] <= '9') {
+            date = date * 10 + content[i++] - '0';
+        }
+        return date;
+    }
+
+    static int indexOf(byte[] bytes, byte b, int start) {
+        for (int i = start; i < bytes.length; i++) {
+            if (bytes[i] == b) {
+                return i;
+            }
+        }
+        return bytes.length;
+    }
+
+    static boolean startsWith(byte[] bytes, int start, String prefix) {
+        if (start + prefix.length() > bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (bytes[start + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
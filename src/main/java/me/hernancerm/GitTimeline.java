@@ -1,39 +1,87 @@
 package me.hernancerm;
 
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
-
-import org.jline.jansi.Ansi;
+import java.util.stream.Stream;
 
 public class GitTimeline implements Callable<Integer> {
 
-    private static final String NAME = "git-timeline";
-    private static final String VERSION = "2.2-SNAPSHOT";
+    static final String NAME = "git-timeline";
+    static final String VERSION = "2.2-SNAPSHOT";
+    private static final String STATS_FILE_OPTION_PREFIX = "--timeline-stats=";
+    private static final String REPOS_OPTION_PREFIX = "--timeline-repos=";
+    private static final String OUTPUT_OPTION_PREFIX = "--timeline-output=";
+    // Also read by the TimelineClient, which queries the width of its terminal for the daemon.
+    static final String TRUNCATE_OPTION = "--timeline-truncate";
+
+    // Ends the run before starting git-log, e.g., after printing the help. Unlike System.exit,
+    // it does not end the daemon.
+    private static class EarlyExitException extends RuntimeException {
+
+        private final int exitValue;
+
+        EarlyExitException(int exitValue) {
+            super(null, null, false, false);
+            this.exitValue = exitValue;
+        }
+    }
 
     private final String[] args;
     private final GitLogProcessBuilder gitLogProcessBuilder;
     private final GitLogFormatter gitLogFormatter;
+    private final Caller caller;
 
     public GitTimeline(
             String[] args,
             GitLogProcessBuilder gitLogProcessBuilder,
-            GitLogFormatter gitLogFormatter
+            GitLogFormatter gitLogFormatter,
+            Caller caller
     ) {
         this.args = args;
         this.gitLogProcessBuilder = gitLogProcessBuilder;
         this.gitLogFormatter = gitLogFormatter;
+        this.caller = caller;
     }
 
     @Override
     public Integer call() throws Exception {
-        return gitLogProcessBuilder.start(parseArgs(args), gitLogFormatter::format);
+        GitLogArgs gitLogArgs;
+        try {
+            gitLogArgs = parseArgs(args);
+        } catch (EarlyExitException e) {
+            return e.exitValue;
+        }
+        int exitValue = gitLogArgs.isFollowRefsEnabled()
+                ? new TimelineFollower(caller, gitLogProcessBuilder).run(gitLogArgs, gitLogFormatter::format)
+                : gitLogProcessBuilder.start(gitLogArgs, gitLogFormatter::format);
+        if (gitLogArgs.isStatsEnabled()) {
+            reportStats(gitLogArgs.statsFile());
+        }
+        return exitValue;
     }
 
     private GitLogArgs parseArgs(String[] args) {
         List<String> unparsedArgs = new ArrayList<>();
         var isGraphEnabled = false;
         var isPagerEnabled = true;
+        var isBuiltinPagerEnabled = false;
+        var isPipelineEnabled = false;
+        var isShardingEnabled = false;
+        var isInProcessEnabled = false;
+        var isGraphRendererEnabled = false;
+        var isCacheEnabled = false;
+        var isStatsEnabled = false;
+        var isFollowRefsEnabled = false;
+        var isJsonOutputEnabled = false;
+        var isColumnsEnabled = false;
+        var isTruncateEnabled = false;
+        Path statsFile = null;
+        List<Path> repositories = null;
         for (String arg : args) {
             switch (arg) {
                 case "--help":
@@ -59,29 +107,146 @@ public class GitTimeline implements Callable<Integer> {
                     // Consistent with: https://git-scm.com/docs/git
                     isPagerEnabled = false;
                     break;
+                case "--timeline-pager":
+                    isBuiltinPagerEnabled = true;
+                    break;
+                case "--timeline-pipeline":
+                    isPipelineEnabled = true;
+                    break;
+                case "--timeline-shards":
+                    isShardingEnabled = true;
+                    break;
+                case "--timeline-in-process":
+                    isInProcessEnabled = true;
+                    break;
+                case "--timeline-graph":
+                    isGraphRendererEnabled = true;
+                    break;
+                case "--timeline-cache":
+                    isCacheEnabled = true;
+                    break;
+                case "--timeline-cache-compact":
+                    handleCacheCompactOption();
+                    break;
+                case "--timeline-cache-clear":
+                    handleCacheClearOption();
+                    break;
+                case "--timeline-stats":
+                    isStatsEnabled = true;
+                    break;
+                case "--timeline-follow-refs":
+                    isFollowRefsEnabled = true;
+                    break;
+                case "--timeline-columns":
+                    isColumnsEnabled = true;
+                    break;
+                case TRUNCATE_OPTION:
+                    isTruncateEnabled = true;
+                    break;
+                case "--timeline-daemon":
+                    handleDaemonOption();
+                    break;
                 case "--graph":
                     unparsedArgs.add(arg);
                     isGraphEnabled = true;
                     break;
                 default:
-                    unparsedArgs.add(arg);
+                    if (arg.startsWith(STATS_FILE_OPTION_PREFIX)) {
+                        isStatsEnabled = true;
+                        statsFile = Path.of(arg.substring(STATS_FILE_OPTION_PREFIX.length()));
+                    } else if (arg.startsWith(REPOS_OPTION_PREFIX)) {
+                        repositories = parseRepositories(arg.substring(REPOS_OPTION_PREFIX.length()));
+                    } else if (arg.startsWith(OUTPUT_OPTION_PREFIX)) {
+                        isJsonOutputEnabled = parseOutputFormat(arg.substring(OUTPUT_OPTION_PREFIX.length()));
+                    } else {
+                        unparsedArgs.add(arg);
+                    }
                     break;
             }
         }
+        if (isJsonOutputEnabled) {
+            // No colors in the JSON, not even in the fields printed by git-log, like the ref
+            // names. It goes before the paths, if any, and after any other `--color`.
+            int pathsStart = unparsedArgs.indexOf("--");
+            unparsedArgs.add(pathsStart < 0 ? unparsedArgs.size() : pathsStart, "--no-color");
+            setAnsiEnabled(false);
+        }
         return new GitLogArgs(
                 unparsedArgs.toArray(new String[0]),
-                isPagerEnabled,
-                isGraphEnabled);
+                // The output goes on as the refs change, so it is not paged, like `tail -f`.
+                isPagerEnabled && !isFollowRefsEnabled,
+                // The built-in pager renders the text output only.
+                isBuiltinPagerEnabled && !isJsonOutputEnabled,
+                isGraphEnabled,
+                isPipelineEnabled,
+                isShardingEnabled,
+                isInProcessEnabled,
+                isGraphRendererEnabled,
+                isCacheEnabled,
+                isStatsEnabled,
+                isFollowRefsEnabled,
+                isJsonOutputEnabled,
+                isColumnsEnabled,
+                // Queried once, so a resize applies from the next run. JSON is not truncated.
+                isTruncateEnabled && !isJsonOutputEnabled ? caller.terminalWidth() : 0,
+                statsFile,
+                repositories);
+    }
+
+    // Returns whether the format is NDJSON, as opposed to the text.
+    private boolean parseOutputFormat(String format) {
+        return switch (format) {
+            case "text" -> false;
+            case "ndjson" -> true;
+            default -> throw new IllegalStateException(
+                    "Unknown format of " + OUTPUT_OPTION_PREFIX + " " + format + " (expected text or ndjson)");
+        };
+    }
+
+    // Each path is either a repository, or a directory whose subdirectories are repositories
+    // (e.g., a checkout of each repository of a product).
+    private List<Path> parseRepositories(String paths) {
+        List<Path> repositories = new ArrayList<>();
+        for (String path : paths.split(",")) {
+            if (path.isEmpty()) {
+                continue;
+            }
+            Path directory = caller.workingDirectory().resolve(path).normalize();
+            if (GitDirectory.isRepository(directory)) {
+                repositories.add(directory);
+                continue;
+            }
+            if (!Files.isDirectory(directory)) {
+                throw new IllegalStateException("Not a directory: " + directory);
+            }
+            try (Stream<Path> subdirectories = Files.list(directory)) {
+                List<Path> found = subdirectories
+                        .filter(Files::isDirectory)
+                        .filter(GitDirectory::isRepository)
+                        .sorted()
+                        .toList();
+                if (found.isEmpty()) {
+                    throw new IllegalStateException("No git repositories in: " + directory);
+                }
+                repositories.addAll(found);
+            } catch (IOException e) {
+                throw new RuntimeException("Error listing git repositories in: " + directory, e);
+            }
+        }
+        if (repositories.isEmpty()) {
+            throw new IllegalStateException("No git repositories given to: " + REPOS_OPTION_PREFIX);
+        }
+        return repositories;
     }
 
     private void setAnsiEnabled(boolean enabled) {
-        Ansi.setEnabled(enabled);
         AnsiUtils.setEnabled(enabled);
     }
 
     private void handleHelpOption() {
-        System.out.println(NAME + " " + VERSION);
-        System.out.println("""
+        PrintStream stdout = getStdout();
+        stdout.println(NAME + " " + VERSION);
+        stdout.println("""
                 A small wrapper for git-log which improves readability.
 
                     -h, --help
@@ -93,13 +258,145 @@ public class GitTimeline implements Callable<Integer> {
                         Display the version of git-timeline.
 
                     -P, --no-pager
-                        Disable paging.""");
-        System.exit(0);
+                        Disable paging.
+
+                    --timeline-pager
+                        Page with the built-in pager instead of GIT_PAGER, core.pager or
+                        PAGER. It only reads and formats as much of the output of git-log as
+                        is scrolled through, so the first page of a big history is fast. Keys
+                        as in less: j/k, space/b, d/u, g/G and q.
+
+                    --timeline-pipeline
+                        Read, format and write the output of git-log in separate stages, so
+                        formatting uses the spare cores. Useful on big histories.
+
+                    --timeline-shards
+                        Print the history with several git-log processes in parallel, each one
+                        printing a shard of consecutive commits, so reading the commits uses the
+                        spare cores. The output is the same. Only used with a commit-graph (see
+                        git commit-graph) and when all the options can be sharded, e.g., not
+                        with --graph, --follow nor the options which print diffs.
+
+                    --timeline-in-process
+                        Walk the history and print it without git-log, reading the refs and
+                        the objects (packfiles and loose objects) in-process. Only used with
+                        revisions, ranges like main..topic, --all, --first-parent, -n, --skip,
+                        --since and --until. Git-log prints the history otherwise, e.g., for
+                        paths or other options, shallow clones, worktrees or replace refs.
+
+                    --timeline-graph
+                        Draw the graph of --graph in-process from the commit-graph (see git
+                        commit-graph), which is faster than git on histories with many branches
+                        side by side. Git draws it without a commit-graph, when a tip is not in
+                        it yet, or with options which change the parents shown (e.g., paths).
+                        Where lanes cross or merge into another lane, the graph may be drawn
+                        differently than by git.
+
+                    --timeline-cache
+                        Cache the fields of commits which never change (names, dates and
+                        subjects) under .git/timeline-cache, so git-log prints less of each
+                        commit. The first run fills the cache.
+
+                    --timeline-cache-compact
+                        Evict the commits no longer reachable from any ref from the cache.
+
+                    --timeline-cache-clear
+                        Delete the cache.
+
+                    --timeline-repos=<path>[,<path>...]
+                        Merge the histories of several repositories into one timeline, newest
+                        commit first (by committer date), with a column naming the repository
+                        of each commit. A path is either a repository or a directory of
+                        repositories. The options of git-log apply to each repository, e.g.,
+                        `-n 10` prints up to 10 commits of each. Not supported with --graph.
+
+                    --timeline-follow-refs
+                        After printing the history, wait for the refs to change (e.g., a
+                        commit, a fetch or a rebase) and print only the new commits, like
+                        tail -f. Tells how many of the commits printed are gone when the
+                        history is rewritten (e.g., a force push). Disables paging.
+
+                    --timeline-output=<format>
+                        Print the history as text (the default) or as ndjson: a JSON object per
+                        line, for scripts, with the fields of each commit (hashes, parents,
+                        names, date, subject and ref names) and the URLs of the commit and of
+                        the issues and PRs it mentions, without colors nor hyperlinks. With
+                        --graph, the lines of connectors are objects of their own.
+
+                    --timeline-columns
+                        Align the dates and the author names in columns, as wide as the widest
+                        value of the last 256 commits, so the output streams without waiting
+                        for the whole history. Names wider than 24 columns are truncated. The
+                        width counts East Asian wide characters (e.g., CJK) as two columns.
+
+                    --timeline-truncate
+                        Truncate the lines to the width of the terminal, ending them with ..,
+                        so they are not wrapped, e.g., by the pager. The width is read once,
+                        when git-timeline starts. Only when stdout is a terminal.
+
+                    --timeline-stats[=<file>]
+                        Report where the time goes (reading git-log, parsing, formatting and
+                        writing), time to first line, throughput and bytes in and out. Print
+                        it to stderr, or write it as JSON to the file.
+
+                    --timeline-daemon
+                        Run the daemon in the foreground. With the env var
+                        GIT_TIMELINE_DAEMON=1, git-timeline runs in a daemon which stays warm
+                        between runs, and starts it when it is not running.""");
+        stdout.flush();
+        throw new EarlyExitException(0);
+    }
+
+    private void handleCacheCompactOption() {
+        try {
+            throw new EarlyExitException(gitLogProcessBuilder.compactCommitCache());
+        } catch (IOException | InterruptedException e) {
+            throw new RuntimeException("Error compacting the git-timeline cache", e);
+        }
+    }
+
+    private void handleCacheClearOption() {
+        try {
+            throw new EarlyExitException(gitLogProcessBuilder.clearCommitCache());
+        } catch (IOException e) {
+            throw new RuntimeException("Error clearing the git-timeline cache", e);
+        }
+    }
+
+    private void handleDaemonOption() {
+        try (TimelineDaemon daemon = TimelineDaemon.open(TimelineDaemon.getSocketPath(caller.environment()))) {
+            daemon.serve();
+        } catch (IOException e) {
+            throw new RuntimeException("Error running the git-timeline daemon", e);
+        }
+        throw new EarlyExitException(0);
+    }
+
+    private void reportStats(Path statsFile) {
+        TimelineStats stats = gitLogProcessBuilder.getStats();
+        if (statsFile == null) {
+            PrintStream stderr = new PrintStream(caller.stderr(), false);
+            stats.print(stderr);
+            stderr.flush();
+            return;
+        }
+        try {
+            stats.writeJson(caller.workingDirectory().resolve(statsFile));
+        } catch (IOException e) {
+            throw new RuntimeException("Error writing the git-timeline stats to: " + statsFile, e);
+        }
     }
 
     private void handleVersionOption() {
-        System.out.println(NAME + " " + VERSION);
-        System.exit(0);
+        PrintStream stdout = getStdout();
+        stdout.println(NAME + " " + VERSION);
+        stdout.flush();
+        throw new EarlyExitException(0);
+    }
+
+    // Not closed, as that would close the stdout of the caller.
+    private PrintStream getStdout() {
+        return new PrintStream(caller.stdout(), false);
     }
 
 }
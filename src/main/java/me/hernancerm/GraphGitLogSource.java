@@ -0,0 +1,158 @@
+package me.hernancerm;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Pattern;
+
+// Source which draws the graph of `--graph` in-process, for a git-log which prints the commits
+// without it, in the same order (see getFlatArgs). The parents of each commit are looked up in
+// the CommitGraph and the lanes are drawn by the GitGraphRenderer, so the records look as if
+// git-log printed them with `--graph`: the connector rows are passed through, and the prefix of
+// each commit goes before its record.
+//
+// The drawing of git gets slow as the branches side by side pile up: with a couple hundred, it
+// takes 10 times as long as printing the same commits without the graph. The graph of git stays
+// for the options which make it rewrite the parents of the commits printed (e.g., paths,
+// `--author` or a range like `main..topic`), as only git knows the rewritten parents.
+public class GraphGitLogSource implements GitLogSource {
+
+    // Options which select the commits by their refs, passed to git-rev-parse to get the tips.
+    private static final Set<String> REF_OPTIONS = Set.of("--all", "--branches", "--tags", "--remotes");
+    private static final Set<String> REF_OPTIONS_WITH_VALUE = Set.of(
+            "--branches", "--tags", "--remotes", "--glob", "--exclude");
+    // Options which select or order the commits without rewriting parents.
+    private static final Set<String> ORDER_OPTIONS = Set.of("--date-order", "--author-date-order", "--topo-order");
+    private static final Set<String> WALK_OPTIONS_WITH_VALUE = Set.of("-n", "--max-count", "--skip");
+    // E.g., `-10` or `-n10`.
+    private static final Pattern MAX_COUNT_OPTION = Pattern.compile("-n?\\d+");
+
+    private final GitLogSource source;
+    private final CommitGraph commitGraph;
+    private final boolean isFirstParent;
+    private final GitGraphRenderer renderer = new GitGraphRenderer();
+
+    private final StringBuilder rows = new StringBuilder();
+    private final StringBuilder prefix = new StringBuilder();
+    private int[] parents = new int[2];
+    private byte[] graphLine = new byte[1024];
+
+    public GraphGitLogSource(GitLogSource source, CommitGraph commitGraph, boolean isFirstParent) {
+        this.source = source;
+        this.commitGraph = commitGraph;
+        this.isFirstParent = isFirstParent;
+    }
+
+    // The revisions and ref options to resolve to the tips of the history, which must all be in
+    // the commit-graph. Null when any option is not known to leave the parents as they are, in
+    // which case git draws the graph. Revisions may still turn out to be paths, or exclusions
+    // like `^main`, which git-rev-parse tells.
+    public static List<String> getRevisionArgs(String[] args) {
+        List<String> revisionArgs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            int equals = arg.indexOf('=');
+            String name = equals < 0 ? arg : arg.substring(0, equals);
+            if (!arg.startsWith("-")) {
+                revisionArgs.add(arg);
+            } else if (equals < 0 ? REF_OPTIONS.contains(arg) : REF_OPTIONS_WITH_VALUE.contains(name)) {
+                revisionArgs.add(arg);
+            } else if (WALK_OPTIONS_WITH_VALUE.contains(name)) {
+                if (equals < 0 && ++i == args.length) {
+                    return null;
+                }
+            } else if (!arg.equals("--graph") && !arg.equals("--first-parent") && !ORDER_OPTIONS.contains(arg)
+                    && !MAX_COUNT_OPTION.matcher(arg).matches() && !GitLogShards.isDisplayOption(arg)) {
+                return null;
+            }
+        }
+        return revisionArgs;
+    }
+
+    // The args of git-log without `--graph`. It implies `--topo-order`, unless another order
+    // is given, which is then kept.
+    public static String[] getFlatArgs(String[] args) {
+        List<String> flatArgs = new ArrayList<>(Arrays.asList(args));
+        flatArgs.remove("--graph");
+        if (flatArgs.stream().noneMatch(ORDER_OPTIONS::contains)) {
+            flatArgs.add(0, "--topo-order");
+        }
+        return flatArgs.toArray(new String[0]);
+    }
+
+    public static boolean isFirstParent(String[] args) {
+        return Arrays.asList(args).contains("--first-parent");
+    }
+
+    @Override
+    public void read(Handler handler, BooleanSupplier isCancelled) throws IOException {
+        source.read(new Handler() {
+            @Override
+            public void passThrough(ByteBuffer bytes) throws IOException {
+                handler.passThrough(bytes);
+            }
+
+            @Override
+            public void record(byte[] line, int recordStart, int length) throws IOException {
+                int commit = findCommit(line, recordStart, length);
+                // A commit missing from the commit-graph ends its lane, as it has no parents.
+                int parentCount = 0;
+                if (commit >= 0) {
+                    parentCount = isFirstParent
+                            ? Math.min(1, commitGraph.getParentCount(commit))
+                            : commitGraph.getParentCount(commit);
+                    if (parents.length < parentCount) {
+                        parents = new int[parentCount];
+                    }
+                    for (int i = 0; i < parentCount; i++) {
+                        parents[i] = commitGraph.getParent(commit, i);
+                    }
+                }
+                rows.setLength(0);
+                prefix.setLength(0);
+                renderer.render(commit, parents, parentCount, rows, prefix);
+                if (!rows.isEmpty()) {
+                    ensureGraphLineCapacity(rows.length());
+                    int rowsLength = appendAscii(rows, 0);
+                    handler.passThrough(ByteBuffer.wrap(graphLine, 0, rowsLength));
+                }
+                // The prefix replaces whatever was before the record, which is nothing without
+                // `--graph`.
+                int graphLineLength = prefix.length() + length - recordStart;
+                ensureGraphLineCapacity(graphLineLength);
+                int prefixLength = appendAscii(prefix, 0);
+                System.arraycopy(line, recordStart, graphLine, prefixLength, length - recordStart);
+                handler.record(graphLine, prefixLength, graphLineLength);
+            }
+        }, isCancelled);
+    }
+
+    private void ensureGraphLineCapacity(int capacity) {
+        if (graphLine.length < capacity) {
+            graphLine = new byte[Math.max(capacity, graphLine.length * 2)];
+        }
+    }
+
+    // The graph is ASCII, including its escape sequences, and so is the start of any charset
+    // of git-log.
+    private int appendAscii(CharSequence chars, int start) {
+        for (int i = 0; i < chars.length(); i++) {
+            graphLine[start + i] = (byte) chars.charAt(i);
+        }
+        return start + chars.length();
+    }
+
+    // Position of the commit of the record in the commit-graph, or -1.
+    private int findCommit(byte[] line, int recordStart, int length) {
+        int hashStart = recordStart + 1;
+        int hashEnd = hashStart + commitGraph.getHashLength() * 2;
+        if (hashEnd >= length || line[hashEnd] != GitLogRecordParser.FIELD_SEPARATOR) {
+            return -1;
+        }
+        return commitGraph.findPosition(line, hashStart);
+    }
+}
@@ -0,0 +1,215 @@
+package me.hernancerm;
+
+import me.hernancerm.GitHostingProvider.Url;
+
+// Formats commit hashes, issue keys and PR numbers as hyperlinks to the hosting provider of a
+// remote (see GitHostingProvider). The URLs are resolved once per remote, and each line is
+// scanned once, left to right, skipping the regions already hyperlinked and the other escape
+// sequences. E.g., with GitHub:
+//
+//   #<number>  E.g.: #123  https://github.com/<owner>/<repo>/issues/123
+public class Linkifier {
+
+    private static final char ESC = '\033';
+
+    // Receives each link found in a line: the URL has the value range of the line, and the text
+    // is the text range of the line, e.g., `#123` for `.../issues/123`.
+    public interface LinkHandler {
+
+        void link(Url url, CharSequence line, int valueStart, int valueEnd, int textStart, int textEnd);
+    }
+
+    // Links nothing, e.g., when there is no remote.
+    public static final Linkifier NONE = new Linkifier(null, null, null, null, null);
+
+    private final GitRemote remote;
+    private final Url commitUrl;
+    // For `<key>`, like the keys of Jira.
+    private final Url trackerKeyUrl;
+    // For `#<number>`.
+    private final Url numberUrl;
+    // For `!<number>`.
+    private final Url bangNumberUrl;
+
+    private Linkifier(
+            GitRemote remote,
+            Url commitUrl,
+            Url trackerKeyUrl,
+            Url numberUrl,
+            Url bangNumberUrl
+    ) {
+        this.remote = remote;
+        this.commitUrl = commitUrl;
+        this.trackerKeyUrl = trackerKeyUrl;
+        this.numberUrl = numberUrl;
+        this.bangNumberUrl = bangNumberUrl;
+    }
+
+    public static Linkifier of(GitRemote remote) {
+        if (remote == null) {
+            return NONE;
+        }
+        GitHostingProvider provider = remote.provider();
+        Url issueUrl = resolve(provider.issueUrl(), remote);
+        Url pullRequestUrl = resolve(provider.pullRequestUrl(), remote);
+        return new Linkifier(
+                remote,
+                resolve(provider.commitUrl(), remote),
+                resolve(provider.trackerKeyUrl(), remote),
+                issueUrl != null ? issueUrl : pullRequestUrl,
+                issueUrl != null ? pullRequestUrl : null);
+    }
+
+    private static Url resolve(GitHostingProvider.UrlTemplate urlTemplate, GitRemote remote) {
+        return urlTemplate == null ? null : urlTemplate.resolve(remote);
+    }
+
+    public GitRemote remote() {
+        return remote;
+    }
+
+    // Null when the provider has no URLs of commits.
+    public Url commitUrl() {
+        return commitUrl;
+    }
+
+    public void appendCommit(StringBuilder output, String fullHash, String title) {
+        if (commitUrl == null || !AnsiUtils.isEnabled()) {
+            output.append(title);
+            return;
+        }
+        AnsiUtils.appendHyperlink(output, commitUrl, fullHash, 0, fullHash.length(), title, 0, title.length());
+    }
+
+    // Ref names only hold tracker keys, e.g., in branch names like `feature/ABC-123`.
+    public void appendRefNames(StringBuilder output, CharSequence refNames) {
+        append(output, refNames, trackerKeyUrl, null, null);
+    }
+
+    public void appendSubjectLine(StringBuilder output, CharSequence subjectLine) {
+        append(output, subjectLine, trackerKeyUrl, numberUrl, bangNumberUrl);
+    }
+
+    // The links which appendRefNames would add, even with the ANSI escapes disabled.
+    public void findRefNamesLinks(CharSequence refNames, LinkHandler linkHandler) {
+        findLinks(refNames, trackerKeyUrl, null, null, linkHandler);
+    }
+
+    // The links which appendSubjectLine would add, even with the ANSI escapes disabled.
+    public void findSubjectLineLinks(CharSequence subjectLine, LinkHandler linkHandler) {
+        findLinks(subjectLine, trackerKeyUrl, numberUrl, bangNumberUrl, linkHandler);
+    }
+
+    private void append(
+            StringBuilder output,
+            CharSequence line,
+            Url trackerKeyUrl,
+            Url numberUrl,
+            Url bangNumberUrl
+    ) {
+        if ((trackerKeyUrl == null && numberUrl == null) || !AnsiUtils.isEnabled()) {
+            output.append(line);
+            return;
+        }
+        HyperlinkAppender hyperlinkAppender = new HyperlinkAppender(output);
+        findLinks(line, trackerKeyUrl, numberUrl, bangNumberUrl, hyperlinkAppender);
+        output.append(line, hyperlinkAppender.pending, line.length());
+    }
+
+    private static void findLinks(
+            CharSequence line,
+            Url trackerKeyUrl,
+            Url numberUrl,
+            Url bangNumberUrl,
+            LinkHandler linkHandler
+    ) {
+        int length = line.length();
+        int i = 0;
+        while (i < length) {
+            char c = line.charAt(i);
+            if (c == ESC) {
+                i = skipEscapeSequence(line, i);
+            } else if (trackerKeyUrl != null && isUppercase(c)) {
+                // <key>: [A-Z]+-\d+, unless followed by `.\d`, which is rather a version.
+                int keyStart = i;
+                while (i < length && isUppercase(line.charAt(i))) {
+                    i++;
+                }
+                if (i + 1 < length && line.charAt(i) == '-' && isDigit(line.charAt(i + 1))) {
+                    int numberStart = i + 1;
+                    int keyEnd = skipDigits(line, numberStart);
+                    if (!(keyEnd + 1 < length && line.charAt(keyEnd) == '.' && isDigit(line.charAt(keyEnd + 1)))) {
+                        linkHandler.link(trackerKeyUrl, line, keyStart, keyEnd, keyStart, keyEnd);
+                    }
+                    i = keyEnd;
+                }
+            } else if ((c == '#' || c == '!') && i + 1 < length && isDigit(line.charAt(i + 1))) {
+                // #\d+ or !\d+
+                Url url = c == '#' ? numberUrl : bangNumberUrl;
+                int numberEnd = skipDigits(line, i + 1);
+                if (url != null) {
+                    linkHandler.link(url, line, i + 1, numberEnd, i, numberEnd);
+                }
+                i = numberEnd;
+            } else {
+                i++;
+            }
+        }
+    }
+
+    // Hyperlinks each link, and copies the text in between as it is.
+    private static class HyperlinkAppender implements LinkHandler {
+
+        private final StringBuilder output;
+        // Start of the text not yet copied to the output.
+        private int pending;
+
+        HyperlinkAppender(StringBuilder output) {
+            this.output = output;
+        }
+
+        @Override
+        public void link(Url url, CharSequence line, int valueStart, int valueEnd, int textStart, int textEnd) {
+            output.append(line, pending, textStart);
+            AnsiUtils.appendHyperlink(output, url, line, valueStart, valueEnd, line, textStart, textEnd);
+            pending = textEnd;
+        }
+    }
+
+    // Returns the index after the escape sequence starting at the index. A hyperlink is skipped
+    // as a whole, from its opening sequence to its closing one, so its title is not linked again.
+    private static int skipEscapeSequence(CharSequence line, int start) {
+        int end = AnsiUtils.skipEscapeSequence(line, start);
+        boolean isHyperlinkStart = end - start > "\033]8;;\007".length()
+                && line.charAt(start + 1) == ']'
+                && line.charAt(start + 2) == '8'
+                && line.charAt(start + 3) == ';';
+        if (!isHyperlinkStart) {
+            return end;
+        }
+        // Skip the title and the closing sequence `ESC]8;;BEL`.
+        int length = line.length();
+        for (int i = end; i + 1 < length; i++) {
+            if (line.charAt(i) == ESC && line.charAt(i + 1) == ']') {
+                return AnsiUtils.skipOscSequence(line, i);
+            }
+        }
+        return length;
+    }
+
+    private static int skipDigits(CharSequence line, int start) {
+        int i = start;
+        while (i < line.length() && isDigit(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isUppercase(char c) {
+        return c >= 'A' && c <= 'Z';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
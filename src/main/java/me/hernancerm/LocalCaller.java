@@ -0,0 +1,96 @@
+package me.hernancerm;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import org.jline.terminal.Terminal;
+import org.jline.terminal.TerminalBuilder;
+
+// This process as the caller: git-timeline run from the command line.
+public class LocalCaller implements Caller {
+
+    public static final LocalCaller INSTANCE = new LocalCaller();
+
+    private final OutputStream stdout = new FileOutputStream(FileDescriptor.out);
+    private final OutputStream stderr = new FileOutputStream(FileDescriptor.err);
+
+    private LocalCaller() {
+    }
+
+    @Override
+    public Path workingDirectory() {
+        return Path.of("").toAbsolutePath();
+    }
+
+    @Override
+    public Map<String, String> environment() {
+        return System.getenv();
+    }
+
+    @Override
+    public boolean isStdoutTerminal() {
+        return System.console() != null && System.console().isTerminal();
+    }
+
+    // Includes the startup of the JVM.
+    @Override
+    public Instant startInstant() {
+        return ProcessHandle.current().info().startInstant().orElseGet(Instant::now);
+    }
+
+    @Override
+    public OutputStream stdout() {
+        // Lines printed through System.out go first.
+        System.out.flush();
+        return stdout;
+    }
+
+    @Override
+    public OutputStream stderr() {
+        System.err.flush();
+        return stderr;
+    }
+
+    // The working directory and the environment are already the ones of this process.
+    @Override
+    public Process start(ProcessBuilder processBuilder) throws IOException {
+        return processBuilder.start();
+    }
+
+    @Override
+    public Process startPager(List<String> command) throws IOException {
+        ProcessBuilder pagerProcessBuilder = new ProcessBuilder(command);
+        pagerProcessBuilder.redirectOutput(ProcessBuilder.Redirect.INHERIT);
+        pagerProcessBuilder.redirectError(ProcessBuilder.Redirect.INHERIT);
+        return pagerProcessBuilder.start();
+    }
+
+    @Override
+    public Terminal openTerminal() throws IOException {
+        Terminal terminal = TerminalBuilder.builder().system(true).dumb(true).build();
+        // A dumb terminal cannot move the cursor, e.g., when there is no terminal.
+        if (terminal.getType().startsWith(Terminal.TYPE_DUMB)) {
+            terminal.close();
+            return null;
+        }
+        return terminal;
+    }
+
+    @Override
+    public int terminalWidth() {
+        if (!isStdoutTerminal()) {
+            return 0;
+        }
+        try (Terminal terminal = TerminalBuilder.builder().system(true).dumb(true).build()) {
+            return Math.max(terminal.getWidth(), 0);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
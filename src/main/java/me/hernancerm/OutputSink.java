@@ -0,0 +1,22 @@
+package me.hernancerm;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+// Destination of the lines printed by git-timeline, e.g., the stdin of the pager or stdout.
+public interface OutputSink extends AutoCloseable {
+
+    // Encodes the line in the charset of the sink, which is the one of the git-log output.
+    void println(CharSequence line) throws IOException;
+
+    // Writes bytes already encoded, e.g., the lines of git-log which are copied as they are.
+    void write(ByteBuffer bytes) throws IOException;
+
+    // Writes any buffered output. Closing the sink flushes it too, so no output is lost.
+    // A reader which went away (broken pipe) is not an error: the sink discards the output
+    // from then on and lets its owner know, so it can stop producing more.
+    void flush();
+
+    @Override
+    void close();
+}
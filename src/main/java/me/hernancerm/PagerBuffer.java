@@ -0,0 +1,170 @@
+package me.hernancerm;
+
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Lines of the output of git-log kept by the built-in pager (TimelinePager), as printed by
+// git-log: they are only parsed and formatted once on screen. The bytes are packed into chunks,
+// with an index of where each line is, so a line costs its bytes and 16 bytes of index.
+//
+// Filled by the reader of git-log, which is held back once it is as far ahead of the screen as
+// the pager asks for. git-log then blocks on the full pipe, so it does not walk the history
+// further than what is viewed.
+public class PagerBuffer {
+
+    private static final int CHUNK_SIZE = 256 * 1024;
+
+    // A line without its newline. Its record starts at `recordStart`, or -1 when it has none.
+    public record Line(byte[] bytes, int recordStart) {}
+
+    private final List<byte[]> chunks = new ArrayList<>();
+    private int chunkPosition = CHUNK_SIZE;
+
+    // Chunk index in the upper half, offset in the lower one.
+    private long[] lineLocations = new long[1024];
+    private int[] lineLengths = new int[1024];
+    private int[] recordStarts = new int[1024];
+    private int lineCount;
+
+    // Pass-through line whose newline is not read yet.
+    private byte[] pendingLine = new byte[256];
+    private int pendingLineLength;
+
+    private int demandedLineCount;
+    private boolean complete;
+    private boolean closed;
+
+    public synchronized void appendRecord(byte[] line, int recordStart, int length) throws InterruptedIOException {
+        awaitDemand();
+        if (!closed) {
+            add(line, 0, length, recordStart);
+        }
+    }
+
+    // Raw bytes, which may end in the middle of a line.
+    public synchronized void appendPassThrough(ByteBuffer bytes) throws InterruptedIOException {
+        while (bytes.hasRemaining() && !closed) {
+            int start = bytes.position();
+            int newline = indexOf(bytes, (byte) '\n');
+            int end = newline < 0 ? bytes.limit() : newline;
+            if (pendingLineLength + end - start > pendingLine.length) {
+                pendingLine = Arrays.copyOf(pendingLine, Math.max(pendingLine.length * 2, pendingLineLength + end - start));
+            }
+            bytes.get(start, pendingLine, pendingLineLength, end - start);
+            pendingLineLength += end - start;
+            if (newline < 0) {
+                bytes.position(end);
+            } else {
+                bytes.position(newline + 1);
+                awaitDemand();
+                if (!closed) {
+                    add(pendingLine, 0, pendingLineLength, -1);
+                }
+                pendingLineLength = 0;
+            }
+        }
+    }
+
+    // The end of the output of git-log.
+    public synchronized void finish() {
+        if (pendingLineLength > 0 && !closed) {
+            add(pendingLine, 0, pendingLineLength, -1);
+            pendingLineLength = 0;
+        }
+        complete = true;
+        notifyAll();
+    }
+
+    // The pager is gone: whatever is appended from now on is dropped, without waiting.
+    public synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    // Lets the reader of git-log go on until there are this many lines.
+    public synchronized void demand(int demandedLineCount) {
+        if (demandedLineCount > this.demandedLineCount) {
+            this.demandedLineCount = demandedLineCount;
+            notifyAll();
+        }
+    }
+
+    // Waits up to the timeout for this many lines, or for the end of the output. Returns
+    // whether they are there.
+    public synchronized boolean awaitLines(int lineCount, long timeoutMillis) throws InterruptedException {
+        long deadlineNanos = System.nanoTime() + timeoutMillis * 1_000_000;
+        while (this.lineCount < lineCount && !complete) {
+            long remainingMillis = (deadlineNanos - System.nanoTime()) / 1_000_000;
+            if (remainingMillis <= 0) {
+                return false;
+            }
+            wait(remainingMillis);
+        }
+        return true;
+    }
+
+    public synchronized int size() {
+        return lineCount;
+    }
+
+    public synchronized boolean isComplete() {
+        return complete;
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    public synchronized Line get(int index) {
+        if (index < 0 || index >= lineCount) {
+            throw new IndexOutOfBoundsException("Line " + index + " of " + lineCount);
+        }
+        byte[] chunk = chunks.get((int) (lineLocations[index] >>> 32));
+        int offset = (int) lineLocations[index];
+        return new Line(Arrays.copyOfRange(chunk, offset, offset + lineLengths[index]), recordStarts[index]);
+    }
+
+    private void awaitDemand() throws InterruptedIOException {
+        try {
+            while (lineCount >= demandedLineCount && !closed) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the pager");
+        }
+    }
+
+    private void add(byte[] bytes, int offset, int length, int recordStart) {
+        if (chunkPosition + length > CHUNK_SIZE) {
+            // A line longer than a chunk gets a chunk of its own.
+            chunks.add(new byte[Math.max(CHUNK_SIZE, length)]);
+            chunkPosition = 0;
+        }
+        System.arraycopy(bytes, offset, chunks.getLast(), chunkPosition, length);
+        if (lineCount == lineLocations.length) {
+            int capacity = lineCount * 2;
+            lineLocations = Arrays.copyOf(lineLocations, capacity);
+            lineLengths = Arrays.copyOf(lineLengths, capacity);
+            recordStarts = Arrays.copyOf(recordStarts, capacity);
+        }
+        lineLocations[lineCount] = ((long) (chunks.size() - 1) << 32) | chunkPosition;
+        lineLengths[lineCount] = length;
+        recordStarts[lineCount] = recordStart;
+        lineCount++;
+        chunkPosition += length;
+        notifyAll();
+    }
+
+    private static int indexOf(ByteBuffer bytes, byte b) {
+        for (int i = bytes.position(); i < bytes.limit(); i++) {
+            if (bytes.get(i) == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,224 @@
+package me.hernancerm;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+// Runs git-timeline in the TimelineDaemon, when enabled with GIT_TIMELINE_DAEMON=1, to save the
+// startup of the JVM. Prints what the daemon sends and runs the pager when asked to. When there
+// is no daemon one is started for the next runs, and this run is left to run in-process.
+public class TimelineClient {
+
+    static final String ENABLED_VARIABLE = "GIT_TIMELINE_DAEMON";
+
+    private final Path socketPath;
+    private final Map<String, String> environment;
+    private final OutputStream stdout;
+    private final OutputStream stderr;
+    private final boolean isDaemonStarted;
+
+    private byte[] payload = new byte[8192];
+
+    TimelineClient(
+            Path socketPath,
+            Map<String, String> environment,
+            OutputStream stdout,
+            OutputStream stderr,
+            boolean isDaemonStarted
+    ) {
+        this.socketPath = socketPath;
+        this.environment = environment;
+        this.stdout = stdout;
+        this.stderr = stderr;
+        this.isDaemonStarted = isDaemonStarted;
+    }
+
+    public static TimelineClient forLocal(Map<String, String> environment) {
+        Path socketPath;
+        try {
+            socketPath = TimelineDaemon.getSocketPath(environment);
+        } catch (IOException e) {
+            socketPath = null;
+        }
+        return new TimelineClient(
+                socketPath,
+                environment,
+                new FileOutputStream(FileDescriptor.out),
+                new FileOutputStream(FileDescriptor.err),
+                true);
+    }
+
+    // A native image starts fast enough on its own.
+    public static boolean isEnabled(String[] args, Map<String, String> environment) {
+        return "1".equals(environment.get(ENABLED_VARIABLE))
+                && System.getProperty("org.graalvm.nativeimage.imagecode") == null
+                && !Arrays.asList(args).contains("--timeline-daemon")
+                // Runs for as long as the user wants, which would keep the daemon busy.
+                && !Arrays.asList(args).contains("--timeline-follow-refs");
+    }
+
+    // Returns the exit value, or null when the daemon did not take the run, e.g., it is busy.
+    public Integer run(String[] args) {
+        if (socketPath == null) {
+            return null;
+        }
+        SocketChannel channel;
+        try {
+            channel = SocketChannel.open(UnixDomainSocketAddress.of(socketPath));
+        } catch (IOException e) {
+            if (isDaemonStarted) {
+                startDaemon();
+            }
+            return null;
+        }
+        try (channel) {
+            channel.write(ByteBuffer.wrap(request(args)));
+            return receive(channel);
+        } catch (IOException e) {
+            // E.g., the daemon was stopped mid-run.
+            return null;
+        }
+    }
+
+    private byte[] request(String[] args) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream request = new DataOutputStream(bytes);
+        request.writeInt(TimelineDaemon.PROTOCOL_VERSION);
+        request.writeLong(LocalCaller.INSTANCE.startInstant().toEpochMilli());
+        TimelineDaemon.writeString(request, LocalCaller.INSTANCE.workingDirectory().toString());
+        request.writeBoolean(LocalCaller.INSTANCE.isStdoutTerminal());
+        // Queried only when needed, as it opens the terminal.
+        request.writeInt(Arrays.asList(args).contains(GitTimeline.TRUNCATE_OPTION)
+                ? LocalCaller.INSTANCE.terminalWidth()
+                : 0);
+        request.writeInt(args.length);
+        for (String arg : args) {
+            TimelineDaemon.writeString(request, arg);
+        }
+        request.writeInt(environment.size());
+        for (Map.Entry<String, String> variable : environment.entrySet()) {
+            TimelineDaemon.writeString(request, variable.getKey());
+            TimelineDaemon.writeString(request, variable.getValue());
+        }
+        return bytes.toByteArray();
+    }
+
+    private Integer receive(SocketChannel channel) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        OutputStream output = stdout;
+        boolean isOutputStarted = false;
+        Process pager = null;
+        while (true) {
+            byte type;
+            int length;
+            try {
+                type = input.readByte();
+                length = input.readInt();
+                if (length > payload.length) {
+                    payload = new byte[Math.max(length, payload.length * 2)];
+                }
+                input.readFully(payload, 0, length);
+            } catch (IOException e) {
+                if (pager != null && !pager.isAlive()) {
+                    // The user quit the pager, so the socket was closed.
+                    return 0;
+                }
+                if (!isOutputStarted) {
+                    throw e;
+                }
+                // Running in-process would print the output again.
+                stderr.write(("error: The git-timeline daemon stopped: " + e.getMessage() + "\n")
+                        .getBytes(StandardCharsets.UTF_8));
+                return 1;
+            }
+            switch (type) {
+                case TimelineDaemon.STDOUT_FRAME -> {
+                    isOutputStarted = true;
+                    try {
+                        output.write(payload, 0, length);
+                        output.flush();
+                    } catch (IOException e) {
+                        // The pager quit or stdout was closed, e.g., piped to head.
+                        return 0;
+                    }
+                }
+                case TimelineDaemon.STDERR_FRAME -> {
+                    isOutputStarted = true;
+                    stderr.write(payload, 0, length);
+                }
+                case TimelineDaemon.PAGER_FRAME -> {
+                    isOutputStarted = true;
+                    List<String> command = Arrays.asList(
+                            new String(payload, 0, length, StandardCharsets.UTF_8).split("\0"));
+                    pager = LocalCaller.INSTANCE.startPager(command);
+                    output = pager.getOutputStream();
+                    // Tells the daemon to stop, which is waiting for output to be read.
+                    pager.onExit().thenRun(() -> close(channel));
+                }
+                case TimelineDaemon.EXIT_FRAME -> {
+                    int exitValue = ByteBuffer.wrap(payload, 0, length).getInt();
+                    if (pager != null) {
+                        try {
+                            output.close();
+                        } catch (IOException e) {
+                            // The pager already quit.
+                        }
+                        try {
+                            pager.waitFor();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                    return exitValue;
+                }
+                case TimelineDaemon.BUSY_FRAME -> {
+                    return null;
+                }
+                default -> throw new IOException("Unknown frame from the git-timeline daemon: " + type);
+            }
+        }
+    }
+
+    // Started with the java and the class path of this process, detached from its output.
+    private void startDaemon() {
+        String javaCommand = ProcessHandle.current().info().command().orElse(null);
+        if (javaCommand == null) {
+            return;
+        }
+        try {
+            new ProcessBuilder(
+                    javaCommand,
+                    "-cp",
+                    System.getProperty("java.class.path"),
+                    App.class.getName(),
+                    "--timeline-daemon")
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+        } catch (IOException e) {
+            // Runs in-process every time then.
+        }
+    }
+
+    private static void close(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Already closed.
+        }
+    }
+}
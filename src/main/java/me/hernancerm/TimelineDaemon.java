@@ -0,0 +1,466 @@
+package me.hernancerm;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import jdk.net.ExtendedSocketOptions;
+import jdk.net.UnixDomainPrincipal;
+import org.jline.terminal.Terminal;
+
+// Resident server which keeps a warm JVM, so a run of git-timeline through the TimelineClient
+// pays neither the startup of the JVM nor class loading. It listens on a Unix domain socket in
+// a directory only accessible to the user, and runs each request as its caller: in its working
+// directory, with its environment, printing to its stdout and stderr. The pager is started by
+// the client, on its own terminal.
+//
+// Runs one request at a time, as some state is global (e.g., AnsiUtils). A client which finds
+// the daemon busy runs in-process instead. The daemon exits after being idle for a while.
+//
+// Protocol, all integers big-endian:
+//   Request:  version, start of the client (epoch millis), working directory, whether stdout
+//             is a terminal, width of the terminal (0 unless asked for by the args, see
+//             TimelineClient), args and environment. Strings are length-prefixed UTF-8.
+//   Response: frames of a type byte, a payload length and the payload, until EXIT_FRAME.
+public class TimelineDaemon implements AutoCloseable {
+
+    static final int PROTOCOL_VERSION = 2;
+
+    static final byte STDOUT_FRAME = 'o';
+    static final byte STDERR_FRAME = 'e';
+    // Payload: the pager command, its arguments separated by NUL. Starts the pager, which then
+    // gets the frames of stdout.
+    static final byte PAGER_FRAME = 'p';
+    // Payload: the exit value. Last frame.
+    static final byte EXIT_FRAME = 'x';
+    // No payload. The client rather runs in-process.
+    static final byte BUSY_FRAME = 'b';
+
+    private static final Duration IDLE_TIMEOUT = Duration.ofMinutes(30);
+    private static final Set<PosixFilePermission> PRIVATE_DIRECTORY_PERMISSIONS =
+            PosixFilePermissions.fromString("rwx------");
+
+    private final Path socketPath;
+    private final ServerSocketChannel server;
+    private final Duration idleTimeout;
+    private final AtomicBoolean busy = new AtomicBoolean();
+
+    private volatile long lastActivityNanos = System.nanoTime();
+
+    private TimelineDaemon(Path socketPath, ServerSocketChannel server, Duration idleTimeout) {
+        this.socketPath = socketPath;
+        this.server = server;
+        this.idleTimeout = idleTimeout;
+    }
+
+    public static TimelineDaemon open(Path socketPath) throws IOException {
+        return open(socketPath, IDLE_TIMEOUT);
+    }
+
+    public static TimelineDaemon open(Path socketPath, Duration idleTimeout) throws IOException {
+        if (Files.exists(socketPath)) {
+            if (isListening(socketPath)) {
+                throw new FileAlreadyExistsException(socketPath.toString(), null, "The daemon is already running");
+            }
+            // Left by a daemon which was killed.
+            Files.delete(socketPath);
+        }
+        ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            server.bind(UnixDomainSocketAddress.of(socketPath));
+        } catch (IOException e) {
+            server.close();
+            throw e;
+        }
+        return new TimelineDaemon(socketPath, server, idleTimeout);
+    }
+
+    // The socket of the daemon of this version, in a directory private to the user. Per the
+    // XDG Base Directory Specification, XDG_RUNTIME_DIR is one. Otherwise (e.g., macOS), a
+    // directory in the temp dir is created. Throws when the directory is not private.
+    public static Path getSocketPath(Map<String, String> environment) throws IOException {
+        String runtimeDirectory = environment.get("XDG_RUNTIME_DIR");
+        Path directory = runtimeDirectory != null && !runtimeDirectory.isEmpty()
+                ? Path.of(runtimeDirectory).resolve(GitTimeline.NAME)
+                : Path.of(System.getProperty("java.io.tmpdir"))
+                        .resolve(GitTimeline.NAME + "-" + System.getProperty("user.name"));
+        try {
+            if (!Files.isDirectory(directory)) {
+                Files.createDirectories(directory,
+                        PosixFilePermissions.asFileAttribute(PRIVATE_DIRECTORY_PERMISSIONS));
+            }
+            if (!Files.getOwner(directory).getName().equals(System.getProperty("user.name"))
+                    || !Files.getPosixFilePermissions(directory).equals(PRIVATE_DIRECTORY_PERMISSIONS)) {
+                throw new IOException("The directory of the daemon socket is not private: " + directory);
+            }
+        } catch (UnsupportedOperationException e) {
+            // E.g., Windows.
+            throw new IOException("The directory of the daemon socket cannot be made private: " + directory, e);
+        }
+        return directory.resolve(GitTimeline.VERSION + ".sock");
+    }
+
+    // Serves requests until closed or idle.
+    public void serve() throws IOException {
+        Thread.ofVirtual().name("git-timeline-idle").start(this::closeWhenIdle);
+        while (true) {
+            SocketChannel client;
+            try {
+                client = server.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            }
+            lastActivityNanos = System.nanoTime();
+            Thread.ofVirtual().name("git-timeline-request").start(() -> handle(client));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (server.isOpen()) {
+            server.close();
+            Files.deleteIfExists(socketPath);
+        }
+    }
+
+    private void closeWhenIdle() {
+        try {
+            while (server.isOpen()) {
+                long idleNanos = System.nanoTime() - lastActivityNanos;
+                if (!busy.get() && idleNanos >= idleTimeout.toNanos()) {
+                    close();
+                    return;
+                }
+                TimeUnit.NANOSECONDS.sleep(Math.max(idleTimeout.toNanos() - idleNanos, TimeUnit.SECONDS.toNanos(1)));
+            }
+        } catch (IOException | InterruptedException e) {
+            // The daemon is going away anyway.
+        }
+    }
+
+    private void handle(SocketChannel client) {
+        try (client) {
+            if (!isSameUser(client)) {
+                return;
+            }
+            if (!busy.compareAndSet(false, true)) {
+                writeFrame(client, BUSY_FRAME, new byte[0], 0, 0);
+                return;
+            }
+            try {
+                ClientCaller caller = ClientCaller.read(client);
+                int exitValue;
+                try {
+                    // As in a new process.
+                    AnsiUtils.setEnabled(true);
+                    exitValue = new GitTimeline(
+                            caller.args,
+                            new GitLogProcessBuilder(caller),
+                            new GitLogFormatter(),
+                            caller).call();
+                } catch (Exception e) {
+                    // As an uncaught exception in-process.
+                    PrintStream stderr = new PrintStream(caller.stderr(), false);
+                    e.printStackTrace(stderr);
+                    stderr.flush();
+                    exitValue = 1;
+                }
+                writeFrame(client, EXIT_FRAME, ByteBuffer.allocate(4).putInt(exitValue).array(), 0, 4);
+            } finally {
+                lastActivityNanos = System.nanoTime();
+                busy.set(false);
+            }
+        } catch (IOException e) {
+            // The client went away.
+        }
+    }
+
+    // The socket directory is already private. This also covers a socket file made accessible
+    // to others by mistake.
+    private static boolean isSameUser(SocketChannel client) throws IOException {
+        try {
+            UnixDomainPrincipal principal = client.getOption(ExtendedSocketOptions.SO_PEERCRED);
+            return principal.user().getName().equals(System.getProperty("user.name"));
+        } catch (UnsupportedOperationException e) {
+            return true;
+        }
+    }
+
+    private static boolean isListening(Path socketPath) {
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socketPath))) {
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    static void writeFrame(SocketChannel channel, byte type, byte[] payload, int offset, int length)
+            throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(5).put(type).putInt(length).flip();
+        ByteBuffer[] buffers = {header, ByteBuffer.wrap(payload, offset, length)};
+        // Frames are written whole, as stdout and stderr are written by different threads.
+        synchronized (channel) {
+            while (buffers[1].hasRemaining() || header.hasRemaining()) {
+                channel.write(buffers);
+            }
+        }
+    }
+
+    static void writeString(DataOutputStream output, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    static String readString(DataInputStream input) throws IOException {
+        return new String(input.readNBytes(input.readInt()), StandardCharsets.UTF_8);
+    }
+
+    // The client of a request as the caller of the run.
+    private static class ClientCaller implements Caller {
+
+        private final SocketChannel client;
+        private final Instant startInstant;
+        private final Path workingDirectory;
+        private final boolean isStdoutTerminal;
+        private final int terminalWidth;
+        private final String[] args;
+        private final Map<String, String> environment;
+        private final OutputStream stdout;
+        private final OutputStream stderr;
+        // Completed when the client closes the socket, e.g., when the user quits the pager.
+        private final CompletableFuture<Void> disconnected = new CompletableFuture<>();
+
+        private ClientCaller(
+                SocketChannel client,
+                Instant startInstant,
+                Path workingDirectory,
+                boolean isStdoutTerminal,
+                int terminalWidth,
+                String[] args,
+                Map<String, String> environment
+        ) {
+            this.client = client;
+            this.startInstant = startInstant;
+            this.workingDirectory = workingDirectory;
+            this.isStdoutTerminal = isStdoutTerminal;
+            this.terminalWidth = terminalWidth;
+            this.args = args;
+            this.environment = environment;
+            this.stdout = new FrameOutputStream(client, STDOUT_FRAME);
+            this.stderr = new FrameOutputStream(client, STDERR_FRAME);
+        }
+
+        static ClientCaller read(SocketChannel client) throws IOException {
+            // Not buffered: nothing is read past the request, which is all the client sends.
+            DataInputStream input = new DataInputStream(Channels.newInputStream(client));
+            int version = input.readInt();
+            if (version != PROTOCOL_VERSION) {
+                throw new IOException("Unsupported protocol version of the client: " + version);
+            }
+            Instant startInstant = Instant.ofEpochMilli(input.readLong());
+            Path workingDirectory = Path.of(readString(input));
+            boolean isStdoutTerminal = input.readBoolean();
+            int terminalWidth = input.readInt();
+            String[] args = new String[input.readInt()];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = readString(input);
+            }
+            int environmentSize = input.readInt();
+            Map<String, String> environment = new HashMap<>();
+            for (int i = 0; i < environmentSize; i++) {
+                environment.put(readString(input), readString(input));
+            }
+            ClientCaller caller = new ClientCaller(
+                    client, startInstant, workingDirectory, isStdoutTerminal, terminalWidth, args, environment);
+            Thread.ofVirtual().name("git-timeline-client").start(caller::awaitDisconnect);
+            return caller;
+        }
+
+        @Override
+        public Path workingDirectory() {
+            return workingDirectory;
+        }
+
+        @Override
+        public Map<String, String> environment() {
+            return environment;
+        }
+
+        @Override
+        public boolean isStdoutTerminal() {
+            return isStdoutTerminal;
+        }
+
+        @Override
+        public Instant startInstant() {
+            return startInstant;
+        }
+
+        @Override
+        public OutputStream stdout() {
+            return stdout;
+        }
+
+        @Override
+        public OutputStream stderr() {
+            return stderr;
+        }
+
+        @Override
+        public Process start(ProcessBuilder processBuilder) throws IOException {
+            if (processBuilder.directory() == null) {
+                processBuilder.directory(workingDirectory.toFile());
+            }
+            processBuilder.environment().clear();
+            processBuilder.environment().putAll(environment);
+            // The stderr of the daemon is not the one of the client.
+            boolean isStderrForwarded = processBuilder.redirectError() == ProcessBuilder.Redirect.INHERIT;
+            if (isStderrForwarded) {
+                processBuilder.redirectError(ProcessBuilder.Redirect.PIPE);
+            }
+            Process process = processBuilder.start();
+            if (isStderrForwarded) {
+                Thread.ofVirtual().name("git-timeline-stderr").start(() -> {
+                    try (InputStream errorStream = process.getErrorStream()) {
+                        errorStream.transferTo(stderr);
+                    } catch (IOException e) {
+                        // The client went away.
+                    }
+                });
+            }
+            return process;
+        }
+
+        @Override
+        public Process startPager(List<String> command) throws IOException {
+            byte[] payload = String.join("\0", command).getBytes(StandardCharsets.UTF_8);
+            writeFrame(client, PAGER_FRAME, payload, 0, payload.length);
+            return new ClientPagerProcess(stdout, disconnected);
+        }
+
+        // The terminal of the client is not the one of the daemon, so the client pages.
+        @Override
+        public Terminal openTerminal() {
+            return null;
+        }
+
+        @Override
+        public int terminalWidth() {
+            return terminalWidth;
+        }
+
+        private void awaitDisconnect() {
+            ByteBuffer buffer = ByteBuffer.allocate(1);
+            try {
+                while (client.read(buffer.clear()) >= 0) {
+                    // Nothing else is expected from the client.
+                }
+            } catch (IOException e) {
+                // Closed.
+            }
+            disconnected.complete(null);
+        }
+    }
+
+    // Output to the client, framed. Closing it leaves the socket open for the exit value.
+    private static class FrameOutputStream extends OutputStream {
+
+        private final SocketChannel client;
+        private final byte type;
+
+        FrameOutputStream(SocketChannel client, byte type) {
+            this.client = client;
+            this.type = type;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (length > 0) {
+                writeFrame(client, type, bytes, offset, length);
+            }
+        }
+    }
+
+    // The pager which the client runs. It exits, as far as the daemon knows, when the client
+    // closes the socket. The client waits for the pager itself, after getting the exit value.
+    private static class ClientPagerProcess extends Process {
+
+        private final OutputStream stdin;
+        private final CompletableFuture<Void> disconnected;
+
+        ClientPagerProcess(OutputStream stdin, CompletableFuture<Void> disconnected) {
+            this.stdin = stdin;
+            this.disconnected = disconnected;
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return stdin;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return InputStream.nullInputStream();
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            return InputStream.nullInputStream();
+        }
+
+        @Override
+        public int waitFor() {
+            return 0;
+        }
+
+        @Override
+        public int exitValue() {
+            return 0;
+        }
+
+        @Override
+        public boolean isAlive() {
+            return !disconnected.isDone();
+        }
+
+        @Override
+        public CompletableFuture<Process> onExit() {
+            return disconnected.thenApply(ignored -> this);
+        }
+
+        @Override
+        public void destroy() {
+        }
+    }
+}
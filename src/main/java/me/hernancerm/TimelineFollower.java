@@ -0,0 +1,224 @@
+package me.hernancerm;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+// Follows the refs (`--timeline-follow-refs`), like `tail -f`: after printing the history as
+// usual, waits for the refs to change (e.g., a commit, a fetch or a rebase) and prints only the
+// new commits. The new commits are the ones reachable from the revisions of git-log which were
+// not reachable from their previous tips, so the history is never read again. When the previous
+// tips are no longer in the history (e.g., after a force push), it is told how many of the
+// commits printed are gone.
+//
+// The refs, packed-refs and HEAD are watched. A burst of changes (e.g., a fetch which updates
+// many refs, or a rebase) is handled once, when it settles.
+public class TimelineFollower {
+
+    private static final long DEBOUNCE_MILLIS = 200;
+
+    private final Caller caller;
+    private final GitLogProcessBuilder gitLogProcessBuilder;
+    private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+
+    private GitDirectory gitDirectory;
+
+    public TimelineFollower(Caller caller, GitLogProcessBuilder gitLogProcessBuilder) {
+        this.caller = caller;
+        this.gitLogProcessBuilder = gitLogProcessBuilder;
+    }
+
+    // Runs until the output is closed (e.g., a broken pipe), or the process is killed.
+    public int run(GitLogArgs args, BiConsumer<GitCommit, StringBuilder> commitFormatter)
+            throws IOException, InterruptedException {
+
+        if (args.repositories() != null) {
+            throw new IllegalStateException("The option --timeline-follow-refs is not supported with --timeline-repos");
+        }
+        gitDirectory = GitDirectory.find(caller.workingDirectory(), caller.environment());
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            // Watched before the tips are resolved, so no change goes unnoticed.
+            watch(watchService);
+            List<String> tips = resolveTips(args.unparsedArgs());
+            int exitValue = gitLogProcessBuilder.start(args, commitFormatter);
+            if (exitValue != 0 || tips == null) {
+                return exitValue;
+            }
+            while (!gitLogProcessBuilder.isCancelled()) {
+                awaitRefsChange(watchService);
+                // Null, e.g., while a branch given to git-log does not exist.
+                List<String> newTips = resolveTips(args.unparsedArgs());
+                if (newTips == null || newTips.equals(tips)) {
+                    continue;
+                }
+                reportRewrittenCommits(tips, newTips, args.isJsonOutputEnabled());
+                GitLogArgs newCommitsArgs = args.withUnparsedArgs(getNewCommitsArgs(args.unparsedArgs(), tips));
+                if (gitLogProcessBuilder.start(newCommitsArgs, commitFormatter) == 0) {
+                    tips = newTips;
+                }
+            }
+            return 0;
+        }
+    }
+
+    // The args of git-log, excluding the commits reachable from the previous tips. They go before
+    // the paths, if any, and take into account an odd number of `--not`, which would negate them.
+    static String[] getNewCommitsArgs(String[] args, List<String> previousTips) {
+        List<String> newCommitsArgs = new ArrayList<>(Arrays.asList(args));
+        int pathsStart = newCommitsArgs.indexOf("--");
+        if (pathsStart < 0) {
+            pathsStart = newCommitsArgs.size();
+        }
+        boolean isNegated = newCommitsArgs.subList(0, pathsStart).stream()
+                .filter("--not"::equals)
+                .count() % 2 == 1;
+        newCommitsArgs.addAll(pathsStart, previousTips.stream()
+                .map(tip -> isNegated ? tip : "^" + tip)
+                .toList());
+        return newCommitsArgs.toArray(new String[0]);
+    }
+
+    // The commits which the revisions of git-log point to, e.g., the tip of each branch with
+    // `--all`. Null when git cannot resolve them.
+    private List<String> resolveTips(String[] args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(List.of("git", "rev-parse", "--revs-only", "--no-flags", "--default", "HEAD"));
+        command.addAll(Arrays.asList(args));
+        Process process = caller.start(new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD));
+        List<String> tips = new ArrayList<>();
+        try (
+                var inputStreamReader = new InputStreamReader(process.getInputStream());
+                var bufferedReader = new BufferedReader(inputStreamReader)
+        ) {
+            String line;
+            while ((line = bufferedReader.readLine()) != null) {
+                // The commits excluded (e.g., `^main` of `main..topic`) are given to git-log as is.
+                if (!line.startsWith("^")) {
+                    tips.add(line);
+                }
+            }
+        }
+        return process.waitFor() == 0 ? tips : null;
+    }
+
+    // Tells how many of the commits printed are no longer in the history.
+    private void reportRewrittenCommits(List<String> tips, List<String> newTips, boolean isJsonOutputEnabled)
+            throws IOException, InterruptedException {
+
+        List<String> command = new ArrayList<>(List.of("git", "rev-list", "--count"));
+        command.addAll(tips);
+        command.add("--not");
+        command.addAll(newTips);
+        Process process = caller.start(new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD));
+        String count;
+        try (
+                var inputStreamReader = new InputStreamReader(process.getInputStream());
+                var bufferedReader = new BufferedReader(inputStreamReader)
+        ) {
+            count = bufferedReader.readLine();
+        }
+        if (process.waitFor() != 0 || count == null || count.equals("0")) {
+            return;
+        }
+        StringBuilder line = new StringBuilder();
+        if (isJsonOutputEnabled) {
+            GitLogJsonWriter.appendRewritten(line, Long.parseLong(count));
+        } else {
+            AnsiStyle.BOLD_YELLOW.appendStart(line);
+            line.append("-- History rewritten: ").append(count).append(count.equals("1") ? " commit" : " commits")
+                    .append(" above no longer in it --");
+            AnsiStyle.appendReset(line);
+        }
+        line.append(System.lineSeparator());
+        caller.stdout().write(line.toString().getBytes());
+        caller.stdout().flush();
+    }
+
+    // HEAD is in the git dir of the worktree, the rest in the one shared by all worktrees.
+    private void watch(WatchService watchService) throws IOException {
+        watchDirectory(gitDirectory.gitDir(), watchService);
+        watchDirectory(gitDirectory.commonDir(), watchService);
+        watchTree(gitDirectory.commonDir().resolve("refs"), watchService);
+        // Refs of the reftable backend.
+        watchTree(gitDirectory.commonDir().resolve("reftable"), watchService);
+    }
+
+    private void watchTree(Path root, WatchService watchService) throws IOException {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path directory : paths.filter(Files::isDirectory).toList()) {
+                watchDirectory(directory, watchService);
+            }
+        }
+    }
+
+    private void watchDirectory(Path directory, WatchService watchService) throws IOException {
+        watchedDirectories.put(directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), directory);
+    }
+
+    // Waits for a ref to change, then for the burst of changes it is part of to settle.
+    private void awaitRefsChange(WatchService watchService) throws IOException, InterruptedException {
+        boolean isChanged = false;
+        while (true) {
+            WatchKey key = isChanged
+                    ? watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)
+                    : watchService.take();
+            if (key == null) {
+                return;
+            }
+            isChanged |= handleEvents(key, watchService);
+        }
+    }
+
+    // Returns whether any event is of a ref. Directories created under the refs (e.g., the
+    // first branch named `feature/<name>`) are watched from then on.
+    private boolean handleEvents(WatchKey key, WatchService watchService) throws IOException {
+        Path directory = watchedDirectories.get(key);
+        boolean isTopDirectory = directory.equals(gitDirectory.gitDir()) || directory.equals(gitDirectory.commonDir());
+        boolean isRefChanged = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                isRefChanged = true;
+                continue;
+            }
+            String fileName = event.context().toString();
+            // Refs are written to a lock file first, then renamed to their name.
+            if (fileName.endsWith(".lock")) {
+                continue;
+            }
+            if (isTopDirectory) {
+                isRefChanged |= fileName.equals("HEAD") || fileName.equals("packed-refs");
+                continue;
+            }
+            Path path = directory.resolve(fileName);
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+                watchTree(path, watchService);
+            }
+            isRefChanged = true;
+        }
+        if (!key.reset()) {
+            watchedDirectories.remove(key);
+        }
+        return isRefChanged;
+    }
+}
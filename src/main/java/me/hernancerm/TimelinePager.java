@@ -0,0 +1,220 @@
+package me.hernancerm;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.jline.keymap.BindingReader;
+import org.jline.keymap.KeyMap;
+import org.jline.terminal.Attributes;
+import org.jline.terminal.Size;
+import org.jline.terminal.Terminal;
+import org.jline.utils.InfoCmp;
+import org.jline.utils.NonBlockingReader;
+
+// Built-in pager (`--timeline-pager`). Unlike an external pager, which gets all of the output
+// of git-log, it pulls the output as the user scrolls: a few screens ahead of the screen are read
+// (see PagerBuffer), and only the lines on screen are parsed, formatted and hyperlinked. On quit,
+// git-log is stopped. Memory and CPU follow what is viewed, not the size of the history.
+//
+// Keys as in less: j/k, space/b, d/u, g/G, q. Long lines are cut at the edge of the screen.
+public class TimelinePager {
+
+    private static final int READ_AHEAD_SCREENS = 3;
+    // How often the screen is refreshed while waiting for keys, e.g., as git-log prints more.
+    private static final long REFRESH_MILLIS = 100;
+    // Lines rendered, e.g., to scroll back and forth without formatting them again.
+    private static final int RENDERED_LINES_CAPACITY = 1024;
+
+    private enum Operation {
+        LINE_DOWN, LINE_UP, PAGE_DOWN, PAGE_UP, HALF_PAGE_DOWN, HALF_PAGE_UP, TOP, BOTTOM, REDRAW, QUIT
+    }
+
+    private final Terminal terminal;
+    private final PagerBuffer buffer;
+    private final Function<PagerBuffer.Line, String> lineRenderer;
+    private final Map<Integer, String> renderedLines = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+            return size() > RENDERED_LINES_CAPACITY;
+        }
+    };
+
+    // First line on screen.
+    private int top;
+    // Set by G: the screen follows the end of the output as it is read.
+    private boolean isAtBottom;
+    private volatile boolean isResized;
+    // State of the last screen drawn, to only draw again when it changes.
+    private int drawnTop = -1;
+    private int drawnLineCount = -1;
+    private boolean drawnComplete;
+
+    public TimelinePager(
+            Terminal terminal,
+            PagerBuffer buffer,
+            Function<PagerBuffer.Line, String> lineRenderer
+    ) {
+        this.terminal = terminal;
+        this.buffer = buffer;
+        this.lineRenderer = lineRenderer;
+    }
+
+    // Pages until the user quits. The callback runs once the first screen is drawn.
+    public void run(Runnable onFirstScreen) throws IOException, InterruptedException {
+        // Like `less -F`: nothing to page, e.g., git-log failed and printed why to stderr.
+        buffer.demand(getPageHeight() * (1 + READ_AHEAD_SCREENS));
+        while (!buffer.awaitLines(1, REFRESH_MILLIS)) {
+            // Waiting, e.g., for git-log to sort the history for `--graph`.
+        }
+        if (buffer.size() == 0) {
+            return;
+        }
+
+        Attributes attributes = terminal.enterRawMode();
+        Attributes rawAttributes = terminal.getAttributes();
+        // Ctrl-C quits, restoring the terminal, instead of killing the JVM.
+        rawAttributes.setLocalFlag(Attributes.LocalFlag.ISIG, false);
+        terminal.setAttributes(rawAttributes);
+        terminal.handle(Terminal.Signal.WINCH, signal -> isResized = true);
+        terminal.puts(InfoCmp.Capability.enter_ca_mode);
+        terminal.puts(InfoCmp.Capability.keypad_xmit);
+        terminal.puts(InfoCmp.Capability.cursor_invisible);
+        // No wrapping: long lines are cut.
+        terminal.writer().write("\033[?7l");
+        try {
+            KeyMap<Operation> keyMap = createKeyMap();
+            BindingReader bindingReader = new BindingReader(terminal.reader());
+            NonBlockingReader reader = terminal.reader();
+            boolean isFirstScreen = true;
+            while (true) {
+                update();
+                if (isFirstScreen) {
+                    onFirstScreen.run();
+                    isFirstScreen = false;
+                }
+                int peeked = reader.peek(REFRESH_MILLIS);
+                if (peeked == NonBlockingReader.EOF) {
+                    return;
+                }
+                if (peeked == NonBlockingReader.READ_EXPIRED) {
+                    continue;
+                }
+                // Not blocking: null until the keys read so far are bound, e.g., in the middle
+                // of the sequence of an arrow key. Keys not bound are dropped.
+                Operation operation = bindingReader.readBinding(keyMap, null, false);
+                if (operation == Operation.QUIT) {
+                    return;
+                }
+                if (operation != null) {
+                    handle(operation);
+                }
+            }
+        } finally {
+            terminal.writer().write("\033[?7h");
+            terminal.puts(InfoCmp.Capability.cursor_visible);
+            terminal.puts(InfoCmp.Capability.keypad_local);
+            terminal.puts(InfoCmp.Capability.exit_ca_mode);
+            terminal.flush();
+            terminal.setAttributes(attributes);
+        }
+    }
+
+    private void handle(Operation operation) {
+        int pageHeight = getPageHeight();
+        isAtBottom = false;
+        switch (operation) {
+            case LINE_DOWN -> scrollTo(top + 1);
+            case LINE_UP -> scrollTo(top - 1);
+            case PAGE_DOWN -> scrollTo(top + pageHeight);
+            case PAGE_UP -> scrollTo(top - pageHeight);
+            case HALF_PAGE_DOWN -> scrollTo(top + pageHeight / 2);
+            case HALF_PAGE_UP -> scrollTo(top - pageHeight / 2);
+            case TOP -> scrollTo(0);
+            // Reads all of the output, which the user asked for.
+            case BOTTOM -> isAtBottom = true;
+            case REDRAW -> drawnTop = -1;
+            default -> {
+            }
+        }
+    }
+
+    // Scrolling past the lines read so far waits for them, so the screen is never left short.
+    private void scrollTo(int line) {
+        top = Math.max(0, line);
+    }
+
+    // Asks for the lines ahead of the screen and draws it when something changed.
+    private void update() throws InterruptedException {
+        int pageHeight = getPageHeight();
+        if (isAtBottom) {
+            buffer.demand(Integer.MAX_VALUE);
+        } else {
+            buffer.demand(top + pageHeight * (1 + READ_AHEAD_SCREENS));
+        }
+        buffer.awaitLines(top + pageHeight, REFRESH_MILLIS);
+        int lineCount = buffer.size();
+        boolean isComplete = buffer.isComplete();
+        if (isAtBottom || (isComplete && top + pageHeight > lineCount)) {
+            // Never past the end.
+            top = Math.max(0, Math.min(isAtBottom ? lineCount : top, lineCount - pageHeight));
+        }
+        // More lines only show when the screen was not full.
+        boolean isScreenFilling = lineCount != drawnLineCount && drawnLineCount < top + pageHeight;
+        if (isResized || top != drawnTop || isScreenFilling || isComplete != drawnComplete) {
+            isResized = false;
+            draw(pageHeight, lineCount, isComplete);
+        }
+    }
+
+    private void draw(int pageHeight, int lineCount, boolean isComplete) {
+        StringBuilder screen = new StringBuilder();
+        for (int row = 0; row < pageHeight; row++) {
+            screen.append("\033[").append(row + 1).append(";1H");
+            int index = top + row;
+            if (index < lineCount) {
+                screen.append(renderedLines.computeIfAbsent(index, i -> lineRenderer.apply(buffer.get(i))));
+                AnsiStyle.appendReset(screen);
+            }
+            screen.append("\033[K");
+        }
+        screen.append("\033[").append(pageHeight + 1).append(";1H");
+        if (isComplete && top + pageHeight >= lineCount) {
+            screen.append("\033[7m(END)\033[m");
+        } else {
+            screen.append(':');
+        }
+        screen.append("\033[K");
+        terminal.writer().write(screen.toString());
+        terminal.flush();
+        drawnTop = top;
+        drawnLineCount = lineCount;
+        drawnComplete = isComplete;
+    }
+
+    // The last row is the status line.
+    private int getPageHeight() {
+        Size size = terminal.getSize();
+        return Math.max(1, size.getRows() - 1);
+    }
+
+    private KeyMap<Operation> createKeyMap() {
+        KeyMap<Operation> keyMap = new KeyMap<>();
+        keyMap.bind(Operation.LINE_DOWN, "j", "e", "\r", "\n", KeyMap.ctrl('N'), KeyMap.ctrl('E'),
+                KeyMap.key(terminal, InfoCmp.Capability.key_down));
+        keyMap.bind(Operation.LINE_UP, "k", "y", KeyMap.ctrl('P'), KeyMap.ctrl('Y'),
+                KeyMap.key(terminal, InfoCmp.Capability.key_up));
+        keyMap.bind(Operation.PAGE_DOWN, " ", "f", KeyMap.ctrl('F'), KeyMap.ctrl('V'),
+                KeyMap.key(terminal, InfoCmp.Capability.key_npage));
+        keyMap.bind(Operation.PAGE_UP, "b", KeyMap.ctrl('B'), KeyMap.esc() + "v",
+                KeyMap.key(terminal, InfoCmp.Capability.key_ppage));
+        keyMap.bind(Operation.HALF_PAGE_DOWN, "d", KeyMap.ctrl('D'));
+        keyMap.bind(Operation.HALF_PAGE_UP, "u", KeyMap.ctrl('U'));
+        keyMap.bind(Operation.TOP, "g", "<", KeyMap.key(terminal, InfoCmp.Capability.key_home));
+        keyMap.bind(Operation.BOTTOM, "G", ">", KeyMap.key(terminal, InfoCmp.Capability.key_end));
+        keyMap.bind(Operation.REDRAW, "r", KeyMap.ctrl('L'));
+        keyMap.bind(Operation.QUIT, "q", "Q", KeyMap.ctrl('C'));
+        return keyMap;
+    }
+}
@@ -0,0 +1,339 @@
+package me.hernancerm;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+// Counters of where the time of a run goes, reported with `--timeline-stats`. Each stage of the
+// output of git-log is timed with nanoTime and also emitted as a JFR event, e.g., to look at it
+// in JDK Mission Control after running with `-XX:StartFlightRecording`. The events of parsing and
+// formatting, one per commit, are only committed above a threshold (1 ms by default), so a large
+// history does not flood the recording; the counters sum them all.
+//
+// Measuring is opt-in: unless the stats are reported or JFR is recording, nothing is timed and
+// the streams and channels are not wrapped. Thread-safe, as the pipeline formats in a pool.
+public class TimelineStats {
+
+    public enum Stage {
+        // Blocked waiting for git-log to print more.
+        READ(ReadEvent::new),
+        PARSE(ParseEvent::new),
+        // Includes the hyperlinks.
+        FORMAT(FormatEvent::new),
+        // Blocked writing to the pager or stdout.
+        WRITE(WriteEvent::new);
+
+        private final Supplier<Event> eventFactory;
+
+        Stage(Supplier<Event> eventFactory) {
+            this.eventFactory = eventFactory;
+        }
+    }
+
+    private final boolean enabled;
+    private final boolean isRecording;
+    private final long startNanos = System.nanoTime();
+    private final LongAdder[] stageNanos = newAdders(Stage.values().length);
+    private final LongAdder[] stageCounts = newAdders(Stage.values().length);
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder linesIn = new LongAdder();
+
+    private volatile long wallNanos;
+    private volatile Duration timeToFirstLine;
+
+    public TimelineStats(boolean isReported) {
+        // JFR is initialized at startup when recording, e.g., with `-XX:StartFlightRecording`.
+        this.isRecording = FlightRecorder.isInitialized();
+        this.enabled = isReported || isRecording;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Returns the start of a stage, to pass to end, or 0 when not measuring.
+    public long begin() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    // Begins the JFR event of a stage, to pass to end, or returns null when JFR is not recording
+    // the stage.
+    public Event beginEvent(Stage stage) {
+        if (!isRecording) {
+            return null;
+        }
+        Event event = stage.eventFactory.get();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    public void end(Stage stage, long beginNanos) {
+        end(stage, beginNanos, null);
+    }
+
+    public void end(Stage stage, long beginNanos, Event event) {
+        if (!enabled) {
+            return;
+        }
+        stageNanos[stage.ordinal()].add(System.nanoTime() - beginNanos);
+        stageCounts[stage.ordinal()].increment();
+        if (event != null) {
+            event.end();
+            // False below the threshold of the event.
+            if (event.shouldCommit()) {
+                event.commit();
+            }
+        }
+    }
+
+    public ReadableByteChannel measureInput(ReadableByteChannel channel) {
+        return enabled ? new MeasuredReadableByteChannel(channel) : channel;
+    }
+
+    public WritableByteChannel measureOutput(WritableByteChannel channel) {
+        return enabled ? new MeasuredWritableByteChannel(channel) : channel;
+    }
+
+    public OutputStream measureOutput(OutputStream outputStream) {
+        return enabled ? new MeasuredOutputStream(outputStream) : outputStream;
+    }
+
+    // Marks the end of the run.
+    public void finish(Duration timeToFirstLine) {
+        this.wallNanos = System.nanoTime() - startNanos;
+        this.timeToFirstLine = timeToFirstLine;
+    }
+
+    // Commits are counted as they are parsed.
+    public long getCommits() {
+        return stageCounts[Stage.PARSE.ordinal()].sum();
+    }
+
+    public long getStageNanos(Stage stage) {
+        return stageNanos[stage.ordinal()].sum();
+    }
+
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    public long getLinesIn() {
+        return linesIn.sum();
+    }
+
+    // Human-readable summary.
+    public void print(PrintStream output) {
+        output.println("git-timeline stats");
+        output.printf(Locale.ROOT, "  %-20s %10.1f ms%n", "wall time", millis(wallNanos));
+        output.printf(Locale.ROOT, "  %-20s %10s%n", "time to first line",
+                timeToFirstLine == null ? "-" : String.format(Locale.ROOT, "%.1f ms", millis(timeToFirstLine.toNanos())));
+        output.printf(Locale.ROOT, "  %-20s %10d   %.0f/s%n", "commits", getCommits(), perSecond(getCommits()));
+        output.printf(Locale.ROOT, "  %-20s %10d   %.0f/s%n", "lines", getLinesIn(), perSecond(getLinesIn()));
+        output.printf(Locale.ROOT, "  %-20s %10d bytes%n", "in (git-log)", getBytesIn());
+        output.printf(Locale.ROOT, "  %-20s %10d bytes%n", "out", getBytesOut());
+        output.printf(Locale.ROOT, "  %-20s %10.1f ms%n", "read (blocked)", millis(getStageNanos(Stage.READ)));
+        // Summed over the formatters of the pipeline.
+        output.printf(Locale.ROOT, "  %-20s %10.1f ms%n", "parse", millis(getStageNanos(Stage.PARSE)));
+        output.printf(Locale.ROOT, "  %-20s %10.1f ms%n", "format", millis(getStageNanos(Stage.FORMAT)));
+        output.printf(Locale.ROOT, "  %-20s %10.1f ms%n", "write (blocked)", millis(getStageNanos(Stage.WRITE)));
+    }
+
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{");
+        json.append("\"wallNanos\":").append(wallNanos);
+        json.append(",\"timeToFirstLineNanos\":").append(timeToFirstLine == null ? "null" : timeToFirstLine.toNanos());
+        json.append(",\"commits\":").append(getCommits());
+        json.append(",\"commitsPerSecond\":").append(Math.round(perSecond(getCommits())));
+        json.append(",\"lines\":").append(getLinesIn());
+        json.append(",\"linesPerSecond\":").append(Math.round(perSecond(getLinesIn())));
+        json.append(",\"bytesIn\":").append(getBytesIn());
+        json.append(",\"bytesOut\":").append(getBytesOut());
+        json.append(",\"stages\":{");
+        for (Stage stage : Stage.values()) {
+            if (stage.ordinal() > 0) {
+                json.append(',');
+            }
+            json.append('"').append(stage.name().toLowerCase(Locale.ROOT)).append("\":{")
+                    .append("\"nanos\":").append(getStageNanos(stage))
+                    .append(",\"count\":").append(stageCounts[stage.ordinal()].sum())
+                    .append('}');
+        }
+        return json.append("}}").toString();
+    }
+
+    public void writeJson(Path path) throws IOException {
+        Files.writeString(path, toJson() + "\n", StandardCharsets.UTF_8);
+    }
+
+    private double perSecond(long count) {
+        return wallNanos == 0 ? 0 : count * 1e9 / wallNanos;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static LongAdder[] newAdders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    private class MeasuredReadableByteChannel implements ReadableByteChannel {
+
+        private final ReadableByteChannel channel;
+
+        MeasuredReadableByteChannel(ReadableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            int start = dst.position();
+            long beginNanos = begin();
+            Event event = beginEvent(Stage.READ);
+            int read = channel.read(dst);
+            end(Stage.READ, beginNanos, event);
+            if (read > 0) {
+                bytesIn.add(read);
+                int lines = 0;
+                for (int i = start; i < start + read; i++) {
+                    if (dst.get(i) == '\n') {
+                        lines++;
+                    }
+                }
+                linesIn.add(lines);
+            }
+            return read;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private class MeasuredWritableByteChannel implements WritableByteChannel {
+
+        private final WritableByteChannel channel;
+
+        MeasuredWritableByteChannel(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            long beginNanos = begin();
+            Event event = beginEvent(Stage.WRITE);
+            int written = channel.write(src);
+            end(Stage.WRITE, beginNanos, event);
+            bytesOut.add(written);
+            return written;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private class MeasuredOutputStream extends FilterOutputStream {
+
+        MeasuredOutputStream(OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            long beginNanos = begin();
+            Event event = beginEvent(Stage.WRITE);
+            out.write(bytes, offset, length);
+            end(Stage.WRITE, beginNanos, event);
+            bytesOut.add(length);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        // The stdin of the pager is buffered, so flushing may block as well.
+        @Override
+        public void flush() throws IOException {
+            long beginNanos = begin();
+            Event event = beginEvent(Stage.WRITE);
+            out.flush();
+            end(Stage.WRITE, beginNanos, event);
+        }
+    }
+
+    // The duration of each event is the one of its stage, from begin to end.
+    @Category("git-timeline")
+    private abstract static class StageEvent extends Event {
+    }
+
+    @Name("me.hernancerm.GitLogRead")
+    @Label("git-log Read")
+    @Description("Read of the output of git-log, blocked until git-log prints more")
+    private static class ReadEvent extends StageEvent {
+    }
+
+    @Name("me.hernancerm.RecordParse")
+    @Label("Record Parse")
+    @Description("Parse of the record of a commit")
+    @Threshold("1 ms")
+    private static class ParseEvent extends StageEvent {
+    }
+
+    @Name("me.hernancerm.RecordFormat")
+    @Label("Record Format")
+    @Description("Format of a commit, including its hyperlinks")
+    @Threshold("1 ms")
+    private static class FormatEvent extends StageEvent {
+    }
+
+    @Name("me.hernancerm.OutputWrite")
+    @Label("Output Write")
+    @Description("Write to the pager or stdout, blocked until it takes the bytes")
+    private static class WriteEvent extends StageEvent {
+    }
+}
@@ -0,0 +1,256 @@
+package me.hernancerm;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.jline.terminal.Terminal;
+
+// Training workload: git-timeline runs in-process against a generated repo, with and without the
+// graph, for every remote platform, paged and not paged. Uses a Caller, as the daemon does, so the
+// runs are in the repo and the output is discarded. Trains:
+// - The AOT cache of the uber JAR (the `aot` Maven profile), run with `-XX:AOTCacheOutput`. The
+//   JVM records the classes loaded and linked, and the methods profiled.
+// - The profile of the native binary (the `native-pgo` Maven profile), as the entry point of an
+//   instrumented binary. Its profile is then used to optimize the binary of App.
+//
+// Usage: TimelineTraining <dir of the fixture repo>
+public class TimelineTraining {
+
+    private static final int COMMIT_COUNT = 400;
+    // Repeated, so the methods are profiled as on real runs.
+    private static final int ROUNDS = 3;
+
+    private static final List<List<String>> ARGS = List.of(
+            List.of(),
+            List.of("-n", "20"),
+            List.of("--graph", "--all"),
+            List.of("--graph", "--all", "--stat"),
+            List.of("--graph", "--all", "--timeline-graph"),
+            List.of("--graph", "--timeline-pipeline"),
+            List.of("--timeline-cache"),
+            List.of("--timeline-in-process", "--all"),
+            List.of("--timeline-output=ndjson", "--graph", "--all"),
+            List.of("--graph", "--timeline-columns", "--timeline-truncate"),
+            List.of("--color=never", "--timeline-stats"));
+
+    private static final String[] NAMES = {
+            "Hernán Cervera", "Jane Committer", "Bob", "李小龍", "Zoë Müller", "Dependabot[bot]"};
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("Usage: TimelineTraining <dir of the fixture repo>");
+        }
+        Path repo = Path.of(args[0]).toAbsolutePath();
+        createRepo(repo);
+        for (int round = 0; round < ROUNDS; round++) {
+            for (String remoteUrl : getRemoteUrls()) {
+                setRemoteUrl(repo, remoteUrl);
+                for (List<String> runArgs : ARGS) {
+                    run(repo, runArgs, false);
+                    run(repo, runArgs, true);
+                }
+            }
+        }
+    }
+
+    private static void run(Path repo, List<String> args, boolean isPaged) throws Exception {
+        AnsiUtils.setEnabled(true);
+        TrainingCaller caller = new TrainingCaller(repo, isPaged);
+        int exitValue = new GitTimeline(
+                args.toArray(new String[0]),
+                new GitLogProcessBuilder(caller),
+                new GitLogFormatter(),
+                caller).call();
+        if (exitValue != 0) {
+            throw new IllegalStateException("Training run failed with exit value " + exitValue + ": " + args);
+        }
+    }
+
+    // No remote, then one per built-in hosting provider. HTTPS, SSH and scp-like URLs are used.
+    private static List<String> getRemoteUrls() {
+        List<String> remoteUrls = new ArrayList<>();
+        remoteUrls.add(null);
+        remoteUrls.add("https://bitbucket.org/hernancerm/git-timeline.git");
+        remoteUrls.add("git@github.com:hernancerm/git-timeline.git");
+        remoteUrls.add("ssh://git@gitlab.com/hernancerm/tools/git-timeline");
+        remoteUrls.add("https://codeberg.org/hernancerm/git-timeline");
+        return remoteUrls;
+    }
+
+    private static void setRemoteUrl(Path repo, String remoteUrl) throws IOException, InterruptedException {
+        git(repo, null, "remote", "remove", "origin");
+        if (remoteUrl != null) {
+            git(repo, null, "remote", "add", "origin", remoteUrl);
+        }
+    }
+
+    // History with merges of branches, tags, several authors and subjects with PR numbers and
+    // issue keys, written at once with git-fast-import.
+    private static void createRepo(Path repo) throws IOException, InterruptedException {
+        if (Files.exists(repo)) {
+            try (Stream<Path> paths = Files.walk(repo)) {
+                for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(path);
+                }
+            }
+        }
+        Files.createDirectories(repo);
+        git(repo, null, "init", "--quiet", "--initial-branch=main");
+        StringBuilder stream = new StringBuilder();
+        int mark = 0;
+        for (int i = 0; i < COMMIT_COUNT; i++) {
+            int mainMark = mark;
+            if (i % 10 == 9) {
+                // A branch off main, merged right away.
+                int branchMark = ++mark;
+                appendCommit(stream, "refs/heads/feature/ABC-" + i, branchMark, mainMark, 0, i,
+                        "ABC-" + i + " Fix the parser (#" + (i + 100) + ")");
+                mark++;
+                appendCommit(stream, "refs/heads/main", mark, mainMark, branchMark, i,
+                        "Merge branch 'feature/ABC-" + i + "'");
+            } else {
+                mark++;
+                appendCommit(stream, "refs/heads/main", mark, mainMark, 0, i,
+                        i % 3 == 0 ? "Update the formatter (#" + (i + 100) + ")" : "Refactor GitLogFormatter");
+            }
+            if (i % 50 == 0) {
+                stream.append("reset refs/tags/v1.").append(i / 50).append('\n')
+                        .append("from :").append(mark).append("\n\n");
+            }
+        }
+        git(repo, stream.toString(), "fast-import", "--quiet");
+        git(repo, null, "checkout", "--quiet", "main");
+        // The graph of `--timeline-graph` is then drawn in-process.
+        git(repo, null, "commit-graph", "write", "--reachable");
+    }
+
+    private static void appendCommit(
+            StringBuilder stream, String ref, int mark, int fromMark, int mergeMark, int i, String subject) {
+        String author = NAMES[i % NAMES.length];
+        // Sometimes applied by someone else.
+        String committer = i % 7 == 0 ? NAMES[(i + 1) % NAMES.length] : author;
+        long time = 1_600_000_000L + i * 3_600L;
+        stream.append("commit ").append(ref).append('\n')
+                .append("mark :").append(mark).append('\n')
+                .append("author ").append(author).append(" <a@example.com> ").append(time).append(" +0000\n")
+                .append("committer ").append(committer).append(" <c@example.com> ").append(time).append(" +0000\n")
+                .append("data ").append(subject.getBytes(StandardCharsets.UTF_8).length).append('\n')
+                .append(subject).append('\n');
+        if (fromMark > 0) {
+            stream.append("from :").append(fromMark).append('\n');
+        }
+        if (mergeMark > 0) {
+            stream.append("merge :").append(mergeMark).append('\n');
+        }
+        String content = "line " + i + "\n";
+        stream.append("M 644 inline src/file").append(i % 5).append(".txt\n")
+                .append("data ").append(content.length()).append('\n')
+                .append(content).append('\n');
+    }
+
+    private static void git(Path repo, String input, String... args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(List.of("git", "-C", repo.toString()));
+        command.addAll(List.of(args));
+        Process process = new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try (OutputStream stdin = process.getOutputStream()) {
+            if (input != null) {
+                stdin.write(input.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        // Removing a remote which does not exist fails, as expected.
+        if (process.waitFor() != 0 && !args[0].equals("remote")) {
+            throw new IllegalStateException("Error running: " + String.join(" ", command));
+        }
+    }
+
+    // Runs in the fixture repo and discards the output. The pager is `cat`, to cover the pager
+    // path without a terminal.
+    private static class TrainingCaller implements Caller {
+
+        private final Path repo;
+        private final boolean isPaged;
+        private final Map<String, String> environment;
+
+        TrainingCaller(Path repo, boolean isPaged) {
+            this.repo = repo;
+            this.isPaged = isPaged;
+            this.environment = new HashMap<>(System.getenv());
+            this.environment.put("GIT_PAGER", "cat");
+        }
+
+        @Override
+        public Path workingDirectory() {
+            return repo;
+        }
+
+        @Override
+        public Map<String, String> environment() {
+            return environment;
+        }
+
+        @Override
+        public boolean isStdoutTerminal() {
+            return isPaged;
+        }
+
+        @Override
+        public Instant startInstant() {
+            return Instant.now();
+        }
+
+        @Override
+        public OutputStream stdout() {
+            return OutputStream.nullOutputStream();
+        }
+
+        @Override
+        public OutputStream stderr() {
+            return OutputStream.nullOutputStream();
+        }
+
+        @Override
+        public Process start(ProcessBuilder processBuilder) throws IOException {
+            if (processBuilder.directory() == null) {
+                processBuilder.directory(repo.toFile());
+            }
+            processBuilder.environment().clear();
+            processBuilder.environment().putAll(environment);
+            if (processBuilder.redirectError() == ProcessBuilder.Redirect.INHERIT) {
+                processBuilder.redirectError(ProcessBuilder.Redirect.DISCARD);
+            }
+            return processBuilder.start();
+        }
+
+        @Override
+        public Process startPager(List<String> command) throws IOException {
+            return new ProcessBuilder(command)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+        }
+
+        @Override
+        public Terminal openTerminal() {
+            return null;
+        }
+
+        // Covers the truncation of `--timeline-truncate` without a terminal.
+        @Override
+        public int terminalWidth() {
+            return 80;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package me.hernancerm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class AdaptiveOutputSinkTest {
+
+    // More than the lines of the first screen, which are flushed one by one.
+    private static final int LINE_COUNT = 500;
+    // Longer than the flush interval plus the sleep of the flusher.
+    private static final long FLUSH_TIMEOUT_MILLIS = 2000;
+
+    @Test
+    void println_givenNoMoreLinesAfterFirstScreen_thenWrittenWithinFlushInterval() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        StringBuilder expected = new StringBuilder();
+        try (AdaptiveOutputSink sink = AdaptiveOutputSink.forStdout(
+                output, StandardCharsets.UTF_8, new TimelineStats(false), () -> {})) {
+            for (int i = 0; i < LINE_COUNT; i++) {
+                sink.println(String.valueOf(i));
+                expected.append(i).append('\n');
+            }
+
+            long deadline = System.currentTimeMillis() + FLUSH_TIMEOUT_MILLIS;
+            while (output.size() < expected.length() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(expected.toString(), output.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void println_givenWriteError_thenDiscardOutputAndRunCallbackOnce() throws Exception {
+        AtomicInteger writeCount = new AtomicInteger();
+        AtomicInteger outputClosedCount = new AtomicInteger();
+        OutputStream brokenPipe = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                writeCount.incrementAndGet();
+                throw new IOException("Broken pipe");
+            }
+        };
+        try (AdaptiveOutputSink sink = AdaptiveOutputSink.forStdout(
+                brokenPipe, StandardCharsets.UTF_8, new TimelineStats(false), outputClosedCount::incrementAndGet)) {
+            for (int i = 0; i < LINE_COUNT; i++) {
+                sink.println(String.valueOf(i));
+            }
+        }
+
+        assertEquals(1, outputClosedCount.get());
+        assertEquals(1, writeCount.get());
+    }
+}
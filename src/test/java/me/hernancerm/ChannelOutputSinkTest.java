@@ -0,0 +1,118 @@
+package me.hernancerm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class ChannelOutputSinkTest {
+
+    // Longer than the flush interval plus the sleep of the flusher.
+    private static final long FLUSH_TIMEOUT_MILLIS = 2000;
+
+    @Test
+    void println_givenNoMoreLines_thenWrittenWithinFlushInterval() throws Exception {
+        InMemoryChannel channel = new InMemoryChannel();
+        try (ChannelOutputSink sink = new ChannelOutputSink(channel, StandardCharsets.UTF_8, () -> {})) {
+            sink.println("first");
+
+            assertTrue(awaitOutput(channel, "first\n"), "The line was not flushed: " + channel.output());
+        }
+    }
+
+    @Test
+    void close_givenLinesBuffered_thenFlushedAndFlusherStopped() throws Exception {
+        InMemoryChannel channel = new InMemoryChannel();
+        ChannelOutputSink sink = new ChannelOutputSink(channel, StandardCharsets.UTF_8, () -> {});
+        sink.println("first");
+        sink.write(ByteBuffer.wrap("second\n".getBytes(StandardCharsets.UTF_8)));
+
+        sink.close();
+
+        assertEquals("first\nsecond\n", channel.output());
+        assertTrue(awaitFlusherStopped(), "The flusher thread is still running");
+        assertThrows(IOException.class, () -> sink.println("third"));
+    }
+
+    @Test
+    void flush_givenWriteError_thenDiscardOutputAndRunCallbackOnce() throws Exception {
+        InMemoryChannel channel = new InMemoryChannel();
+        channel.isBroken = true;
+        AtomicInteger outputClosedCount = new AtomicInteger();
+        try (ChannelOutputSink sink = new ChannelOutputSink(
+                channel, StandardCharsets.UTF_8, outputClosedCount::incrementAndGet)) {
+            sink.println("first");
+            sink.flush();
+            sink.println("second");
+            sink.flush();
+        }
+
+        assertEquals(1, outputClosedCount.get());
+        assertEquals(1, channel.writeCount.get());
+        assertEquals("", channel.output());
+    }
+
+    private static boolean awaitOutput(InMemoryChannel channel, String expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + FLUSH_TIMEOUT_MILLIS;
+        while (!channel.output().equals(expected)) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    private static boolean awaitFlusherStopped() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + FLUSH_TIMEOUT_MILLIS;
+        while (Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(thread -> thread.getName().equals("git-timeline-flusher"))) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    // A pipe to a reader, which goes away (broken pipe) when broken.
+    private static class InMemoryChannel implements WritableByteChannel {
+
+        private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        private final AtomicInteger writeCount = new AtomicInteger();
+        private volatile boolean isBroken;
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            writeCount.incrementAndGet();
+            if (isBroken) {
+                throw new IOException("Broken pipe");
+            }
+            byte[] bytes = new byte[src.remaining()];
+            src.get(bytes);
+            output.writeBytes(bytes);
+            return bytes.length;
+        }
+
+        String output() {
+            return output.toString(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
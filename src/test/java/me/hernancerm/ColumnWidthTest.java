@@ -0,0 +1,35 @@
+package me.hernancerm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class ColumnWidthTest {
+
+    @Test
+    void add_givenWiderValue_thenWidensRightAway() {
+        ColumnWidth column = new ColumnWidth(3, 24);
+
+        assertEquals(3, column.add(3));
+        assertEquals(6, column.add(6));
+        assertEquals(6, column.add(2));
+    }
+
+    @Test
+    void add_givenWidestValueOutOfTheWindow_thenNarrowsToTheWidestLeft() {
+        ColumnWidth column = new ColumnWidth(3, 24);
+        column.add(8);
+        column.add(5);
+        column.add(2);
+
+        assertEquals(5, column.add(3));
+        assertEquals(3, column.add(1));
+    }
+
+    @Test
+    void add_givenValueWiderThanTheMaximum_thenMaximum() {
+        ColumnWidth column = new ColumnWidth(3, 24);
+
+        assertEquals(24, column.add(40));
+    }
+}
@@ -0,0 +1,108 @@
+package me.hernancerm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CommitGraphTest {
+
+    private static final int HASH_LENGTH = 20;
+    private static final int PARENT_NONE = 0x70000000;
+
+    @TempDir
+    Path objectsDirectory;
+
+    @Test
+    void getParent_givenOctopusMerge_thenReadExtraEdges() throws IOException {
+        // Commits 0 (root), 1 and 2 (children of 0), and 3 (octopus merge of 1, 2 and 0).
+        writeCommitGraph(new int[][]{{}, {0}, {0}, {1, 2, 0}}, new int[]{1, 2, 2, 3});
+
+        CommitGraph commitGraph = CommitGraph.open(objectsDirectory);
+
+        int octopus = commitGraph.findPosition(hexHash(3).getBytes(StandardCharsets.US_ASCII), 0);
+        assertEquals(3, octopus);
+        assertEquals(3, commitGraph.getParentCount(octopus));
+        assertEquals(1, commitGraph.getParent(octopus, 0));
+        assertEquals(2, commitGraph.getParent(octopus, 1));
+        assertEquals(0, commitGraph.getParent(octopus, 2));
+        assertEquals(0, commitGraph.getParentCount(0));
+        assertEquals(3, commitGraph.getGeneration(octopus));
+        assertEquals(hexHash(1), commitGraph.getHash(1));
+    }
+
+    @Test
+    void findPosition_givenCommitNotInCommitGraph_thenMinusOne() throws IOException {
+        writeCommitGraph(new int[][]{{}}, new int[]{1});
+
+        CommitGraph commitGraph = CommitGraph.open(objectsDirectory);
+
+        assertEquals(-1, commitGraph.findPosition(hexHash(7).getBytes(StandardCharsets.US_ASCII), 0));
+    }
+
+    @Test
+    void open_givenNoCommitGraph_thenNull() throws IOException {
+        assertNull(CommitGraph.open(objectsDirectory));
+    }
+
+    // The hash of commit `i` is all zeros but its first byte, which is `i`, so they are sorted.
+    private static String hexHash(int commit) {
+        return String.format("%02x", commit) + "00".repeat(HASH_LENGTH - 1);
+    }
+
+    // Writes a commit-graph with the chunks OIDF, OIDL, CDAT and EDGE. Parents are positions.
+    private void writeCommitGraph(int[][] parents, int[] generations) throws IOException {
+        int commitCount = parents.length;
+        int extraEdgeCount = 0;
+        for (int[] commitParents : parents) {
+            extraEdgeCount += commitParents.length > 2 ? commitParents.length - 1 : 0;
+        }
+        int fanoutOffset = 8 + 5 * 12;
+        int lookupOffset = fanoutOffset + 256 * 4;
+        int dataOffset = lookupOffset + commitCount * HASH_LENGTH;
+        int edgesOffset = dataOffset + commitCount * (HASH_LENGTH + 16);
+        int endOffset = edgesOffset + extraEdgeCount * 4;
+
+        ByteBuffer buffer = ByteBuffer.allocate(endOffset);
+        buffer.put("CGPH".getBytes(StandardCharsets.US_ASCII)).put((byte) 1).put((byte) 1).put((byte) 4).put((byte) 0);
+        int[] offsets = {fanoutOffset, lookupOffset, dataOffset, edgesOffset, endOffset};
+        String[] chunkIds = {"OIDF", "OIDL", "CDAT", "EDGE", "\0\0\0\0"};
+        for (int i = 0; i < offsets.length; i++) {
+            buffer.put(chunkIds[i].getBytes(StandardCharsets.US_ASCII)).putLong(offsets[i]);
+        }
+        for (int i = 0; i < 256; i++) {
+            buffer.putInt(Math.min(i + 1, commitCount));
+        }
+        for (int i = 0; i < commitCount; i++) {
+            buffer.put((byte) i).put(new byte[HASH_LENGTH - 1]);
+        }
+        int extraEdge = 0;
+        for (int i = 0; i < commitCount; i++) {
+            int[] commitParents = parents[i];
+            buffer.put(new byte[HASH_LENGTH]);
+            buffer.putInt(commitParents.length > 0 ? commitParents[0] : PARENT_NONE);
+            if (commitParents.length > 2) {
+                buffer.putInt(0x80000000 | extraEdge);
+                extraEdge += commitParents.length - 1;
+            } else {
+                buffer.putInt(commitParents.length > 1 ? commitParents[1] : PARENT_NONE);
+            }
+            buffer.putInt(generations[i] << 2).putInt(1_700_000_000 + i);
+        }
+        for (int[] commitParents : parents) {
+            for (int i = 1; commitParents.length > 2 && i < commitParents.length; i++) {
+                buffer.putInt(commitParents[i] | (i + 1 == commitParents.length ? 0x80000000 : 0));
+            }
+        }
+
+        Path infoDirectory = Files.createDirectories(objectsDirectory.resolve("info"));
+        Files.write(infoDirectory.resolve("commit-graph"), buffer.array());
+    }
+}
@@ -0,0 +1,59 @@
+package me.hernancerm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+class DisplayWidthTest {
+
+    @Test
+    void of_givenCjkAndCombiningCharacters_thenWideOnesTakeTwoColumns() {
+        assertEquals(6, DisplayWidth.of("李小龍"));
+        assertEquals(3, DisplayWidth.of("Zoë"));
+        assertEquals(10, DisplayWidth.of("Zoë Müller"));
+    }
+
+    @Test
+    void of_givenColorsAndHyperlink_thenEscapeSequencesSkipped() {
+        String line = "\033[33m3bb28d0\033[m \033]8;;https://example.com/issues/1\007#1\033]8;;\007";
+
+        assertEquals(10, DisplayWidth.of(line, 0, line.length()));
+    }
+
+    @Test
+    void of_givenColoredGraphPrefix_thenConnectorsCounted() {
+        byte[] line = "\033[31m|\033[m * abc".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(4, DisplayWidth.of(line, 0, line.length - "abc".length()));
+    }
+
+    @Test
+    void truncate_givenCutInsideHyperlink_thenHyperlinkClosedAndColorsReset() {
+        StringBuilder line = new StringBuilder("Fix \033]8;;https://example.com/issues/12\007#12\033]8;;\007 now");
+
+        int width = DisplayWidth.truncate(line, 0, 7);
+
+        assertEquals(7, width);
+        assertEquals("Fix \033]8;;https://example.com/issues/12\007#..\033]8;;\007\033[m", line.toString());
+    }
+
+    @Test
+    void truncate_givenWideCharacterAtTheCut_thenCutBeforeIt() {
+        StringBuilder line = new StringBuilder("> 李小龍");
+
+        int width = DisplayWidth.truncate(line, 2, 5);
+
+        assertEquals(4, width);
+        assertEquals("> 李..", line.toString());
+    }
+
+    @Test
+    void truncate_givenLineWhichFits_thenUnchanged() {
+        StringBuilder line = new StringBuilder("李小龍");
+
+        assertEquals(6, DisplayWidth.truncate(line, 0, 6));
+        assertEquals("李小龍", line.toString());
+    }
+}
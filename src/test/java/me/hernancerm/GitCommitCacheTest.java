@@ -0,0 +1,168 @@
+package me.hernancerm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GitCommitCacheTest {
+
+    private static final String FORMAT = "UTF-8";
+    private static final String HASH = "3bb28d0d0d1c978894e22c5206c0d1f07f5b9071";
+    private static final String OTHER_HASH = "0816af9d0d1c978894e22c5206c0d1f07f5b9071";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void get_givenPutInPreviousRun_thenReturnFields() throws IOException {
+        try (GitCommitCache cache = GitCommitCache.open(directory, FORMAT)) {
+            put(cache, HASH, "Jane\u001fHernán\u001fDec/31/2025\u001fTest commit");
+        }
+
+        try (GitCommitCache cache = GitCommitCache.open(directory, FORMAT)) {
+            assertEquals(1, cache.size());
+            assertEquals("Jane\u001fHernán\u001fDec/31/2025\u001fTest commit", get(cache, HASH));
+            assertNull(get(cache, OTHER_HASH));
+        }
+    }
+
+    @Test
+    void get_givenManyCommits_thenGrowIndex() throws IOException {
+        try (GitCommitCache cache = GitCommitCache.open(directory, FORMAT)) {
+            for (int i = 0; i < 20_000; i++) {
+                put(cache, hash(i), "subject " + i);
+            }
+        }
+
+        try (GitCommitCache cache = GitCommitCache.open(directory, FORMAT)) {
+            assertEquals(20_000, cache.size());
+            assertEquals("subject 12345", get(cache, hash(12345)));
+        }
+    }
+
+    @Test
+    void get_givenHashesWithSamePrefix_thenReturnEachOne() throws IOException {
+        try (GitCommitCache cache = GitCommitCache.open(directory, FORMAT)) {
+            for (int i = 0; i < 3; i++) {
+                put(cache, String.format("%040x", i), "subject " + i);
+            }
+
+            for (int i = 0; i < 3; i++) {
+                assertEquals("subject " + i, get(cache, String.format("%040x", i)));
+            }
+        }
+    }
+
+    @Test
+    void open_givenOtherFormat_thenDiscardCache() throws IOException {
+        try (GitCommitCache cache = GitCommitCache.open(directory, FORMAT)) {
+            put(cache, HASH, "Test commit");
+        }
+
+        try (GitCommitCache cache = GitCommitCache.open(directory, "ISO-8859-1")) {
+            assertTrue(cache.isEmpty());
+            assertNull(get(cache, HASH));
+        }
+    }
+
+    @Test
+    void open_givenTruncatedEntry_thenDropIt() throws IOException {
+        try (GitCommitCache cache = GitCommitCache.open(directory, FORMAT)) {
+            put(cache, HASH, "Test commit");
+            cache.flush();
+            put(cache, OTHER_HASH, "Other commit");
+        }
+        Path dataPath = directory.resolve("commits.dat");
+        byte[] data = Files.readAllBytes(dataPath);
+        Files.write(dataPath, Arrays.copyOf(data, data.length - 3));
+
+        try (GitCommitCache cache = GitCommitCache.open(directory, FORMAT)) {
+            assertEquals("Test commit", get(cache, HASH));
+            assertNull(get(cache, OTHER_HASH));
+        }
+    }
+
+    @Test
+    void get_givenCorruptEntry_thenReturnNullAndDiscardCache() throws IOException {
+        try (GitCommitCache cache = GitCommitCache.open(directory, FORMAT)) {
+            put(cache, HASH, "Test commit");
+        }
+        Path dataPath = directory.resolve("commits.dat");
+        byte[] data = Files.readAllBytes(dataPath);
+        data[data.length - 1] ^= 0x01;
+        Files.write(dataPath, data);
+
+        // Only the length of the data file is validated when opening, so the flipped byte is
+        // found when the entry is read.
+        try (GitCommitCache cache = GitCommitCache.open(directory, FORMAT)) {
+            assertNull(get(cache, HASH));
+        }
+        try (GitCommitCache cache = GitCommitCache.open(directory, FORMAT)) {
+            assertTrue(cache.isEmpty());
+        }
+    }
+
+    @Test
+    void get_givenEntryAppendedByConcurrentRun_thenMissAndKeepCache() throws IOException {
+        try (GitCommitCache cache = GitCommitCache.open(directory, FORMAT)) {
+            put(cache, HASH, "Test commit");
+        }
+
+        try (GitCommitCache cache = GitCommitCache.open(directory, FORMAT)) {
+            try (GitCommitCache concurrentCache = GitCommitCache.open(directory, FORMAT)) {
+                put(concurrentCache, OTHER_HASH, "Other commit");
+            }
+
+            // Indexed in the shared index, but past the data this run mapped.
+            assertNull(get(cache, OTHER_HASH));
+            assertEquals("Test commit", get(cache, HASH));
+        }
+
+        try (GitCommitCache cache = GitCommitCache.open(directory, FORMAT)) {
+            assertEquals(2, cache.size());
+            assertEquals("Other commit", get(cache, OTHER_HASH));
+        }
+    }
+
+    @Test
+    void compact_givenUnreachableCommit_thenEvictIt() throws IOException {
+        try (GitCommitCache cache = GitCommitCache.open(directory, FORMAT)) {
+            put(cache, HASH, "Test commit");
+            put(cache, OTHER_HASH, "Rebased away");
+
+            assertEquals(1, cache.compact(HASH::equals));
+
+            assertEquals(1, cache.size());
+            assertEquals("Test commit", get(cache, HASH));
+            assertNull(get(cache, OTHER_HASH));
+        }
+    }
+
+    // Varies in the first digits, like real hashes.
+    private String hash(int i) {
+        return new StringBuilder(String.format("%040x", i)).reverse().toString();
+    }
+
+    private void put(GitCommitCache cache, String hash, String fields) throws IOException {
+        byte[] hashBytes = hash.getBytes(StandardCharsets.ISO_8859_1);
+        byte[] fieldsBytes = fields.getBytes(StandardCharsets.UTF_8);
+        cache.put(hashBytes, 0, hashBytes.length, fieldsBytes, 0, fieldsBytes.length);
+    }
+
+    private String get(GitCommitCache cache, String hash) throws IOException {
+        cache.flush();
+        byte[] hashBytes = hash.getBytes(StandardCharsets.ISO_8859_1);
+        ByteBuffer fields = cache.get(hashBytes, 0, hashBytes.length);
+        return fields == null ? null : StandardCharsets.UTF_8.decode(fields).toString();
+    }
+}
@@ -0,0 +1,67 @@
+package me.hernancerm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class GitGraphRendererTest {
+
+    private final GitGraphRenderer renderer = new GitGraphRenderer();
+    private final StringBuilder graph = new StringBuilder();
+
+    @BeforeEach
+    void setUp() {
+        AnsiUtils.setEnabled(false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        AnsiUtils.setEnabled(true);
+    }
+
+    @Test
+    void render_givenMerge_thenDrawLikeGit() {
+        render(1, 2, 3);
+        render(3, 4);
+        render(2, 4);
+        render(4);
+
+        assertEquals("""
+                *   1
+                |\\
+                | * 3
+                * | 2
+                |/
+                * 4
+                """, graph.toString());
+    }
+
+    @Test
+    void render_givenOctopusMerge_thenDrawDashes() {
+        render(1, 2, 3, 4);
+        render(4, 5);
+        render(3, 5);
+        render(2, 5);
+        render(5);
+
+        assertEquals("""
+                *-.   1
+                |\\ \\
+                | | * 4
+                | * | 3
+                | |/
+                * | 2
+                |/
+                * 5
+                """, graph.toString());
+    }
+
+    // Appends the rows before the commit and the line of the commit, with the commit as record.
+    private void render(int commit, int... parents) {
+        StringBuilder prefix = new StringBuilder();
+        renderer.render(commit, parents, parents.length, graph, prefix);
+        graph.append(prefix).append(commit).append('\n');
+    }
+}
@@ -0,0 +1,87 @@
+package me.hernancerm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class GitHostingProvidersTest {
+
+    @Test
+    void load_givenSelfHostedGitLab_thenTemplatesOfTypeAndOverrides() {
+        GitHostingProviders providers = GitHostingProviders.load(Map.of(
+                "timeline.provider.corp.type", List.of("gitlab"),
+                "timeline.provider.corp.host", List.of("gitlab.corp.example.com", "GitLab.Corp.Example.ORG"),
+                "timeline.provider.corp.trackerkeyurl", List.of("https://jira.corp.example.com/browse/{key}?from=git")), warning -> {});
+
+        GitHostingProvider provider = providers.find("gitlab.corp.example.org");
+        GitRemote remote = new GitRemote(provider, "gitlab.corp.example.org", "tools", "platform");
+
+        assertEquals("corp", provider.name());
+        assertSame(provider, providers.find("gitlab.corp.example.com"));
+        assertSame(GitHostingProvider.GITHUB, providers.find("github.com"));
+        assertEquals(
+                new GitHostingProvider.Url("https://gitlab.corp.example.org/platform/tools/-/merge_requests/", ""),
+                provider.pullRequestUrl().resolve(remote));
+        assertEquals(
+                new GitHostingProvider.Url("https://jira.corp.example.com/browse/", "?from=git"),
+                provider.trackerKeyUrl().resolve(remote));
+    }
+
+    @Test
+    void load_givenBuiltInNameWithoutHost_thenOverrideBuiltInHost() {
+        GitHostingProviders providers = GitHostingProviders.load(Map.of(
+                "timeline.provider.github.issueurl", List.of("")), warning -> {});
+
+        GitHostingProvider provider = providers.find("github.com");
+
+        assertEquals("github", provider.name());
+        assertNull(provider.issueUrl());
+        assertEquals(GitHostingProvider.GITHUB.commitUrl(), provider.commitUrl());
+    }
+
+    @Test
+    void load_givenUnknownType_thenWarnAndSkipProvider() {
+        List<String> warnings = new ArrayList<>();
+
+        GitHostingProviders providers = GitHostingProviders.load(Map.of(
+                "timeline.provider.corp.type", List.of("sourcehut"),
+                "timeline.provider.corp.host", List.of("git.corp.example.com")), warnings::add);
+
+        assertEquals(List.of("ignoring timeline.provider.corp: Unknown type of timeline.provider.corp.type: "
+                + "sourcehut (expected github, bitbucket, gitlab or gitea)"), warnings);
+        assertNull(providers.find("git.corp.example.com"));
+        assertSame(GitHostingProvider.GITHUB, providers.find("github.com"));
+    }
+
+    @Test
+    void load_givenNoHost_thenWarnAndKeepOtherProviders() {
+        List<String> warnings = new ArrayList<>();
+
+        GitHostingProviders providers = GitHostingProviders.load(Map.of(
+                "timeline.provider.corp.trackerkeyurl", List.of("https://jira.corp.example.com/browse/{key}"),
+                "timeline.provider.gitea.host", List.of("git.corp.example.com")), warnings::add);
+
+        assertEquals(List.of("ignoring timeline.provider.corp: No host for the provider: timeline.provider.corp.host"),
+                warnings);
+        assertEquals("gitea", providers.find("git.corp.example.com").name());
+        assertSame(GitHostingProvider.GITLAB, providers.find("gitlab.com"));
+    }
+
+    @Test
+    void load_givenBadTemplate_thenWarnAndSkipProvider() {
+        List<String> warnings = new ArrayList<>();
+
+        GitHostingProviders providers = GitHostingProviders.load(Map.of(
+                "timeline.provider.corp.host", List.of("git.corp.example.com"),
+                "timeline.provider.corp.commiturl", List.of("https://{host}/{owner}/{repo}/commit")), warnings::add);
+
+        assertEquals(1, warnings.size());
+        assertNull(providers.find("git.corp.example.com"));
+    }
+}
@@ -39,16 +39,36 @@ class GitLogFormatterTest {
         assertNotNull(formattedCommit);
     }
 
+    @Test
+    void format_givenMergeCommitWithMarkupInSubject_thenEmitStylesAndKeepSubject() {
+        // Given
+        GitCommit commit = getCommit();
+        commit.setRemote(null);
+        commit.setAbbreviatedParentHashes("0816af9 a1b2c3d");
+        commit.setCommitterName("Jane Committer");
+        commit.setSubjectLine("Keep @|red markup|@ as is");
+
+        // When
+        String formattedCommit = gitLogFormatter.format(commit);
+
+        // Then
+        assertEquals(
+                "\033[1;33m3bb28d0*\033[m \033[32m2025-12-31\033[m  \033[1;36mHernán Cervera*\033[m"
+                        + " Keep @|red markup|@ as is",
+                formattedCommit);
+    }
+
     private GitCommit getCommit() {
         GitRemote remote = new GitRemote(
-                GitRemote.Platform.BITBUCKET_ORG,
+                GitHostingProvider.BITBUCKET,
+                "bitbucket.org",
                 "test-repo",
                 "hernancerm");
 
         GitCommit commit = new GitCommit();
         commit.setFullHash("3bb28d0d0d1c978894e22c5206c0d1f07f5b9071");
         commit.setAbbreviatedHash("3bb28d0");
-        commit.setAbbreviatedParentHashes(new String[]{"0816af9"});
+        commit.setAbbreviatedParentHashes("0816af9");
         commit.setAuthorName("Hernán Cervera");
         commit.setAuthorDate("2025-12-31");
         commit.setCommitterName("Hernán Cervera");
@@ -0,0 +1,79 @@
+package me.hernancerm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+class GitLogJsonWriterTest {
+
+    private static final GitRemote GITHUB_REMOTE = new GitRemote(
+            GitHostingProvider.GITHUB, "github.com", "test-repo", "hernancerm");
+
+    @Test
+    void appendCommit_givenGitHubRemote_thenFieldsAndUrls() {
+        GitCommit commit = new GitCommit();
+        commit.setFullHash("ed367df4eca4b8a201c9b3205cc7dfb3e1700ea8");
+        commit.setAbbreviatedHash("ed367df");
+        commit.setAbbreviatedParentHashes("0bb6ae4 1ee516e");
+        commit.setAuthorName("Zoë \"Z\" Müller");
+        commit.setCommitterName("Bob");
+        commit.setAuthorDate("Sep/13/2020");
+        commit.setSubjectLine("Fix #12\tnow");
+        commit.setRefNamesColored(" (HEAD -> main, tag: v1.0)");
+        commit.setRemote(GITHUB_REMOTE);
+        StringBuilder json = new StringBuilder();
+
+        new GitLogJsonWriter(StandardCharsets.UTF_8, true).appendCommit(json, commit, "* ", null);
+
+        assertEquals("{\"type\":\"commit\",\"graph\":\"* \""
+                + ",\"fullHash\":\"ed367df4eca4b8a201c9b3205cc7dfb3e1700ea8\",\"abbreviatedHash\":\"ed367df\""
+                + ",\"abbreviatedParentHashes\":[\"0bb6ae4\",\"1ee516e\"]"
+                + ",\"authorName\":\"Zoë \\\"Z\\\" Müller\",\"committerName\":\"Bob\",\"authorDate\":\"Sep/13/2020\""
+                + ",\"subjectLine\":\"Fix #12\\tnow\",\"refNames\":[\"HEAD -> main\",\"tag: v1.0\"]"
+                + ",\"url\":\"https://github.com/hernancerm/test-repo/commit/ed367df4eca4b8a201c9b3205cc7dfb3e1700ea8\""
+                + ",\"links\":[{\"text\":\"#12\",\"url\":\"https://github.com/hernancerm/test-repo/issues/12\"}]}",
+                json.toString());
+    }
+
+    @Test
+    void appendCommit_givenNoRemoteNorRefNamesAndLatin1_thenNullUrlAndEscapedNonAscii() {
+        GitCommit commit = new GitCommit();
+        commit.setFullHash("ed367df4eca4b8a201c9b3205cc7dfb3e1700ea8");
+        commit.setAbbreviatedHash("ed367df");
+        commit.setAbbreviatedParentHashes("");
+        commit.setAuthorName("Zoë");
+        commit.setCommitterName("Zoë");
+        commit.setAuthorDate("Sep/13/2020");
+        commit.setSubjectLine("Initial");
+        commit.setRefNamesColored("");
+        StringBuilder json = new StringBuilder();
+
+        new GitLogJsonWriter(StandardCharsets.ISO_8859_1, false).appendCommit(json, commit, "", "repo");
+
+        assertEquals("{\"type\":\"commit\",\"repository\":\"repo\""
+                + ",\"fullHash\":\"ed367df4eca4b8a201c9b3205cc7dfb3e1700ea8\",\"abbreviatedHash\":\"ed367df\""
+                + ",\"abbreviatedParentHashes\":[]"
+                + ",\"authorName\":\"Zo\\u00eb\",\"committerName\":\"Zo\\u00eb\",\"authorDate\":\"Sep/13/2020\""
+                + ",\"subjectLine\":\"Initial\",\"refNames\":[],\"url\":null,\"links\":[]}",
+                json.toString());
+    }
+
+    @Test
+    void passThrough_givenLinesSplitAcrossBuffers_thenGraphAndTextRecords() {
+        GitLogJsonWriter jsonWriter = new GitLogJsonWriter(StandardCharsets.UTF_8, true);
+
+        String first = decode(jsonWriter.passThrough(ByteBuffer.wrap("|\\\n| ".getBytes(StandardCharsets.UTF_8))));
+        String second = decode(jsonWriter.passThrough(ByteBuffer.wrap(" 1 file changed\n".getBytes(StandardCharsets.UTF_8))));
+
+        String lineSeparator = System.lineSeparator();
+        assertEquals("{\"type\":\"graph\",\"graph\":\"|\\\\\"}" + lineSeparator, first);
+        assertEquals("{\"type\":\"text\",\"text\":\"|  1 file changed\"}" + lineSeparator, second);
+    }
+
+    private static String decode(ByteBuffer bytes) {
+        return StandardCharsets.UTF_8.decode(bytes).toString();
+    }
+}
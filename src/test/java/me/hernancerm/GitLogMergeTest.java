@@ -0,0 +1,84 @@
+package me.hernancerm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class GitLogMergeTest {
+
+    @Test
+    void run_givenProducersNewestFirst_thenMergeNewestFirst() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        new GitLogMerge().run(
+                List.of(producer("a", 50, 30, 10), producer("b", 60, 30, 20, 5), producer("c")),
+                sink(output),
+                () -> false);
+
+        assertEquals("b60\na50\na30\nb30\nb20\na10\nb5\n", output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void entryCollector_givenLinesAfterRecords_thenGroupWithTheirRecord() throws IOException {
+        List<GitLogMerge.Entry> entries = new ArrayList<>();
+        GitLogMerge.EntryCollector collector = new GitLogMerge.EntryCollector(
+                (line, recordStart, length) -> new String(line, recordStart + 1, length - recordStart - 1)
+                        .concat("\n")
+                        .getBytes(StandardCharsets.UTF_8),
+                entries::add);
+
+        collector.record(bytes("1700000200\u001efirst"), 10, 16);
+        collector.passThrough(ByteBuffer.wrap(bytes(" file | 2 +-\n")));
+        collector.record(bytes("1700000100\u001esecond"), 10, 17);
+        collector.finish();
+
+        assertEquals(2, entries.size());
+        assertEquals(1700000200, entries.get(0).timestamp());
+        assertEquals("first\n file | 2 +-\n", new String(entries.get(0).bytes(), StandardCharsets.UTF_8));
+        assertEquals(1700000100, entries.get(1).timestamp());
+        assertEquals("second\n", new String(entries.get(1).bytes(), StandardCharsets.UTF_8));
+    }
+
+    private static GitLogMerge.Producer producer(String name, long... timestamps) {
+        return handler -> {
+            for (long timestamp : timestamps) {
+                handler.accept(new GitLogMerge.Entry(timestamp, bytes(name + timestamp + "\n")));
+            }
+        };
+    }
+
+    private static OutputSink sink(ByteArrayOutputStream output) {
+        return new OutputSink() {
+            @Override
+            public void println(CharSequence line) {
+                output.writeBytes(bytes(line + "\n"));
+            }
+
+            @Override
+            public void write(ByteBuffer bytes) {
+                byte[] copy = new byte[bytes.remaining()];
+                bytes.get(copy);
+                output.writeBytes(copy);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    private static byte[] bytes(String string) {
+        return string.getBytes(StandardCharsets.UTF_8);
+    }
+}
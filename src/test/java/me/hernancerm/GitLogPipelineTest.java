@@ -0,0 +1,138 @@
+package me.hernancerm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+class GitLogPipelineTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @Test
+    void run_givenSlowFormatterForSomeRecords_thenOutputInOrder() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            expected.append("> ").append(i).append('\n');
+            if (i % 50 == 0) {
+                expected.append(" file | 2 +-\n");
+            }
+        }
+        GitLogSource source = (handler, isCancelled) -> {
+            for (int i = 0; i < 200; i++) {
+                handler.record(bytes("| " + i), 2, ("| " + i).length());
+                if (i % 50 == 0) {
+                    handler.passThrough(ByteBuffer.wrap(bytes(" file | 2 +-\n")));
+                }
+            }
+        };
+        GitLogPipeline.RecordRenderer renderer = (line, recordStart, length) -> {
+            String record = new String(line, recordStart, length - recordStart, StandardCharsets.UTF_8);
+            if (Integer.parseInt(record) % 10 == 0) {
+                sleep(20);
+            }
+            return bytes("> " + record + "\n");
+        };
+
+        assertTimeoutPreemptively(TIMEOUT, () ->
+                new GitLogPipeline(4).run(source, renderer, sink(output, () -> {}), () -> false));
+
+        assertEquals(expected.toString(), output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void run_givenCancelled_thenReaderStops() throws Exception {
+        AtomicBoolean isCancelled = new AtomicBoolean();
+        CountDownLatch readerStopped = new CountDownLatch(1);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        // Never ends on its own, like git-log on a huge history.
+        GitLogSource source = (handler, isSourceCancelled) -> {
+            try {
+                for (int i = 0; !isSourceCancelled.getAsBoolean(); i++) {
+                    handler.record(bytes(String.valueOf(i)), 0, String.valueOf(i).length());
+                }
+            } finally {
+                readerStopped.countDown();
+            }
+        };
+        Runnable cancelAfterLines = () -> {
+            if (output.size() > 1000) {
+                isCancelled.set(true);
+            }
+        };
+
+        assertTimeoutPreemptively(TIMEOUT, () -> new GitLogPipeline(2).run(
+                source, (line, recordStart, length) -> Arrays.copyOf(line, length),
+                sink(output, cancelAfterLines), isCancelled::get));
+
+        assertTrue(readerStopped.await(TIMEOUT.toSeconds(), TimeUnit.SECONDS), "The reader did not stop");
+    }
+
+    @Test
+    void run_givenSourceThrowsRuntimeException_thenThrowAfterLinesReadBefore() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        GitLogSource source = (handler, isCancelled) -> {
+            handler.record(bytes("first"), 0, 5);
+            handler.record(bytes("second"), 0, 6);
+            throw new IllegalStateException("Not a commit: 1234567");
+        };
+        GitLogPipeline.RecordRenderer renderer = (line, recordStart, length) ->
+                bytes(new String(line, 0, length, StandardCharsets.UTF_8) + "\n");
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> assertTimeoutPreemptively(TIMEOUT,
+                () -> new GitLogPipeline(2).run(source, renderer, sink(output, () -> {}), () -> false)));
+
+        assertEquals("Not a commit: 1234567", e.getMessage());
+        assertEquals("first\nsecond\n", output.toString(StandardCharsets.UTF_8));
+    }
+
+    private static OutputSink sink(ByteArrayOutputStream output, Runnable afterWrite) {
+        return new OutputSink() {
+            @Override
+            public void println(CharSequence line) {
+                output.writeBytes(bytes(line + "\n"));
+                afterWrite.run();
+            }
+
+            @Override
+            public void write(ByteBuffer bytes) {
+                byte[] copy = new byte[bytes.remaining()];
+                bytes.get(copy);
+                output.writeBytes(copy);
+                afterWrite.run();
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static byte[] bytes(String string) {
+        return string.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,127 @@
+package me.hernancerm;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.nio.channels.ReadableByteChannel;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+class GitLogProcessBuilderTest {
+
+    @Test
+    void cancelReading_givenPagerExitsWhileReadBlocked_thenReadReturns() throws Exception {
+        // git-log which never prints anything, e.g., `-S` on a huge history.
+        SilentProcess gitLog = new SilentProcess();
+        CompletableFuture<Void> reading = new CompletableFuture<>();
+        CompletableFuture<Void> pagerExit = new CompletableFuture<>();
+        pagerExit.thenRun(() -> GitLogProcessBuilder.cancelReading(
+                reading, List.of(CompletableFuture.completedFuture(gitLog))));
+        Thread reader = Thread.ofPlatform().daemon().start(() -> {
+            try {
+                new GitLogReader(gitLog.stdout()).read(new GitLogSource.Handler() {
+                    @Override
+                    public void passThrough(ByteBuffer bytes) {
+                    }
+
+                    @Override
+                    public void record(byte[] line, int recordStart, int length) {
+                    }
+                }, reading::isCancelled);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        // Exits once the read is blocked, as quitting less does while git-log prints nothing.
+        gitLog.readStarted.await();
+        pagerExit.complete(null);
+
+        reader.join(5000);
+        assertFalse(reader.isAlive(), "The read did not return");
+        assertTrue(reading.isCancelled());
+        assertTrue(gitLog.isDestroyed);
+    }
+
+    // A process whose stdout is a pipe nobody writes to, closed when the process is destroyed.
+    private static class SilentProcess extends Process {
+
+        private final Pipe pipe;
+        private final CountDownLatch readStarted = new CountDownLatch(1);
+        private volatile boolean isDestroyed;
+
+        SilentProcess() throws Exception {
+            this.pipe = Pipe.open();
+        }
+
+        ReadableByteChannel stdout() {
+            return new ReadableByteChannel() {
+                @Override
+                public int read(ByteBuffer dst) throws IOException {
+                    readStarted.countDown();
+                    return pipe.source().read(dst);
+                }
+
+                @Override
+                public boolean isOpen() {
+                    return pipe.source().isOpen();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    pipe.source().close();
+                }
+            };
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return OutputStream.nullOutputStream();
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return Channels.newInputStream(pipe.source());
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            return InputStream.nullInputStream();
+        }
+
+        @Override
+        public int waitFor() {
+            return 0;
+        }
+
+        @Override
+        public int exitValue() {
+            return 0;
+        }
+
+        @Override
+        public void destroy() {
+            isDestroyed = true;
+            try {
+                pipe.sink().close();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public Stream<ProcessHandle> descendants() {
+            return Stream.empty();
+        }
+    }
+}
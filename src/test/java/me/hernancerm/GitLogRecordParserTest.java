@@ -0,0 +1,141 @@
+package me.hernancerm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+class GitLogRecordParserTest {
+
+    private final GitLogRecordParser parser = new GitLogRecordParser(StandardCharsets.UTF_8);
+
+    @Test
+    void parse_givenRecord_thenPopulateCommit() {
+        GitCommit commit = new GitCommit();
+
+        int startIndex = parse(
+                record("Test commit", "0816af9"), commit);
+
+        assertEquals(0, startIndex);
+        assertEquals("3bb28d0d0d1c978894e22c5206c0d1f07f5b9071", commit.getFullHash());
+        assertEquals("3bb28d0", commit.getAbbreviatedHash());
+        assertEquals(1, commit.getParentCount());
+        assertEquals("0816af9", commit.getAbbreviatedParentHash(0));
+        assertEquals(" (HEAD -> main)", commit.getRefNamesColored());
+        assertEquals("Jane Committer", commit.getCommitterName());
+        assertEquals("Hernán Cervera", commit.getAuthorName());
+        assertEquals("Dec/31/2025", commit.getAuthorDate());
+        assertEquals("Test commit", commit.getSubjectLine());
+    }
+
+    @Test
+    void parse_givenGraphPrefix_thenReturnPrefixLength() {
+        GitCommit commit = new GitCommit();
+
+        int startIndex = parse(
+                "| * " + record("Test commit", "0816af9"), commit);
+
+        assertEquals(4, startIndex);
+        assertEquals("Test commit", commit.getSubjectLine());
+    }
+
+    @Test
+    void parse_givenMergeCommit_thenPopulateAllParents() {
+        GitCommit commit = new GitCommit();
+
+        parse(record("Merge", "0816af9 a1b2c3d e4f5a6b"), commit);
+
+        assertEquals(3, commit.getParentCount());
+        assertEquals("0816af9", commit.getAbbreviatedParentHash(0));
+        assertEquals("a1b2c3d", commit.getAbbreviatedParentHash(1));
+        assertEquals("e4f5a6b", commit.getAbbreviatedParentHash(2));
+    }
+
+    @Test
+    void parse_givenRootCommit_thenPopulateNoParents() {
+        GitCommit commit = new GitCommit();
+
+        parse(record("Initial commit", ""), commit);
+
+        assertEquals(0, commit.getParentCount());
+    }
+
+    @Test
+    void parse_givenSubjectWithSeparatorsAndTags_thenKeepSubjectVerbatim() {
+        GitCommit commit = new GitCommit();
+        String subjectLine = "Odd </hernancerm.git-timeline.subject-line> \u001f\u001e subject";
+
+        parse(record(subjectLine, "0816af9"), commit);
+
+        assertEquals(subjectLine, commit.getSubjectLine());
+    }
+
+    @Test
+    void parse_givenOutputAfterRecord_thenExcludeItFromSubject() {
+        GitCommit commit = new GitCommit();
+
+        parse("* " + record("Test commit", "0816af9") + "| ", commit);
+
+        assertEquals("Test commit", commit.getSubjectLine());
+    }
+
+    @Test
+    void parse_givenRepeatedFields_thenReuseStrings() {
+        GitCommit commit = new GitCommit();
+        GitCommit nextCommit = new GitCommit();
+
+        parse(record("Test commit", "0816af9"), commit);
+        parse(record("Next commit", "3bb28d0"), nextCommit);
+
+        assertSame(commit.getAuthorName(), nextCommit.getAuthorName());
+        assertSame(commit.getCommitterName(), nextCommit.getCommitterName());
+        assertSame(commit.getAuthorDate(), nextCommit.getAuthorDate());
+        assertSame(commit.getRefNamesColored(), nextCommit.getRefNamesColored());
+    }
+
+    @Test
+    void parse_givenGraphConnectorLine_thenReturnNoRecord() {
+        GitCommit commit = new GitCommit();
+
+        int startIndex = parse("|\\", commit);
+
+        assertEquals(-1, startIndex);
+        assertNull(commit.getFullHash());
+    }
+
+    @Test
+    void parse_givenSeparatorNotFollowedByHash_thenReturnNoRecord() {
+        GitCommit commit = new GitCommit();
+
+        int startIndex = parse("| +text with a \u001e control character", commit);
+
+        assertEquals(-1, startIndex);
+        assertNull(commit.getFullHash());
+    }
+
+    private int parse(String line, GitCommit commit) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        int recordStart = GitLogRecordParser.findRecordStart(ByteBuffer.wrap(bytes), 0, bytes.length);
+        if (recordStart >= 0) {
+            int recordEnd = GitLogRecordParser.findRecordEnd(bytes, recordStart, bytes.length);
+            parser.parse(bytes, recordStart, recordEnd, commit);
+        }
+        return recordStart;
+    }
+
+    private String record(String subjectLine, String abbreviatedParentHashes) {
+        return "\u001e" + String.join("\u001f",
+                "3bb28d0d0d1c978894e22c5206c0d1f07f5b9071",
+                "3bb28d0",
+                abbreviatedParentHashes,
+                " (HEAD -> main)",
+                "Jane Committer",
+                "Hernán Cervera",
+                "Dec/31/2025",
+                subjectLine) + "\u001e";
+    }
+}
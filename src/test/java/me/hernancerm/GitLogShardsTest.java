@@ -0,0 +1,28 @@
+package me.hernancerm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class GitLogShardsTest {
+
+    @Test
+    void split_givenWalkAndDisplayOptions_thenSplitThem() {
+        GitLogShards.Split split = GitLogShards.split(new String[]{
+                "--color=always", "-n", "50", "--author=jane", "main", "--date=relative", "-10", "--", "src"});
+
+        assertEquals(List.of("-n", "50", "--author=jane", "main", "-10", "--", "src"), split.walkArgs());
+        assertEquals(List.of("--color=always", "--date=relative"), split.displayArgs());
+    }
+
+    @Test
+    void split_givenOptionWhichCannotBeSharded_thenNull() {
+        assertNull(GitLogShards.split(new String[]{"--stat"}));
+        assertNull(GitLogShards.split(new String[]{"--graph", "main"}));
+        assertNull(GitLogShards.split(new String[]{"--follow", "--", "src"}));
+        assertNull(GitLogShards.split(new String[]{"--since"}));
+    }
+}
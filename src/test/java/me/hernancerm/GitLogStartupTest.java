@@ -0,0 +1,38 @@
+package me.hernancerm;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+
+class GitLogStartupTest {
+
+    @Test
+    void await_givenTaskThrowsIOException_thenThrowItAsIs() {
+        IOException error = new IOException("Cannot run program \"git\"");
+        try (GitLogStartup startup = new GitLogStartup(Instant.now())) {
+            CompletableFuture<String> gitConfig = startup.submit(() -> {
+                throw error;
+            });
+
+            assertSame(error, assertThrows(IOException.class, () -> GitLogStartup.await(gitConfig)));
+        }
+    }
+
+    @Test
+    void await_givenDependentOfFailedTask_thenThrowOriginalException() {
+        IllegalStateException error = new IllegalStateException("Error reading git config value 'core.pager'");
+        try (GitLogStartup startup = new GitLogStartup(Instant.now())) {
+            CompletableFuture<String> gitConfig = startup.submit(() -> {
+                throw error;
+            });
+            CompletableFuture<Integer> charset = gitConfig.thenApply(String::length);
+
+            assertSame(error, assertThrows(IllegalStateException.class, () -> GitLogStartup.await(charset)));
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package me.hernancerm;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HexFormat;
+import java.util.zip.DeflaterOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GitObjectDatabaseTest {
+
+    @TempDir
+    Path objectsDirectory;
+
+    @Test
+    void applyDelta_givenCopyAndInsert_thenRebuildObject() {
+        byte[] base = "tree 1\nparent 2\n\nsubject\n".getBytes(StandardCharsets.US_ASCII);
+        byte[] delta = {
+                // Sizes of the base (25) and of the result (28).
+                25, 28,
+                // Copy 16 bytes from offset 0: `tree 1\nparent 2\n`.
+                (byte) 0x90, 16,
+                // Insert 12 bytes.
+                12, '\n', 'n', 'e', 'w', ' ', 's', 'u', 'b', 'j', 'e', 'c', 't'};
+
+        byte[] result = GitObjectDatabase.applyDelta(base, delta);
+
+        assertEquals("tree 1\nparent 2\n\nnew subject", new String(result, StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void read_givenLooseObject_thenReadTypeAndContent() throws IOException {
+        String hash = "3b18e512dba79e4c8300dd08aeb37f8e728b8dad";
+        byte[] content = "hello world\n".getBytes(StandardCharsets.US_ASCII);
+        writeLooseObject(hash, "blob", content);
+
+        try (GitObjectDatabase database = GitObjectDatabase.open(objectsDirectory)) {
+            GitObjectDatabase.GitObject object = database.read(hash);
+
+            assertEquals(GitObjectDatabase.TYPE_BLOB, object.type());
+            assertArrayEquals(content, object.content());
+            assertNull(database.read("0".repeat(40)));
+        }
+    }
+
+    @Test
+    void getAbbreviationLength_givenObjectsSharingPrefix_thenLengthensPastIt() throws IOException {
+        String hash = "3b18e512dba79e4c8300dd08aeb37f8e728b8dad";
+        writeLooseObject(hash, "blob", new byte[0]);
+        writeLooseObject("3b18e512d0000000000000000000000000000000", "blob", new byte[0]);
+
+        try (GitObjectDatabase database = GitObjectDatabase.open(objectsDirectory)) {
+            assertEquals(10, database.getAbbreviationLength(HexFormat.of().parseHex(hash), -1));
+            assertEquals(12, database.getAbbreviationLength(HexFormat.of().parseHex(hash), 12));
+        }
+    }
+
+    private void writeLooseObject(String hash, String type, byte[] content) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflaterOutputStream = new DeflaterOutputStream(compressed)) {
+            deflaterOutputStream.write((type + " " + content.length + "\0").getBytes(StandardCharsets.US_ASCII));
+            deflaterOutputStream.write(content);
+        }
+        Path directory = Files.createDirectories(objectsDirectory.resolve(hash.substring(0, 2)));
+        Files.write(directory.resolve(hash.substring(2)), compressed.toByteArray());
+    }
+}
@@ -0,0 +1,41 @@
+package me.hernancerm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.Test;
+
+class GitObjectLogSourceTest {
+
+    // Sun Oct 18 18:25:56 UTC 2026.
+    private static final long NOW = 1792347956L;
+    private static final ZoneId UTC = ZoneOffset.UTC;
+
+    @Test
+    void parseDate_givenDateWithoutTime_thenKeepTimeOfDayOfNow() {
+        assertEquals(1704133556L, GitObjectLogSource.parseDate("2024-01-01", NOW, UTC));
+    }
+
+    @Test
+    void parseDate_givenDateWithTime_thenInZoneOrOffset() {
+        assertEquals(1704103200L, GitObjectLogSource.parseDate("2024-01-01 10:00", NOW, UTC));
+        assertEquals(1704103200L, GitObjectLogSource.parseDate("2024-01-01T10:00:00Z", NOW, UTC));
+        assertEquals(1704096000L, GitObjectLogSource.parseDate("2024-01-01T10:00:00+0200", NOW, UTC));
+    }
+
+    @Test
+    void parseDate_givenRelativeDate_thenBeforeNow() {
+        assertEquals(NOW - 3 * 86400, GitObjectLogSource.parseDate("3.days.ago", NOW, UTC));
+        assertEquals(NOW - 2 * 7 * 86400, GitObjectLogSource.parseDate("2 weeks ago", NOW, UTC));
+        assertEquals(1700000000L, GitObjectLogSource.parseDate("@1700000000", NOW, UTC));
+    }
+
+    @Test
+    void parseDate_givenUnsupportedDate_thenNull() {
+        assertNull(GitObjectLogSource.parseDate("last friday", NOW, UTC));
+        assertNull(GitObjectLogSource.parseDate("2024-02-30", NOW, UTC));
+    }
+}
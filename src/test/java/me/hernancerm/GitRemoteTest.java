@@ -0,0 +1,37 @@
+package me.hernancerm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+class GitRemoteTest {
+
+    @Test
+    void parse_givenHttpsAndScpLikeUrls_thenHostOwnerAndRepository() {
+        assertEquals(
+                new GitRemote(GitHostingProvider.BITBUCKET, "bitbucket.org", "git-timeline", "hernancerm"),
+                GitRemote.parse("https://user@bitbucket.org/hernancerm/git-timeline.git", GitHostingProviders.BUILT_IN));
+        assertEquals(
+                new GitRemote(GitHostingProvider.GITHUB, "github.com", "git-timeline", "hernancerm"),
+                GitRemote.parse("git@github.com:hernancerm/git-timeline.git", GitHostingProviders.BUILT_IN));
+    }
+
+    @Test
+    void parse_givenSshUrlWithPortAndNoGitSuffix_thenHostWithoutPort() {
+        assertEquals(
+                new GitRemote(GitHostingProvider.GITLAB, "gitlab.com", "git-timeline", "hernancerm/tools"),
+                GitRemote.parse("ssh://git@gitlab.com:2222/hernancerm/tools/git-timeline/", GitHostingProviders.BUILT_IN));
+        assertEquals(
+                new GitRemote(GitHostingProvider.GITEA, "codeberg.org:8443", "git-timeline", "hernancerm"),
+                GitRemote.parse("https://codeberg.org:8443/hernancerm/git-timeline", GitHostingProviders.BUILT_IN));
+    }
+
+    @Test
+    void parse_givenUnknownHostOrNoOwner_thenNull() {
+        assertNull(GitRemote.parse("https://example.com/hernancerm/git-timeline.git", GitHostingProviders.BUILT_IN));
+        assertNull(GitRemote.parse("https://github.com/git-timeline.git", GitHostingProviders.BUILT_IN));
+        assertNull(GitRemote.parse("/srv/git/hernancerm/git-timeline.git", GitHostingProviders.BUILT_IN));
+        assertNull(GitRemote.parse("./github.com:hernancerm/git-timeline", GitHostingProviders.BUILT_IN));
+    }
+}
@@ -0,0 +1,103 @@
+package me.hernancerm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class LinkifierTest {
+
+    private static final GitRemote BITBUCKET_REMOTE = new GitRemote(
+            GitHostingProvider.BITBUCKET, "bitbucket.org", "test-repo", "hernancerm");
+
+    private static final GitRemote GITHUB_REMOTE = new GitRemote(
+            GitHostingProvider.GITHUB, "github.com", "test-repo", "hernancerm");
+
+    @Test
+    void appendSubjectLine_givenBitbucketRemote_thenLinkJiraKeysAndPrNumbers() {
+        StringBuilder output = new StringBuilder();
+
+        Linkifier.of(BITBUCKET_REMOTE).appendSubjectLine(output, "ABC-12 Fix #34 and XY-5");
+
+        assertEquals(
+                link("https://hernancerm.atlassian.net/browse/ABC-12", "ABC-12")
+                        + " Fix "
+                        + link("https://bitbucket.org/hernancerm/test-repo/pull-requests/34", "#34")
+                        + " and "
+                        + link("https://hernancerm.atlassian.net/browse/XY-5", "XY-5"),
+                output.toString());
+    }
+
+    @Test
+    void appendSubjectLine_givenGitHubRemote_thenLinkNumbersOnly() {
+        StringBuilder output = new StringBuilder();
+
+        Linkifier.of(GITHUB_REMOTE).appendSubjectLine(output, "ABC-12 Fix #34");
+
+        assertEquals(
+                "ABC-12 Fix " + link("https://github.com/hernancerm/test-repo/issues/34", "#34"),
+                output.toString());
+    }
+
+    @Test
+    void appendSubjectLine_givenVersionsAndPartialMatches_thenSkipThem() {
+        StringBuilder output = new StringBuilder();
+
+        Linkifier.of(BITBUCKET_REMOTE).appendSubjectLine(output, "Bump RC-1.2, Ab-1, ABC- and # 1");
+
+        assertEquals("Bump RC-1.2, Ab-1, ABC- and # 1", output.toString());
+    }
+
+    @Test
+    void appendRefNames_givenHyperlinksAndColors_thenLinkOnlyOutsideHyperlinks() {
+        String existingLink = link("https://example.com/ABC-1", "ABC-1");
+        StringBuilder output = new StringBuilder();
+
+        Linkifier.of(BITBUCKET_REMOTE).appendRefNames(output,
+                existingLink + " \033[1;32mfeature/ABC-2\033[m #3");
+
+        assertEquals(
+                existingLink + " \033[1;32mfeature/"
+                        + link("https://hernancerm.atlassian.net/browse/ABC-2", "ABC-2")
+                        + "\033[m #3",
+                output.toString());
+    }
+
+    @Test
+    void appendCommit_givenNoRemote_thenAppendTitle() {
+        StringBuilder output = new StringBuilder();
+
+        Linkifier.of(null).appendCommit(output, "3bb28d0d0d1c978894e22c5206c0d1f07f5b9071", "3bb28d0");
+
+        assertEquals("3bb28d0", output.toString());
+    }
+
+    @Test
+    void appendCommit_givenGitHubRemote_thenLinkCommit() {
+        StringBuilder output = new StringBuilder();
+
+        Linkifier.of(GITHUB_REMOTE).appendCommit(output, "3bb28d0d0d1c978894e22c5206c0d1f07f5b9071", "3bb28d0");
+
+        assertEquals(
+                link("https://github.com/hernancerm/test-repo/commit/3bb28d0d0d1c978894e22c5206c0d1f07f5b9071",
+                        "3bb28d0"),
+                output.toString());
+    }
+
+    @Test
+    void appendSubjectLine_givenGitLabRemote_thenLinkIssuesAndMergeRequests() {
+        GitRemote remote = new GitRemote(GitHostingProvider.GITLAB, "gitlab.com", "test-repo", "hernancerm/tools");
+        StringBuilder output = new StringBuilder();
+
+        Linkifier.of(remote).appendSubjectLine(output, "Fix #12 (!34)");
+
+        assertEquals(
+                "Fix " + link("https://gitlab.com/hernancerm/tools/test-repo/-/issues/12", "#12")
+                        + " (" + link("https://gitlab.com/hernancerm/tools/test-repo/-/merge_requests/34", "!34") + ")",
+                output.toString());
+    }
+
+    // OSC 8 hyperlink.
+    private String link(String url, String title) {
+        return "\033]8;;" + url + "\007" + title + "\033]8;;\007";
+    }
+}
@@ -0,0 +1,73 @@
+package me.hernancerm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+class PagerBufferTest {
+
+    @Test
+    void appendPassThrough_givenLinesSplitAcrossCalls_thenKeepWholeLines() throws InterruptedIOException {
+        PagerBuffer buffer = new PagerBuffer();
+        buffer.demand(10);
+
+        buffer.appendPassThrough(bytes("|\\\n| * fir"));
+        buffer.appendPassThrough(bytes("st\n|/\n"));
+        buffer.appendRecord(bytes("* \u001erecord").array(), 2, 9);
+        buffer.finish();
+
+        assertEquals(4, buffer.size());
+        assertEquals("| * first", new String(buffer.get(1).bytes(), StandardCharsets.UTF_8));
+        assertEquals(-1, buffer.get(1).recordStart());
+        assertEquals("|/", new String(buffer.get(2).bytes(), StandardCharsets.UTF_8));
+        assertEquals(2, buffer.get(3).recordStart());
+    }
+
+    @Test
+    void appendPassThrough_givenDemandReached_thenWaitForMoreDemand() throws Exception {
+        PagerBuffer buffer = new PagerBuffer();
+        buffer.demand(2);
+        Thread reader = Thread.ofVirtual().start(() -> {
+            try {
+                buffer.appendPassThrough(bytes("1\n2\n3\n4\n"));
+            } catch (InterruptedIOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        assertFalse(buffer.awaitLines(3, 200));
+        assertEquals(2, buffer.size());
+
+        buffer.demand(4);
+        reader.join();
+        assertEquals(4, buffer.size());
+    }
+
+    @Test
+    void close_givenReaderWaiting_thenDropRestOfOutput() throws Exception {
+        PagerBuffer buffer = new PagerBuffer();
+        buffer.demand(1);
+        Thread reader = Thread.ofVirtual().start(() -> {
+            try {
+                buffer.appendPassThrough(bytes("1\n2\n3\n"));
+            } catch (InterruptedIOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        assertTrue(buffer.awaitLines(1, 1000));
+        buffer.close();
+        reader.join();
+        assertEquals(1, buffer.size());
+    }
+
+    private static ByteBuffer bytes(String string) {
+        return ByteBuffer.wrap(string.getBytes(StandardCharsets.UTF_8));
+    }
+}
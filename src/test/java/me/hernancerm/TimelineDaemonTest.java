@@ -0,0 +1,48 @@
+package me.hernancerm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TimelineDaemonTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void run_givenVersionOption_thenPrintVersionFromDaemon() throws IOException {
+        Path socketPath = tempDir.resolve("test.sock");
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        TimelineClient client = new TimelineClient(
+                socketPath, System.getenv(), stdout, new ByteArrayOutputStream(), false);
+
+        try (TimelineDaemon daemon = TimelineDaemon.open(socketPath)) {
+            Thread.ofVirtual().start(() -> {
+                try {
+                    daemon.serve();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            assertEquals(Integer.valueOf(0), client.run(new String[]{"--version"}));
+            assertEquals("git-timeline 2.2-SNAPSHOT" + System.lineSeparator(), stdout.toString());
+        }
+    }
+
+    @Test
+    void run_givenNoDaemon_thenRunInProcess() {
+        TimelineClient client = new TimelineClient(
+                tempDir.resolve("test.sock"), System.getenv(), new ByteArrayOutputStream(),
+                new ByteArrayOutputStream(), false);
+
+        assertNull(client.run(new String[]{"--version"}));
+    }
+}
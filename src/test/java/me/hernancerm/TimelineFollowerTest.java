@@ -0,0 +1,26 @@
+package me.hernancerm;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class TimelineFollowerTest {
+
+    @Test
+    void getNewCommitsArgs_givenPaths_thenExcludePreviousTipsBeforePaths() {
+        String[] args = TimelineFollower.getNewCommitsArgs(
+                new String[]{"-n", "5", "main", "--", "src"}, List.of("aaa", "bbb"));
+
+        assertArrayEquals(new String[]{"-n", "5", "main", "^aaa", "^bbb", "--", "src"}, args);
+    }
+
+    @Test
+    void getNewCommitsArgs_givenNot_thenExcludePreviousTipsWithoutCaret() {
+        String[] args = TimelineFollower.getNewCommitsArgs(
+                new String[]{"main", "--not", "origin/main"}, List.of("aaa"));
+
+        assertArrayEquals(new String[]{"main", "--not", "origin/main", "aaa"}, args);
+    }
+}
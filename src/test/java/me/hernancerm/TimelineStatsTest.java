@@ -0,0 +1,60 @@
+package me.hernancerm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+class TimelineStatsTest {
+
+    @Test
+    void measureInput_givenEnabled_thenCountBytesAndLines() throws IOException {
+        TimelineStats stats = new TimelineStats(true);
+        byte[] output = "* first\n|\\\n* second\n".getBytes(StandardCharsets.UTF_8);
+
+        ReadableByteChannel channel = stats.measureInput(Channels.newChannel(new ByteArrayInputStream(output)));
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        while (channel.read(buffer) >= 0) {
+            buffer.clear();
+        }
+
+        assertEquals(output.length, stats.getBytesIn());
+        assertEquals(3, stats.getLinesIn());
+    }
+
+    @Test
+    void end_givenStages_thenCountCommitsByParse() {
+        TimelineStats stats = new TimelineStats(true);
+
+        stats.end(TimelineStats.Stage.PARSE, stats.begin());
+        stats.end(TimelineStats.Stage.FORMAT, stats.begin());
+        stats.end(TimelineStats.Stage.PARSE, stats.begin());
+        stats.finish(null);
+
+        assertEquals(2, stats.getCommits());
+    }
+
+    @Test
+    void measureInput_givenDisabled_thenReturnChannelAsIs() {
+        TimelineStats stats = new TimelineStats(false);
+        ReadableByteChannel channel = Channels.newChannel(new ByteArrayInputStream(new byte[0]));
+
+        assertSame(channel, stats.measureInput(channel));
+        assertEquals(0, stats.begin());
+    }
+
+    @Test
+    void beginEvent_givenJfrNotRecording_thenNull() {
+        TimelineStats stats = new TimelineStats(true);
+
+        assertNull(stats.beginEvent(TimelineStats.Stage.PARSE));
+    }
+}